@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2019 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader;
+
+import java.io.IOException;
+
+/**
+ * Receives continuous values as they are parsed, so that a reader does not
+ * have to hold the whole data set in memory.
+ *
+ * Sep 2, 2019 10:14:03 AM
+ *
+ * @author Kevin V. Bui (kvb2@pitt.edu)
+ */
+public interface ContinuousDataSink {
+
+    /**
+     * Called once, before any value is set, with the dimensions of the data.
+     *
+     * @param numOfRows
+     * @param numOfCols
+     * @throws IOException
+     */
+    public void allocate(int numOfRows, int numOfCols) throws IOException;
+
+    /**
+     * Stores a value. Missing values are given as
+     * {@link DatasetReader#CONTINUOUS_MISSING_VALUE}.
+     *
+     * @param row
+     * @param col
+     * @param value
+     */
+    public void set(int row, int col, double value);
+
+}
@@ -0,0 +1,863 @@
+/*
+ * Copyright (C) 2019 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.binary;
+
+import edu.pitt.dbmi.data.reader.ContinuousData;
+import edu.pitt.dbmi.data.reader.Data;
+import edu.pitt.dbmi.data.reader.DataColumn;
+import edu.pitt.dbmi.data.reader.DataReaderException;
+import static edu.pitt.dbmi.data.reader.DatasetReader.DISCRETE_MISSING_VALUE;
+import edu.pitt.dbmi.data.reader.DiscreteData;
+import edu.pitt.dbmi.data.reader.DiscreteDataColumn;
+import edu.pitt.dbmi.data.reader.MixedData;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A data set stored column by column in a binary file and accessed through
+ * memory mapping, so that data sets larger than the heap can be read without
+ * loading them, and saved data sets can be loaded without parsing text.
+ *
+ * The file layout (all numbers little-endian) is a 40-byte header
+ * <pre>
+ *   byte[4] magic "TBCD"
+ *   int     format version
+ *   int     precision of continuous columns (0 = 64-bit double, 1 = 32-bit float)
+ *   int     number of rows
+ *   int     number of columns
+ *   int     flags (1 = has knowledge, 2 = has covariances)
+ *   long    offset of the data block
+ *   long    offset of the knowledge and covariances, 0 if neither
+ * </pre>
+ * followed by one byte per column giving its variable type (see
+ * {@link VariableType}), then for each column its name, as an int byte length
+ * and the UTF-8 bytes, and its number of categories, -1 for a continuous
+ * column, followed by the categories in the same form as the name.
+ *
+ * The data block, aligned to 8 bytes, holds each column's values in row
+ * order one column after another, each column starting on an 8-byte
+ * boundary. Continuous values are stored in the file's precision, with NaN
+ * for missing values; discrete values are stored as int category indices,
+ * with -99 for missing values.
+ *
+ * After the data block, aligned to 8 bytes, come the knowledge, as an int
+ * byte length and the UTF-8 text, and then, aligned to 8 bytes, the
+ * covariances of the columns, as an int sample size, an unused int and the
+ * full matrix of doubles in row order. The format of the knowledge text is
+ * up to the caller. Covariances can only be stored for continuous columns; a
+ * file of covariances alone has no rows.
+ *
+ * Version 1 files, which have a 32-byte header without the last offset, no
+ * variable types, no categories and no knowledge or covariances, can still
+ * be read.
+ *
+ * The data block is mapped in segments of whole columns, each under 2 GB,
+ * and the covariances in segments of whole rows.
+ * Reads are thread-safe.
+ *
+ * Sep 2, 2019 10:30:41 AM
+ *
+ * @author Kevin V. Bui (kvb2@pitt.edu)
+ */
+public final class ColumnarBinaryFile implements Closeable {
+
+    public static final int VERSION = 2;
+
+    /**
+     * The role of a column, as given by interventional metadata.
+     */
+    public enum VariableType {
+        DOMAIN, INTERVENTION_STATUS, INTERVENTION_VALUE
+    }
+
+    private static final byte[] MAGIC = {'T', 'B', 'C', 'D'};
+    private static final int VERSION_1_HEADER_SIZE = 32;
+    private static final int HEADER_SIZE = 40;
+    private static final int FLAGS_POSITION = 20;
+    private static final int EXTRAS_OFFSET_POSITION = 32;
+    private static final int DOUBLE_PRECISION = 0;
+    private static final int SINGLE_PRECISION = 1;
+    private static final int HAS_KNOWLEDGE = 1;
+    private static final int HAS_COVARIANCES = 2;
+    private static final int CONTINUOUS = -1;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final List<String> columnNames;
+    private final List<List<String>> categories;
+    private final VariableType[] variableTypes;
+    private final int numOfRows;
+    private final int numOfCols;
+    private final boolean singlePrecision;
+    private final boolean writable;
+
+    private final long dataOffset;
+    private final long dataSize;
+    private final int[] bytesPerValue;
+    private final int[] colSegments;
+    private final int[] colPositions;
+    private final MappedByteBuffer[] segments;
+
+    private String knowledge;
+    private int covarianceSampleSize = -1;
+    private DoubleBuffer[] covariances;
+    private int covarianceRowsPerSegment;
+    private double[][] covariancesToWrite;
+
+    private ColumnarBinaryFile(Path file, FileChannel channel, List<String> columnNames, List<List<String>> categories, VariableType[] variableTypes, int numOfRows, boolean singlePrecision, long dataOffset, boolean writable) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+        this.categories = Collections.unmodifiableList(new ArrayList<>(categories));
+        this.variableTypes = variableTypes;
+        this.numOfRows = numOfRows;
+        this.numOfCols = columnNames.size();
+        this.singlePrecision = singlePrecision;
+        this.writable = writable;
+        this.dataOffset = dataOffset;
+
+        // lay out the columns in segments of under 2 GB
+        this.bytesPerValue = new int[numOfCols];
+        this.colSegments = new int[numOfCols];
+        this.colPositions = new int[numOfCols];
+        List<long[]> segmentBounds = new ArrayList<>();
+        long segmentStart = 0;
+        long position = 0;
+        for (int col = 0; col < numOfCols; col++) {
+            bytesPerValue[col] = (categories.get(col) != null)
+                    ? Integer.BYTES
+                    : (singlePrecision ? Float.BYTES : Double.BYTES);
+
+            long colBytes = align((long) numOfRows * bytesPerValue[col]);
+            if (colBytes > Integer.MAX_VALUE) {
+                throw new DataReaderException(String.format("Columns of %d rows are too long to be mapped.", numOfRows));
+            }
+
+            if (position + colBytes - segmentStart > Integer.MAX_VALUE) {
+                segmentBounds.add(new long[]{segmentStart, position});
+                segmentStart = position;
+            }
+
+            colSegments[col] = segmentBounds.size();
+            colPositions[col] = (int) (position - segmentStart);
+            position += colBytes;
+        }
+        if (position > segmentStart) {
+            segmentBounds.add(new long[]{segmentStart, position});
+        }
+        this.dataSize = position;
+
+        this.segments = new MappedByteBuffer[segmentBounds.size()];
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        for (int i = 0; i < segments.length; i++) {
+            long[] bounds = segmentBounds.get(i);
+            segments[i] = channel.map(mode, dataOffset + bounds[0], bounds[1] - bounds[0]);
+            segments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Creates a new binary file of continuous columns with the given names and
+     * number of rows, replacing any existing file. All values are initially
+     * missing.
+     *
+     * @param file
+     * @param columnNames
+     * @param numOfRows
+     * @param singlePrecision true to store values as 32-bit floats
+     * @return the file, open for writing
+     * @throws IOException
+     */
+    public static ColumnarBinaryFile create(Path file, List<String> columnNames, int numOfRows, boolean singlePrecision) throws IOException {
+        return create(file, columnNames, Collections.nCopies(columnNames.size(), null), numOfRows, singlePrecision);
+    }
+
+    /**
+     * Creates a new binary file with the given columns and number of rows,
+     * replacing any existing file. All values are initially missing.
+     *
+     * @param file
+     * @param columnNames
+     * @param categories the categories of each discrete column, null for each
+     * continuous column
+     * @param numOfRows
+     * @param singlePrecision true to store continuous values as 32-bit floats
+     * @return the file, open for writing
+     * @throws IOException
+     */
+    public static ColumnarBinaryFile create(Path file, List<String> columnNames, List<List<String>> categories, int numOfRows, boolean singlePrecision) throws IOException {
+        if (categories.size() != columnNames.size()) {
+            throw new IllegalArgumentException("There must be categories, or null, for each column.");
+        }
+
+        VariableType[] variableTypes = new VariableType[columnNames.size()];
+        Arrays.fill(variableTypes, VariableType.DOMAIN);
+
+        ByteBuffer columns = encodeColumns(columnNames, categories, variableTypes);
+        long dataOffset = align(HEADER_SIZE + columns.remaining());
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(singlePrecision ? SINGLE_PRECISION : DOUBLE_PRECISION);
+            header.putInt(numOfRows);
+            header.putInt(columnNames.size());
+            header.putInt(0);
+            header.putLong(dataOffset);
+            header.putLong(0);
+            header.flip();
+
+            writeFully(channel, header, 0);
+            writeFully(channel, columns, HEADER_SIZE);
+
+            ColumnarBinaryFile binaryFile = new ColumnarBinaryFile(file, channel, columnNames, categories, variableTypes, numOfRows, singlePrecision, dataOffset, true);
+
+            // extend the file to its full size so the data block can be mapped
+            if (binaryFile.dataSize > 0) {
+                writeFully(channel, ByteBuffer.allocate(1), dataOffset + binaryFile.dataSize - 1);
+            }
+
+            binaryFile.fillMissing();
+
+            return binaryFile;
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Opens an existing binary file for reading.
+     *
+     * @param file
+     * @return the file, open for reading
+     * @throws IOException
+     */
+    public static ColumnarBinaryFile open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.limit(VERSION_1_HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    throw new DataReaderException(String.format("%s is not a columnar binary data file.", file));
+                }
+            }
+
+            int version = header.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new DataReaderException(String.format("Unsupported columnar binary file version %d.", version));
+            }
+
+            int precision = header.getInt();
+            int numOfRows = header.getInt();
+            int numOfCols = header.getInt();
+            int flags = header.getInt();
+            long dataOffset = header.getLong();
+
+            long extrasOffset = 0;
+            int headerSize = VERSION_1_HEADER_SIZE;
+            if (version > 1) {
+                ByteBuffer offset = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, offset, VERSION_1_HEADER_SIZE);
+                offset.flip();
+                extrasOffset = offset.getLong();
+                headerSize = HEADER_SIZE;
+            }
+
+            ByteBuffer columns = ByteBuffer.allocate((int) (dataOffset - headerSize)).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, columns, headerSize);
+            columns.flip();
+
+            VariableType[] variableTypes = new VariableType[numOfCols];
+            Arrays.fill(variableTypes, VariableType.DOMAIN);
+            if (version > 1) {
+                VariableType[] types = VariableType.values();
+                for (int i = 0; i < numOfCols; i++) {
+                    variableTypes[i] = types[columns.get()];
+                }
+            }
+
+            List<String> columnNames = new ArrayList<>(numOfCols);
+            List<List<String>> categories = new ArrayList<>(numOfCols);
+            for (int i = 0; i < numOfCols; i++) {
+                columnNames.add(getString(columns));
+
+                int numOfCategories = (version > 1) ? columns.getInt() : CONTINUOUS;
+                if (numOfCategories == CONTINUOUS) {
+                    categories.add(null);
+                } else {
+                    List<String> columnCategories = new ArrayList<>(numOfCategories);
+                    for (int j = 0; j < numOfCategories; j++) {
+                        columnCategories.add(getString(columns));
+                    }
+                    categories.add(Collections.unmodifiableList(columnCategories));
+                }
+            }
+
+            ColumnarBinaryFile binaryFile = new ColumnarBinaryFile(file, channel, columnNames, categories, variableTypes, numOfRows, precision == SINGLE_PRECISION, dataOffset, false);
+            if (flags != 0) {
+                binaryFile.readExtras(flags, extrasOffset);
+            }
+
+            return binaryFile;
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Writes the given data, as read by the tabular data readers, to a new
+     * binary file.
+     *
+     * @param file
+     * @param data continuous, discrete or mixed data
+     * @param singlePrecision true to store continuous values as 32-bit floats
+     * @throws IOException
+     */
+    public static void write(Path file, Data data, boolean singlePrecision) throws IOException {
+        if (data instanceof ContinuousData) {
+            ContinuousData continuousData = (ContinuousData) data;
+            double[][] values = continuousData.getData();
+            List<String> columnNames = new ArrayList<>();
+            for (DataColumn dataColumn : continuousData.getDataColumns()) {
+                columnNames.add(dataColumn.getName());
+            }
+
+            try (ColumnarBinaryFile binaryFile = create(file, columnNames, values.length, singlePrecision)) {
+                for (int row = 0; row < values.length; row++) {
+                    for (int col = 0; col < columnNames.size(); col++) {
+                        binaryFile.setDouble(row, col, values[row][col]);
+                    }
+                }
+            }
+        } else if (data instanceof DiscreteData) {
+            DiscreteData discreteData = (DiscreteData) data;
+            int[][] values = discreteData.getData();
+            write(file, discreteData.getDataColumns(), (values.length == 0) ? 0 : values[0].length, null, values, singlePrecision);
+        } else if (data instanceof MixedData) {
+            MixedData mixedData = (MixedData) data;
+            write(file, mixedData.getDataColumns(), mixedData.getNumOfRows(), mixedData.getContinuousData(), mixedData.getDiscreteData(), singlePrecision);
+        } else {
+            throw new IllegalArgumentException("Only continuous, discrete and mixed data can be written.");
+        }
+    }
+
+    private static void write(Path file, DiscreteDataColumn[] dataColumns, int numOfRows, double[][] continuousData, int[][] discreteData, boolean singlePrecision) throws IOException {
+        List<String> columnNames = new ArrayList<>(dataColumns.length);
+        List<List<String>> categories = new ArrayList<>(dataColumns.length);
+        for (DiscreteDataColumn dataColumn : dataColumns) {
+            columnNames.add(dataColumn.getDataColumn().getName());
+            categories.add(dataColumn.getDataColumn().isDiscrete() ? dataColumn.getCategories() : null);
+        }
+
+        try (ColumnarBinaryFile binaryFile = create(file, columnNames, categories, numOfRows, singlePrecision)) {
+            for (int col = 0; col < dataColumns.length; col++) {
+                for (int row = 0; row < numOfRows; row++) {
+                    if (categories.get(col) != null) {
+                        binaryFile.setInt(row, col, discreteData[col][row]);
+                    } else {
+                        binaryFile.setDouble(row, col, continuousData[col][row]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param row
+     * @param col
+     * @return the value at the given row and column, NaN if missing. The
+     * value of a discrete column is its category index.
+     */
+    public double getDouble(int row, int col) {
+        ByteBuffer segment = segments[colSegments[col]];
+        int index = colPositions[col] + row * bytesPerValue[col];
+
+        if (categories.get(col) != null) {
+            int value = segment.getInt(index);
+
+            return (value == DISCRETE_MISSING_VALUE) ? Double.NaN : value;
+        }
+
+        return singlePrecision ? segment.getFloat(index) : segment.getDouble(index);
+    }
+
+    /**
+     * Sets the value at the given row and column. Only files opened with
+     * {@link #create} can be written. For a discrete column the value is a
+     * category index, NaN if missing.
+     *
+     * @param row
+     * @param col
+     * @param value
+     */
+    public void setDouble(int row, int col, double value) {
+        if (!writable) {
+            throw new UnsupportedOperationException("File is open for reading only.");
+        }
+
+        ByteBuffer segment = segments[colSegments[col]];
+        int index = colPositions[col] + row * bytesPerValue[col];
+
+        if (categories.get(col) != null) {
+            segment.putInt(index, Double.isNaN(value) ? DISCRETE_MISSING_VALUE : (int) value);
+        } else if (singlePrecision) {
+            segment.putFloat(index, (float) value);
+        } else {
+            segment.putDouble(index, value);
+        }
+    }
+
+    /**
+     * @param row
+     * @param col a discrete column
+     * @return the category index at the given row and column, -99 if missing
+     */
+    public int getInt(int row, int col) {
+        checkDiscrete(col);
+
+        return segments[colSegments[col]].getInt(colPositions[col] + row * Integer.BYTES);
+    }
+
+    /**
+     * Sets the category index at the given row and column, -99 if missing.
+     * Only files opened with {@link #create} can be written.
+     *
+     * @param row
+     * @param col a discrete column
+     * @param value
+     */
+    public void setInt(int row, int col, int value) {
+        if (!writable) {
+            throw new UnsupportedOperationException("File is open for reading only.");
+        }
+        checkDiscrete(col);
+
+        segments[colSegments[col]].putInt(colPositions[col] + row * Integer.BYTES, value);
+    }
+
+    /**
+     * Copies a whole column into the given array, which must hold at least
+     * the number of rows.
+     *
+     * @param col
+     * @param values
+     */
+    public void readColumn(int col, double[] values) {
+        ByteBuffer segment = columnBuffer(col);
+
+        if (categories.get(col) != null) {
+            for (int row = 0; row < numOfRows; row++) {
+                int value = segment.getInt();
+                values[row] = (value == DISCRETE_MISSING_VALUE) ? Double.NaN : value;
+            }
+        } else if (singlePrecision) {
+            for (int row = 0; row < numOfRows; row++) {
+                values[row] = segment.getFloat();
+            }
+        } else {
+            segment.asDoubleBuffer().get(values, 0, numOfRows);
+        }
+    }
+
+    /**
+     * Copies a whole discrete column into the given array, which must hold at
+     * least the number of rows.
+     *
+     * @param col
+     * @param values
+     */
+    public void readColumn(int col, int[] values) {
+        checkDiscrete(col);
+
+        if (numOfRows > 0) {
+            columnBuffer(col).asIntBuffer().get(values, 0, numOfRows);
+        }
+    }
+
+    /**
+     * @param col
+     * @return true if the column holds category indices
+     */
+    public boolean isDiscrete(int col) {
+        return categories.get(col) != null;
+    }
+
+    /**
+     * @param col
+     * @return the categories of a discrete column, null for a continuous one
+     */
+    public List<String> getCategories(int col) {
+        return categories.get(col);
+    }
+
+    public VariableType getVariableType(int col) {
+        return variableTypes[col];
+    }
+
+    /**
+     * Sets the variable type of a column. Only files opened with
+     * {@link #create} can be written.
+     *
+     * @param col
+     * @param variableType
+     * @throws IOException
+     */
+    public void setVariableType(int col, VariableType variableType) throws IOException {
+        if (!writable) {
+            throw new UnsupportedOperationException("File is open for reading only.");
+        }
+
+        variableTypes[col] = variableType;
+        writeFully(channel, ByteBuffer.wrap(new byte[]{(byte) variableType.ordinal()}), HEADER_SIZE + col);
+    }
+
+    /**
+     * @return the stored knowledge text, or null if there is none
+     */
+    public String getKnowledge() {
+        return knowledge;
+    }
+
+    /**
+     * Stores knowledge text with the data; it is written when the file is
+     * closed. Only files opened with {@link #create} can be written.
+     *
+     * @param knowledge the knowledge text, or null for none
+     */
+    public void setKnowledge(String knowledge) {
+        if (!writable) {
+            throw new UnsupportedOperationException("File is open for reading only.");
+        }
+
+        this.knowledge = knowledge;
+    }
+
+    /**
+     * @return true if covariances of the columns are stored in the file
+     */
+    public boolean hasCovariances() {
+        return covariances != null;
+    }
+
+    /**
+     * @return the sample size of the stored covariances, or -1 if there are
+     * none
+     */
+    public int getCovarianceSampleSize() {
+        return covarianceSampleSize;
+    }
+
+    /**
+     * Copies a row of the stored covariance matrix into the given array,
+     * which must hold at least the number of columns.
+     *
+     * @param row
+     * @param values
+     */
+    public void readCovariances(int row, double[] values) {
+        if (covariances == null) {
+            throw new IllegalStateException("No covariances are stored in the file.");
+        }
+
+        DoubleBuffer buffer = covariances[row / covarianceRowsPerSegment].duplicate();
+        buffer.position((row % covarianceRowsPerSegment) * numOfCols);
+        buffer.get(values, 0, numOfCols);
+    }
+
+    /**
+     * Stores the covariances of the columns with the data; they are written
+     * when the file is closed. All columns must be continuous. Only files
+     * opened with {@link #create} can be written.
+     *
+     * @param covariances a square matrix over the columns, in column order
+     * @param sampleSize
+     */
+    public void setCovariances(double[][] covariances, int sampleSize) {
+        if (!writable) {
+            throw new UnsupportedOperationException("File is open for reading only.");
+        }
+        for (int col = 0; col < numOfCols; col++) {
+            if (categories.get(col) != null) {
+                throw new IllegalArgumentException("Covariances can only be stored for continuous columns.");
+            }
+        }
+        if (covariances.length != numOfCols) {
+            throw new IllegalArgumentException("The covariance matrix must have a row and column for each column.");
+        }
+        for (double[] row : covariances) {
+            if (row.length != numOfCols) {
+                throw new IllegalArgumentException("The covariance matrix must have a row and column for each column.");
+            }
+        }
+
+        this.covariancesToWrite = covariances;
+        this.covarianceSampleSize = sampleSize;
+    }
+
+    /**
+     * Writes any changes to disk and releases the file. The mapped memory
+     * itself is released when it is garbage collected.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (writable) {
+                for (MappedByteBuffer segment : segments) {
+                    segment.force();
+                }
+
+                writeExtras();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public int getNumberOfRows() {
+        return numOfRows;
+    }
+
+    public int getNumberOfColumns() {
+        return numOfCols;
+    }
+
+    public boolean isSinglePrecision() {
+        return singlePrecision;
+    }
+
+    private void checkDiscrete(int col) {
+        if (categories.get(col) == null) {
+            throw new IllegalArgumentException(String.format("Column %s is not discrete.", columnNames.get(col)));
+        }
+    }
+
+    private ByteBuffer columnBuffer(int col) {
+        ByteBuffer segment = segments[colSegments[col]].duplicate();
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.position(colPositions[col]);
+
+        return segment;
+    }
+
+    private void fillMissing() {
+        for (int col = 0; col < numOfCols; col++) {
+            for (int row = 0; row < numOfRows; row++) {
+                setDouble(row, col, Double.NaN);
+            }
+        }
+    }
+
+    private void readExtras(int flags, long extrasOffset) throws IOException {
+        long position = extrasOffset;
+
+        if ((flags & HAS_KNOWLEDGE) != 0) {
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, length, position);
+            length.flip();
+
+            ByteBuffer text = ByteBuffer.allocate(length.getInt());
+            readFully(channel, text, position + Integer.BYTES);
+            knowledge = new String(text.array(), StandardCharsets.UTF_8);
+
+            position = align(position + Integer.BYTES + text.capacity());
+        }
+
+        if ((flags & HAS_COVARIANCES) != 0) {
+            ByteBuffer sampleSize = ByteBuffer.allocate(2 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, sampleSize, position);
+            sampleSize.flip();
+            covarianceSampleSize = sampleSize.getInt();
+
+            // map the matrix in segments of whole rows, each under 2 GB
+            long rowBytes = (long) numOfCols * Double.BYTES;
+            if (rowBytes > Integer.MAX_VALUE) {
+                throw new DataReaderException(String.format("Covariances of %d columns are too large to be mapped.", numOfCols));
+            }
+
+            covarianceRowsPerSegment = (int) Math.max(1, Integer.MAX_VALUE / Math.max(1, rowBytes));
+            covariances = new DoubleBuffer[(numOfCols + covarianceRowsPerSegment - 1) / covarianceRowsPerSegment];
+            long start = position + 2 * Integer.BYTES;
+            for (int i = 0; i < covariances.length; i++) {
+                int numOfSegmentRows = Math.min(covarianceRowsPerSegment, numOfCols - i * covarianceRowsPerSegment);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, numOfSegmentRows * rowBytes);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                covariances[i] = buffer.asDoubleBuffer();
+                start += numOfSegmentRows * rowBytes;
+            }
+        }
+    }
+
+    private void writeExtras() throws IOException {
+        int flags = 0;
+        long extrasOffset = 0;
+        long position = align(dataOffset + dataSize);
+
+        if (knowledge != null || covariancesToWrite != null) {
+            extrasOffset = position;
+        }
+
+        if (knowledge != null) {
+            byte[] text = knowledge.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + text.length).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(text.length);
+            buffer.put(text);
+            buffer.flip();
+            writeFully(channel, buffer, position);
+
+            position = align(position + buffer.capacity());
+            flags |= HAS_KNOWLEDGE;
+        }
+
+        if (covariancesToWrite != null) {
+            ByteBuffer sampleSize = ByteBuffer.allocate(2 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            sampleSize.putInt(covarianceSampleSize);
+            sampleSize.putInt(0);
+            sampleSize.flip();
+            writeFully(channel, sampleSize, position);
+            position += sampleSize.capacity();
+
+            ByteBuffer row = ByteBuffer.allocate(numOfCols * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (double[] values : covariancesToWrite) {
+                row.clear();
+                row.asDoubleBuffer().put(values);
+                writeFully(channel, row, position);
+                position += row.capacity();
+            }
+
+            flags |= HAS_COVARIANCES;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(flags);
+        header.flip();
+        writeFully(channel, header, FLAGS_POSITION);
+
+        header = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(extrasOffset);
+        header.flip();
+        writeFully(channel, header, EXTRAS_OFFSET_POSITION);
+    }
+
+    private static ByteBuffer encodeColumns(List<String> columnNames, List<List<String>> categories, VariableType[] variableTypes) {
+        List<byte[]> encoded = new ArrayList<>();
+        int size = variableTypes.length;
+        for (int i = 0; i < columnNames.size(); i++) {
+            byte[] name = columnNames.get(i).getBytes(StandardCharsets.UTF_8);
+            encoded.add(name);
+            size += 2 * Integer.BYTES + name.length;
+
+            List<String> columnCategories = categories.get(i);
+            if (columnCategories != null) {
+                for (String category : columnCategories) {
+                    byte[] bytes = category.getBytes(StandardCharsets.UTF_8);
+                    encoded.add(bytes);
+                    size += Integer.BYTES + bytes.length;
+                }
+            }
+        }
+
+        ByteBuffer columns = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        for (VariableType variableType : variableTypes) {
+            columns.put((byte) variableType.ordinal());
+        }
+
+        int index = 0;
+        for (int i = 0; i < columnNames.size(); i++) {
+            byte[] name = encoded.get(index++);
+            columns.putInt(name.length);
+            columns.put(name);
+
+            List<String> columnCategories = categories.get(i);
+            if (columnCategories == null) {
+                columns.putInt(CONTINUOUS);
+            } else {
+                columns.putInt(columnCategories.size());
+                for (int j = 0; j < columnCategories.size(); j++) {
+                    byte[] bytes = encoded.get(index++);
+                    columns.putInt(bytes.length);
+                    columns.put(bytes);
+                }
+            }
+        }
+        columns.flip();
+
+        return columns;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position);
+            if (count < 0) {
+                throw new DataReaderException("Unexpected end of columnar binary file.");
+            }
+            position += count;
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2019 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.binary;
+
+import edu.pitt.dbmi.data.reader.ContinuousDataSink;
+import edu.pitt.dbmi.data.reader.DataColumn;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import edu.pitt.dbmi.data.reader.tabular.TabularColumnFileReader;
+import edu.pitt.dbmi.data.reader.tabular.TabularColumnReader;
+import edu.pitt.dbmi.data.reader.tabular.TabularDataFileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Converts a continuous tabular text data file into a
+ * {@link ColumnarBinaryFile}. Values are streamed straight into the mapped
+ * file, so the data never has to fit in memory.
+ *
+ * Sep 2, 2019 11:02:17 AM
+ *
+ * @author Kevin V. Bui (kvb2@pitt.edu)
+ */
+public class ContinuousTabularBinaryFileWriter {
+
+    private final Path dataFile;
+    private final Delimiter delimiter;
+
+    private boolean hasHeader;
+    private char quoteChar;
+    private String commentMarker;
+    private String missingDataMarker;
+    private boolean singlePrecision;
+
+    public ContinuousTabularBinaryFileWriter(Path dataFile, Delimiter delimiter) {
+        this.dataFile = dataFile;
+        this.delimiter = delimiter;
+        this.hasHeader = true;
+        this.quoteChar = '"';
+        this.commentMarker = "";
+        this.missingDataMarker = "";
+    }
+
+    public void write(Path binaryFile) throws IOException {
+        write(binaryFile, Collections.EMPTY_SET);
+    }
+
+    /**
+     * Writes the data file out in binary form, leaving out the given columns.
+     *
+     * @param binaryFile
+     * @param namesOfColumnsToExclude
+     * @throws IOException
+     */
+    public void write(Path binaryFile, Set<String> namesOfColumnsToExclude) throws IOException {
+        TabularColumnReader columnReader = new TabularColumnFileReader(dataFile, delimiter);
+        columnReader.setCommentMarker(commentMarker);
+        columnReader.setQuoteCharacter(quoteChar);
+
+        boolean isDiscrete = false;
+        DataColumn[] dataColumns = hasHeader
+                ? columnReader.readInDataColumns(namesOfColumnsToExclude, isDiscrete)
+                : columnReader.generateColumns(new int[0], isDiscrete);
+
+        List<String> columnNames = new ArrayList<>(dataColumns.length);
+        for (DataColumn dataColumn : dataColumns) {
+            columnNames.add(dataColumn.getName());
+        }
+
+        TabularDataFileReader dataReader = new TabularDataFileReader(dataFile, delimiter);
+        dataReader.setCommentMarker(commentMarker);
+        dataReader.setQuoteCharacter(quoteChar);
+        dataReader.setMissingDataMarker(missingDataMarker);
+
+        BinaryFileSink sink = new BinaryFileSink(binaryFile, columnNames);
+        try {
+            dataReader.readInContinuousData(dataColumns, hasHeader, sink);
+        } finally {
+            sink.close();
+        }
+    }
+
+    public void setHasHeader(boolean hasHeader) {
+        this.hasHeader = hasHeader;
+    }
+
+    public void setQuoteCharacter(char quoteCharacter) {
+        this.quoteChar = quoteCharacter;
+    }
+
+    public void setCommentMarker(String commentMarker) {
+        this.commentMarker = (commentMarker == null)
+                ? ""
+                : commentMarker.trim();
+    }
+
+    public void setMissingDataMarker(String missingDataMarker) {
+        this.missingDataMarker = (missingDataMarker == null)
+                ? ""
+                : missingDataMarker.trim();
+    }
+
+    /**
+     * Stores values as 32-bit floats, halving the file size. The default is
+     * 64-bit doubles.
+     *
+     * @param singlePrecision
+     */
+    public void setSinglePrecision(boolean singlePrecision) {
+        this.singlePrecision = singlePrecision;
+    }
+
+    private class BinaryFileSink implements ContinuousDataSink {
+
+        private final Path binaryFile;
+        private final List<String> columnNames;
+        private ColumnarBinaryFile file;
+
+        public BinaryFileSink(Path binaryFile, List<String> columnNames) {
+            this.binaryFile = binaryFile;
+            this.columnNames = columnNames;
+        }
+
+        @Override
+        public void allocate(int numOfRows, int numOfCols) throws IOException {
+            file = ColumnarBinaryFile.create(binaryFile, columnNames, numOfRows, singlePrecision);
+        }
+
+        @Override
+        public void set(int row, int col, double value) {
+            file.setDouble(row, col, value);
+        }
+
+        public void close() throws IOException {
+            if (file != null) {
+                file.close();
+            }
+        }
+
+    }
+
+}
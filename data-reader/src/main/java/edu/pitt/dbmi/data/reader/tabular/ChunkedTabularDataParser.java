@@ -0,0 +1,1169 @@
+/*
+ * Copyright (C) 2019 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.tabular;
+
+import edu.pitt.dbmi.data.reader.Data;
+import edu.pitt.dbmi.data.reader.DataColumn;
+import edu.pitt.dbmi.data.reader.DataReaderException;
+import static edu.pitt.dbmi.data.reader.DatasetReader.CONTINUOUS_MISSING_VALUE;
+import static edu.pitt.dbmi.data.reader.DatasetReader.DISCRETE_MISSING_VALUE;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import edu.pitt.dbmi.data.reader.DiscreteDataColumn;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads tabular data in a single pass over the file. The file is
+ * memory-mapped and split at line boundaries into chunks that are parsed
+ * concurrently. Each chunk keeps the parsed numbers of its rows along with
+ * the distinct values it has seen in each column, so that column types and
+ * discrete categories are settled after the pass instead of by reading the
+ * file again. Numbers are parsed directly from the bytes.
+ *
+ * The lines are parsed the same way as {@link TabularDataFileReader} parses
+ * them. A quote left open at the end of a line carries over to the next line
+ * in the sequential reader, which chunks cannot do, so such files are not
+ * parsed here; the parse methods return null for them instead.
+ *
+ * Sep 9, 2019 2:14:08 PM
+ *
+ * @author Kevin V. Bui (kvb2@pitt.edu)
+ */
+final class ChunkedTabularDataParser {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChunkedTabularDataParser.class);
+
+    private static final long CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte SPACE_CHAR = Delimiter.SPACE.getByteValue();
+
+    private static final int NOT_TRACKED = -1;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Path dataFile;
+    private final Delimiter delimiter;
+    private final byte quoteCharacter;
+    private final byte[] comment;
+    private final String missingDataMarker;
+    private final int numberOfThreads;
+
+    ChunkedTabularDataParser(Path dataFile, Delimiter delimiter, byte quoteCharacter, String commentMarker, String missingDataMarker, int numberOfThreads) {
+        this.dataFile = dataFile;
+        this.delimiter = delimiter;
+        this.quoteCharacter = quoteCharacter;
+        this.comment = commentMarker.getBytes();
+        this.missingDataMarker = missingDataMarker;
+        this.numberOfThreads = Math.max(1, numberOfThreads);
+    }
+
+    /**
+     * Parses the file once, recording both the numbers and the categories of
+     * every column, and marks each column discrete if it has no more than the
+     * given number of categories.
+     *
+     * @param dataColumns
+     * @param numberOfCategories maximum number of categories to be considered
+     * discrete
+     * @param hasHeader
+     * @return the parsed table, to be turned into data by
+     * {@link #toData(Table, DataColumn[])}, or null if a quote is left open at
+     * the end of a line
+     * @throws IOException
+     */
+    Table parse(DataColumn[] dataColumns, int numberOfCategories, boolean hasHeader) throws IOException {
+        int numOfColsInDataFile = countColumnsInDataFile(dataColumns);
+
+        int[] categoryLimits = new int[numOfColsInDataFile];
+        boolean[] numeric = new boolean[numOfColsInDataFile];
+        Arrays.fill(categoryLimits, numberOfCategories);
+        Arrays.fill(numeric, true);
+
+        Table table = parse(dataColumns, numOfColsInDataFile, categoryLimits, numeric, hasHeader);
+        if (table == null) {
+            return null;
+        }
+
+        for (Chunk chunk : table.chunks) {
+            checkData(chunk, numOfColsInDataFile);
+        }
+
+        for (int i = 0; i < numOfColsInDataFile; i++) {
+            Set<String> categories = table.getCategories(i);
+            dataColumns[i].setDiscrete(categories != null && categories.size() <= numberOfCategories);
+        }
+
+        return table;
+    }
+
+    /**
+     * Parses the file once, recording numbers for the continuous columns and
+     * categories for the discrete ones.
+     *
+     * @param dataColumns
+     * @param hasHeader
+     * @return the parsed table, or null if a quote is left open at the end of
+     * a line
+     * @throws IOException
+     */
+    Table parse(DataColumn[] dataColumns, boolean hasHeader) throws IOException {
+        int numOfColsInDataFile = countColumnsInDataFile(dataColumns);
+
+        int[] categoryLimits = new int[numOfColsInDataFile];
+        boolean[] numeric = new boolean[numOfColsInDataFile];
+        for (int i = 0; i < numOfColsInDataFile; i++) {
+            boolean discrete = dataColumns[i].isDiscrete();
+            categoryLimits[i] = discrete ? Integer.MAX_VALUE : NOT_TRACKED;
+            numeric[i] = !discrete;
+        }
+
+        return parse(dataColumns, numOfColsInDataFile, categoryLimits, numeric, hasHeader);
+    }
+
+    /**
+     * Assembles the data for the given columns from a parsed table, in the
+     * same form that {@link TabularDataFileReader} returns. The parsed values
+     * of each chunk are released as soon as they are copied, so the table
+     * cannot be used again.
+     *
+     * @param table
+     * @param dataColumns
+     * @return continuous, discrete or mixed data, or null if there are no
+     * columns
+     * @throws IOException
+     */
+    Data toData(Table table, DataColumn[] dataColumns) throws IOException {
+        int numOfCols = dataColumns.length;
+        int numOfColsInDataFile = countColumnsInDataFile(dataColumns);
+
+        boolean isDiscrete = false;
+        boolean isContinuous = false;
+        for (DataColumn dataColumn : dataColumns) {
+            if (dataColumn.isDiscrete()) {
+                isDiscrete = true;
+            } else {
+                isContinuous = true;
+            }
+        }
+        if (!(isDiscrete || isContinuous)) {
+            return null;
+        }
+
+        // table column of each data column
+        int[] tableColumns = new int[numOfColsInDataFile];
+        for (int i = 0; i < numOfColsInDataFile; i++) {
+            tableColumns[i] = table.indexOf(dataColumns[i].getColumnNumber());
+        }
+
+        checkData(table, dataColumns, tableColumns, isDiscrete);
+
+        int numOfRows = table.numOfRows;
+        Chunk[] chunks = table.chunks;
+
+        DiscreteDataColumn[] discreteDataColumns = null;
+        int[][][] categoryCodes = null;  // [column][chunk][chunk code]
+        if (isDiscrete) {
+            discreteDataColumns = new DiscreteDataColumn[numOfCols];
+            categoryCodes = new int[numOfCols][][];
+            for (int i = 0; i < numOfCols; i++) {
+                DataColumn dataColumn = dataColumns[i];
+                DiscreteDataColumn discreteDataColumn = isContinuous
+                        ? new MixedTabularDataColumn(dataColumn)
+                        : new DiscreteTabularDataColumn(dataColumn);
+                discreteDataColumns[i] = discreteDataColumn;
+
+                if (dataColumn.isGenerated()) {
+                    discreteDataColumn.setValue("0");
+                    discreteDataColumn.setValue("1");
+                } else if (dataColumn.isDiscrete()) {
+                    table.getCategories(tableColumns[i]).forEach(discreteDataColumn::setValue);
+                }
+
+                discreteDataColumn.recategorize();
+
+                if (dataColumn.isDiscrete() && !dataColumn.isGenerated()) {
+                    int column = tableColumns[i];
+                    categoryCodes[i] = new int[chunks.length][];
+                    for (int c = 0; c < chunks.length; c++) {
+                        List<String> labels = chunks[c].tokens[column].labels;
+                        int[] codes = new int[labels.size()];
+                        for (int k = 0; k < codes.length; k++) {
+                            codes[k] = discreteDataColumn.getEncodeValue(labels.get(k));
+                        }
+                        categoryCodes[i][c] = codes;
+                    }
+                }
+            }
+        }
+
+        if (isDiscrete && isContinuous) {
+            double[][] continuousData = new double[numOfCols][];
+            int[][] discreteData = new int[numOfCols][];
+            for (int i = 0; i < numOfCols; i++) {
+                if (dataColumns[i].isDiscrete()) {
+                    discreteData[i] = new int[numOfRows];
+                } else {
+                    continuousData[i] = new double[numOfRows];
+                }
+            }
+
+            int[][][] codes = categoryCodes;
+            forEachChunk(table, (chunk, c) -> {
+                for (int i = 0; i < numOfColsInDataFile; i++) {
+                    if (discreteData[i] != null) {
+                        copyCodes(chunk, tableColumns[i], codes[i][c], discreteData[i]);
+                    } else {
+                        System.arraycopy(chunk.values[tableColumns[i]], 0, continuousData[i], chunk.firstRow, chunk.numOfRows);
+                    }
+                }
+                chunk.release();
+            });
+
+            return new MixedTabularData(numOfRows, discreteDataColumns, continuousData, discreteData);
+        } else if (isContinuous) {
+            double[][] data = new double[numOfRows][];
+            forEachChunk(table, (chunk, c) -> {
+                for (int row = 0; row < chunk.numOfRows; row++) {
+                    double[] rowData = new double[numOfCols];
+                    for (int i = 0; i < numOfColsInDataFile; i++) {
+                        rowData[i] = chunk.values[tableColumns[i]][row];
+                    }
+                    data[chunk.firstRow + row] = rowData;
+                }
+                chunk.release();
+            });
+
+            return new ContinuousTabularData(dataColumns, data);
+        } else {
+            int[][] data = new int[numOfCols][numOfRows];
+            int[][][] codes = categoryCodes;
+            forEachChunk(table, (chunk, c) -> {
+                for (int i = 0; i < numOfColsInDataFile; i++) {
+                    copyCodes(chunk, tableColumns[i], codes[i][c], data[i]);
+                }
+                chunk.release();
+            });
+
+            return new VerticalDiscreteTabularData(discreteDataColumns, data);
+        }
+    }
+
+    /**
+     * Throws the error the sequential reader would report first, if any: a
+     * value that is not a number in a continuous column, or a line with too
+     * few values.
+     */
+    private void checkData(Table table, DataColumn[] dataColumns, int[] tableColumns, boolean isMixed) {
+        for (Chunk chunk : table.chunks) {
+            int line = (chunk.insufficientDataLine >= 0) ? chunk.insufficientDataLine : Integer.MAX_VALUE;
+            int colNum = Integer.MAX_VALUE;
+            String value = null;
+            for (int i = 0; i < tableColumns.length; i++) {
+                if (dataColumns[i].isDiscrete()) {
+                    continue;
+                }
+
+                int column = tableColumns[i];
+                int invalidLine = chunk.invalidLines[column];
+                if (invalidLine >= 0 && (invalidLine < line || (invalidLine == line && (value == null || chunk.invalidColNums[column] < colNum)))) {
+                    line = invalidLine;
+                    colNum = chunk.invalidColNums[column];
+                    value = chunk.invalidValues[column];
+                }
+            }
+
+            if (value != null) {
+                String errMsg = isMixed
+                        ? String.format("Invalid number %s on line %d at column %d.", value, chunk.firstLine + line, colNum)
+                        : String.format("Non-continuous number %s on line %d at column %d.", value, chunk.firstLine + line, colNum);
+                LOGGER.error(errMsg);
+                throw new DataReaderException(errMsg);
+            }
+
+            checkData(chunk, table.columnNumbers.length);
+        }
+    }
+
+    private void checkData(Chunk chunk, int numOfColsInDataFile) {
+        if (chunk.insufficientDataLine >= 0) {
+            String errMsg = String.format("Insufficient data on line %d.  Extracted %d value(s) but expected %d.", chunk.firstLine + chunk.insufficientDataLine, chunk.insufficientDataCount, numOfColsInDataFile);
+            LOGGER.error(errMsg);
+            throw new DataReaderException(errMsg);
+        }
+    }
+
+    private static void copyCodes(Chunk chunk, int column, int[] categoryCodes, int[] data) {
+        int[] codes = chunk.codes[column];
+        int firstRow = chunk.firstRow;
+        for (int row = 0; row < chunk.numOfRows; row++) {
+            int code = codes[row];
+            data[firstRow + row] = (code == DISCRETE_MISSING_VALUE) ? DISCRETE_MISSING_VALUE : categoryCodes[code];
+        }
+    }
+
+    private Table parse(DataColumn[] dataColumns, int numOfColsInDataFile, int[] categoryLimits, boolean[] numeric, boolean hasHeader) throws IOException {
+        int[] columnNumbers = new int[numOfColsInDataFile];
+        for (int i = 0; i < numOfColsInDataFile; i++) {
+            columnNumbers[i] = dataColumns[i].getColumnNumber();
+        }
+
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            long start = 0;
+            int numOfHeaderLines = 0;
+            if (hasHeader) {
+                long[] header = skipHeader(channel, size);
+                start = header[0];
+                numOfHeaderLines = (int) header[1];
+            }
+
+            // split the data at line boundaries
+            long numOfChunks = Math.max(numberOfThreads, (size - start + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            List<Chunk> chunkList = new ArrayList<>();
+            long chunkStart = start;
+            for (long i = 1; i <= numOfChunks && chunkStart < size; i++) {
+                long chunkEnd = (i == numOfChunks)
+                        ? size
+                        : nextLineStart(channel, size, Math.max(chunkStart, start + (i * (size - start)) / numOfChunks));
+                if (chunkEnd > chunkStart) {
+                    chunkList.add(new Chunk(chunkStart, chunkEnd, numOfColsInDataFile));
+                    chunkStart = chunkEnd;
+                }
+            }
+            Chunk[] chunks = chunkList.toArray(new Chunk[chunkList.size()]);
+
+            List<Callable<Void>> tasks = new ArrayList<>(chunks.length);
+            for (Chunk chunk : chunks) {
+                tasks.add(() -> {
+                    parse(channel, chunk, columnNumbers, categoryLimits, numeric);
+                    return null;
+                });
+            }
+            invokeAll(tasks);
+
+            for (Chunk chunk : chunks) {
+                if (chunk.quoteLeftOpen) {
+                    LOGGER.info("A quote spans lines; the file has to be read sequentially.");
+                    return null;
+                }
+            }
+
+            // number the rows and lines up to the first line with missing values
+            int firstRow = 0;
+            long firstLine = 1 + numOfHeaderLines;
+            for (Chunk chunk : chunks) {
+                chunk.firstRow = firstRow;
+                chunk.firstLine = firstLine;
+                if (chunk.insufficientDataLine >= 0) {
+                    break;
+                }
+
+                if ((long) firstRow + chunk.numOfRows > Integer.MAX_VALUE) {
+                    throw new DataReaderException("Too many rows.");
+                }
+
+                firstRow += chunk.numOfRows;
+                firstLine += chunk.numOfLines;
+            }
+
+            return new Table(hasHeader, columnNumbers, categoryLimits, numeric, chunks, firstRow);
+        }
+    }
+
+    /**
+     * Parses one chunk. This follows the data loop of the sequential reader,
+     * collecting the characters of a value into a reusable byte array.
+     */
+    private void parse(FileChannel channel, Chunk chunk, int[] columnNumbers, int[] categoryLimits, boolean[] numeric) throws IOException {
+        int numOfColsInDataFile = columnNumbers.length;
+        for (int i = 0; i < numOfColsInDataFile; i++) {
+            if (numeric[i]) {
+                chunk.values[i] = new double[1024];
+            }
+            if (categoryLimits[i] != NOT_TRACKED) {
+                chunk.codes[i] = new int[1024];
+                chunk.tokens[i] = new TokenTable();
+            }
+        }
+
+        MappedByteBuffer mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.end - chunk.start);
+
+        boolean skip = false;
+        boolean rowComplete = false;
+        boolean hasSeenNonblankChar = false;
+        boolean hasQuoteChar = false;
+
+        byte delimChar = delimiter.getByteValue();
+
+        // comment marker check
+        int cmntIndex = 0;
+        boolean checkForComment = comment.length > 0;
+
+        int colNum = 0;
+        int line = 0;
+
+        int columnIndex = 0;
+
+        int row = 0;
+
+        byte[] value = new byte[64];
+        int valueLength = 0;
+
+        byte prevChar = -1;
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, chunk.end - chunk.start)];
+        while (mappedBuffer.hasRemaining()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException();
+            }
+
+            int len = Math.min(buffer.length, mappedBuffer.remaining());
+            mappedBuffer.get(buffer, 0, len);
+
+            for (int i = 0; i < len; i++) {
+                byte currChar = buffer[i];
+
+                if (currChar == CARRIAGE_RETURN || currChar == LINE_FEED) {
+                    if (currChar == LINE_FEED && prevChar == CARRIAGE_RETURN) {
+                        prevChar = currChar;
+                        continue;
+                    }
+
+                    if (rowComplete) {
+                        row++;
+                    } else if (hasSeenNonblankChar && !skip) {
+                        colNum++;
+
+                        if (columnIndex < numOfColsInDataFile && columnNumbers[columnIndex] == colNum) {
+                            addValue(chunk, columnIndex, row, value, valueLength, line, colNum, categoryLimits[columnIndex]);
+                            columnIndex++;
+                        }
+
+                        // ensure we have enough data
+                        if (columnIndex < numOfColsInDataFile) {
+                            chunk.insufficientDataLine = line;
+                            chunk.insufficientDataCount = columnIndex;
+                            return;
+                        }
+
+                        row++;
+                    }
+
+                    // the sequential reader would carry the quote over
+                    if (hasQuoteChar) {
+                        chunk.quoteLeftOpen = true;
+                        return;
+                    }
+
+                    line++;
+
+                    // clear data
+                    valueLength = 0;
+
+                    // reset states
+                    skip = false;
+                    rowComplete = false;
+                    hasSeenNonblankChar = false;
+                    hasQuoteChar = false;
+                    cmntIndex = 0;
+                    checkForComment = comment.length > 0;
+                    columnIndex = 0;
+                    colNum = 0;
+                } else if (!skip) {
+                    if (currChar > SPACE_CHAR) {
+                        hasSeenNonblankChar = true;
+                    }
+
+                    // skip blank chars at the begining of the line
+                    if (currChar <= SPACE_CHAR && !hasSeenNonblankChar) {
+                        continue;
+                    }
+
+                    // check for comment marker to skip line
+                    if (checkForComment) {
+                        if (currChar == comment[cmntIndex]) {
+                            cmntIndex++;
+                            if (cmntIndex == comment.length) {
+                                skip = true;
+                                prevChar = currChar;
+                                continue;
+                            }
+                        } else {
+                            checkForComment = false;
+                        }
+                    }
+
+                    if (currChar == quoteCharacter) {
+                        hasQuoteChar = !hasQuoteChar;
+                    } else {
+                        boolean isDelimiter;
+                        if (hasQuoteChar) {
+                            isDelimiter = false;
+                        } else {
+                            switch (delimiter) {
+                                case WHITESPACE:
+                                    isDelimiter = (currChar <= SPACE_CHAR) && (prevChar > SPACE_CHAR);
+                                    break;
+                                default:
+                                    isDelimiter = (currChar == delimChar);
+                            }
+                        }
+
+                        if (isDelimiter) {
+                            colNum++;
+
+                            if (columnNumbers[columnIndex] == colNum) {
+                                addValue(chunk, columnIndex, row, value, valueLength, line, colNum, categoryLimits[columnIndex]);
+
+                                columnIndex++;
+                                if (columnIndex == numOfColsInDataFile) {
+                                    skip = true;
+                                    rowComplete = true;
+                                }
+                            }
+
+                            // clear data
+                            valueLength = 0;
+                        } else {
+                            if (valueLength == value.length) {
+                                value = Arrays.copyOf(value, value.length * 2);
+                            }
+                            value[valueLength++] = currChar;
+                        }
+                    }
+                }
+
+                prevChar = currChar;
+            }
+        }
+
+        // case when no newline char at end of file
+        if (rowComplete) {
+            row++;
+        } else if (hasSeenNonblankChar && !skip) {
+            colNum++;
+
+            if (columnIndex < numOfColsInDataFile && columnNumbers[columnIndex] == colNum) {
+                addValue(chunk, columnIndex, row, value, valueLength, line, colNum, categoryLimits[columnIndex]);
+                columnIndex++;
+            }
+
+            // ensure we have enough data
+            if (columnIndex < numOfColsInDataFile) {
+                chunk.insufficientDataLine = line;
+                chunk.insufficientDataCount = columnIndex;
+                return;
+            }
+
+            row++;
+        }
+
+        chunk.numOfRows = row;
+        chunk.numOfLines = line;
+    }
+
+    private void addValue(Chunk chunk, int column, int row, byte[] value, int length, int line, int colNum, int categoryLimit) {
+        // trim the same characters String.trim() does
+        int start = 0;
+        int end = length;
+        while (start < end && value[start] >= 0 && value[start] <= SPACE_CHAR) {
+            start++;
+        }
+        while (end > start && value[end - 1] >= 0 && value[end - 1] <= SPACE_CHAR) {
+            end--;
+        }
+
+        boolean isMissing = (start == end) || isMissingDataMarker(value, start, end);
+
+        double[] values = chunk.values[column];
+        if (values != null) {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+                chunk.values[column] = values;
+            }
+
+            if (isMissing) {
+                values[row] = CONTINUOUS_MISSING_VALUE;
+            } else {
+                try {
+                    values[row] = parseDouble(value, start, end);
+                } catch (NumberFormatException exception) {
+                    chunk.values[column] = null;
+                    chunk.invalidLines[column] = line;
+                    chunk.invalidColNums[column] = colNum;
+                    chunk.invalidValues[column] = toString(value, start, end);
+                }
+            }
+        }
+
+        int[] codes = chunk.codes[column];
+        if (codes != null) {
+            if (row == codes.length) {
+                codes = Arrays.copyOf(codes, codes.length * 2);
+                chunk.codes[column] = codes;
+            }
+
+            if (isMissing) {
+                codes[row] = DISCRETE_MISSING_VALUE;
+            } else {
+                TokenTable tokens = chunk.tokens[column];
+                int code = tokens.getCode(value, start, end);
+                if (code < categoryLimit) {
+                    codes[row] = code;
+                } else {
+                    // too many categories to be discrete
+                    chunk.codes[column] = null;
+                    chunk.tokens[column] = null;
+                }
+            }
+        }
+    }
+
+    private boolean isMissingDataMarker(byte[] value, int start, int end) {
+        int length = end - start;
+        if (length != missingDataMarker.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if ((char) value[start + i] != missingDataMarker.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses a decimal number without creating a string. Numbers with at most
+     * 18 significant digits whose value is exactly representable, and whose
+     * power of ten is small enough to be applied with a single correctly
+     * rounded multiplication or division, are converted directly; anything
+     * else is handed to {@link Double#parseDouble(String)}, so the result is
+     * always the same as that method's.
+     *
+     * @param bytes
+     * @param start index of the first character
+     * @param end index after the last character
+     * @return the number
+     * @throws NumberFormatException if the characters are not a number
+     */
+    static double parseDouble(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int numOfDigits = 0;
+        int numOfSignificantDigits = 0;
+        int exponent = 0;
+        for (; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+            numOfDigits++;
+            if (mantissa != 0 || bytes[i] != '0') {
+                mantissa = 10 * mantissa + (bytes[i] - '0');
+                numOfSignificantDigits++;
+            }
+        }
+        if (i < end && bytes[i] == '.') {
+            i++;
+            for (; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+                numOfDigits++;
+                exponent--;
+                if (mantissa != 0 || bytes[i] != '0') {
+                    mantissa = 10 * mantissa + (bytes[i] - '0');
+                    numOfSignificantDigits++;
+                }
+            }
+        }
+        if (numOfDigits > 0 && i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+                negativeExponent = bytes[i] == '-';
+                i++;
+            }
+
+            int exponentStart = i;
+            int explicitExponent = 0;
+            for (; i < end && bytes[i] >= '0' && bytes[i] <= '9' && explicitExponent < 10000; i++) {
+                explicitExponent = 10 * explicitExponent + (bytes[i] - '0');
+            }
+            if (i == exponentStart) {
+                numOfDigits = 0;  // let Double.parseDouble reject it
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (i == end && numOfDigits > 0 && numOfSignificantDigits <= 18) {
+            if (mantissa == 0) {
+                return negative ? -0.0 : 0.0;
+            }
+            if (mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+                double number = (exponent < 0)
+                        ? mantissa / POWERS_OF_TEN[-exponent]
+                        : mantissa * POWERS_OF_TEN[exponent];
+
+                return negative ? -number : number;
+            }
+        }
+
+        return Double.parseDouble(toString(bytes, start, end));
+    }
+
+    /**
+     * Decodes the bytes one character per byte, as the sequential reader does.
+     */
+    private static String toString(byte[] bytes, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) bytes[start + i];
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Finds where the data starts after the header line.
+     *
+     * @return the position after the header line and the number of lines up
+     * to there
+     */
+    private long[] skipHeader(FileChannel channel, long size) throws IOException {
+        boolean skip = false;
+        boolean hasSeenNonblankChar = false;
+
+        int cmntIndex = 0;
+        boolean checkForComment = comment.length > 0;
+
+        long numOfLines = 0;
+        byte prevChar = -1;
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = 0;
+        while (position < size) {
+            buffer.clear();
+            int len = channel.read(buffer, position);
+            if (len <= 0) {
+                break;
+            }
+
+            for (int i = 0; i < len; i++) {
+                byte currChar = buffer.get(i);
+
+                if (currChar == CARRIAGE_RETURN || currChar == LINE_FEED) {
+                    if (currChar == LINE_FEED && prevChar == CARRIAGE_RETURN) {
+                        prevChar = currChar;
+                        continue;
+                    }
+
+                    numOfLines++;
+
+                    if (hasSeenNonblankChar && !skip) {
+                        long next = position + i + 1;
+                        if (currChar == CARRIAGE_RETURN && next < size && byteAt(channel, next) == LINE_FEED) {
+                            next++;
+                        }
+
+                        return new long[]{next, numOfLines};
+                    }
+
+                    // reset states
+                    skip = false;
+                    hasSeenNonblankChar = false;
+                    cmntIndex = 0;
+                    checkForComment = comment.length > 0;
+                } else if (!skip) {
+                    if (currChar > SPACE_CHAR) {
+                        hasSeenNonblankChar = true;
+                    }
+
+                    // skip blank chars at the begining of the line
+                    if (currChar <= SPACE_CHAR && !hasSeenNonblankChar) {
+                        continue;
+                    }
+
+                    // check for comment marker to skip line
+                    if (checkForComment) {
+                        if (currChar == comment[cmntIndex]) {
+                            cmntIndex++;
+                            if (cmntIndex == comment.length) {
+                                skip = true;
+                                prevChar = currChar;
+                                continue;
+                            }
+                        } else {
+                            checkForComment = false;
+                        }
+                    }
+                }
+
+                prevChar = currChar;
+            }
+
+            position += len;
+        }
+
+        // the header is the only line
+        return new long[]{size, numOfLines};
+    }
+
+    /**
+     * Finds the start of the first line that begins at or after the given
+     * position, treating a carriage return followed by a line feed as one line
+     * break.
+     */
+    private static long nextLineStart(FileChannel channel, long size, long position) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long pos = position - 1;
+        while (pos < size) {
+            buffer.clear();
+            int len = channel.read(buffer, pos);
+            if (len <= 0) {
+                break;
+            }
+
+            for (int i = 0; i < len; i++) {
+                byte currChar = buffer.get(i);
+                if (currChar == LINE_FEED) {
+                    return pos + i + 1;
+                } else if (currChar == CARRIAGE_RETURN) {
+                    long next = pos + i + 1;
+                    return (next < size && byteAt(channel, next) == LINE_FEED) ? next + 1 : next;
+                }
+            }
+
+            pos += len;
+        }
+
+        return size;
+    }
+
+    private static byte byteAt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, position);
+
+        return buffer.get(0);
+    }
+
+    private void forEachChunk(Table table, ChunkTask task) throws IOException {
+        Chunk[] chunks = table.chunks;
+        List<Callable<Void>> tasks = new ArrayList<>(chunks.length);
+        for (int c = 0; c < chunks.length; c++) {
+            Chunk chunk = chunks[c];
+            int index = c;
+            tasks.add(() -> {
+                task.run(chunk, index);
+                return null;
+            });
+        }
+
+        invokeAll(tasks);
+    }
+
+    private void invokeAll(List<Callable<Void>> tasks) throws IOException {
+        if (tasks.size() <= 1 || numberOfThreads == 1) {
+            for (Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                } catch (IOException | RuntimeException exception) {
+                    throw exception;
+                } catch (Exception exception) {
+                    throw new IOException(exception);
+                }
+            }
+
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numberOfThreads, tasks.size()));
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int countColumnsInDataFile(DataColumn[] dataColumns) {
+        int numOfColsInDataFile = 0;
+        for (DataColumn dataColumn : dataColumns) {
+            if (!dataColumn.isGenerated()) {
+                numOfColsInDataFile++;
+            }
+        }
+
+        return numOfColsInDataFile;
+    }
+
+    private interface ChunkTask {
+
+        void run(Chunk chunk, int index);
+
+    }
+
+    /**
+     * The parsed values of a file.
+     */
+    static final class Table {
+
+        private final boolean hasHeader;
+        private final int[] columnNumbers;
+        private final int[] categoryLimits;
+        private final boolean[] numeric;
+        private final Chunk[] chunks;
+        private final int numOfRows;
+
+        private Table(boolean hasHeader, int[] columnNumbers, int[] categoryLimits, boolean[] numeric, Chunk[] chunks, int numOfRows) {
+            this.hasHeader = hasHeader;
+            this.columnNumbers = columnNumbers;
+            this.categoryLimits = categoryLimits;
+            this.numeric = numeric;
+            this.chunks = chunks;
+            this.numOfRows = numOfRows;
+        }
+
+        /**
+         * True if the table holds what is needed to assemble the given
+         * columns: numbers for the continuous ones and all categories for the
+         * discrete ones.
+         *
+         * @param dataColumns
+         * @param hasHeader
+         * @return
+         */
+        boolean canRead(DataColumn[] dataColumns, boolean hasHeader) {
+            if (hasHeader != this.hasHeader) {
+                return false;
+            }
+
+            int prevIndex = -1;
+            for (DataColumn dataColumn : dataColumns) {
+                if (dataColumn.isGenerated()) {
+                    continue;
+                }
+
+                int index = indexOf(dataColumn.getColumnNumber());
+                if (index <= prevIndex) {
+                    return false;
+                }
+                if (dataColumn.isDiscrete() ? getCategories(index) == null : !numeric[index]) {
+                    return false;
+                }
+
+                prevIndex = index;
+            }
+
+            return true;
+        }
+
+        private int indexOf(int columnNumber) {
+            int index = Arrays.binarySearch(columnNumbers, columnNumber);
+
+            return (index < 0) ? -1 : index;
+        }
+
+        /**
+         * The categories of a column, or null if they were not kept.
+         */
+        private Set<String> getCategories(int column) {
+            if (categoryLimits[column] == NOT_TRACKED) {
+                return null;
+            }
+
+            Set<String> categories = new TreeSet<>();
+            for (Chunk chunk : chunks) {
+                if (chunk.tokens[column] == null) {
+                    return null;
+                }
+
+                categories.addAll(chunk.tokens[column].labels);
+                if (categories.size() > categoryLimits[column]) {
+                    return null;
+                }
+            }
+
+            return categories;
+        }
+
+    }
+
+    /**
+     * A run of whole lines of the file and their parsed values, by column.
+     */
+    private static final class Chunk {
+
+        private final long start;
+        private final long end;
+
+        private final double[][] values;
+        private final int[][] codes;
+        private final TokenTable[] tokens;
+
+        private final int[] invalidLines;
+        private final int[] invalidColNums;
+        private final String[] invalidValues;
+
+        private int numOfRows;
+        private int numOfLines;
+        private int insufficientDataLine = -1;
+        private int insufficientDataCount;
+        private boolean quoteLeftOpen;
+
+        private int firstRow;
+        private long firstLine;
+
+        private Chunk(long start, long end, int numOfCols) {
+            this.start = start;
+            this.end = end;
+            this.values = new double[numOfCols][];
+            this.codes = new int[numOfCols][];
+            this.tokens = new TokenTable[numOfCols];
+            this.invalidLines = new int[numOfCols];
+            this.invalidColNums = new int[numOfCols];
+            this.invalidValues = new String[numOfCols];
+            Arrays.fill(invalidLines, -1);
+        }
+
+        private void release() {
+            Arrays.fill(values, null);
+            Arrays.fill(codes, null);
+            Arrays.fill(tokens, null);
+        }
+
+    }
+
+    /**
+     * The distinct values of a column in a chunk, numbered in the order they
+     * are first seen. Strings are only created for new values.
+     */
+    private static final class TokenTable {
+
+        private final List<String> labels = new ArrayList<>();
+        private final List<byte[]> keys = new ArrayList<>();
+        private int[] slots = new int[16];  // code + 1, or 0 if empty
+
+        private int getCode(byte[] bytes, int start, int end) {
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+
+            int mask = slots.length - 1;
+            int slot = mix(hash) & mask;
+            while (slots[slot] != 0) {
+                int code = slots[slot] - 1;
+                if (equals(keys.get(code), bytes, start, end)) {
+                    return code;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int code = keys.size();
+            keys.add(Arrays.copyOfRange(bytes, start, end));
+            labels.add(ChunkedTabularDataParser.toString(bytes, start, end));
+            slots[slot] = code + 1;
+
+            if (2 * keys.size() > slots.length) {
+                rehash();
+            }
+
+            return code;
+        }
+
+        private void rehash() {
+            slots = new int[2 * slots.length];
+            int mask = slots.length - 1;
+            for (int code = 0; code < keys.size(); code++) {
+                byte[] key = keys.get(code);
+                int hash = 1;
+                for (byte b : key) {
+                    hash = 31 * hash + b;
+                }
+
+                int slot = mix(hash) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = code + 1;
+            }
+        }
+
+        private static int mix(int hash) {
+            hash *= 0x9E3779B9;
+
+            return hash ^ (hash >>> 16);
+        }
+
+        private static boolean equals(byte[] key, byte[] bytes, int start, int end) {
+            if (key.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != bytes[start + i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+    }
+
+}
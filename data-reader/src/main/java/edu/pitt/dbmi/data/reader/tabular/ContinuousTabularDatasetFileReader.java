@@ -37,6 +37,7 @@ public class ContinuousTabularDatasetFileReader extends DatasetFileReader implem
 
     private boolean hasHeader;
     private char quoteChar;
+    private boolean parallel;
 
     public ContinuousTabularDatasetFileReader(Path dataFile, Delimiter delimiter) {
         super(dataFile, delimiter);
@@ -64,6 +65,7 @@ public class ContinuousTabularDatasetFileReader extends DatasetFileReader implem
         dataReader.setCommentMarker(commentMarker);
         dataReader.setQuoteCharacter(quoteChar);
         dataReader.setMissingDataMarker(missingDataMarker);
+        dataReader.setParallel(parallel);
 
         return dataReader.read(dataColumns, hasHeader);
     }
@@ -83,6 +85,7 @@ public class ContinuousTabularDatasetFileReader extends DatasetFileReader implem
         dataReader.setCommentMarker(commentMarker);
         dataReader.setQuoteCharacter(quoteChar);
         dataReader.setMissingDataMarker(missingDataMarker);
+        dataReader.setParallel(parallel);
 
         return dataReader.read(dataColumns, hasHeader);
     }
@@ -92,6 +95,11 @@ public class ContinuousTabularDatasetFileReader extends DatasetFileReader implem
         this.hasHeader = hasHeader;
     }
 
+    @Override
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     @Override
     public void setQuoteCharacter(char quoteCharacter) {
         this.quoteChar = quoteCharacter;
@@ -42,6 +42,7 @@ public class MixedTabularDatasetFileReader extends DatasetFileReader implements
     private final int numberOfDiscreteCategories;
     private boolean hasHeader;
     private char quoteChar;
+    private boolean parallel;
 
     public MixedTabularDatasetFileReader(Path dataFile, Delimiter delimiter, int numberOfDiscreteCategories) {
         super(dataFile, delimiter);
@@ -70,6 +71,7 @@ public class MixedTabularDatasetFileReader extends DatasetFileReader implements
         dataReader.setCommentMarker(commentMarker);
         dataReader.setQuoteCharacter(quoteChar);
         dataReader.setMissingDataMarker(missingDataMarker);
+        dataReader.setParallel(parallel);
 
         dataReader.determineDiscreteDataColumns(dataColumns, numberOfDiscreteCategories, hasHeader);
 
@@ -91,6 +93,7 @@ public class MixedTabularDatasetFileReader extends DatasetFileReader implements
         dataReader.setCommentMarker(commentMarker);
         dataReader.setQuoteCharacter(quoteChar);
         dataReader.setMissingDataMarker(missingDataMarker);
+        dataReader.setParallel(parallel);
 
         dataReader.determineDiscreteDataColumns(dataColumns, numberOfDiscreteCategories, hasHeader);
 
@@ -152,6 +155,11 @@ public class MixedTabularDatasetFileReader extends DatasetFileReader implements
         this.hasHeader = hasHeader;
     }
 
+    @Override
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     @Override
     public void setQuoteCharacter(char quoteCharacter) {
         this.quoteChar = quoteCharacter;
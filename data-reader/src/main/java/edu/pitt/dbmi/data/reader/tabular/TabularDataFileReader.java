@@ -19,6 +19,7 @@
 package edu.pitt.dbmi.data.reader.tabular;
 
 import edu.pitt.dbmi.data.reader.ContinuousData;
+import edu.pitt.dbmi.data.reader.ContinuousDataSink;
 import edu.pitt.dbmi.data.reader.Data;
 import edu.pitt.dbmi.data.reader.DataColumn;
 import edu.pitt.dbmi.data.reader.DataReaderException;
@@ -49,12 +50,41 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TabularDataFileReader.class);
 
+    private boolean parallel;
+
+    // data parsed while determining the discrete columns in parallel mode
+    private ChunkedTabularDataParser.Table parsedData;
+
+    // set once the file turns out to have a quote spanning lines, which only
+    // the sequential reader handles
+    private boolean multilineQuote;
+
     public TabularDataFileReader(Path dataFile, Delimiter delimiter) {
         super(dataFile, delimiter);
     }
 
+    @Override
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+        this.parsedData = null;
+        this.multilineQuote = false;
+    }
+
+    private ChunkedTabularDataParser createChunkedParser() {
+        return new ChunkedTabularDataParser(dataFile, delimiter, quoteCharacter, commentMarker, missingDataMarker, Runtime.getRuntime().availableProcessors());
+    }
+
     @Override
     public void determineDiscreteDataColumns(DataColumn[] dataColumns, int numberOfCategories, boolean hasHeader) throws IOException {
+        if (parallel && !multilineQuote) {
+            parsedData = createChunkedParser().parse(dataColumns, numberOfCategories, hasHeader);
+            if (parsedData != null) {
+                return;
+            }
+
+            multilineQuote = true;
+        }
+
         int numOfColsInDataFile = 0;
         for (DataColumn dataColumn : dataColumns) {
             if (!dataColumn.isGenerated()) {
@@ -298,6 +328,21 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
             return null;
         }
 
+        if (parallel && !multilineQuote) {
+            ChunkedTabularDataParser parser = createChunkedParser();
+            ChunkedTabularDataParser.Table table = parsedData;
+            parsedData = null;
+            if (table == null || !table.canRead(dataColumns, hasHeader)) {
+                table = parser.parse(dataColumns, hasHeader);
+            }
+
+            if (table != null) {
+                return parser.toData(table, dataColumns);
+            }
+
+            multilineQuote = true;
+        }
+
         int numOfColsInDataFile = 0;
         boolean isDiscrete = false;
         boolean isContinuous = false;
@@ -732,6 +777,52 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
         int numOfRows = hasHeader ? countNumberOfLines() - 1 : countNumberOfLines();
         double[][] data = new double[numOfRows][numOfCols];
 
+        readInContinuousData(dataColumns, hasHeader, numOfColsInDataFile, new ContinuousDataSink() {
+            @Override
+            public void allocate(int rows, int cols) {
+            }
+
+            @Override
+            public void set(int row, int col, double value) {
+                data[row][col] = value;
+            }
+        });
+
+        return new ContinuousTabularData(dataColumns, data);
+    }
+
+    /**
+     * Reads in continuous data, handing each value to the given sink instead
+     * of storing it in memory. All the data columns must be continuous.
+     *
+     * @param dataColumns
+     * @param hasHeader
+     * @param sink
+     * @throws IOException
+     */
+    public void readInContinuousData(DataColumn[] dataColumns, boolean hasHeader, ContinuousDataSink sink) throws IOException {
+        int numOfColsInDataFile = 0;
+        for (DataColumn dataColumn : dataColumns) {
+            if (dataColumn.isDiscrete()) {
+                String errMsg = String.format("Column %s is not continuous.", dataColumn.getName());
+                LOGGER.error(errMsg);
+                throw new DataReaderException(errMsg);
+            }
+
+            if (!dataColumn.isGenerated()) {
+                numOfColsInDataFile++;
+            }
+        }
+
+        int numOfRows = hasHeader ? countNumberOfLines() - 1 : countNumberOfLines();
+        sink.allocate(numOfRows, dataColumns.length);
+
+        readInContinuousData(dataColumns, hasHeader, numOfColsInDataFile, sink);
+    }
+
+    private void readInContinuousData(DataColumn[] dataColumns, boolean hasHeader, int numOfColsInDataFile, ContinuousDataSink sink) throws IOException {
+        int numOfCols = dataColumns.length;
+
         try (InputStream in = Files.newInputStream(dataFile, StandardOpenOption.READ)) {
             boolean skipHeader = hasHeader;
             boolean skip = false;
@@ -828,10 +919,10 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                             if (dataColumn.getColumnNumber() == colNum) {
                                 String value = dataBuilder.toString().trim();
                                 if (value.isEmpty() || value.equals(missingDataMarker)) {
-                                    data[row][col++] = CONTINUOUS_MISSING_VALUE;
+                                    sink.set(row, col++, CONTINUOUS_MISSING_VALUE);
                                 } else {
                                     try {
-                                        data[row][col++] = Double.parseDouble(value);
+                                        sink.set(row, col++, Double.parseDouble(value));
                                     } catch (NumberFormatException exception) {
                                         String errMsg = String.format("Non-continuous number %s on line %d at column %d.", value, lineNum, colNum);
                                         LOGGER.error(errMsg, exception);
@@ -911,10 +1002,10 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                                     if (dataColumn.getColumnNumber() == colNum) {
                                         String value = dataBuilder.toString().trim();
                                         if (value.isEmpty() || value.equals(missingDataMarker)) {
-                                            data[row][col++] = CONTINUOUS_MISSING_VALUE;
+                                            sink.set(row, col++, CONTINUOUS_MISSING_VALUE);
                                         } else {
                                             try {
-                                                data[row][col++] = Double.parseDouble(value);
+                                                sink.set(row, col++, Double.parseDouble(value));
                                             } catch (NumberFormatException exception) {
                                                 String errMsg = String.format("Non-continuous number %s on line %d at column %d.", value, lineNum, colNum);
                                                 LOGGER.error(errMsg, exception);
@@ -949,10 +1040,10 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                 if (dataColumn.getColumnNumber() == colNum) {
                     String value = dataBuilder.toString().trim();
                     if (value.isEmpty() || value.equals(missingDataMarker)) {
-                        data[row][col++] = CONTINUOUS_MISSING_VALUE;
+                        sink.set(row, col++, CONTINUOUS_MISSING_VALUE);
                     } else {
                         try {
-                            data[row][col++] = Double.parseDouble(value);
+                            sink.set(row, col++, Double.parseDouble(value));
                         } catch (NumberFormatException exception) {
                             String errMsg = String.format("Non-continuous number %s on line %d at column %d.", value, lineNum, colNum);
                             LOGGER.error(errMsg, exception);
@@ -971,8 +1062,6 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                 }
             }
         }
-
-        return new ContinuousTabularData(dataColumns, data);
     }
 
     private Data readInDiscreteData(DataColumn[] dataColumns, boolean hasHeader, int numOfColsInDataFile) throws IOException {
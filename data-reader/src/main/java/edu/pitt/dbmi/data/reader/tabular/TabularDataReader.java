@@ -51,4 +51,16 @@ public interface TabularDataReader extends DatasetReader {
 
     public Data read(DataColumn[] dataColumns, boolean hasHeader, Metadata metadata) throws IOException;
 
+    /**
+     * Set true to read the file in parallel. The file is memory-mapped, split
+     * into chunks at line boundaries and parsed on all processors. In this
+     * mode {@link #determineDiscreteDataColumns} parses the data in the same
+     * pass, and the {@code read} that follows it uses that result instead of
+     * reading the file again. A file with a quote that spans lines is read
+     * sequentially.
+     *
+     * @param parallel
+     */
+    public void setParallel(boolean parallel);
+
 }
@@ -39,4 +39,12 @@ public interface TabularDatasetReader extends DatasetReader {
 
     public void setHasHeader(boolean hasHeader);
 
+    /**
+     * Set true to parse the file in chunks on all processors.
+     *
+     * @param parallel
+     * @see TabularDataReader#setParallel(boolean)
+     */
+    public void setParallel(boolean parallel);
+
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2019 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.binary;
+
+import edu.pitt.dbmi.data.reader.ContinuousData;
+import edu.pitt.dbmi.data.reader.DataColumn;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import edu.pitt.dbmi.data.reader.DiscreteDataColumn;
+import edu.pitt.dbmi.data.reader.MixedData;
+import edu.pitt.dbmi.data.reader.tabular.ContinuousTabularDatasetFileReader;
+import edu.pitt.dbmi.data.reader.tabular.ContinuousTabularDatasetReader;
+import edu.pitt.dbmi.data.reader.tabular.MixedTabularDatasetFileReader;
+import edu.pitt.dbmi.data.reader.tabular.MixedTabularDatasetReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * Sep 2, 2019 2:41:09 PM
+ *
+ * @author Kevin V. Bui (kvb2@pitt.edu)
+ */
+public class ColumnarBinaryFileTest {
+
+    private final Delimiter delimiter = Delimiter.COMMA;
+    private final char quoteCharacter = '"';
+    private final String commentMarker = "//";
+    private final String missingValueMarker = "*";
+
+    private final Path[] dataFiles = {
+        Paths.get(getClass().getResource("/data/tabular/continuous/dos_sim_test_data.csv").getFile()),
+        Paths.get(getClass().getResource("/data/tabular/continuous/mac_sim_test_data.csv").getFile()),
+        Paths.get(getClass().getResource("/data/tabular/continuous/sim_test_data.csv").getFile()),
+        Paths.get(getClass().getResource("/data/tabular/continuous/quotes_sim_test_data.csv").getFile())
+    };
+
+    public ColumnarBinaryFileTest() {
+    }
+
+    /**
+     * Test of write method, of class ContinuousTabularBinaryFileWriter.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testWriteMatchesTabularData() throws IOException {
+        for (Path dataFile : dataFiles) {
+            for (boolean singlePrecision : new boolean[]{false, true}) {
+                ContinuousTabularDatasetReader dataReader = new ContinuousTabularDatasetFileReader(dataFile, delimiter);
+                dataReader.setCommentMarker(commentMarker);
+                dataReader.setQuoteCharacter(quoteCharacter);
+                dataReader.setMissingDataMarker(missingValueMarker);
+                ContinuousData continuousData = (ContinuousData) dataReader.readInData();
+                DataColumn[] dataColumns = continuousData.getDataColumns();
+                double[][] expected = continuousData.getData();
+
+                Path binaryFile = Files.createTempFile("columnar", ".bin");
+                try {
+                    ContinuousTabularBinaryFileWriter writer = new ContinuousTabularBinaryFileWriter(dataFile, delimiter);
+                    writer.setCommentMarker(commentMarker);
+                    writer.setQuoteCharacter(quoteCharacter);
+                    writer.setMissingDataMarker(missingValueMarker);
+                    writer.setSinglePrecision(singlePrecision);
+                    writer.write(binaryFile);
+
+                    try (ColumnarBinaryFile file = ColumnarBinaryFile.open(binaryFile)) {
+                        Assert.assertEquals(singlePrecision, file.isSinglePrecision());
+                        Assert.assertEquals(expected.length, file.getNumberOfRows());
+                        Assert.assertEquals(dataColumns.length, file.getNumberOfColumns());
+
+                        double delta = singlePrecision ? 1e-6 : 0;
+                        double[] column = new double[file.getNumberOfRows()];
+                        for (int col = 0; col < dataColumns.length; col++) {
+                            Assert.assertEquals(dataColumns[col].getName(), file.getColumnNames().get(col));
+
+                            file.readColumn(col, column);
+                            for (int row = 0; row < expected.length; row++) {
+                                Assert.assertEquals(expected[row][col], file.getDouble(row, col), Math.abs(expected[row][col]) * delta);
+                                Assert.assertEquals(expected[row][col], column[row], Math.abs(expected[row][col]) * delta);
+                            }
+                        }
+                    }
+                } finally {
+                    Files.deleteIfExists(binaryFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of open method, of class ColumnarBinaryFile.
+     *
+     * @throws IOException
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testOpenIsReadOnly() throws IOException {
+        Path binaryFile = Files.createTempFile("columnar", ".bin");
+        try {
+            ColumnarBinaryFile.create(binaryFile, Arrays.asList("X1", "X2"), 3, false).close();
+
+            try (ColumnarBinaryFile file = ColumnarBinaryFile.open(binaryFile)) {
+                Assert.assertTrue(Double.isNaN(file.getDouble(2, 1)));
+                file.setDouble(0, 0, 1.0);
+            }
+        } finally {
+            Files.deleteIfExists(binaryFile);
+        }
+    }
+
+    /**
+     * Test of write method, of class ColumnarBinaryFile.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testWriteMixedData() throws IOException {
+        Path dataFile = Paths.get(getClass().getResource("/data/tabular/mixed/sim_test_data.csv").getFile());
+        MixedTabularDatasetReader dataReader = new MixedTabularDatasetFileReader(dataFile, delimiter, 4);
+        dataReader.setCommentMarker(commentMarker);
+        dataReader.setQuoteCharacter(quoteCharacter);
+        dataReader.setMissingDataMarker(missingValueMarker);
+        MixedData mixedData = (MixedData) dataReader.readInData();
+        DiscreteDataColumn[] dataColumns = mixedData.getDataColumns();
+        double[][] continuousData = mixedData.getContinuousData();
+        int[][] discreteData = mixedData.getDiscreteData();
+
+        Path binaryFile = Files.createTempFile("columnar", ".bin");
+        try {
+            ColumnarBinaryFile.write(binaryFile, mixedData, false);
+
+            try (ColumnarBinaryFile file = ColumnarBinaryFile.open(binaryFile)) {
+                Assert.assertEquals(mixedData.getNumOfRows(), file.getNumberOfRows());
+                Assert.assertEquals(dataColumns.length, file.getNumberOfColumns());
+
+                double[] column = new double[file.getNumberOfRows()];
+                int[] codes = new int[file.getNumberOfRows()];
+                for (int col = 0; col < dataColumns.length; col++) {
+                    Assert.assertEquals(dataColumns[col].getDataColumn().getName(), file.getColumnNames().get(col));
+                    Assert.assertEquals(dataColumns[col].getDataColumn().isDiscrete(), file.isDiscrete(col));
+
+                    if (file.isDiscrete(col)) {
+                        Assert.assertEquals(dataColumns[col].getCategories(), file.getCategories(col));
+
+                        file.readColumn(col, codes);
+                        for (int row = 0; row < file.getNumberOfRows(); row++) {
+                            Assert.assertEquals(discreteData[col][row], file.getInt(row, col));
+                            Assert.assertEquals(discreteData[col][row], codes[row]);
+                        }
+                    } else {
+                        Assert.assertNull(file.getCategories(col));
+
+                        file.readColumn(col, column);
+                        for (int row = 0; row < file.getNumberOfRows(); row++) {
+                            Assert.assertEquals(continuousData[col][row], file.getDouble(row, col), 0);
+                            Assert.assertEquals(continuousData[col][row], column[row], 0);
+                        }
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(binaryFile);
+        }
+    }
+
+    /**
+     * Test of setKnowledge, setCovariances and setVariableType methods, of
+     * class ColumnarBinaryFile.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMetadataRoundTrip() throws IOException {
+        List<String> columnNames = Arrays.asList("X1", "X2", "X3");
+        double[][] covariances = {
+            {2.0, 0.5, -0.25},
+            {0.5, 1.0, 0.0},
+            {-0.25, 0.0, 3.0}
+        };
+        String knowledge = "/knowledge\naddtemporal\n\n1 X1\n2 X2 X3\n";
+
+        Path binaryFile = Files.createTempFile("columnar", ".bin");
+        try {
+            try (ColumnarBinaryFile file = ColumnarBinaryFile.create(binaryFile, columnNames, 2, true)) {
+                file.setDouble(1, 2, 1.5);
+                file.setVariableType(0, ColumnarBinaryFile.VariableType.INTERVENTION_STATUS);
+                file.setKnowledge(knowledge);
+                file.setCovariances(covariances, 2);
+            }
+
+            try (ColumnarBinaryFile file = ColumnarBinaryFile.open(binaryFile)) {
+                Assert.assertEquals(1.5, file.getDouble(1, 2), 0);
+                Assert.assertTrue(Double.isNaN(file.getDouble(0, 2)));
+                Assert.assertEquals(ColumnarBinaryFile.VariableType.INTERVENTION_STATUS, file.getVariableType(0));
+                Assert.assertEquals(ColumnarBinaryFile.VariableType.DOMAIN, file.getVariableType(1));
+                Assert.assertEquals(knowledge, file.getKnowledge());
+                Assert.assertTrue(file.hasCovariances());
+                Assert.assertEquals(2, file.getCovarianceSampleSize());
+
+                double[] row = new double[columnNames.size()];
+                for (int i = 0; i < covariances.length; i++) {
+                    file.readCovariances(i, row);
+                    Assert.assertArrayEquals(covariances[i], row, 0);
+                }
+            }
+
+            // a file of covariances alone has no rows
+            try (ColumnarBinaryFile file = ColumnarBinaryFile.create(binaryFile, columnNames, 0, false)) {
+                file.setCovariances(covariances, 100);
+            }
+
+            try (ColumnarBinaryFile file = ColumnarBinaryFile.open(binaryFile)) {
+                Assert.assertEquals(0, file.getNumberOfRows());
+                Assert.assertNull(file.getKnowledge());
+                Assert.assertEquals(100, file.getCovarianceSampleSize());
+
+                double[] row = new double[columnNames.size()];
+                file.readCovariances(2, row);
+                Assert.assertArrayEquals(covariances[2], row, 0);
+            }
+        } finally {
+            Files.deleteIfExists(binaryFile);
+        }
+    }
+
+    /**
+     * Test of setCovariances method, of class ColumnarBinaryFile.
+     *
+     * @throws IOException
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCovariancesOfDiscreteColumns() throws IOException {
+        Path binaryFile = Files.createTempFile("columnar", ".bin");
+        try (ColumnarBinaryFile file = ColumnarBinaryFile.create(binaryFile, Arrays.asList("X1", "X2"),
+                Arrays.asList(null, Arrays.asList("a", "b")), 3, false)) {
+            file.setCovariances(new double[2][2], 3);
+        } finally {
+            Files.deleteIfExists(binaryFile);
+        }
+    }
+
+}
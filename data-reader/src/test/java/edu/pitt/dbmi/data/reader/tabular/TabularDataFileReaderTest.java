@@ -29,6 +29,7 @@ import edu.pitt.dbmi.data.reader.metadata.Metadata;
 import edu.pitt.dbmi.data.reader.metadata.MetadataFileReader;
 import edu.pitt.dbmi.data.reader.metadata.MetadataReader;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
@@ -791,4 +792,113 @@ public class TabularDataFileReaderTest {
         }
     }
 
+    /**
+     * Test of setParallel method, of class TabularDataFileReader.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testParallelReadMatchesSequentialRead() throws IOException {
+        Path[][] dataFiles = {continuousDataFiles, discreteDataFiles, mixedDataFiles};
+        boolean[] discrete = {false, true, false};
+        for (int i = 0; i < dataFiles.length; i++) {
+            for (Path dataFile : dataFiles[i]) {
+                Data expected = readInData(dataFile, discrete[i], false);
+                Data actual = readInData(dataFile, discrete[i], true);
+                Assert.assertEquals(expected.getClass(), actual.getClass());
+
+                if (expected instanceof ContinuousData) {
+                    Assert.assertArrayEquals(((ContinuousData) expected).getData(), ((ContinuousData) actual).getData());
+                } else if (expected instanceof DiscreteData) {
+                    Assert.assertArrayEquals(((DiscreteData) expected).getData(), ((DiscreteData) actual).getData());
+                    assertSameCategories(((DiscreteData) expected).getDataColumns(), ((DiscreteData) actual).getDataColumns());
+                } else {
+                    MixedTabularData expectedData = (MixedTabularData) expected;
+                    MixedTabularData actualData = (MixedTabularData) actual;
+                    Assert.assertEquals(expectedData.getNumOfRows(), actualData.getNumOfRows());
+                    Assert.assertArrayEquals(expectedData.getContinuousData(), actualData.getContinuousData());
+                    Assert.assertArrayEquals(expectedData.getDiscreteData(), actualData.getDiscreteData());
+                    assertSameCategories(expectedData.getDataColumns(), actualData.getDataColumns());
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of setParallel method, of class TabularDataFileReader, on a file
+     * with a quote that spans lines.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testParallelReadWithQuoteSpanningLines() throws IOException {
+        Path dataFile = Files.createTempFile("quoted", ".csv");
+        try {
+            Files.write(dataFile, Arrays.asList("X,Y,Z", "a,b,\"c", "d\",e,f", "g,h,i"));
+
+            DiscreteData expected = (DiscreteData) readInData(dataFile, true, false);
+            DiscreteData actual = (DiscreteData) readInData(dataFile, true, true);
+            Assert.assertEquals(3, expected.getData()[0].length);
+            Assert.assertArrayEquals(expected.getData(), actual.getData());
+            assertSameCategories(expected.getDataColumns(), actual.getDataColumns());
+        } finally {
+            Files.deleteIfExists(dataFile);
+        }
+    }
+
+    /**
+     * Test of parseDouble method, of class ChunkedTabularDataParser.
+     */
+    @Test
+    public void testParseDouble() {
+        String[] values = {
+            "0", "-0", "+1", "1.", ".5", "3.14159", "-2.5e-3", "1E10", "6.02214076e23",
+            "0.1234567890123456789", "123456789012345678901234", "1e-400", "1e400",
+            "4.9e-324", "2.2250738585072014E-308", "9007199254740993", "NaN", "-Infinity", "1.5f"
+        };
+        for (String value : values) {
+            byte[] bytes = value.getBytes();
+            Assert.assertEquals(value, Double.doubleToRawLongBits(Double.parseDouble(value)),
+                    Double.doubleToRawLongBits(ChunkedTabularDataParser.parseDouble(bytes, 0, bytes.length)));
+        }
+
+        String[] invalidValues = {"", "-", ".", "e5", "1e", "1.2.3", "abc"};
+        for (String value : invalidValues) {
+            byte[] bytes = value.getBytes();
+            try {
+                ChunkedTabularDataParser.parseDouble(bytes, 0, bytes.length);
+                Assert.fail(value);
+            } catch (NumberFormatException exception) {
+            }
+        }
+    }
+
+    private Data readInData(Path dataFile, boolean isDiscrete, boolean parallel) throws IOException {
+        TabularColumnReader columnReader = new TabularColumnFileReader(dataFile, delimiter);
+        columnReader.setCommentMarker(commentMarker);
+        columnReader.setQuoteCharacter(quoteCharacter);
+
+        DataColumn[] dataColumns = columnReader.readInDataColumns(isDiscrete);
+
+        TabularDataReader dataReader = new TabularDataFileReader(dataFile, delimiter);
+        dataReader.setCommentMarker(commentMarker);
+        dataReader.setQuoteCharacter(quoteCharacter);
+        dataReader.setMissingDataMarker(missingValueMarker);
+        dataReader.setParallel(parallel);
+
+        if (dataFile.getParent().endsWith("mixed")) {
+            int numberOfCategories = 4;
+            dataReader.determineDiscreteDataColumns(dataColumns, numberOfCategories, hasHeader);
+        }
+
+        return dataReader.read(dataColumns, hasHeader);
+    }
+
+    private void assertSameCategories(DiscreteDataColumn[] expected, DiscreteDataColumn[] actual) {
+        Assert.assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i].getCategories(), actual[i].getCategories());
+        }
+    }
+
 }
@@ -0,0 +1,102 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.bayes.BayesPm;
+import edu.cmu.tetrad.bayes.MlBayesIm;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.sem.LargeScaleSimulation;
+import edu.cmu.tetrad.util.RandomUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Makes the random graphs and data sets the benchmarks run on. Each is seeded, so that every run of a benchmark
+ * with the same parameters sees the same inputs.
+ *
+ * @author Joseph Ramsey
+ */
+final class BenchmarkData {
+    private static final long SEED = 492834L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return a random DAG over the given number of variables, with avgDegree * numVariables / 2 edges.
+     */
+    static Graph randomDag(int numVariables, double avgDegree) {
+        RandomUtil.getInstance().setSeed(SEED);
+
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < numVariables; i++) {
+            vars.add(new GraphNode("X" + (i + 1)));
+        }
+
+        int numEdges = (int) (avgDegree * numVariables / 2.0);
+        return GraphUtils.randomGraphRandomForwardEdges(vars, 0, numEdges, 100, 100, 100, false);
+    }
+
+    /**
+     * @return continuous data simulated from a linear Gaussian model over the given DAG.
+     */
+    static DataSet continuousData(Graph dag, int sampleSize) {
+        RandomUtil.getInstance().setSeed(SEED);
+        return new LargeScaleSimulation(dag).simulateDataFisher(sampleSize);
+    }
+
+    /**
+     * @return discrete data, with three categories per variable, simulated from a random Bayes net over the given
+     * DAG.
+     */
+    static DataSet discreteData(Graph dag, int sampleSize) {
+        RandomUtil.getInstance().setSeed(SEED);
+        BayesPm pm = new BayesPm(dag, 3, 3);
+        MlBayesIm im = new MlBayesIm(pm, MlBayesIm.RANDOM);
+        return im.simulateData(sampleSize, false);
+    }
+
+    /**
+     * @return the indices in nodes of the parents of node in graph, found by name.
+     */
+    static int[] parents(Graph graph, Node node, List<Node> nodes) {
+        List<Node> parents = graph.getParents(node);
+        int[] indices = new int[parents.size()];
+
+        for (int i = 0; i < parents.size(); i++) {
+            indices[i] = indexOf(nodes, parents.get(i).getName());
+        }
+
+        return indices;
+    }
+
+    static int indexOf(List<Node> nodes, String name) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i).getName().equals(name)) return i;
+        }
+
+        throw new IllegalArgumentException("No variable named " + name);
+    }
+}
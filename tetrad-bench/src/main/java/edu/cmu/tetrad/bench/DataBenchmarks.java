@@ -0,0 +1,112 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DataWriter;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.util.DataConvertUtils;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import edu.pitt.dbmi.data.reader.tabular.ContinuousTabularDatasetFileReader;
+import edu.pitt.dbmi.data.reader.tabular.VerticalDiscreteTabularDatasetFileReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times building a covariance matrix from continuous data and reading tab-delimited continuous and discrete data
+ * files into data sets.
+ *
+ * @author Joseph Ramsey
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class ContinuousFile {
+        File file;
+
+        @Setup(Level.Trial)
+        public void setUp(ContinuousState state) throws IOException {
+            file = write(state.dataSet);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            file.delete();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class DiscreteFile {
+        File file;
+
+        @Setup(Level.Trial)
+        public void setUp(DiscreteState state) throws IOException {
+            file = write(state.dataSet);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public ICovarianceMatrix covarianceMatrix(ContinuousState state) {
+        return new CovarianceMatrix(state.dataSet);
+    }
+
+    @Benchmark
+    public DataModel readContinuousData(ContinuousFile state) throws IOException {
+        ContinuousTabularDatasetFileReader reader
+                = new ContinuousTabularDatasetFileReader(state.file.toPath(), Delimiter.TAB);
+        return DataConvertUtils.toDataModel(reader.readInData());
+    }
+
+    @Benchmark
+    public DataModel readDiscreteData(DiscreteFile state) throws IOException {
+        VerticalDiscreteTabularDatasetFileReader reader
+                = new VerticalDiscreteTabularDatasetFileReader(state.file.toPath(), Delimiter.TAB);
+        return DataConvertUtils.toDataModel(reader.readInData());
+    }
+
+    private static File write(DataSet dataSet) throws IOException {
+        File file = File.createTempFile("tetrad-bench", ".txt");
+
+        try (Writer out = new FileWriter(file)) {
+            DataWriter.writeRectangularData(dataSet, out, '\t');
+        }
+
+        return file;
+    }
+}
@@ -0,0 +1,135 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.search.BDeuScore;
+import edu.cmu.tetrad.search.DiscreteSufficientStatistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the discrete counting backends on wide discrete data by timing BDeu local scores of random families,
+ * with and without caching of tables. Each operation builds a fresh score, so that setup of the backend and filling
+ * of the cache are included in the time.
+ *
+ * @author Joseph Ramsey
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DiscreteCounterBenchmarks {
+
+    private static final int NUM_FAMILIES = 2000;
+
+    @State(Scope.Benchmark)
+    public static class Families {
+
+        @Param({"100", "500"})
+        public int numVariables;
+
+        @Param({"5000"})
+        public int sampleSize;
+
+        /**
+         * NONE for no counts (a scan per score); otherwise a backend, with _CACHED to cache tables.
+         */
+        @Param({"NONE", "ROW_SCAN", "AD_TREE", "DISTINCT_ROWS", "ROW_SCAN_CACHED", "AD_TREE_CACHED",
+                "DISTINCT_ROWS_CACHED"})
+        public String counts;
+
+        DataSet dataSet;
+        DiscreteSufficientStatistics.Backend backend;
+        long maxCells;
+        int[] children;
+        int[][] parents;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            dataSet = BenchmarkData.discreteData(BenchmarkData.randomDag(numVariables, 2), sampleSize);
+
+            boolean cached = counts.endsWith("_CACHED");
+            String name = cached ? counts.substring(0, counts.length() - "_CACHED".length()) : counts;
+            backend = "NONE".equals(name) ? null : DiscreteSufficientStatistics.Backend.valueOf(name);
+            maxCells = cached ? DiscreteSufficientStatistics.DEFAULT_MAX_CELLS : 0;
+
+            // Families as a greedy search asks for them: each parent set both with and without one extra parent.
+            Random random = new Random(4829384L);
+            children = new int[NUM_FAMILIES];
+            parents = new int[NUM_FAMILIES][];
+
+            for (int f = 0; f < NUM_FAMILIES; f += 2) {
+                int[] family = randomSet(random, numVariables, 2 + random.nextInt(3));
+                children[f] = family[0];
+                parents[f] = Arrays.copyOfRange(family, 1, family.length);
+
+                if (f + 1 < NUM_FAMILIES) {
+                    children[f + 1] = family[0];
+                    parents[f + 1] = Arrays.copyOfRange(family, 1, family.length - 1);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public double bdeuLocalScores(Families state) {
+        BDeuScore score = new BDeuScore(state.dataSet);
+
+        if (state.backend != null) {
+            score.setSufficientStatistics(new DiscreteSufficientStatistics(state.dataSet, state.backend,
+                    state.maxCells));
+        }
+
+        double sum = 0.0;
+
+        for (int f = 0; f < state.children.length; f++) {
+            sum += score.localScore(state.children[f], state.parents[f]);
+        }
+
+        return sum;
+    }
+
+    private static int[] randomSet(Random random, int numVars, int size) {
+        int[] set = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            NEXT:
+            while (true) {
+                int v = random.nextInt(numVars);
+
+                for (int j = 0; j < i; j++) {
+                    if (set[j] == v) continue NEXT;
+                }
+
+                set[i] = v;
+                break;
+            }
+        }
+
+        return set;
+    }
+}
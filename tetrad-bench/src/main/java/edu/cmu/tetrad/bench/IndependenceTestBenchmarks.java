@@ -0,0 +1,94 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.graph.IndependenceFact;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.IndTestFisherZ;
+import edu.cmu.tetrad.search.IndependenceTest;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times a fixed batch of Fisher Z tests, with conditioning sets of up to three variables chosen at random.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndependenceTestBenchmarks {
+    private static final int NUM_FACTS = 1000;
+
+    private IndependenceTest test;
+    private List<IndependenceFact> facts;
+
+    @Setup(Level.Trial)
+    public void setUp(ContinuousState state) {
+        test = new IndTestFisherZ(state.cov, 0.01);
+        facts = randomFacts(test.getVariables());
+    }
+
+    @Benchmark
+    public int fisherZ() {
+        int numIndependent = 0;
+
+        for (IndependenceFact fact : facts) {
+            if (test.isIndependent(fact.getX(), fact.getY(), fact.getZ())) {
+                numIndependent++;
+            }
+        }
+
+        return numIndependent;
+    }
+
+    private static List<IndependenceFact> randomFacts(List<Node> variables) {
+        RandomUtil random = RandomUtil.getInstance();
+        random.setSeed(38294L);
+        List<IndependenceFact> facts = new ArrayList<>();
+
+        while (facts.size() < NUM_FACTS) {
+            Node x = variables.get(random.nextInt(variables.size()));
+            Node y = variables.get(random.nextInt(variables.size()));
+            if (x == y) continue;
+
+            List<Node> z = new ArrayList<>();
+            int size = random.nextInt(4);
+
+            while (z.size() < size) {
+                Node w = variables.get(random.nextInt(variables.size()));
+                if (w != x && w != y && !z.contains(w)) z.add(w);
+            }
+
+            facts.add(new IndependenceFact(x, y, z));
+        }
+
+        return facts;
+    }
+}
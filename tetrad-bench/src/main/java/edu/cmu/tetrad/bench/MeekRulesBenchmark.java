@@ -0,0 +1,88 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.search.MeekRules;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times applying the Meek rules to the skeleton of a random DAG with its unshielded colliders oriented, as at the end
+ * of PC.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MeekRulesBenchmark {
+
+    @Param({"20", "100", "500"})
+    public int numVariables;
+
+    @Param({"2", "4"})
+    public double avgDegree;
+
+    private Graph colliders;
+    private Graph graph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Graph dag = BenchmarkData.randomDag(numVariables, avgDegree);
+        colliders = new EdgeListGraph(dag.getNodes());
+
+        for (Edge edge : dag.getEdges()) {
+            Node x = Edges.getDirectedEdgeTail(edge);
+            Node y = Edges.getDirectedEdgeHead(edge);
+            boolean collider = false;
+
+            for (Node z : dag.getParents(y)) {
+                if (z != x && !dag.isAdjacentTo(x, z)) {
+                    collider = true;
+                    break;
+                }
+            }
+
+            if (collider) {
+                colliders.addDirectedEdge(x, y);
+            } else {
+                colliders.addUndirectedEdge(x, y);
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void copyGraph() {
+        graph = new EdgeListGraph(colliders);
+    }
+
+    @Benchmark
+    public Graph orientImplied() {
+        new MeekRules().orientImplied(graph);
+        return graph;
+    }
+}
@@ -0,0 +1,102 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.BDeuScore;
+import edu.cmu.tetrad.search.SemBicScore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times scoring every family of the true DAG with the SEM BIC score on continuous data and the BDeu score on
+ * discrete data.
+ *
+ * @author Joseph Ramsey
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScoreBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class SemBic {
+        SemBicScore score;
+        int[][] parents;
+
+        @Setup(Level.Trial)
+        public void setUp(ContinuousState state) {
+            score = new SemBicScore(state.cov);
+            parents = families(state.dag, score.getVariables());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BDeu {
+        BDeuScore score;
+        int[][] parents;
+
+        @Setup(Level.Trial)
+        public void setUp(DiscreteState state) {
+            score = new BDeuScore(state.dataSet);
+            parents = families(state.dag, score.getVariables());
+        }
+    }
+
+    @Benchmark
+    public double semBicLocalScore(SemBic state) {
+        double sum = 0.0;
+
+        for (int i = 0; i < state.parents.length; i++) {
+            sum += state.score.localScore(i, state.parents[i]);
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public double bdeuLocalScore(BDeu state) {
+        double sum = 0.0;
+
+        for (int i = 0; i < state.parents.length; i++) {
+            sum += state.score.localScore(i, state.parents[i]);
+        }
+
+        return sum;
+    }
+
+    private static int[][] families(Graph dag, List<Node> variables) {
+        int[][] parents = new int[variables.size()][];
+
+        for (int i = 0; i < variables.size(); i++) {
+            Node node = dag.getNode(variables.get(i).getName());
+            parents[i] = BenchmarkData.parents(dag, node, variables);
+        }
+
+        return parents;
+    }
+}
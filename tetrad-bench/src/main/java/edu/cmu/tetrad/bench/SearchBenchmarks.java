@@ -0,0 +1,65 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times whole searches on continuous data: FGES with the SEM BIC score, and PC-Stable and the concurrent adjacency
+ * search with the Fisher Z test.
+ *
+ * @author Joseph Ramsey
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchBenchmarks {
+    private static final double ALPHA = 0.01;
+
+    @Benchmark
+    public Graph fges(ContinuousState state) {
+        Fges fges = new Fges(new SemBicScore(state.cov));
+        fges.setVerbose(false);
+        return fges.search();
+    }
+
+    @Benchmark
+    public Graph pcStable(ContinuousState state) {
+        PcStable pc = new PcStable(new IndTestFisherZ(state.cov, ALPHA));
+        pc.setVerbose(false);
+        return pc.search();
+    }
+
+    @Benchmark
+    public Graph fasConcurrent(ContinuousState state) {
+        FasConcurrent fas = new FasConcurrent(new IndTestFisherZ(state.cov, ALPHA));
+        fas.setStable(true);
+        fas.setVerbose(false);
+        return fas.search();
+    }
+}
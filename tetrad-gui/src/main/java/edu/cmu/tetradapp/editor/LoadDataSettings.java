@@ -131,6 +131,9 @@ public final class LoadDataSettings extends JPanel {
     private JRadioButton missingValueOtherRadioButton;
     private StringTextField missingStringField;
 
+    private JRadioButton parallelNoRadioButton;
+    private JRadioButton parallelYesRadioButton;
+
     private final Dimension labelSize;
 
     //================================CONSTRUCTOR=======================//
@@ -858,6 +861,52 @@ public final class LoadDataSettings extends JPanel {
 
         advancedSettingsBox.add(missingDataMarkerBox);
 
+        // Add seperator line
+        JSeparator separator4 = new JSeparator(SwingConstants.HORIZONTAL);
+        separator4.setForeground(separatorColor);
+        advancedSettingsBox.add(separator4);
+
+        // Parallel parsing
+        Box parallelBox = Box.createHorizontalBox();
+
+        parallelNoRadioButton = new JRadioButton("No");
+        parallelYesRadioButton = new JRadioButton("Yes");
+
+        ButtonGroup parallelBtnGrp = new ButtonGroup();
+        parallelBtnGrp.add(parallelNoRadioButton);
+        parallelBtnGrp.add(parallelYesRadioButton);
+
+        // Select No by default
+        parallelNoRadioButton.setSelected(true);
+
+        // Add label into this label box to size
+        Box parallelLabelBox = Box.createHorizontalBox();
+        parallelLabelBox.setPreferredSize(labelSize);
+        parallelLabelBox.add(new JLabel("Parse in parallel:"));
+        // Add info icon next to label to show tooltip on mouseover
+        JLabel parallelLabelInfoIcon = new JLabel(new ImageIcon(ImageUtils.getImage(this, "information_small_white.png")));
+        // Add tooltip on mouseover the info icon
+        parallelLabelInfoIcon.setToolTipText("Parse large files in chunks on all cores. This is faster but needs more memory. Files containing the quote character are always parsed sequentially.");
+        parallelLabelBox.add(parallelLabelInfoIcon);
+
+        // Option 1
+        Box parallelOption1Box = Box.createHorizontalBox();
+        parallelOption1Box.setPreferredSize(new Dimension(160, 30));
+        parallelOption1Box.add(parallelNoRadioButton);
+
+        // Option 2
+        Box parallelOption2Box = Box.createHorizontalBox();
+        parallelOption2Box.setPreferredSize(new Dimension(420, 30));
+        parallelOption2Box.add(parallelYesRadioButton);
+
+        parallelBox.add(parallelLabelBox);
+        parallelBox.add(Box.createRigidArea(new Dimension(10, 1)));
+        parallelBox.add(parallelOption1Box);
+        parallelBox.add(parallelOption2Box);
+        parallelBox.add(Box.createHorizontalGlue());
+
+        advancedSettingsBox.add(parallelBox);
+
         advancedSettingsBox.add(Box.createVerticalStrut(5));
 
         // Use a titled border with 5 px inside padding - Zhou
@@ -1217,6 +1266,10 @@ public final class LoadDataSettings extends JPanel {
             dataReader.setMissingDataMarker(missingDataMarker);
             setQuoteChar(dataReader);
 
+            // Parse the file in chunks on all cores if the user asked for it; for
+            // mixed data the column types and the data are then read in the same pass
+            dataReader.setParallel(parallelYesRadioButton.isSelected());
+
             // When users select mixed data, we need to determine num of discrete categories before the metadata kicks in
             // It's possible that the users select mixed, but excluded either all continuous or discrete columns,
             // and as a result, the final data is either discrete or continuous instead of mixed - Zhou
@@ -29,6 +29,7 @@ import edu.cmu.tetrad.sem.ScoreType;
 import edu.cmu.tetrad.sem.SemEstimator;
 import edu.cmu.tetrad.sem.SemIm;
 import edu.cmu.tetrad.sem.SemOptimizer;
+import edu.cmu.tetrad.sem.SemOptimizerBfgs;
 import edu.cmu.tetrad.sem.SemOptimizerEm;
 import edu.cmu.tetrad.sem.SemOptimizerPowell;
 import edu.cmu.tetrad.sem.SemOptimizerRegression;
@@ -90,6 +91,7 @@ public final class SemEstimatorEditor extends JPanel {
         optimizerCombo.addItem("Regression");
         optimizerCombo.addItem("EM");
         optimizerCombo.addItem("Powell");
+        optimizerCombo.addItem("BFGS");
         optimizerCombo.addItem("Random Search");
         optimizerCombo.addItem("RICF");
 
@@ -315,6 +317,9 @@ public final class SemEstimatorEditor extends JPanel {
             case "Powell":
                 optimizer = new SemOptimizerPowell();
                 break;
+            case "BFGS":
+                optimizer = new SemOptimizerBfgs();
+                break;
             case "Random Search":
                 optimizer = new SemOptimizerScattershot();
                 break;
@@ -31,6 +31,7 @@ import edu.cmu.tetrad.sem.ScoreType;
 import edu.cmu.tetrad.sem.SemEstimator;
 import edu.cmu.tetrad.sem.SemIm;
 import edu.cmu.tetrad.sem.SemOptimizer;
+import edu.cmu.tetrad.sem.SemOptimizerBfgs;
 import edu.cmu.tetrad.sem.SemOptimizerEm;
 import edu.cmu.tetrad.sem.SemOptimizerPowell;
 import edu.cmu.tetrad.sem.SemOptimizerRegression;
@@ -335,6 +336,8 @@ public class SemEstimatorWrapper implements SessionModel, Unmarshallable {
             optimizer = new SemOptimizerEm();
         } else if ("Powell".equals(type)) {
             optimizer = new SemOptimizerPowell();
+        } else if ("BFGS".equals(type)) {
+            optimizer = new SemOptimizerBfgs();
         } else if ("Random Search".equals(type)) {
             optimizer = new SemOptimizerScattershot();
         } else if ("RICF".equals(type)) {
@@ -367,6 +370,8 @@ public class SemEstimatorWrapper implements SessionModel, Unmarshallable {
             _type = "EM";
         } else if (optimizer instanceof SemOptimizerPowell) {
             _type = "Powell";
+        } else if (optimizer instanceof SemOptimizerBfgs) {
+            _type = "BFGS";
         } else if (optimizer instanceof SemOptimizerScattershot) {
             _type = "Random Search";
         } else if (optimizer instanceof SemOptimizerRicf) {
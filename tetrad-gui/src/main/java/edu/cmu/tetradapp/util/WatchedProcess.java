@@ -161,6 +161,8 @@ public abstract class WatchedProcess {
         Runnable runnable = new Runnable() {
             public void run() {
                 try {
+                    // A stop from an earlier process must not cancel this one.
+                    TaskManager.getInstance().setCanceled(false);
                     watch();
                 } catch (Exception e) {
                     e.printStackTrace();
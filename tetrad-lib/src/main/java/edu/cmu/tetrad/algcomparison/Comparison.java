@@ -30,6 +30,8 @@ import edu.cmu.tetrad.algcomparison.score.BdeuScore;
 import edu.cmu.tetrad.algcomparison.score.ScoreWrapper;
 import edu.cmu.tetrad.algcomparison.simulation.Simulation;
 import edu.cmu.tetrad.algcomparison.simulation.Simulations;
+import edu.cmu.tetrad.algcomparison.statistic.AllocatedMemory;
+import edu.cmu.tetrad.algcomparison.statistic.CpuTime;
 import edu.cmu.tetrad.algcomparison.statistic.ElapsedTime;
 import edu.cmu.tetrad.algcomparison.statistic.ParameterColumn;
 import edu.cmu.tetrad.algcomparison.statistic.Statistic;
@@ -52,9 +54,10 @@ import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.DagToPag2;
 import edu.cmu.tetrad.search.SearchGraphUtils;
+import edu.cmu.tetrad.util.Checkpoint;
 import edu.cmu.tetrad.util.CombinationGenerator;
 import edu.cmu.tetrad.util.Experimental;
-import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.ParamDescription;
 import edu.cmu.tetrad.util.ParamDescriptions;
 import edu.cmu.tetrad.util.Parameters;
@@ -72,7 +75,6 @@ import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -80,9 +82,8 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
 
 import org.reflections.Reflections;
 
@@ -117,6 +118,12 @@ public class Comparison {
     //    private boolean saveTrueDags = false;
     private ArrayList<String> dirs = null;
     private ComparisonGraph comparisonGraph = ComparisonGraph.true_DAG;
+    private String checkpointPath = null;
+    private boolean resume = false;
+    private Checkpoint checkpoint = null;
+    private long timeout = 0;
+    private TimeUnit timeoutUnit = TimeUnit.SECONDS;
+    private List<ComparisonScheduler.Result> taskResults = null;
 
     public void compareFromFiles(String filePath, Algorithms algorithms,
                                  Statistics statistics, Parameters parameters) {
@@ -341,6 +348,14 @@ public class Comparison {
             }
         }
 
+        if (checkpointPath != null) {
+            checkpoint = new Checkpoint(new File(checkpointPath));
+
+            if (!resume) {
+                checkpoint.clear();
+            }
+        }
+
         // Run all of the algorithms and compile statistics.
         double[][][][] allStats = calcStats(algorithmSimulationWrappers, algorithmWrappers, simulationWrappers,
                 statistics, numRuns, stdout);
@@ -510,6 +525,14 @@ public class Comparison {
             }
         }
 
+        if (taskResults != null) {
+            out.println();
+            out.println("Tasks:");
+            out.println();
+
+            ComparisonScheduler.printResults(taskResults, out, isTabDelimitedTables());
+        }
+
         for (int i = 0; i < simulations.getSimulations().size(); i++) {
             saveToFiles(resultsPath + "/simulation" + (i + 1), simulations.getSimulations().get(i), parameters);
         }
@@ -990,7 +1013,9 @@ public class Comparison {
 
         double[][][][] allStats = new double[4][algorithmSimulationWrappers.size()][statistics.size() + 1][numRuns];
 
-        List<AlgorithmTask> tasks = new ArrayList<>();
+        int parallelism = isParallelized() ? ComputeExecutor.getInstance().getParallelism() : 1;
+        ComparisonScheduler scheduler = new ComparisonScheduler(parallelism, timeout, timeoutUnit);
+        scheduler.setOut(stdout);
         int index = 0;
 
         for (int algSimIndex = 0; algSimIndex < algorithmSimulationWrappers.size(); algSimIndex++) {
@@ -1000,57 +1025,13 @@ public class Comparison {
                 AlgorithmTask task = new AlgorithmTask(algorithmSimulationWrappers,
                         algorithmWrappers, simulationWrappers,
                         statistics, numGraphTypes, allStats, run, stdout);
-//                task.compute();
-                tasks.add(task);
+                DataModel data = algorithmSimulationWrapper.getSimulationWrapper().getDataModel(runIndex);
+                scheduler.add("Alg-Sim " + (algSimIndex + 1) + ", Run " + (runIndex + 1),
+                        ComparisonScheduler.estimateCost(data), task);
             }
         }
 
-        if (!isParallelized()) {
-            for (AlgorithmTask task : tasks) {
-                task.compute();
-            }
-        } else {
-            class Task extends RecursiveTask<Boolean> {
-
-                List<AlgorithmTask> tasks;
-
-                public Task(List<AlgorithmTask> tasks) {
-                    this.tasks = tasks;
-                }
-
-                @Override
-                protected Boolean compute() {
-                    Queue<AlgorithmTask> tasks = new ArrayDeque<>();
-
-                    for (AlgorithmTask task : this.tasks) {
-                        tasks.add(task);
-                        task.fork();
-
-                        for (AlgorithmTask _task : new ArrayList<>(tasks)) {
-                            if (_task.isDone()) {
-                                _task.join();
-                                tasks.remove(_task);
-                            }
-                        }
-
-                        while (tasks.size() > Runtime.getRuntime().availableProcessors()) {
-                            AlgorithmTask _task = tasks.poll();
-                            _task.join();
-                        }
-                    }
-
-                    for (AlgorithmTask task : tasks) {
-                        task.join();
-                    }
-
-                    return true;
-                }
-            }
-
-            Task task = new Task(tasks);
-
-            ForkJoinPoolInstance.getInstance().getPool().invoke(task);
-        }
+        taskResults = scheduler.runAll();
 
         return allStats;
     }
@@ -1105,9 +1086,23 @@ public class Comparison {
         return parallelized;
     }
 
-//    public void setParallelized(boolean parallelized) {
-//        this.parallelized = parallelized;
-//    }
+    /**
+     * @param parallelized True if the runs should be done in parallel, as many at a
+     *                     time as ComputeExecutor is set up to use.
+     */
+    public void setParallelized(boolean parallelized) {
+        this.parallelized = parallelized;
+    }
+
+    /**
+     * Sets a limit on how long any one run may take; runs that go over are interrupted
+     * and left out of the statistics. 0 or less means no limit, the default.
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        if (unit == null) throw new NullPointerException();
+        this.timeout = timeout;
+        this.timeoutUnit = unit;
+    }
 
     /**
      * @return True if patterns should be saved out.
@@ -1226,7 +1221,45 @@ public class Comparison {
         this.comparisonGraph = comparisonGraph;
     }
 
-    private class AlgorithmTask extends RecursiveTask<Boolean> {
+    /**
+     * @return The directory the statistics of each run are saved to as the
+     * run finishes, or null if they are not saved.
+     */
+    public String getCheckpointPath() {
+        return checkpointPath;
+    }
+
+    /**
+     * @param checkpointPath The directory the statistics of each run are
+     *                       saved to as the run finishes, so that a
+     *                       comparison that is stopped can be resumed; null
+     *                       (the default) if they are not to be saved.
+     */
+    public void setCheckpointPath(String checkpointPath) {
+        this.checkpointPath = checkpointPath;
+    }
+
+    /**
+     * @return True if runs saved to the checkpoint directory are restored
+     * rather than run again.
+     */
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * @param resume True if runs saved to the checkpoint directory by an
+     *               earlier comparison, of the same simulations, algorithms
+     *               and statistics, are to be restored rather than run again.
+     *               Restored runs keep the statistics computed on the data of
+     *               the earlier comparison. If false (the default), saved runs
+     *               are deleted when the comparison starts.
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    private class AlgorithmTask implements Runnable {
 
         private List<AlgorithmSimulationWrapper> algorithmSimulationWrappers;
         private List<AlgorithmWrapper> algorithmWrappers;
@@ -1251,10 +1284,9 @@ public class Comparison {
         }
 
         @Override
-        protected Boolean compute() {
+        public void run() {
             doRun(algorithmSimulationWrappers, algorithmWrappers,
                     simulationWrappers, statistics, numGraphTypes, allStats, run, stdout);
-            return true;
         }
     }
 
@@ -1313,6 +1345,13 @@ public class Comparison {
         stdout.println();
 
         AlgorithmSimulationWrapper algorithmSimulationWrapper = algorithmSimulationWrappers.get(run.getAlgSimIndex());
+        String runHeader = runHeader(algorithmSimulationWrapper, statistics);
+
+        if (restoreRun(run, runHeader, allStats, stdout)) {
+            stdout.println((run.getAlgSimIndex() + 1) + ". Restored from " + checkpoint.getDirectory());
+            return;
+        }
+
         AlgorithmWrapper algorithmWrapper = algorithmSimulationWrapper.getAlgorithmWrapper();
         SimulationWrapper simulationWrapper = algorithmSimulationWrapper.getSimulationWrapper();
         DataModel data = simulationWrapper.getDataModel(run.getRunIndex());
@@ -1322,6 +1361,11 @@ public class Comparison {
                 + " simulationWrapper: " + simulationWrapper.getDescription());
 
         long start = System.currentTimeMillis();
+        // Runs done one at a time are measured process-wide, so that work the search hands
+        // off to ComputeExecutor threads is counted. Parallel runs share those threads, so
+        // their CPU time and allocation are not recorded.
+        ComparisonScheduler.Meter meter = new ComparisonScheduler.Meter(!isParallelized());
+        meter.start();
         Graph graphOut;
 
         try {
@@ -1371,9 +1415,15 @@ public class Comparison {
         int algIndex = algorithmWrappers.indexOf(algorithmWrapper) + 1;
 
         long stop = System.currentTimeMillis();
+        meter.stop();
 
         long elapsed = stop - start;
 
+        if (ComparisonScheduler.isCurrentTaskTimedOut()) {
+            stdout.println("Discarding the result of " + algorithmWrapper.getDescription() + "; it timed out.");
+            return;
+        }
+
         saveGraph(resultsPath, graphOut, run.getRunIndex(), simIndex, algIndex, algorithmWrapper, elapsed, stdout);
 
         if (trueGraph != null) {
@@ -1447,6 +1497,10 @@ public class Comparison {
 
                         if (_stat instanceof ElapsedTime) {
                             stat = elapsed / 1000.0;
+                        } else if (_stat instanceof CpuTime) {
+                            stat = meter.isProcessWide() ? meter.getCpuSeconds() : Double.NaN;
+                        } else if (_stat instanceof AllocatedMemory) {
+                            stat = meter.isProcessWide() ? meter.getAllocatedMegabytes() : Double.NaN;
                         } else {
                             stat = _stat.getValue(truth[u], est[u], data);
                         }
@@ -1456,9 +1510,116 @@ public class Comparison {
                 }
             }
 
+            saveRun(run, runHeader, allStats);
         }
     }
 
+    private String runKey(Run run) {
+        return "run." + (run.getAlgSimIndex() + 1) + "." + (run.getRunIndex() + 1);
+    }
+
+    /**
+     * Describes what a run computes--the algorithm and simulation with their
+     * parameter values, and the statistics in order--so that a saved run is
+     * only restored into a comparison that computes the same thing.
+     */
+    private String runHeader(AlgorithmSimulationWrapper algorithmSimulationWrapper, Statistics statistics) {
+        AlgorithmWrapper algorithmWrapper = algorithmSimulationWrapper.getAlgorithmWrapper();
+        SimulationWrapper simulationWrapper = algorithmSimulationWrapper.getSimulationWrapper();
+
+        StringBuilder buf = new StringBuilder();
+
+        buf.append("# Algorithm: ").append(algorithmWrapper.getDescription());
+        Parameters algorithmParameters = algorithmWrapper.getAlgorithmSpecificParameters();
+        for (String name : algorithmWrapper.getParameters()) {
+            buf.append(", ").append(name).append(" = ").append(algorithmParameters.get(name));
+        }
+
+        buf.append("\n# Simulation: ").append(simulationWrapper.getDescription());
+        Parameters simulationParameters = simulationWrapper.getSimulationSpecificParameters();
+        for (String name : simulationWrapper.getParameters()) {
+            buf.append(", ").append(name).append(" = ").append(simulationParameters.get(name));
+        }
+
+        buf.append("\n# Statistics:");
+        for (Statistic statistic : statistics.getStatistics()) {
+            buf.append("\t").append(statistic.getAbbreviation());
+        }
+
+        return buf.append("\n").toString();
+    }
+
+    /**
+     * Saves the statistics of a finished run to the checkpoint directory, one
+     * line per graph type used, after the header of the run.
+     */
+    private void saveRun(Run run, String runHeader, double[][][][] allStats) {
+        if (checkpoint == null) {
+            return;
+        }
+
+        StringBuilder buf = new StringBuilder(runHeader);
+
+        for (int u = 0; u < allStats.length; u++) {
+            if (!graphTypeUsed[u]) {
+                continue;
+            }
+
+            buf.append(u);
+
+            for (double[] stat : allStats[u][run.getAlgSimIndex()]) {
+                buf.append("\t").append(stat[run.getRunIndex()]);
+            }
+
+            buf.append("\n");
+        }
+
+        checkpoint.save(runKey(run), buf.toString());
+    }
+
+    /**
+     * Fills in the statistics of a run from the checkpoint directory, if
+     * resuming and the run was saved by an earlier comparison with the same
+     * header. A run saved with a different header is ignored, to be run again.
+     *
+     * @return true if the run was restored.
+     */
+    private boolean restoreRun(Run run, String runHeader, double[][][][] allStats, PrintStream stdout) {
+        if (checkpoint == null || !resume) {
+            return false;
+        }
+
+        String saved = checkpoint.load(runKey(run));
+
+        if (saved == null) {
+            return false;
+        }
+
+        if (!saved.startsWith(runHeader)) {
+            stdout.println((run.getAlgSimIndex() + 1) + ". Ignoring the run saved in " + checkpoint.getDirectory()
+                    + "; it was saved by a comparison of other algorithms, simulations or statistics.");
+            return false;
+        }
+
+        synchronized (this) {
+            for (String line : saved.substring(runHeader.length()).split("\n")) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                String[] tokens = line.split("\t");
+                int u = Integer.parseInt(tokens[0]);
+                graphTypeUsed[u] = true;
+
+                for (int statIndex = 0; statIndex < tokens.length - 1; statIndex++) {
+                    allStats[u][run.getAlgSimIndex()][statIndex][run.getRunIndex()] = Double.parseDouble(tokens[statIndex + 1]);
+                }
+            }
+        }
+
+        return true;
+    }
+
     private void saveGraph(String resultsPath, Graph graph, int i, int simIndex, int algIndex,
                            AlgorithmWrapper algorithmWrapper, long elapsed, PrintStream stdout) {
         if (!saveGraphs) {
@@ -0,0 +1,552 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+package edu.cmu.tetrad.algcomparison;
+
+import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.util.TextTable;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the algorithm x simulation x run tasks of a comparison across a pool of
+ * threads. Tasks are handed out most expensive first (by an estimated cost), so
+ * that long searches start early and idle threads pick up the short ones at the
+ * end. Each task may be given a timeout; a task that runs over is interrupted and
+ * its thread is replaced so that the remaining tasks keep their parallelism. Wall
+ * time, CPU time and allocated memory are recorded for every task. When tasks run one
+ * at a time, CPU time and allocation are measured for the whole process, so work the
+ * search hands off to ComputeExecutor threads is counted; when they run in parallel,
+ * only the thread running the task is measured, since the pool threads are shared.
+ *
+ * @author Joseph Ramsey
+ */
+public class ComparisonScheduler {
+
+    /**
+     * The outcome of a task.
+     */
+    public enum Status {COMPLETED, FAILED, TIMED_OUT}
+
+    private static final ThreadLocal<Entry> CURRENT = new ThreadLocal<>();
+
+    private final int parallelism;
+    private final long timeout;
+    private final TimeUnit unit;
+    private final List<Entry> entries = new ArrayList<>();
+    private PrintStream out = System.out;
+
+    /**
+     * @param parallelism The number of tasks to run at once.
+     * @param timeout     The maximum time a single task may run, in the given units;
+     *                    0 or less for no limit.
+     * @param unit        The unit of the timeout.
+     */
+    public ComparisonScheduler(int parallelism, long timeout, TimeUnit unit) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+
+        if (timeout > 0 && unit == null) {
+            throw new NullPointerException("A time unit is needed for the timeout.");
+        }
+
+        this.parallelism = parallelism;
+        this.timeout = timeout;
+        this.unit = unit;
+    }
+
+    /**
+     * Sets the stream that progress messages are printed to.
+     */
+    public void setOut(PrintStream out) {
+        if (out == null) throw new NullPointerException();
+        this.out = out;
+    }
+
+    /**
+     * Adds a task.
+     *
+     * @param name          The name of the task, for the log and the results table.
+     * @param estimatedCost A relative estimate of the cost of the task; larger tasks
+     *                      are started first.
+     * @param task          The task.
+     */
+    public void add(String name, double estimatedCost, Runnable task) {
+        if (task == null) throw new NullPointerException();
+        entries.add(new Entry(name, estimatedCost, task));
+    }
+
+    /**
+     * Runs all of the tasks that have been added and waits for them to finish or
+     * time out.
+     *
+     * @return The results, in the order the tasks were added.
+     */
+    public List<Result> runAll() {
+        List<Entry> order = new ArrayList<>(entries);
+        order.sort(Comparator.comparingDouble((Entry e) -> e.estimatedCost).reversed());
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new DaemonThreadFactory("comparison-task"));
+        ScheduledExecutorService watchdog = timeout > 0
+                ? Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("comparison-watchdog"))
+                : null;
+
+        try {
+            for (Entry entry : order) {
+                entry.future = new FutureTask<>(() -> runEntry(entry, pool, watchdog), null);
+                pool.execute(entry.future);
+            }
+
+            for (Entry entry : order) {
+                try {
+                    entry.future.get();
+                } catch (CancellationException e) {
+                    // Timed out; reported by the watchdog.
+                } catch (ExecutionException e) {
+                    entry.status = Status.FAILED;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (watchdog != null) {
+                watchdog.shutdownNow();
+            }
+
+            shutdownAndAwaitTermination(pool);
+        }
+
+        List<Result> results = new ArrayList<>();
+
+        for (Entry entry : entries) {
+            results.add(entry.result());
+        }
+
+        return results;
+    }
+
+    /**
+     * @return True if the task running on the current thread has been timed out, in
+     * which case whatever it produces after this point should be discarded. False if
+     * the current thread is not running a task of a scheduler.
+     */
+    public static boolean isCurrentTaskTimedOut() {
+        Entry entry = CURRENT.get();
+        return entry != null && entry.status == Status.TIMED_OUT;
+    }
+
+    /**
+     * A rough estimate of the cost of searching over the given data, for ordering
+     * tasks: variables squared times samples for a data set, variables cubed for a
+     * covariance matrix.
+     */
+    public static double estimateCost(DataModel dataModel) {
+        if (dataModel instanceof DataSet) {
+            DataSet dataSet = (DataSet) dataModel;
+            double n = dataSet.getNumColumns();
+            return n * n * Math.max(dataSet.getNumRows(), 1);
+        } else if (dataModel instanceof ICovarianceMatrix) {
+            double n = ((ICovarianceMatrix) dataModel).getDimension();
+            return n * n * n;
+        }
+
+        return 1;
+    }
+
+    /**
+     * Prints a table of the results to the given stream.
+     */
+    public static void printResults(List<Result> results, PrintStream out, boolean tabDelimited) {
+        NumberFormat nf = new DecimalFormat("0.00");
+
+        boolean processWide = true;
+
+        for (Result result : results) {
+            processWide &= result.isProcessWide();
+        }
+
+        TextTable table = new TextTable(results.size() + 1, 5);
+        table.setTabDelimited(tabDelimited);
+        table.setToken(0, 0, "Task");
+        table.setToken(0, 1, "Status");
+        table.setToken(0, 2, "Wall (s)");
+        table.setToken(0, 3, processWide ? "CPU (s)" : "Thread CPU (s)");
+        table.setToken(0, 4, processWide ? "Alloc (MB)" : "Thread alloc (MB)");
+
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            table.setToken(i + 1, 0, result.getName());
+            table.setToken(i + 1, 1, result.getStatus().toString());
+            table.setToken(i + 1, 2, format(nf, result.getWallSeconds()));
+            table.setToken(i + 1, 3, format(nf, result.getCpuSeconds()));
+            table.setToken(i + 1, 4, format(nf, result.getAllocatedMegabytes()));
+        }
+
+        out.println(table);
+    }
+
+    private void runEntry(Entry entry, ThreadPoolExecutor pool, ScheduledExecutorService watchdog) {
+        CURRENT.set(entry);
+        entry.meter = new Meter(parallelism == 1);
+        entry.meter.start();
+
+        ScheduledFuture<?> alarm = watchdog == null ? null
+                : watchdog.schedule(() -> timeOut(entry, pool), timeout, unit);
+
+        try {
+            entry.task.run();
+
+            synchronized (entry) {
+                if (entry.status == null) {
+                    entry.status = Status.COMPLETED;
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            synchronized (entry) {
+                if (entry.status == null) {
+                    entry.status = Status.FAILED;
+                    out.println(entry.name + ": failed: " + e);
+                }
+            }
+
+            throw e;
+        } finally {
+            synchronized (entry) {
+                if (entry.status != Status.TIMED_OUT) {
+                    entry.meter.stop();
+                }
+            }
+
+            if (alarm != null) {
+                alarm.cancel(false);
+            }
+
+            CURRENT.remove();
+        }
+    }
+
+    private void timeOut(Entry entry, ThreadPoolExecutor pool) {
+        synchronized (entry) {
+            if (entry.status != null) {
+                return;
+            }
+
+            entry.status = Status.TIMED_OUT;
+            entry.meter.stop();
+        }
+
+        out.println(entry.name + ": timed out after " + timeout + " " + unit.toString().toLowerCase());
+        entry.future.cancel(true);
+
+        // The interrupted search may not notice the interrupt right away, so give the
+        // pool another thread to keep the other tasks going in the meantime.
+        synchronized (pool) {
+            pool.setMaximumPoolSize(pool.getMaximumPoolSize() + 1);
+            pool.setCorePoolSize(pool.getCorePoolSize() + 1);
+        }
+    }
+
+    private void shutdownAndAwaitTermination(ThreadPoolExecutor pool) {
+        pool.shutdownNow();
+
+        try {
+            if (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                out.println("Some timed out tasks are still running and did not respond to interruption; "
+                        + "their threads will end with the JVM.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String format(NumberFormat nf, double value) {
+        return Double.isNaN(value) ? "*" : nf.format(value);
+    }
+
+    /**
+     * Measures the wall time, CPU time and allocated memory between a call to start()
+     * and a call to stop(), either of the thread that called start() or of the whole
+     * process. Measuring the thread alone misses work handed off to other threads,
+     * such as the ComputeExecutor pool; measuring the process counts everything
+     * running at the time, so it is only meaningful when one task runs at a time.
+     * Process allocation is summed over the threads alive at start() and stop(), so
+     * threads that end in between are not counted. CPU time and allocation are NaN
+     * if the JVM does not report them. Allocation is what was allocated in all, not
+     * what was live at any one time.
+     */
+    public static class Meter {
+        private final boolean processWide;
+        private volatile Thread thread;
+        private long wallStart;
+        private long cpuStart;
+        private long allocatedStart;
+        private double wallSeconds = Double.NaN;
+        private double cpuSeconds = Double.NaN;
+        private double allocatedMegabytes = Double.NaN;
+
+        /**
+         * Measures the thread that calls start().
+         */
+        public Meter() {
+            this(false);
+        }
+
+        /**
+         * @param processWide True if CPU time and allocation should be measured for the
+         *                    whole process, false if only for the thread that calls
+         *                    start().
+         */
+        public Meter(boolean processWide) {
+            this.processWide = processWide;
+        }
+
+        /**
+         * Starts measuring.
+         */
+        public synchronized void start() {
+            thread = Thread.currentThread();
+            wallStart = System.nanoTime();
+            cpuStart = processWide ? processCpuTime() : cpuTime(thread);
+            allocatedStart = processWide ? processAllocatedBytes() : allocatedBytes(thread);
+        }
+
+        /**
+         * Stops measuring. May be called from a thread other than the one measured.
+         */
+        public synchronized void stop() {
+            if (thread == null) {
+                return;
+            }
+
+            wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+
+            long cpuStop = processWide ? processCpuTime() : cpuTime(thread);
+            cpuSeconds = cpuStart < 0 || cpuStop < 0 ? Double.NaN : (cpuStop - cpuStart) / 1e9;
+
+            long allocatedStop = processWide ? processAllocatedBytes() : allocatedBytes(thread);
+            allocatedMegabytes = allocatedStart < 0 || allocatedStop < 0 ? Double.NaN
+                    : (allocatedStop - allocatedStart) / (1024.0 * 1024.0);
+
+            thread = null;
+        }
+
+        public synchronized double getWallSeconds() {
+            return wallSeconds;
+        }
+
+        public synchronized double getCpuSeconds() {
+            return cpuSeconds;
+        }
+
+        public synchronized double getAllocatedMegabytes() {
+            return allocatedMegabytes;
+        }
+
+        /**
+         * @return True if CPU time and allocation are measured for the whole process.
+         */
+        public boolean isProcessWide() {
+            return processWide;
+        }
+
+        private static long processCpuTime() {
+            java.lang.management.OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+
+            if (!(bean instanceof com.sun.management.OperatingSystemMXBean)) {
+                return -1;
+            }
+
+            return ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime();
+        }
+
+        private static long processAllocatedBytes() {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+                return -1;
+            }
+
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+
+            try {
+                if (!sunBean.isThreadAllocatedMemorySupported() || !sunBean.isThreadAllocatedMemoryEnabled()) {
+                    return -1;
+                }
+
+                long total = 0;
+
+                for (long bytes : sunBean.getThreadAllocatedBytes(sunBean.getAllThreadIds())) {
+                    // -1 for threads that ended since their ids were taken.
+                    if (bytes > 0) {
+                        total += bytes;
+                    }
+                }
+
+                return total;
+            } catch (UnsupportedOperationException e) {
+                return -1;
+            }
+        }
+
+        private static long cpuTime(Thread thread) {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+            try {
+                if (!bean.isThreadCpuTimeSupported() || !bean.isThreadCpuTimeEnabled()) {
+                    return -1;
+                }
+
+                return bean.getThreadCpuTime(thread.getId());
+            } catch (UnsupportedOperationException e) {
+                return -1;
+            }
+        }
+
+        private static long allocatedBytes(Thread thread) {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+                return -1;
+            }
+
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+
+            try {
+                if (!sunBean.isThreadAllocatedMemorySupported() || !sunBean.isThreadAllocatedMemoryEnabled()) {
+                    return -1;
+                }
+
+                return sunBean.getThreadAllocatedBytes(thread.getId());
+            } catch (UnsupportedOperationException e) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * The outcome and resource usage of one task.
+     */
+    public static class Result {
+        private final String name;
+        private final Status status;
+        private final double wallSeconds;
+        private final double cpuSeconds;
+        private final double allocatedMegabytes;
+        private final boolean processWide;
+
+        private Result(String name, Status status, Meter meter) {
+            this.name = name;
+            this.status = status;
+            this.wallSeconds = meter.getWallSeconds();
+            this.cpuSeconds = meter.getCpuSeconds();
+            this.allocatedMegabytes = meter.getAllocatedMegabytes();
+            this.processWide = meter.isProcessWide();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public double getWallSeconds() {
+            return wallSeconds;
+        }
+
+        public double getCpuSeconds() {
+            return cpuSeconds;
+        }
+
+        public double getAllocatedMegabytes() {
+            return allocatedMegabytes;
+        }
+
+        /**
+         * @return True if CPU time and allocation were measured for the whole process,
+         * false if only for the thread that ran the task.
+         */
+        public boolean isProcessWide() {
+            return processWide;
+        }
+
+        public String toString() {
+            return name + ": " + status;
+        }
+    }
+
+    private static class Entry {
+        private final String name;
+        private final double estimatedCost;
+        private final Runnable task;
+        private volatile Meter meter = new Meter();
+        private volatile FutureTask<Void> future;
+        private volatile Status status;
+
+        private Entry(String name, double estimatedCost, Runnable task) {
+            this.name = name;
+            this.estimatedCost = estimatedCost;
+            this.task = task;
+        }
+
+        private synchronized Result result() {
+            return new Result(name, status == null ? Status.FAILED : status, meter);
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
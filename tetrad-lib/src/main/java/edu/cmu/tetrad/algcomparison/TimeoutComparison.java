@@ -29,6 +29,8 @@ import edu.cmu.tetrad.algcomparison.score.ScoreWrapper;
 import edu.cmu.tetrad.data.simulation.LoadDataAndGraphs;
 import edu.cmu.tetrad.algcomparison.simulation.Simulation;
 import edu.cmu.tetrad.algcomparison.simulation.Simulations;
+import edu.cmu.tetrad.algcomparison.statistic.AllocatedMemory;
+import edu.cmu.tetrad.algcomparison.statistic.CpuTime;
 import edu.cmu.tetrad.algcomparison.statistic.ElapsedTime;
 import edu.cmu.tetrad.algcomparison.statistic.ParameterColumn;
 import edu.cmu.tetrad.algcomparison.statistic.Statistic;
@@ -51,7 +53,7 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -78,11 +80,12 @@ public class TimeoutComparison {
     private boolean sortByUtility = false;
     private String dataPath = null;
     private String resultsPath = null;
-    private boolean parallelized = true;
+    private boolean parallelized = false;
     private boolean savePatterns = false;
     private boolean savePags = false;
     private ArrayList<String> dirs = null;
     private ComparisonGraph comparisonGraph = ComparisonGraph.true_DAG;
+    private List<ComparisonScheduler.Result> taskResults = null;
 
     public void compareFromFiles(String filePath, Algorithms algorithms,
                                  Statistics statistics, Parameters parameters, long timeout, TimeUnit unit) {
@@ -449,6 +452,14 @@ public class TimeoutComparison {
                     simulationWrappers, utilities, parameters);
         }
 
+        if (taskResults != null) {
+            out.println();
+            out.println("Tasks:");
+            out.println();
+
+            ComparisonScheduler.printResults(taskResults, out, isTabDelimitedTables());
+        }
+
         out.close();
     }
 
@@ -849,27 +860,29 @@ public class TimeoutComparison {
             }
         }
 
-        ExecutorService pool = Executors.newSingleThreadExecutor();
-        tasks.forEach(task -> {
-            Future<Void> future = pool.submit(task);
-            try {
-                future.get(timeout, unit);
-                this.out.printf("%s: Run %d: Task is successfully completed.%n", dateTimeNow(), task.run.index + 1);
-            } catch (ExecutionException exception) {
-                this.out.printf("%s: Run %d: Execution error.%n", dateTimeNow(), task.run.index + 1);
-            } catch (InterruptedException exception) {
-                this.out.printf("%s: Run %d: Task has been interrupted.%n", dateTimeNow(), task.run.index + 1);
-                Thread.currentThread().interrupt();
-            } catch (TimeoutException exception) {
-                this.out.printf("%s: Run %d: Task has been timed out.%n", dateTimeNow(), task.run.index + 1);
-            } finally {
-                if (!future.isDone()) {
-                    this.out.printf("%s: Run %d: Cancel task.%n", dateTimeNow(), task.run.index + 1);
-                    future.cancel(true);
-                }
+        int parallelism = isParallelized() ? ComputeExecutor.getInstance().getParallelism() : 1;
+        ComparisonScheduler scheduler = new ComparisonScheduler(parallelism, timeout, unit);
+
+        for (AlgorithmTask task : tasks) {
+            DataModel data = task.run.getWrapper().getSimulationWrapper().getDataModel(task.run.getRunIndex());
+            scheduler.add("Run " + (task.run.index + 1), ComparisonScheduler.estimateCost(data), task);
+        }
+
+        taskResults = scheduler.runAll();
+
+        for (int i = 0; i < taskResults.size(); i++) {
+            switch (taskResults.get(i).getStatus()) {
+                case COMPLETED:
+                    this.out.printf("%s: Run %d: Task is successfully completed.%n", dateTimeNow(), i + 1);
+                    break;
+                case FAILED:
+                    this.out.printf("%s: Run %d: Execution error.%n", dateTimeNow(), i + 1);
+                    break;
+                case TIMED_OUT:
+                    this.out.printf("%s: Run %d: Task has been timed out.%n", dateTimeNow(), i + 1);
+                    break;
             }
-        });
-        shutdownAndAwaitTermination(pool);
+        }
 
         return allStats;
     }
@@ -878,25 +891,6 @@ public class TimeoutComparison {
         return DF.format(new Date(System.currentTimeMillis()));
     }
 
-    private void shutdownAndAwaitTermination(ExecutorService pool) {
-        pool.shutdown(); // Disable new tasks from being submitted
-        try {
-            // Wait a while for existing tasks to terminate
-            if (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
-                pool.shutdownNow(); // Cancel currently executing tasks
-                // Wait a while for tasks to respond to being cancelled
-                if (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
-                    System.err.println("Pool did not terminate");
-                }
-            }
-        } catch (InterruptedException ie) {
-            // (Re-)Cancel if current thread also interrupted
-            pool.shutdownNow();
-            // Preserve interrupt status
-            Thread.currentThread().interrupt();
-        }
-    }
-
     public boolean isShowSimulationIndices() {
         return showSimulationIndices;
     }
@@ -947,6 +941,10 @@ public class TimeoutComparison {
         return parallelized;
     }
 
+    /**
+     * @param parallelized True if the runs should be done in parallel, as many at a
+     *                     time as ComputeExecutor is set up to use. False by default.
+     */
     public void setParallelized(boolean parallelized) {
         this.parallelized = parallelized;
     }
@@ -1040,7 +1038,7 @@ public class TimeoutComparison {
         this.comparisonGraph = comparisonGraph;
     }
 
-    private class AlgorithmTask implements Callable<Void> {
+    private class AlgorithmTask implements Runnable {
 
         private final List<AlgorithmSimulationWrapper> algorithmSimulationWrappers;
         private final List<AlgorithmWrapper> algorithmWrappers;
@@ -1063,10 +1061,9 @@ public class TimeoutComparison {
         }
 
         @Override
-        public Void call() throws Exception {
+        public void run() {
             doRun(algorithmSimulationWrappers, algorithmWrappers,
                     simulationWrappers, statistics, numGraphTypes, allStats, run);
-            return null;
         }
 
     }
@@ -1133,6 +1130,11 @@ public class TimeoutComparison {
                 + " simulationWrapper: " + simulationWrapper.getDescription());
 
         long start = System.currentTimeMillis();
+        // Runs done one at a time are measured process-wide, so that work the search hands
+        // off to ComputeExecutor threads is counted. Parallel runs share those threads, so
+        // their CPU time and allocation are not recorded.
+        ComparisonScheduler.Meter meter = new ComparisonScheduler.Meter(!isParallelized());
+        meter.start();
         Graph out;
 
         try {
@@ -1182,9 +1184,14 @@ public class TimeoutComparison {
         int algIndex = algorithmWrappers.indexOf(algorithmWrapper) + 1;
 
         long stop = System.currentTimeMillis();
+        meter.stop();
 
         long elapsed = stop - start;
 
+        if (ComparisonScheduler.isCurrentTaskTimedOut()) {
+            return;
+        }
+
         saveGraph(resultsPath, out, run.getRunIndex(), simIndex, algIndex, algorithmWrapper, elapsed);
 
         if (trueGraph != null) {
@@ -1256,6 +1263,10 @@ public class TimeoutComparison {
 
                     if (_stat instanceof ElapsedTime) {
                         stat = elapsed / 1000.0;
+                    } else if (_stat instanceof CpuTime) {
+                        stat = meter.isProcessWide() ? meter.getCpuSeconds() : Double.NaN;
+                    } else if (_stat instanceof AllocatedMemory) {
+                        stat = meter.isProcessWide() ? meter.getAllocatedMegabytes() : Double.NaN;
                     } else {
                         stat = _stat.getValue(truth[u], est[u], null);
                     }
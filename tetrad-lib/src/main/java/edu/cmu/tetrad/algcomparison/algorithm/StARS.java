@@ -5,12 +5,11 @@ import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
-import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.Parameters;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
 
 /**
@@ -156,7 +155,7 @@ public class StARS implements Algorithm, TakesInitialGraph {
 //            e = GraphUtils.replaceNodes(e, samples.get(0).getVariables());
 //            graphs.add(e);
 //        }
-        final ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+        final ComputeExecutor executor = ComputeExecutor.getInstance();
 
         class StabilityAction extends RecursiveAction {
 
@@ -193,7 +192,7 @@ public class StARS implements Algorithm, TakesInitialGraph {
 
         final int chunk = 1;
 
-        pool.invoke(new StabilityAction(chunk, 0, samples.size()));
+        executor.invoke(new StabilityAction(chunk, 0, samples.size()));
 
         int p = samples.get(0).getNumColumns();
         List<Node> nodes = graphs.get(0).getNodes();
@@ -6,14 +6,13 @@ import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DataType;
 import edu.cmu.tetrad.graph.*;
-import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.Parameters;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
 
 /**
@@ -42,7 +41,7 @@ public class StabilitySelection implements Algorithm, TakesInitialGraph {
 
         List<Graph> graphs = new ArrayList<>();
 
-        final ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+        final ComputeExecutor executor = ComputeExecutor.getInstance();
 
         class StabilityAction extends RecursiveAction {
 
@@ -81,7 +80,7 @@ public class StabilitySelection implements Algorithm, TakesInitialGraph {
 
         final int chunk = 2;
 
-        pool.invoke(new StabilityAction(chunk, 0, numSubsamples));
+        executor.invoke(new StabilityAction(chunk, 0, numSubsamples));
 
 //        for (int i = 0; i < numSubsamples; i++) {
 //            BootstrapSampler sampler = new BootstrapSampler();
@@ -11,7 +11,9 @@ import edu.cmu.tetrad.annotation.Bootstrapping;
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.search.DagToPag2;
+import edu.cmu.tetrad.search.CachingScore;
 import edu.cmu.tetrad.search.GFci;
+import edu.cmu.tetrad.search.Score;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
 import edu.pitt.dbmi.algo.resampling.GeneralResamplingTest;
@@ -50,7 +52,13 @@ public class Gfci implements Algorithm, HasKnowledge, UsesScoreWrapper, TakesInd
     @Override
     public Graph search(DataModel dataSet, Parameters parameters) {
     	if (parameters.getInt(Params.NUMBER_RESAMPLING) < 1) {
-            GFci search = new GFci(test.getTest(dataSet, parameters), score.getScore(dataSet, parameters));  
+            Score score = this.score.getScore(dataSet, parameters);
+
+            if (parameters.getBoolean(Params.CACHE_SCORES)) {
+                score = new CachingScore(score, parameters.getInt(Params.SCORE_CACHE_SIZE));
+            }
+
+            GFci search = new GFci(test.getTest(dataSet, parameters), score);
             search.setMaxDegree(parameters.getInt(Params.MAX_DEGREE));
             search.setKnowledge(knowledge);
             search.setVerbose(parameters.getBoolean(Params.VERBOSE));
@@ -125,6 +133,8 @@ public class Gfci implements Algorithm, HasKnowledge, UsesScoreWrapper, TakesInd
         parameters.add(Params.MAX_PATH_LENGTH);
         parameters.add(Params.COMPLETE_RULE_SET_USED);
 
+        parameters.add(Params.CACHE_SCORES);
+        parameters.add(Params.SCORE_CACHE_SIZE);
         parameters.add(Params.VERBOSE);
         return parameters;
     }
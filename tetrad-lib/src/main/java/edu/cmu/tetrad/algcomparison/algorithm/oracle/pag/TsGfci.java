@@ -13,6 +13,8 @@ import edu.cmu.tetrad.annotation.TimeSeries;
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.CachingScore;
+import edu.cmu.tetrad.search.Score;
 import edu.cmu.tetrad.search.TsDagToPag;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
@@ -61,8 +63,14 @@ public class TsGfci implements Algorithm, TakesInitialGraph, HasKnowledge, Takes
         	if(knowledge != null) {
         		dataSet.setKnowledge(knowledge);
         	}
+            Score score = this.score.getScore(dataSet, parameters);
+
+            if (parameters.getBoolean(Params.CACHE_SCORES)) {
+                score = new CachingScore(score, parameters.getInt(Params.SCORE_CACHE_SIZE));
+            }
+
             edu.cmu.tetrad.search.TsGFci search = new edu.cmu.tetrad.search.TsGFci(test.getTest(dataSet, parameters),
-                    score.getScore(dataSet, parameters));
+                    score);
             IKnowledge _knowledge = dataSet.getKnowledge() != null ? dataSet.getKnowledge() : new Knowledge2();
             search.setKnowledge(dataSet.getKnowledge());
             
@@ -123,6 +131,8 @@ public class TsGfci implements Algorithm, TakesInitialGraph, HasKnowledge, Takes
         parameters.add(Params.MAX_INDEGREE);
         parameters.add(Params.PRINT_STREAM);
 
+        parameters.add(Params.CACHE_SCORES);
+        parameters.add(Params.SCORE_CACHE_SIZE);
         parameters.add(Params.VERBOSE);
         return parameters;
     }
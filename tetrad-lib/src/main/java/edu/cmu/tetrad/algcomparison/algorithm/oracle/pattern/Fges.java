@@ -10,6 +10,7 @@ import edu.cmu.tetrad.annotation.Bootstrapping;
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.CachingScore;
 import edu.cmu.tetrad.search.Score;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
@@ -60,6 +61,10 @@ public class Fges implements Algorithm, TakesInitialGraph, HasKnowledge, UsesSco
             int parallelism = parameters.getInt(Params.PARALLELISM);
 
             Score score = this.score.getScore(dataSet, parameters);
+
+            if (parameters.getBoolean(Params.CACHE_SCORES)) {
+                score = new CachingScore(score, parameters.getInt(Params.SCORE_CACHE_SIZE));
+            }
             Graph graph;
 
             edu.cmu.tetrad.search.Fges search
@@ -139,6 +144,8 @@ public class Fges implements Algorithm, TakesInitialGraph, HasKnowledge, UsesSco
         parameters.add(Params.PARALLELISM);
         parameters.add(Params.FAITHFULNESS_ASSUMED);
 
+        parameters.add(Params.CACHE_SCORES);
+        parameters.add(Params.SCORE_CACHE_SIZE);
         parameters.add(Params.VERBOSE);
         parameters.add(Params.MEEK_VERBOSE);
 
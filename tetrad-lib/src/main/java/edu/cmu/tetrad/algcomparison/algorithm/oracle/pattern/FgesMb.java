@@ -12,6 +12,7 @@ import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.CachingScore;
 import edu.cmu.tetrad.search.Score;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
@@ -62,6 +63,10 @@ public class FgesMb implements Algorithm, TakesInitialGraph, HasKnowledge, UsesS
             }
 
             Score score = this.score.getScore(dataSet, parameters);
+
+            if (parameters.getBoolean(Params.CACHE_SCORES)) {
+                score = new CachingScore(score, parameters.getInt(Params.SCORE_CACHE_SIZE));
+            }
             edu.cmu.tetrad.search.FgesMb search = new edu.cmu.tetrad.search.FgesMb(score);
             search.setFaithfulnessAssumed(parameters.getBoolean(Params.FAITHFULNESS_ASSUMED));
             search.setKnowledge(knowledge);
@@ -134,6 +139,8 @@ public class FgesMb implements Algorithm, TakesInitialGraph, HasKnowledge, UsesS
         parameters.add(Params.TARGET_NAME);
         parameters.add(Params.FAITHFULNESS_ASSUMED);
         parameters.add(Params.MAX_DEGREE);
+        parameters.add(Params.CACHE_SCORES);
+        parameters.add(Params.SCORE_CACHE_SIZE);
         parameters.add(Params.VERBOSE);
 
         return parameters;
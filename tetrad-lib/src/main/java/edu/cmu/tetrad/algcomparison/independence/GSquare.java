@@ -2,8 +2,10 @@ package edu.cmu.tetrad.algcomparison.independence;
 
 import edu.cmu.tetrad.annotation.TestOfIndependence;
 import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DataType;
 import edu.cmu.tetrad.data.DataUtils;
+import edu.cmu.tetrad.search.DiscreteSufficientStatistics;
 import edu.cmu.tetrad.search.IndTestGSquare;
 import edu.cmu.tetrad.search.IndependenceTest;
 import edu.cmu.tetrad.util.Parameters;
@@ -27,7 +29,11 @@ public class GSquare implements IndependenceWrapper {
 
     @Override
     public IndependenceTest getTest(DataModel dataSet, Parameters parameters) {
-        return new IndTestGSquare(DataUtils.getDiscreteDataSet(dataSet), parameters.getDouble("alpha"));
+        DataSet data = DataUtils.getDiscreteDataSet(dataSet);
+        IndTestGSquare test = new IndTestGSquare(data, parameters.getDouble("alpha"));
+        test.setSufficientStatistics(DiscreteSufficientStatistics.fromParameters(data, parameters));
+
+        return test;
     }
 
     @Override
@@ -44,6 +50,8 @@ public class GSquare implements IndependenceWrapper {
     public List<String> getParameters() {
         List<String> params = new ArrayList<>();
         params.add(Params.ALPHA);
+        params.add(Params.CACHE_DISCRETE_COUNTS);
+        params.add(Params.DISCRETE_COUNTS_BACKEND);
         return params;
     }
 }
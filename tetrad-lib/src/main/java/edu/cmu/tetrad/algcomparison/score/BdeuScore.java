@@ -4,6 +4,7 @@ import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.data.DataType;
 import edu.cmu.tetrad.data.DataUtils;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.DiscreteSufficientStatistics;
 import edu.cmu.tetrad.search.Score;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
@@ -32,6 +33,10 @@ public class BdeuScore implements ScoreWrapper {
                 = new edu.cmu.tetrad.search.BDeuScore(DataUtils.getDiscreteDataSet(dataSet));
         score.setSamplePrior(parameters.getDouble(Params.PRIOR_EQUIVALENT_SAMPLE_SIZE));
         score.setStructurePrior(parameters.getDouble(Params.STRUCTURE_PRIOR));
+
+        score.setSufficientStatistics(DiscreteSufficientStatistics.fromParameters(
+                DataUtils.getDiscreteDataSet(dataSet), parameters));
+
         return score;
     }
 
@@ -50,6 +55,8 @@ public class BdeuScore implements ScoreWrapper {
         List<String> parameters = new ArrayList<>();
         parameters.add(Params.PRIOR_EQUIVALENT_SAMPLE_SIZE);
         parameters.add(Params.STRUCTURE_PRIOR);
+        parameters.add(Params.CACHE_DISCRETE_COUNTS);
+        parameters.add(Params.DISCRETE_COUNTS_BACKEND);
         return parameters;
     }
 
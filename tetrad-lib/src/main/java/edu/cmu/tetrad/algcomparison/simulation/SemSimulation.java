@@ -132,6 +132,8 @@ public class SemSimulation implements Simulation {
         parameters.add(Params.RANDOMIZE_COLUMNS);
         parameters.add(Params.SAMPLE_SIZE);
         parameters.add(Params.SAVE_LATENT_VARS);
+        parameters.add(Params.PARALLEL_SIMULATION);
+        parameters.add(Params.SIMULATION_SEED);
         parameters.add(Params.STANDARDIZE);
 
         return parameters;
@@ -157,18 +159,25 @@ public class SemSimulation implements Simulation {
 
             if (pm == null) {
                 pm = new SemPm(graph);
-                im = new SemIm(pm, parameters);
-                ims.add(im);
-                return im.simulateData(parameters.getInt(Params.SAMPLE_SIZE), saveLatentVars);
-            } else {
-                im = new SemIm(pm, parameters);
-                ims.add(im);
-                return im.simulateData(parameters.getInt(Params.SAMPLE_SIZE), saveLatentVars);
             }
-        } else {
-            ims.add(im);
+
+            im = new SemIm(pm, parameters);
+        }
+
+        ims.add(im);
+
+        // The parallel simulator draws different data for a given RandomUtil seed than simulateData, so it is
+        // used only on request, to keep existing seeded scripts producing the same data.
+        if (!parameters.getBoolean(Params.PARALLEL_SIMULATION)) {
             return im.simulateData(parameters.getInt(Params.SAMPLE_SIZE), saveLatentVars);
         }
+
+        // The seed for each data set is drawn from RandomUtil unless one is given, so that seeding RandomUtil
+        // still makes the whole simulation repeatable.
+        int seed = parameters.getInt(Params.SIMULATION_SEED);
+        long _seed = seed < 0 ? RandomUtil.getInstance().nextLong() : seed + ims.size() - 1;
+
+        return im.simulateDataParallel(parameters.getInt(Params.SAMPLE_SIZE), _seed, saveLatentVars);
     }
 
     public List<SemIm> getSemIms() {
@@ -0,0 +1,38 @@
+package edu.cmu.tetrad.algcomparison.statistic;
+
+import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.graph.Graph;
+
+/**
+ * Records the memory allocated while the algorithm ran, in megabytes. This is the
+ * total allocated over the run, not the amount live at any one time. Like
+ * ElapsedTime, this is a placeholder; the value is measured by the comparison class
+ * and recorded if this statistic is used. It is measured for the whole process, so
+ * that allocation by threads the algorithm hands work off to is counted, and so is
+ * only recorded when runs are not parallelized.
+ *
+ * @author jdramsey
+ */
+public class AllocatedMemory implements Statistic {
+    static final long serialVersionUID = 23L;
+
+    @Override
+    public String getAbbreviation() {
+        return "MB";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Memory Allocated by the Search in Megabytes";
+    }
+
+    @Override
+    public double getValue(Graph trueGraph, Graph estGraph, DataModel dataModel) {
+        return Double.NaN; // This has to be handled separately.
+    }
+
+    @Override
+    public double getNormValue(double value) {
+        return 1 - Math.tanh(0.0001 * value);
+    }
+}
@@ -0,0 +1,37 @@
+package edu.cmu.tetrad.algcomparison.statistic;
+
+import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.graph.Graph;
+
+/**
+ * Records the CPU time used while the algorithm ran, in seconds. Like ElapsedTime,
+ * this is a placeholder; the value is measured by the comparison class and recorded
+ * if this statistic is used. It is measured for the whole process, so that work the
+ * algorithm hands off to other threads is counted, and so is only recorded when runs
+ * are not parallelized.
+ *
+ * @author jdramsey
+ */
+public class CpuTime implements Statistic {
+    static final long serialVersionUID = 23L;
+
+    @Override
+    public String getAbbreviation() {
+        return "CPU";
+    }
+
+    @Override
+    public String getDescription() {
+        return "CPU Time of the Search in Seconds";
+    }
+
+    @Override
+    public double getValue(Graph trueGraph, Graph estGraph, DataModel dataModel) {
+        return Double.NaN; // This has to be handled separately.
+    }
+
+    @Override
+    public double getNormValue(double value) {
+        return 1 - Math.tanh(0.001 * value);
+    }
+}
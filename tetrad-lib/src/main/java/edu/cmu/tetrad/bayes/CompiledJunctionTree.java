@@ -0,0 +1,678 @@
+/*
+ * Copyright (C) 2019 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.cmu.tetrad.bayes;
+
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ComputeExecutor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * A junction tree for a BayesIm, compiled into flat arrays for answering many
+ * evidence queries.
+ *
+ * The compiled tree itself is read-only, so any number of threads may query it at
+ * once. The state of a query lives in a Query, which each thread gets from
+ * newQuery(). A Query passes Shafer-Shenoy messages lazily and keeps them between
+ * evidence changes: when evidence on a variable changes, only the messages that
+ * depend on it are recomputed, and a marginal is computed by passing messages only
+ * toward the clique that holds the variable. Runs of evidence vectors that differ
+ * in a few variables, as in classification, are therefore cheap.
+ *
+ * Evidence is given as an array with one entry per node of the BayesIm, in the
+ * order of the BayesIm's node indices, holding the observed value of the node or -1
+ * if the node is not observed.
+ *
+ * @author Joseph Ramsey
+ * @see JunctionTreeAlgorithm
+ */
+public final class CompiledJunctionTree {
+
+    private static final int MIN_ROWS_PER_TASK = 64;
+
+    private final int[] numCategories;
+
+    // Cliques are numbered so that a parent comes before its children.
+    private final int[][] scopes;
+    private final int[][] strides;
+    private final double[][] potentials;
+    private final int[] parents;
+    private final int[][] children;
+    private final int[] roots;
+
+    // Separator between a clique and its parent; a root has a separator of size 1.
+    private final int[] separatorSizes;
+    private final int[][] childMaps;
+    private final int[][] parentMaps;
+
+    // Each node's evidence is entered in its home clique.
+    private final int[] homes;
+    private final int[] homePositions;
+    private final int[][] homeNodes;
+
+    public CompiledJunctionTree(BayesIm bayesIm) {
+        if (bayesIm == null) {
+            throw new IllegalArgumentException("BayesIm cannot be null.");
+        }
+
+        int numNodes = bayesIm.getNumNodes();
+        this.numCategories = new int[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            numCategories[i] = bayesIm.getBayesPm().getNumCategories(bayesIm.getNode(i));
+        }
+
+        // moralize, triangulate and find the cliques and the clique tree
+        Graph undirectedGraph = GraphTools.moralize(bayesIm.getDag());
+        GraphTools.fillIn(undirectedGraph, GraphTools.getMaximumCardinalityOrdering(undirectedGraph));
+        Node[] ordering = GraphTools.getMaximumCardinalityOrdering(undirectedGraph);
+        Map<Node, Set<Node>> cliques = GraphTools.getCliques(ordering, undirectedGraph);
+        Map<Node, Set<Node>> separators = GraphTools.getSeparators(ordering, cliques);
+        Map<Node, Node> parentCliques = GraphTools.getCliqueTree(ordering, cliques, separators);
+
+        // number the cliques breadth first from the roots
+        Map<Node, List<Node>> childCliques = new HashMap<>();
+        List<Node> rootCliques = new ArrayList<>();
+        for (Node node : ordering) {
+            if (cliques.containsKey(node)) {
+                Node parent = parentCliques.get(node);
+                if (parent == null) {
+                    rootCliques.add(node);
+                } else {
+                    childCliques.computeIfAbsent(parent, k -> new ArrayList<>()).add(node);
+                }
+            }
+        }
+
+        List<Node> order = new ArrayList<>();
+        Deque<Node> queue = new ArrayDeque<>(rootCliques);
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            order.add(node);
+            queue.addAll(childCliques.getOrDefault(node, Collections.emptyList()));
+        }
+
+        int numCliques = order.size();
+        this.scopes = new int[numCliques][];
+        this.strides = new int[numCliques][];
+        this.potentials = new double[numCliques][];
+        this.parents = new int[numCliques];
+        this.children = new int[numCliques][];
+        this.roots = new int[rootCliques.size()];
+        this.separatorSizes = new int[numCliques];
+        this.childMaps = new int[numCliques][];
+        this.parentMaps = new int[numCliques][];
+
+        Map<Node, Integer> cliqueIndices = new HashMap<>();
+        for (int c = 0; c < numCliques; c++) {
+            cliqueIndices.put(order.get(c), c);
+        }
+
+        for (int c = 0; c < numCliques; c++) {
+            Node node = order.get(c);
+            scopes[c] = toIndices(bayesIm, cliques.get(node));
+            strides[c] = getStrides(scopes[c]);
+            potentials[c] = new double[getCardinality(scopes[c])];
+            Arrays.fill(potentials[c], 1.0);
+
+            Node parent = parentCliques.get(node);
+            parents[c] = parent == null ? -1 : cliqueIndices.get(parent);
+            children[c] = childCliques.getOrDefault(node, Collections.emptyList()).stream()
+                    .mapToInt(cliqueIndices::get)
+                    .toArray();
+        }
+
+        int r = 0;
+        for (int c = 0; c < numCliques; c++) {
+            if (parents[c] < 0) {
+                roots[r++] = c;
+                separatorSizes[c] = 1;
+                childMaps[c] = new int[potentials[c].length];
+            } else {
+                int[] separator = toIndices(bayesIm, separators.get(order.get(c)));
+                separatorSizes[c] = getCardinality(separator);
+                childMaps[c] = getMap(scopes[c], separator);
+                parentMaps[c] = getMap(scopes[parents[c]], separator);
+            }
+        }
+
+        // multiply each conditional probability table into the first clique holding its family
+        for (int iNode = 0; iNode < numNodes; iNode++) {
+            int[] family = Arrays.copyOf(bayesIm.getParents(iNode), bayesIm.getNumParents(iNode) + 1);
+            family[family.length - 1] = iNode;
+
+            int c = findClique(family);
+            if (c < 0) {
+                String msg = String.format("No clique holds node %s and its parents.", bayesIm.getNode(iNode).getName());
+                throw new IllegalStateException(msg);
+            }
+
+            int[] positions = new int[family.length];
+            for (int j = 0; j < family.length; j++) {
+                positions[j] = indexOf(scopes[c], family[j]);
+            }
+
+            int[] parentValues = new int[family.length - 1];
+            double[] potential = potentials[c];
+            for (int i = 0; i < potential.length; i++) {
+                for (int j = 0; j < parentValues.length; j++) {
+                    parentValues[j] = getValue(c, i, positions[j]);
+                }
+
+                int rowIndex = bayesIm.getRowIndex(iNode, parentValues);
+                potential[i] *= bayesIm.getProbability(iNode, rowIndex, getValue(c, i, positions[parentValues.length]));
+            }
+        }
+
+        // evidence on a node goes into the first clique holding it
+        this.homes = new int[numNodes];
+        this.homePositions = new int[numNodes];
+        List<List<Integer>> nodesAtHome = new ArrayList<>();
+        for (int c = 0; c < numCliques; c++) {
+            nodesAtHome.add(new ArrayList<>());
+        }
+        for (int iNode = 0; iNode < numNodes; iNode++) {
+            homes[iNode] = findClique(new int[]{iNode});
+            homePositions[iNode] = indexOf(scopes[homes[iNode]], iNode);
+            nodesAtHome.get(homes[iNode]).add(iNode);
+        }
+
+        this.homeNodes = new int[numCliques][];
+        for (int c = 0; c < numCliques; c++) {
+            homeNodes[c] = nodesAtHome.get(c).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * @return a new query over this tree, with no evidence. A query is not
+     * thread-safe; use one per thread.
+     */
+    public Query newQuery() {
+        return new Query();
+    }
+
+    public int getNumberOfNodes() {
+        return numCategories.length;
+    }
+
+    public int getNumberOfCliques() {
+        return scopes.length;
+    }
+
+    /**
+     * Computes the marginals of every node for each of the given evidence vectors.
+     * Rows are split into contiguous blocks that are answered in parallel, each by
+     * its own query, so that evidence shared between neighboring rows is reused.
+     *
+     * @param evidence one evidence vector per row
+     * @return marginals[row][node][value]
+     */
+    public double[][][] getMarginals(int[][] evidence) {
+        double[][][] marginals = new double[evidence.length][][];
+
+        forEachBlock(evidence, (query, row) -> {
+            double[][] rowMarginals = new double[numCategories.length][];
+            for (int iNode = 0; iNode < numCategories.length; iNode++) {
+                rowMarginals[iNode] = query.getMarginal(iNode);
+            }
+            marginals[row] = rowMarginals;
+        });
+
+        return marginals;
+    }
+
+    /**
+     * Computes the marginal of one node for each of the given evidence vectors.
+     * Only the messages toward the clique holding the node are passed.
+     *
+     * @param evidence one evidence vector per row
+     * @param iNode the node
+     * @return marginals[row][value]
+     */
+    public double[][] getMarginals(int[][] evidence, int iNode) {
+        validate(iNode);
+
+        double[][] marginals = new double[evidence.length][];
+        forEachBlock(evidence, (query, row) -> marginals[row] = query.getMarginal(iNode));
+
+        return marginals;
+    }
+
+    /**
+     * Computes the log probability of each of the given evidence vectors.
+     *
+     * @param evidence one evidence vector per row
+     * @return the log probabilities, negative infinity for impossible evidence
+     */
+    public double[] getLogProbabilitiesOfEvidence(int[][] evidence) {
+        double[] logProbs = new double[evidence.length];
+        forEachBlock(evidence, (query, row) -> logProbs[row] = query.getLogProbabilityOfEvidence());
+
+        return logProbs;
+    }
+
+    private interface RowAction {
+
+        void apply(Query query, int row);
+    }
+
+    private void forEachBlock(int[][] evidence, RowAction action) {
+        if (evidence == null) {
+            throw new IllegalArgumentException("Evidence cannot be null.");
+        }
+
+        int numRows = evidence.length;
+        int parallelism = ComputeExecutor.getInstance().getParallelism();
+        int blockSize = Math.max(MIN_ROWS_PER_TASK, (numRows + parallelism - 1) / parallelism);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < numRows; from += blockSize) {
+            int start = from;
+            int end = Math.min(numRows, from + blockSize);
+            tasks.add(() -> {
+                Query query = new Query();
+                for (int row = start; row < end; row++) {
+                    query.setEvidence(evidence[row]);
+                    action.apply(query, row);
+                }
+                return null;
+            });
+        }
+
+        if (tasks.size() == 1) {
+            try {
+                tasks.get(0).call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        } else {
+            ComputeExecutor.getInstance().invokeAll(tasks);
+        }
+    }
+
+    /**
+     * The evidence and cached messages of a sequence of queries against the tree.
+     * Not thread-safe.
+     */
+    public final class Query {
+
+        private final int[] evidence;
+
+        private final double[][] up;
+        private final double[] upLogNorms;
+        private final boolean[] upValid;
+        private final double[][] down;
+        private final boolean[] downValid;
+
+        private final double[][] work;
+
+        private Query() {
+            int numCliques = scopes.length;
+
+            this.evidence = new int[numCategories.length];
+            Arrays.fill(evidence, -1);
+
+            this.up = new double[numCliques][];
+            this.upLogNorms = new double[numCliques];
+            this.upValid = new boolean[numCliques];
+            this.down = new double[numCliques][];
+            this.downValid = new boolean[numCliques];
+            this.work = new double[numCliques][];
+
+            for (int c = 0; c < numCliques; c++) {
+                up[c] = new double[separatorSizes[c]];
+                down[c] = new double[separatorSizes[c]];
+                work[c] = new double[potentials[c].length];
+            }
+        }
+
+        /**
+         * Sets the evidence on all nodes at once. Only nodes whose evidence differs
+         * from the current evidence invalidate cached messages.
+         *
+         * @param values the value of each node, or -1 if it is not observed
+         */
+        public void setEvidence(int[] values) {
+            if (values == null || values.length != evidence.length) {
+                String msg = String.format("Evidence must have one value for each of the %d nodes.", evidence.length);
+                throw new IllegalArgumentException(msg);
+            }
+
+            for (int iNode = 0; iNode < values.length; iNode++) {
+                setEvidence(iNode, values[iNode]);
+            }
+        }
+
+        /**
+         * Sets the evidence on one node.
+         *
+         * @param iNode the node
+         * @param value its observed value, or -1 to remove evidence on it
+         */
+        public void setEvidence(int iNode, int value) {
+            validate(iNode);
+            if (value < -1 || value >= numCategories[iNode]) {
+                String msg = String.format(
+                        "Invalid value %d for node index %d. Value must be between -1 and %d.",
+                        value,
+                        iNode,
+                        numCategories[iNode] - 1);
+                throw new IllegalArgumentException(msg);
+            }
+
+            if (evidence[iNode] != value) {
+                evidence[iNode] = value;
+                invalidate(homes[iNode]);
+            }
+        }
+
+        public void clearEvidence() {
+            for (int iNode = 0; iNode < evidence.length; iNode++) {
+                setEvidence(iNode, -1);
+            }
+        }
+
+        /**
+         * @return the distribution of the node given the evidence, or NaNs if the
+         * evidence is impossible
+         */
+        public double[] getMarginal(int iNode) {
+            validate(iNode);
+
+            int c = homes[iNode];
+            double[] belief = collect(c, -1, true);
+            int stride = strides[c][homePositions[iNode]];
+            int card = numCategories[iNode];
+
+            double[] marginal = new double[card];
+            for (int i = 0; i < belief.length; i++) {
+                marginal[(i / stride) % card] += belief[i];
+            }
+            normalize(marginal);
+
+            return marginal;
+        }
+
+        /**
+         * @return the log probability of the evidence, negative infinity if it is
+         * impossible
+         */
+        public double getLogProbabilityOfEvidence() {
+            double logProb = 0;
+            for (int root : roots) {
+                logProb += getLogNormOfSubtree(root);
+            }
+
+            return logProb;
+        }
+
+        private double getLogNormOfSubtree(int c) {
+            ensureUp(c);
+            double logNorm = upLogNorms[c];
+            for (int child : children[c]) {
+                logNorm += getLogNormOfSubtree(child);
+            }
+
+            return logNorm;
+        }
+
+        /**
+         * Evidence in clique c changes the messages up from c and its ancestors,
+         * and the messages down into every clique whose subtree does not hold c.
+         */
+        private void invalidate(int c) {
+            for (int a = c; a >= 0; a = parents[a]) {
+                upValid[a] = false;
+            }
+
+            for (int b = 0; b < downValid.length; b++) {
+                if (downValid[b] && !isAncestorOrSelf(b, c)) {
+                    downValid[b] = false;
+                }
+            }
+        }
+
+        private boolean isAncestorOrSelf(int a, int c) {
+            for (int b = c; b >= 0; b = parents[b]) {
+                if (b == a) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private void ensureUp(int c) {
+            if (upValid[c]) {
+                return;
+            }
+
+            double[] product = collect(c, -1, false);
+            upLogNorms[c] = marginalize(product, childMaps[c], up[c]);
+            upValid[c] = true;
+        }
+
+        private void ensureDown(int c) {
+            if (downValid[c]) {
+                return;
+            }
+
+            double[] product = collect(parents[c], c, true);
+            marginalize(product, parentMaps[c], down[c]);
+            downValid[c] = true;
+        }
+
+        /**
+         * Multiplies the potential of clique c, with evidence entered, by the
+         * messages into it from its children, except the excluded one (-1 for
+         * none), and, if asked, from its parent.
+         */
+        private double[] collect(int c, int excluded, boolean fromParent) {
+            double[] product = work[c];
+            System.arraycopy(potentials[c], 0, product, 0, product.length);
+
+            for (int iNode : homeNodes[c]) {
+                int value = evidence[iNode];
+                if (value >= 0) {
+                    // cells run through the node's values in blocks of length stride
+                    int stride = strides[c][homePositions[iNode]];
+                    int card = numCategories[iNode];
+                    for (int base = 0; base < product.length; base += stride * card) {
+                        for (int other = 0; other < card; other++) {
+                            if (other != value) {
+                                int from = base + other * stride;
+                                Arrays.fill(product, from, from + stride, 0);
+                            }
+                        }
+                    }
+                }
+            }
+
+            for (int child : children[c]) {
+                if (child != excluded) {
+                    ensureUp(child);
+                    multiply(product, parentMaps[child], up[child]);
+                }
+            }
+
+            if (fromParent && parents[c] >= 0) {
+                ensureDown(c);
+                multiply(product, childMaps[c], down[c]);
+            }
+
+            return product;
+        }
+
+        private void multiply(double[] product, int[] map, double[] message) {
+            for (int i = 0; i < product.length; i++) {
+                product[i] *= message[map[i]];
+            }
+        }
+
+        /**
+         * Sums the product onto the separator and normalizes the result. A
+         * message of all zeros, from impossible evidence, is left as it is.
+         *
+         * @return the log of the normalizing constant
+         */
+        private double marginalize(double[] product, int[] map, double[] message) {
+            Arrays.fill(message, 0);
+            for (int i = 0; i < product.length; i++) {
+                message[map[i]] += product[i];
+            }
+
+            double sum = 0;
+            for (double value : message) {
+                sum += value;
+            }
+
+            if (sum > 0) {
+                for (int i = 0; i < message.length; i++) {
+                    message[i] /= sum;
+                }
+            }
+
+            return Math.log(sum);
+        }
+    }
+
+    private int findClique(int[] nodes) {
+        for (int c = 0; c < scopes.length; c++) {
+            boolean containsAll = true;
+            for (int iNode : nodes) {
+                if (indexOf(scopes[c], iNode) < 0) {
+                    containsAll = false;
+                    break;
+                }
+            }
+
+            if (containsAll) {
+                return c;
+            }
+        }
+
+        return -1;
+    }
+
+    private int getValue(int c, int cell, int position) {
+        return (cell / strides[c][position]) % numCategories[scopes[c][position]];
+    }
+
+    private int[] toIndices(BayesIm bayesIm, Set<Node> nodes) {
+        int[] indices = nodes.stream().mapToInt(bayesIm::getNodeIndex).toArray();
+        Arrays.sort(indices);
+
+        return indices;
+    }
+
+    /**
+     * Strides for indexing a table over the given nodes, the last node varying
+     * fastest.
+     */
+    private int[] getStrides(int[] scope) {
+        int[] stride = new int[scope.length];
+        int s = 1;
+        for (int j = scope.length - 1; j >= 0; j--) {
+            stride[j] = s;
+            s *= numCategories[scope[j]];
+        }
+
+        return stride;
+    }
+
+    private int getCardinality(int[] scope) {
+        long cardinality = 1;
+        for (int iNode : scope) {
+            cardinality *= numCategories[iNode];
+            if (cardinality > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("A clique of the junction tree is too large to tabulate.");
+            }
+        }
+
+        return (int) cardinality;
+    }
+
+    /**
+     * For each cell of a table over the scope, the cell of the table over the
+     * subset that it sums into.
+     */
+    private int[] getMap(int[] scope, int[] subset) {
+        int[] scopeStrides = getStrides(scope);
+        int[] subsetStrides = getStrides(subset);
+        int[] positions = new int[subset.length];
+        for (int j = 0; j < subset.length; j++) {
+            positions[j] = indexOf(scope, subset[j]);
+        }
+
+        int[] map = new int[getCardinality(scope)];
+        for (int i = 0; i < map.length; i++) {
+            int index = 0;
+            for (int j = 0; j < subset.length; j++) {
+                int value = (i / scopeStrides[positions[j]]) % numCategories[subset[j]];
+                index += value * subsetStrides[j];
+            }
+            map[i] = index;
+        }
+
+        return map;
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static void normalize(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] /= sum;
+        }
+    }
+
+    private void validate(int iNode) {
+        int maxIndex = numCategories.length - 1;
+        if (iNode < 0 || iNode > maxIndex) {
+            String msg = String.format(
+                    "Invalid node index %d. Node index must be between 0 and %d.",
+                    iNode,
+                    maxIndex);
+            throw new IllegalArgumentException(msg);
+        }
+    }
+
+}
@@ -556,6 +556,16 @@ public class JunctionTreeAlgorithm implements TetradSerializable {
         return margins[iNode][value];
     }
 
+    /**
+     * Compile the junction tree of the Bayes IM into a read-only form for
+     * answering many evidence queries, possibly from many threads at once.
+     *
+     * @return the compiled junction tree
+     */
+    public CompiledJunctionTree compile() {
+        return new CompiledJunctionTree(bayesIm);
+    }
+
     public List<Node> getNodes() {
         return Collections.unmodifiableList(Arrays.asList(graphNodes));
     }
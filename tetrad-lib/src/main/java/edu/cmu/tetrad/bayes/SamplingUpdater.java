@@ -0,0 +1,859 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bayes;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ComputeExecutor;
+import edu.cmu.tetrad.util.RandomUtil;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+
+/**
+ * Calculates updated marginals for a Bayes net by sampling. This is meant for
+ * networks too large for the junction tree or for exact row summing.
+ * <p>
+ * The conditional probability tables of the manipulated Bayes IM are compiled
+ * into flat arrays up front, so that sampling does not go through the BayesIm
+ * interface. Samples are drawn in a fixed number of batches, which are run in
+ * parallel; each batch has its own random stream split from a single seed, so
+ * the results for a given seed do not depend on the number of threads. Three
+ * methods are available:
+ * <ul>
+ * <li>FORWARD: forward sampling, rejecting samples that contradict the evidence.</li>
+ * <li>LIKELIHOOD_WEIGHTING: evidence variables are sampled within their allowed
+ * categories and each sample is weighted by the probability of the evidence given
+ * its parents.</li>
+ * <li>GIBBS: each batch is a Gibbs chain over the variables that are not fixed by
+ * the evidence, started from a likelihood-weighted sample. Chains may mix slowly
+ * or not at all if the tables have zeros.</li>
+ * </ul>
+ * After each update, the effective sample size, the largest standard error of a
+ * marginal (from the spread of the batch estimates) and, for Gibbs, the largest
+ * Gelman-Rubin statistic over the marginals are available as convergence
+ * diagnostics.
+ *
+ * @author Joseph Ramsey
+ */
+public final class SamplingUpdater implements ManipulatingBayesUpdater {
+    static final long serialVersionUID = 23L;
+
+    public enum Method {FORWARD, LIKELIHOOD_WEIGHTING, GIBBS}
+
+    /**
+     * The IM which this updater modifies.
+     *
+     * @serial Cannot be null.
+     */
+    private BayesIm bayesIm;
+
+    /**
+     * Stores evidence for all variables.
+     *
+     * @serial Cannot be null.
+     */
+    private Evidence evidence;
+
+    /**
+     * This is the source BayesIm after manipulation; all samples are drawn from
+     * this.
+     *
+     * @serial
+     */
+    private BayesIm manipulatedBayesIm;
+
+    /**
+     * @serial Cannot be null.
+     */
+    private Method method = Method.LIKELIHOOD_WEIGHTING;
+
+    /**
+     * The total number of samples to draw (for Gibbs, after burn-in).
+     *
+     * @serial Range > 0.
+     */
+    private int numSamples = 10000;
+
+    /**
+     * The number of batches, or for Gibbs, chains.
+     *
+     * @serial Range > 1.
+     */
+    private int numBatches = 16;
+
+    /**
+     * The number of sweeps each Gibbs chain runs before its samples are counted.
+     *
+     * @serial Range >= 0.
+     */
+    private int burnIn = 100;
+
+    /**
+     * The seed for the random streams, or null to draw one from RandomUtil for
+     * each update.
+     *
+     * @serial
+     */
+    private Long seed = null;
+
+    // The compiled manipulated IM, null until the next update. Node i has categories
+    // numCategories[i]; its table is cpts[i][row * numCategories[i] + category], where
+    // row is the sum over its parents of parent value times rowStrides[i][parent].
+    private int[] numCategories;
+    private int[] causalOrder;
+    private int[][] parents;
+    private int[][] rowStrides;
+    private int[][] children;
+    private double[][] cpts;
+    private boolean[][] allowed;
+    private boolean[] conditioned;
+    private boolean[] fixed;
+
+    // Results of the last update; null until there is one.
+    private double[][] marginals;
+    private double effectiveSampleSize = Double.NaN;
+    private double maxStandardError = Double.NaN;
+    private double maxRHat = Double.NaN;
+
+    //==============================CONSTRUCTORS===========================//
+
+    public SamplingUpdater(BayesIm bayesIm) {
+        if (bayesIm == null) {
+            throw new NullPointerException();
+        }
+
+        this.bayesIm = bayesIm;
+        setEvidence(Evidence.tautology(bayesIm));
+    }
+
+    /**
+     * Constructs a new updater for the given Bayes net.
+     */
+    public SamplingUpdater(BayesIm bayesIm, Evidence evidence) {
+        if (bayesIm == null) {
+            throw new NullPointerException();
+        }
+
+        this.bayesIm = bayesIm;
+        setEvidence(evidence);
+    }
+
+    /**
+     * @return a simple exemplar of this class to test serialization.
+     */
+    public static SamplingUpdater serializableInstance() {
+        return new SamplingUpdater(MlBayesIm.serializableInstance());
+    }
+
+    //============================PUBLIC METHODS==========================//
+
+    /**
+     * @return the Bayes instantiated model that is being updated.
+     */
+    public BayesIm getBayesIm() {
+        return bayesIm;
+    }
+
+    /**
+     * @return the Bayes instantiated model after manipulations have been
+     * applied.
+     */
+    public BayesIm getManipulatedBayesIm() {
+        return this.manipulatedBayesIm;
+    }
+
+    /**
+     * @return the graph for getManipulatedBayesIm().
+     */
+    public Graph getManipulatedGraph() {
+        return this.manipulatedBayesIm.getDag();
+    }
+
+    /**
+     * @return the updated Bayes IM, or null if there is no updated Bayes IM.
+     */
+    public BayesIm getUpdatedBayesIm() {
+        return null;
+    }
+
+    /**
+     * @return a copy of the getModel evidence.
+     */
+    public Evidence getEvidence() {
+        return new Evidence(this.evidence);
+    }
+
+    /**
+     * Sets new evidence for the next update operation.
+     */
+    public void setEvidence(Evidence evidence) {
+        if (evidence == null) {
+            throw new NullPointerException();
+        }
+
+        if (evidence.isIncompatibleWith(bayesIm)) {
+            throw new IllegalArgumentException("The variables for the given " +
+                    "evidence must be compatible with the Bayes IM being updated.");
+        }
+
+        this.evidence = new Evidence(evidence);
+
+        Graph graph = bayesIm.getBayesPm().getDag();
+        Dag manipulatedGraph = createManipulatedGraph(graph);
+        BayesPm manipulatedBayesPm = new BayesPm(manipulatedGraph, bayesIm.getBayesPm());
+        this.manipulatedBayesIm = new MlBayesIm(manipulatedBayesPm, bayesIm, MlBayesIm.MANUAL);
+
+        // A manipulated node has no parents, so its table can't be copied; it is set
+        // to the allowed categories, with equal probability.
+        Proposition proposition = this.evidence.getProposition();
+
+        for (int i = 0; i < this.evidence.getNumNodes(); i++) {
+            if (this.evidence.isManipulated(i)) {
+                int node = manipulatedBayesIm.getNodeIndex(
+                        manipulatedBayesIm.getNode(this.evidence.getNode(i).getName()));
+                int numAllowed = proposition.getNumAllowed(i);
+
+                for (int j = 0; j < this.evidence.getNumCategories(i); j++) {
+                    double p = proposition.isAllowed(i, j) ? 1.0 / numAllowed : 0.0;
+                    manipulatedBayesIm.setProbability(node, 0, j, p);
+                }
+            }
+        }
+
+        this.cpts = null;
+        this.marginals = null;
+    }
+
+    public double getMarginal(int variable, int value) {
+        doUpdate();
+        return marginals[variable][value];
+    }
+
+    public boolean isJointMarginalSupported() {
+        return false;
+    }
+
+    /**
+     * @return the joint marginal.
+     */
+    public double getJointMarginal(int[] variables, int[] values) {
+        throw new UnsupportedOperationException();
+    }
+
+    public double[] calculatePriorMarginals(int nodeIndex) {
+        Evidence evidence = getEvidence();
+        setEvidence(Evidence.tautology(evidence.getVariableSource()));
+
+        double[] marginals = calculateUpdatedMarginals(nodeIndex);
+
+        setEvidence(evidence);
+        return marginals;
+    }
+
+    public double[] calculateUpdatedMarginals(int nodeIndex) {
+        doUpdate();
+        return marginals[nodeIndex].clone();
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public void setMethod(Method method) {
+        if (method == null) {
+            throw new NullPointerException();
+        }
+
+        this.method = method;
+        this.marginals = null;
+    }
+
+    public int getNumSamples() {
+        return numSamples;
+    }
+
+    /**
+     * Sets the total number of samples to draw, across all batches. For Gibbs
+     * sampling, this is the number of sweeps counted after burn-in, over all
+     * chains.
+     */
+    public void setNumSamples(int numSamples) {
+        if (numSamples < 1) {
+            throw new IllegalArgumentException("Number of samples must be at least 1: " + numSamples);
+        }
+
+        this.numSamples = numSamples;
+        this.marginals = null;
+    }
+
+    public int getNumBatches() {
+        return numBatches;
+    }
+
+    /**
+     * Sets the number of batches the samples are drawn in, which for Gibbs
+     * sampling is the number of chains. Batches are the unit of parallelism and
+     * of the convergence diagnostics.
+     */
+    public void setNumBatches(int numBatches) {
+        if (numBatches < 2) {
+            throw new IllegalArgumentException("Number of batches must be at least 2: " + numBatches);
+        }
+
+        this.numBatches = numBatches;
+        this.marginals = null;
+    }
+
+    public int getBurnIn() {
+        return burnIn;
+    }
+
+    /**
+     * Sets the number of sweeps each Gibbs chain runs before counting samples.
+     */
+    public void setBurnIn(int burnIn) {
+        if (burnIn < 0) {
+            throw new IllegalArgumentException("Burn-in must be at least 0: " + burnIn);
+        }
+
+        this.burnIn = burnIn;
+        this.marginals = null;
+    }
+
+    /**
+     * Sets the seed of the random streams, so that updates are repeatable. By
+     * default a new seed is drawn from RandomUtil for each update.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.marginals = null;
+    }
+
+    /**
+     * @return the effective sample size of the last update: the number of
+     * accepted samples for forward sampling, (sum w)^2 / sum w^2 for likelihood
+     * weighting, and the number of counted sweeps for Gibbs sampling.
+     */
+    public double getEffectiveSampleSize() {
+        doUpdate();
+        return effectiveSampleSize;
+    }
+
+    /**
+     * @return the largest standard error over all marginals of the last update,
+     * estimated from the spread of the batch estimates.
+     */
+    public double getMaxStandardError() {
+        doUpdate();
+        return maxStandardError;
+    }
+
+    /**
+     * @return the largest Gelman-Rubin potential scale reduction over all
+     * marginals of the last Gibbs update; values near 1 suggest the chains have
+     * mixed. NaN for the other methods.
+     */
+    public double getMaxRHat() {
+        doUpdate();
+        return maxRHat;
+    }
+
+    /**
+     * Prints out the most recent marginal.
+     */
+    public String toString() {
+        return "Sampling updater (" + method + "), evidence = " + evidence;
+    }
+
+    //==============================PRIVATE METHODS=======================//
+
+    private Dag createManipulatedGraph(Graph graph) {
+        Dag updatedGraph = new Dag(graph);
+
+        // alters graph for manipulated evidenceItems
+        for (int i = 0; i < evidence.getNumNodes(); ++i) {
+            if (evidence.isManipulated(i)) {
+                Node node = evidence.getNode(i);
+                node = updatedGraph.getNode(node.getName());
+                Collection<Node> parents = updatedGraph.getParents(node);
+
+                for (Node parent1 : parents) {
+                    updatedGraph.removeEdge(node, parent1);
+                }
+            }
+        }
+
+        return updatedGraph;
+    }
+
+    /**
+     * Copies the tables of the manipulated IM and the evidence into flat arrays.
+     */
+    private void compile() {
+        BayesIm im = manipulatedBayesIm;
+        int numNodes = im.getNumNodes();
+
+        numCategories = new int[numNodes];
+        parents = new int[numNodes][];
+        rowStrides = new int[numNodes][];
+        cpts = new double[numNodes][];
+        allowed = new boolean[numNodes][];
+        conditioned = new boolean[numNodes];
+        fixed = new boolean[numNodes];
+
+        for (int i = 0; i < numNodes; i++) {
+            numCategories[i] = im.getNumColumns(i);
+        }
+
+        List<List<Integer>> childLists = new ArrayList<>();
+        for (int i = 0; i < numNodes; i++) {
+            childLists.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < numNodes; i++) {
+            parents[i] = im.getParents(i);
+            rowStrides[i] = new int[parents[i].length];
+
+            int stride = 1;
+            for (int k = parents[i].length - 1; k >= 0; k--) {
+                rowStrides[i][k] = stride;
+                stride *= numCategories[parents[i][k]];
+                childLists.get(parents[i][k]).add(i);
+            }
+
+            int card = numCategories[i];
+            cpts[i] = new double[im.getNumRows(i) * card];
+            for (int row = 0; row < im.getNumRows(i); row++) {
+                for (int k = 0; k < card; k++) {
+                    double p = im.getProbability(i, row, k);
+
+                    if (Double.isNaN(p)) {
+                        throw new IllegalStateException("Some probability " +
+                                "values in the BayesIm are not filled in; " +
+                                "cannot sample to do approximate updating.");
+                    }
+
+                    cpts[i][row * card + k] = p;
+                }
+            }
+
+            // The evidence is indexed like the original IM; match by name.
+            int e = evidence.getNodeIndex(im.getNode(i).getName());
+            Proposition proposition = evidence.getProposition();
+            allowed[i] = new boolean[card];
+            for (int k = 0; k < card; k++) {
+                allowed[i][k] = proposition.isAllowed(e, k);
+            }
+            conditioned[i] = proposition.isConditioned(e);
+            fixed[i] = proposition.getNumAllowed(e) <= 1;
+        }
+
+        children = new int[numNodes][];
+        for (int i = 0; i < numNodes; i++) {
+            children[i] = childLists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        List<Node> order = im.getDag().getCausalOrdering();
+        causalOrder = new int[order.size()];
+        for (int i = 0; i < order.size(); i++) {
+            causalOrder[i] = im.getNodeIndex(order.get(i));
+        }
+    }
+
+    private void doUpdate() {
+        if (marginals != null) {
+            return;
+        }
+
+        if (cpts == null) {
+            compile();
+        }
+
+        int numNodes = numCategories.length;
+        long seed = this.seed != null ? this.seed : RandomUtil.getInstance().nextLong();
+        SplittableRandom root = new SplittableRandom(seed);
+
+        List<Callable<Batch>> tasks = new ArrayList<>();
+        for (int b = 0; b < numBatches; b++) {
+            SplittableRandom random = root.split();
+            int size = numSamples / numBatches + (b < numSamples % numBatches ? 1 : 0);
+            tasks.add(() -> runBatch(size, random));
+        }
+
+        List<Batch> batches = ComputeExecutor.getInstance().invokeAll(tasks);
+
+        double totalWeight = 0;
+        double totalSquaredWeight = 0;
+        double[][] sums = new double[numNodes][];
+        for (int i = 0; i < numNodes; i++) {
+            sums[i] = new double[numCategories[i]];
+        }
+
+        for (Batch batch : batches) {
+            totalWeight += batch.weight;
+            totalSquaredWeight += batch.squaredWeight;
+            for (int i = 0; i < numNodes; i++) {
+                for (int k = 0; k < numCategories[i]; k++) {
+                    sums[i][k] += batch.sums[i][k];
+                }
+            }
+        }
+
+        double[][] marginals = new double[numNodes][];
+        for (int i = 0; i < numNodes; i++) {
+            marginals[i] = new double[numCategories[i]];
+            for (int k = 0; k < numCategories[i]; k++) {
+                marginals[i][k] = sums[i][k] / totalWeight;
+            }
+        }
+
+        this.effectiveSampleSize = method == Method.LIKELIHOOD_WEIGHTING
+                ? totalWeight * totalWeight / totalSquaredWeight
+                : totalWeight;
+        this.maxStandardError = calculateMaxStandardError(batches, marginals);
+        this.maxRHat = method == Method.GIBBS ? calculateMaxRHat(batches) : Double.NaN;
+        this.marginals = marginals;
+    }
+
+    /**
+     * Weighted counts for one batch of samples.
+     */
+    private static final class Batch {
+        private final double[][] sums;
+        private double weight;
+        private double squaredWeight;
+        private int count;
+
+        private Batch(int[] numCategories) {
+            sums = new double[numCategories.length][];
+            for (int i = 0; i < numCategories.length; i++) {
+                sums[i] = new double[numCategories[i]];
+            }
+        }
+
+        private void add(int[] point, double w) {
+            weight += w;
+            squaredWeight += w * w;
+            count++;
+            for (int i = 0; i < point.length; i++) {
+                sums[i][point[i]] += w;
+            }
+        }
+
+        /**
+         * The mean of this batch's estimate of P(i = k).
+         */
+        private double mean(int i, int k) {
+            return sums[i][k] / weight;
+        }
+    }
+
+    private Batch runBatch(int size, SplittableRandom random) {
+        Batch batch = new Batch(numCategories);
+        int[] point = new int[numCategories.length];
+
+        switch (method) {
+            case FORWARD:
+                for (int s = 0; s < size; s++) {
+                    if (sampleForward(point, random)) {
+                        batch.add(point, 1.0);
+                    }
+                }
+                break;
+            case LIKELIHOOD_WEIGHTING:
+                for (int s = 0; s < size; s++) {
+                    double w = sampleWeighted(point, random);
+                    if (w > 0) {
+                        batch.add(point, w);
+                    }
+                }
+                break;
+            case GIBBS:
+                runChain(batch, size, point, random);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected method: " + method);
+        }
+
+        return batch;
+    }
+
+    /**
+     * Draws a point from the manipulated IM.
+     *
+     * @return true if the point satisfies the evidence.
+     */
+    private boolean sampleForward(int[] point, SplittableRandom random) {
+        for (int i : causalOrder) {
+            int card = numCategories[i];
+            int offset = getRow(i, point) * card;
+            double u = random.nextDouble();
+            double sum = 0;
+            int value = card - 1;
+
+            for (int k = 0; k < card; k++) {
+                sum += cpts[i][offset + k];
+                if (sum >= u) {
+                    value = k;
+                    break;
+                }
+            }
+
+            if (!allowed[i][value]) {
+                return false;
+            }
+
+            point[i] = value;
+        }
+
+        return true;
+    }
+
+    /**
+     * Draws a point with every variable within its allowed categories.
+     *
+     * @return the likelihood weight of the point, 0 if the evidence is impossible
+     * given the sampled parents.
+     */
+    private double sampleWeighted(int[] point, SplittableRandom random) {
+        double weight = 1;
+
+        for (int i : causalOrder) {
+            int card = numCategories[i];
+            int offset = getRow(i, point) * card;
+            double mass = 1;
+
+            if (conditioned[i]) {
+                mass = 0;
+                for (int k = 0; k < card; k++) {
+                    if (allowed[i][k]) {
+                        mass += cpts[i][offset + k];
+                    }
+                }
+
+                if (mass <= 0) {
+                    return 0;
+                }
+
+                weight *= mass;
+            }
+
+            point[i] = drawAllowed(i, cpts[i], offset, mass, random);
+        }
+
+        return weight;
+    }
+
+    private void runChain(Batch batch, int size, int[] point, SplittableRandom random) {
+        int numNodes = numCategories.length;
+
+        // start from a point consistent with the evidence
+        int tries = 0;
+        while (sampleWeighted(point, random) <= 0) {
+            if (++tries > 10000) {
+                return;
+            }
+        }
+
+        double[] conditional = new double[max(numCategories)];
+
+        for (int sweep = 0; sweep < burnIn + size; sweep++) {
+            for (int i = 0; i < numNodes; i++) {
+                if (fixed[i]) {
+                    continue;
+                }
+
+                int card = numCategories[i];
+
+                // P(i | Markov blanket) is proportional to P(i | parents) times the
+                // probabilities of i's children given their parents.
+                int offset = getRow(i, point) * card;
+                double mass = 0;
+                for (int k = 0; k < card; k++) {
+                    double p = 0;
+                    if (allowed[i][k]) {
+                        point[i] = k;
+                        p = cpts[i][offset + k];
+                        for (int c : children[i]) {
+                            p *= cpts[c][getRow(c, point) * numCategories[c] + point[c]];
+                        }
+                    }
+                    conditional[k] = p;
+                    mass += p;
+                }
+
+                point[i] = mass > 0 ? drawAllowed(i, conditional, 0, mass, random) : point[i];
+            }
+
+            if (sweep >= burnIn) {
+                batch.add(point, 1.0);
+            }
+        }
+    }
+
+    /**
+     * Draws a category of node i from probs[offset..offset + card), restricted
+     * to its allowed categories, whose probabilities sum to mass.
+     */
+    private int drawAllowed(int i, double[] probs, int offset, double mass, SplittableRandom random) {
+        int card = numCategories[i];
+        double u = random.nextDouble() * mass;
+        double sum = 0;
+        int last = -1;
+
+        for (int k = 0; k < card; k++) {
+            if (allowed[i][k]) {
+                sum += probs[offset + k];
+                last = k;
+                if (sum >= u) {
+                    return k;
+                }
+            }
+        }
+
+        return last;
+    }
+
+    private int getRow(int i, int[] point) {
+        int row = 0;
+        int[] p = parents[i];
+        int[] strides = rowStrides[i];
+        for (int k = 0; k < p.length; k++) {
+            row += point[p[k]] * strides[k];
+        }
+        return row;
+    }
+
+    private double calculateMaxStandardError(List<Batch> batches, double[][] marginals) {
+        double max = 0;
+
+        for (int i = 0; i < marginals.length; i++) {
+            for (int k = 0; k < marginals[i].length; k++) {
+                int n = 0;
+                double sumSq = 0;
+                for (Batch batch : batches) {
+                    if (batch.weight > 0) {
+                        double d = batch.mean(i, k) - marginals[i][k];
+                        sumSq += d * d;
+                        n++;
+                    }
+                }
+
+                if (n < 2) {
+                    return Double.NaN;
+                }
+
+                max = Math.max(max, Math.sqrt(sumSq / (n - 1) / n));
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * The Gelman-Rubin statistic for the indicator of each category, treating each
+     * batch as a chain. An indicator is its own square, so the sums give the
+     * within-chain variances.
+     */
+    private double calculateMaxRHat(List<Batch> chains) {
+        double max = 0;
+        int m = chains.size();
+
+        for (int i = 0; i < numCategories.length; i++) {
+            for (int k = 0; k < numCategories[i]; k++) {
+                double grandMean = 0;
+                double within = 0;
+                int n = Integer.MAX_VALUE;
+
+                for (Batch chain : chains) {
+                    if (chain.count < 2) {
+                        return Double.NaN;
+                    }
+                    n = Math.min(n, chain.count);
+                    double mean = chain.sums[i][k] / chain.count;
+                    grandMean += mean / m;
+                    within += (chain.sums[i][k] - chain.count * mean * mean) / (chain.count - 1) / m;
+                }
+
+                double between = 0;
+                for (Batch chain : chains) {
+                    double d = chain.sums[i][k] / chain.count - grandMean;
+                    between += d * d * n / (m - 1);
+                }
+
+                if (within > 0) {
+                    double variance = (n - 1.0) / n * within + between / n;
+                    max = Math.max(max, Math.sqrt(variance / within));
+                } else if (between > 0) {
+                    return Double.POSITIVE_INFINITY;
+                }
+            }
+        }
+
+        return max;
+    }
+
+    private static int max(int[] values) {
+        int max = 0;
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    /**
+     * Adds semantic checks to the default deserialization method. This method
+     * must have the standard signature for a readObject method, and the body of
+     * the method must begin with "s.defaultReadObject();". Other than that, any
+     * semantic checks can be specified and do not need to stay the same from
+     * version to version. A readObject method of this form may be added to any
+     * class, even if Tetrad sessions were previously saved out using a version
+     * of the class that didn't include it. (That's what the
+     * "s.defaultReadObject();" is for. See J. Bloch, Effective Java, for help.
+     *
+     * @throws java.io.IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        if (bayesIm == null) {
+            throw new NullPointerException();
+        }
+
+        if (evidence == null) {
+            throw new NullPointerException();
+        }
+
+        if (method == null) {
+            throw new NullPointerException();
+        }
+    }
+}
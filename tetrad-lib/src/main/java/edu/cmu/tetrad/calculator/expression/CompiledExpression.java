@@ -0,0 +1,1238 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.calculator.expression;
+
+import edu.cmu.tetrad.util.RandomUtil;
+import org.apache.commons.math3.distribution.*;
+import org.apache.commons.math3.random.RandomGenerator;
+
+import java.util.*;
+
+/**
+ * An expression compiled into a flat stack program, with variables looked up by index in an array of slots instead
+ * of by name through a Context. The program gives the same values as Expression.evaluate, bit for bit, and for
+ * random functions draws from RandomUtil in the same order, so a seeded simulation gives the same data either way.
+ * Lazy constructs (OR, Mixture, Switch) are compiled into jumps. Since the interpreter's Addition counts any term
+ * that throws an exception as 0, terms of a sum that may throw are compiled into guarded regions that do the same.
+ * <p>
+ * Programs with no random functions and no functions that check their arguments can also be evaluated over whole
+ * columns at a time; see isVectorizable().
+ * <p>
+ * A slot that has not been given a value holds UNSET; reading it throws an exception, as looking up a variable with
+ * no value does in a Context.
+ *
+ * @author Joseph Ramsey
+ */
+public final class CompiledExpression {
+
+    /**
+     * The value of a slot that has not been assigned, a NaN with an unusual payload.
+     */
+    public static final double UNSET = Double.longBitsToDouble(0x7ff80000dead0001L);
+
+    private static final long UNSET_BITS = Double.doubleToRawLongBits(UNSET);
+
+    // Opcodes; operands follow the opcode in the code array.
+    private static final int CONST = 0;         // pool index
+    private static final int LOAD = 1;          // slot
+    private static final int ADD = 2;           // number of terms
+    private static final int MUL = 3;           // number of factors
+    private static final int SUB = 4;
+    private static final int NEG = 5;
+    private static final int DIV = 6;
+    private static final int POW = 7;
+    private static final int FUNCTION = 8;      // function id
+    private static final int MAX = 9;           // number of arguments
+    private static final int MIN = 10;          // number of arguments
+    private static final int AND = 11;          // number of arguments
+    private static final int OR_TEST = 12;      // jump target
+    private static final int XOR = 13;
+    private static final int LT = 14;
+    private static final int LE = 15;
+    private static final int EQ = 16;
+    private static final int GT = 17;
+    private static final int GE = 18;
+    private static final int IF = 19;
+    private static final int EVAL = 20;         // slot, pool index of the string
+    private static final int JUMP = 21;         // jump target
+    private static final int GUARD = 22;        // end of the guarded region
+    private static final int RANDOM = 23;
+    private static final int DISTRIBUTION = 24; // distribution id
+    private static final int INDICATOR = 25;
+    private static final int DISCRETE = 26;     // number of arguments
+    private static final int DISC_ERROR = 27;   // number of arguments, pool index of the argument strings
+    private static final int SPLIT = 28;        // number of arguments
+    private static final int MIXTURE_CHECK = 29;
+    private static final int MIXTURE = 30;      // number of components, then a jump target for each
+    private static final int SWITCH = 31;       // number of cases, then a jump target for each
+    private static final int THROW = 32;        // pool index of the message
+
+    // Functions of one argument.
+    private static final String[] FUNCTIONS = {"exp", "sqrt", "cosh", "sinh", "tanh", "cos", "sin", "tan", "acos",
+            "asin", "atan", "logistic", "ln", "log10", "round", "ceil", "floor", "abs", "signum"};
+
+    // Distributions sampled through commons-math, with their numbers of arguments.
+    private static final String[] DISTRIBUTIONS = {"ChiSquare", "Gamma", "Beta", "Cauchy", "FDist", "Gumbel",
+            "Laplace", "Levy", "Nakagami", "Pareto", "Triangular", "Uniform", "Weibull", "Poisson",
+            "ExponentialDist", "LogNormal", "Normal", "N", "StudentT", "TruncNormal"};
+    private static final int[] DISTRIBUTION_ARITIES = {1, 2, 2, 2, 2, 2, 2, 2, 2, 2, 3, 2, 2, 1, 1, 2, 2, 2, 1, 4};
+
+    private final int[] code;
+    private final Object[] pool;
+    private final String[] slotNames;
+    private final int stackSize;
+    private final boolean vectorizable;
+    private final int[] slotsRead;
+
+    private CompiledExpression(Compiler compiler, Map<String, Integer> slots) {
+        this.code = Arrays.copyOf(compiler.code, compiler.codeSize);
+        this.pool = compiler.pool.toArray();
+        this.stackSize = Math.max(compiler.maxDepth, 1);
+        this.vectorizable = compiler.vectorizable;
+
+        this.slotNames = new String[slots.size()];
+
+        for (Map.Entry<String, Integer> entry : slots.entrySet()) {
+            if (entry.getValue() < slotNames.length) {
+                slotNames[entry.getValue()] = entry.getKey();
+            }
+        }
+
+        this.slotsRead = new int[compiler.slotsRead.size()];
+        int i = 0;
+
+        for (int slot : compiler.slotsRead) {
+            slotsRead[i++] = slot;
+        }
+    }
+
+    //==============================PUBLIC METHODS=========================//
+
+    /**
+     * Compiles the given expression.
+     *
+     * @param expression The expression, as parsed by ExpressionParser.
+     * @param slots      Maps variable names to slot indices. Variables not in the map are added to it, with the next
+     *                   free indices.
+     * @throws IllegalArgumentException if the expression uses a function the compiler does not know.
+     */
+    public static CompiledExpression compile(Expression expression, Map<String, Integer> slots) {
+        Compiler compiler = new Compiler(slots);
+        compiler.compile(expression);
+        return new CompiledExpression(compiler, slots);
+    }
+
+    /**
+     * Evaluates the expression.
+     *
+     * @param slots The values of the variables, by slot; UNSET for variables with no value.
+     */
+    public double evaluate(double[] slots) {
+        double[] stack = new double[stackSize];
+        run(0, code.length, stack, 0, slots);
+        return stack[0];
+    }
+
+    /**
+     * @return true if the expression has no random functions and no functions that may throw exceptions, so that
+     * it can be evaluated over columns.
+     */
+    public boolean isVectorizable() {
+        return vectorizable;
+    }
+
+    /**
+     * Evaluates the expression for rows from (inclusive) to to (exclusive), a column at a time. Every slot the
+     * expression reads must have a value for these rows. The expression must be vectorizable.
+     *
+     * @param values  The values of slots that are the same for every row.
+     * @param columns The values of slots that vary by row, by slot and row; null for slots in values.
+     * @param out     The results, by row.
+     */
+    public void evaluate(double[] values, double[][] columns, int from, int to, double[] out) {
+        if (!vectorizable) {
+            throw new IllegalStateException("Expression has random or checked functions; evaluate it row by row.");
+        }
+
+        int n = to - from;
+        double[][] stack = new double[stackSize][n];
+        int sp = 0;
+        int pc = 0;
+
+        while (pc < code.length) {
+            int op = code[pc];
+
+            switch (op) {
+                case CONST: {
+                    Arrays.fill(stack[sp++], (Double) pool[code[pc + 1]]);
+                    pc += 2;
+                    break;
+                }
+                case LOAD: {
+                    int slot = code[pc + 1];
+                    double[] column = columns[slot];
+
+                    if (column == null) {
+                        Arrays.fill(stack[sp], values[slot]);
+                    } else {
+                        System.arraycopy(column, from, stack[sp], 0, n);
+                    }
+
+                    sp++;
+                    pc += 2;
+                    break;
+                }
+                case ADD: {
+                    int m = code[pc + 1];
+                    int base = sp - m;
+                    double[] result = stack[base];
+
+                    for (int r = 0; r < n; r++) {
+                        double value = 0.0;
+
+                        for (int k = 0; k < m; k++) {
+                            value += stack[base + k][r];
+                        }
+
+                        result[r] = value;
+                    }
+
+                    sp = base + 1;
+                    pc += 2;
+                    break;
+                }
+                case MUL: {
+                    int m = code[pc + 1];
+                    int base = sp - m;
+                    double[] result = stack[base];
+
+                    for (int r = 0; r < n; r++) {
+                        double value = 1.0;
+
+                        for (int k = 0; k < m; k++) {
+                            value = value * stack[base + k][r];
+                        }
+
+                        result[r] = value;
+                    }
+
+                    sp = base + 1;
+                    pc += 2;
+                    break;
+                }
+                case MAX:
+                case MIN: {
+                    int m = code[pc + 1];
+                    int base = sp - m;
+                    double[] result = stack[base];
+
+                    for (int r = 0; r < n; r++) {
+                        double value = stack[base][r];
+
+                        for (int k = 1; k < m; k++) {
+                            double d = stack[base + k][r];
+
+                            if (op == MAX ? value < d : d < value) {
+                                value = d;
+                            }
+                        }
+
+                        result[r] = value;
+                    }
+
+                    sp = base + 1;
+                    pc += 2;
+                    break;
+                }
+                case AND: {
+                    int m = code[pc + 1];
+                    int base = sp - m;
+                    double[] result = stack[base];
+
+                    for (int r = 0; r < n; r++) {
+                        boolean allOnes = true;
+
+                        for (int k = 0; k < m; k++) {
+                            if (stack[base + k][r] != 1.0) {
+                                allOnes = false;
+                            }
+                        }
+
+                        result[r] = allOnes ? 1.0 : 0.0;
+                    }
+
+                    sp = base + 1;
+                    pc += 2;
+                    break;
+                }
+                case OR_TEST: {
+
+                    // The arguments are pure, so all of them can be evaluated; fold this one into the result.
+                    double[] v = stack[--sp];
+                    double[] result = stack[sp - 1];
+
+                    for (int r = 0; r < n; r++) {
+                        if (v[r] == 1.0) result[r] = 1.0;
+                    }
+
+                    pc += 2;
+                    break;
+                }
+                case NEG:
+                case FUNCTION: {
+                    double[] a = stack[sp - 1];
+
+                    if (op == NEG) {
+                        for (int r = 0; r < n; r++) a[r] = -a[r];
+                        pc += 1;
+                    } else {
+                        int function = code[pc + 1];
+                        for (int r = 0; r < n; r++) a[r] = function(function, a[r]);
+                        pc += 2;
+                    }
+
+                    break;
+                }
+                case SUB:
+                case DIV:
+                case POW:
+                case XOR:
+                case LT:
+                case LE:
+                case EQ:
+                case GT:
+                case GE: {
+                    double[] a = stack[sp - 2];
+                    double[] b = stack[sp - 1];
+
+                    for (int r = 0; r < n; r++) {
+                        a[r] = binary(op, a[r], b[r]);
+                    }
+
+                    sp--;
+                    pc += 1;
+                    break;
+                }
+                case IF: {
+                    double[] a = stack[sp - 3];
+                    double[] b = stack[sp - 2];
+                    double[] c = stack[sp - 1];
+
+                    for (int r = 0; r < n; r++) {
+                        a[r] = a[r] == 1.0 ? b[r] : c[r];
+                    }
+
+                    sp -= 2;
+                    pc += 1;
+                    break;
+                }
+                case EVAL: {
+                    int slot = code[pc + 1];
+                    String string = (String) pool[code[pc + 2]];
+                    double[] result = stack[sp++];
+
+                    for (int r = 0; r < n; r++) {
+                        double value = columns[slot] == null ? values[slot] : columns[slot][from + r];
+                        result[r] = eval(value, string);
+                    }
+
+                    pc += 3;
+                    break;
+                }
+                case GUARD: {
+
+                    // Nothing in a pure region throws.
+                    pc += 2;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unexpected opcode in a vectorizable program: " + op);
+            }
+        }
+
+        System.arraycopy(stack[0], 0, out, from, n);
+    }
+
+    /**
+     * @return the slots the expression may read, in increasing order.
+     */
+    public int[] getSlotsRead() {
+        return slotsRead.clone();
+    }
+
+    //==============================PRIVATE METHODS=========================//
+
+    /**
+     * Runs code from pc to end with the stack pointer at sp, and returns the new stack pointer.
+     */
+    private int run(int pc, int end, double[] stack, int sp, double[] slots) {
+        while (pc < end) {
+            int op = code[pc];
+
+            switch (op) {
+                case CONST:
+                    stack[sp++] = (Double) pool[code[pc + 1]];
+                    pc += 2;
+                    break;
+                case LOAD: {
+                    int slot = code[pc + 1];
+                    double value = slots[slot];
+
+                    if (Double.doubleToRawLongBits(value) == UNSET_BITS) {
+                        throw new IllegalArgumentException(slotNames[slot] + " was not assigned a value.");
+                    }
+
+                    stack[sp++] = value;
+                    pc += 2;
+                    break;
+                }
+                case ADD: {
+                    int m = code[pc + 1];
+                    int base = sp - m;
+                    double value = 0.0;
+
+                    for (int k = 0; k < m; k++) {
+                        value += stack[base + k];
+                    }
+
+                    stack[base] = value;
+                    sp = base + 1;
+                    pc += 2;
+                    break;
+                }
+                case MUL: {
+                    int m = code[pc + 1];
+                    int base = sp - m;
+                    double value = 1.0;
+
+                    for (int k = 0; k < m; k++) {
+                        value = value * stack[base + k];
+                    }
+
+                    stack[base] = value;
+                    sp = base + 1;
+                    pc += 2;
+                    break;
+                }
+                case MAX:
+                case MIN: {
+                    int m = code[pc + 1];
+                    int base = sp - m;
+                    double value = stack[base];
+
+                    for (int k = 1; k < m; k++) {
+                        double d = stack[base + k];
+
+                        if (op == MAX ? value < d : d < value) {
+                            value = d;
+                        }
+                    }
+
+                    stack[base] = value;
+                    sp = base + 1;
+                    pc += 2;
+                    break;
+                }
+                case AND: {
+                    int m = code[pc + 1];
+                    int base = sp - m;
+                    boolean allOnes = true;
+
+                    for (int k = 0; k < m; k++) {
+                        if (stack[base + k] != 1.0) {
+                            allOnes = false;
+                        }
+                    }
+
+                    stack[base] = allOnes ? 1.0 : 0.0;
+                    sp = base + 1;
+                    pc += 2;
+                    break;
+                }
+                case OR_TEST: {
+
+                    // Below the argument is the result so far, 0.0; the first argument equal to 1.0 decides it.
+                    if (stack[--sp] == 1.0) {
+                        stack[sp - 1] = 1.0;
+                        pc = code[pc + 1];
+                    } else {
+                        pc += 2;
+                    }
+
+                    break;
+                }
+                case NEG:
+                    stack[sp - 1] = -stack[sp - 1];
+                    pc += 1;
+                    break;
+                case FUNCTION:
+                    stack[sp - 1] = function(code[pc + 1], stack[sp - 1]);
+                    pc += 2;
+                    break;
+                case SUB:
+                case DIV:
+                case POW:
+                case XOR:
+                case LT:
+                case LE:
+                case EQ:
+                case GT:
+                case GE:
+                    stack[sp - 2] = binary(op, stack[sp - 2], stack[sp - 1]);
+                    sp--;
+                    pc += 1;
+                    break;
+                case IF:
+                    stack[sp - 3] = stack[sp - 3] == 1.0 ? stack[sp - 2] : stack[sp - 1];
+                    sp -= 2;
+                    pc += 1;
+                    break;
+                case EVAL: {
+                    int slot = code[pc + 1];
+                    stack[sp++] = eval(slots[slot], (String) pool[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                }
+                case JUMP:
+                    pc = code[pc + 1];
+                    break;
+                case GUARD: {
+                    int regionEnd = code[pc + 1];
+
+                    try {
+                        sp = run(pc + 2, regionEnd, stack, sp, slots);
+                    } catch (RuntimeException e) {
+                        stack[sp++] = 0.0;
+                    }
+
+                    pc = regionEnd;
+                    break;
+                }
+                case RANDOM:
+                    stack[sp++] = Math.random();
+                    pc += 1;
+                    break;
+                case DISTRIBUTION: {
+                    int distribution = code[pc + 1];
+                    int m = DISTRIBUTION_ARITIES[distribution];
+                    sp -= m;
+                    stack[sp] = sample(distribution, stack, sp);
+                    sp++;
+                    pc += 2;
+                    break;
+                }
+                case INDICATOR: {
+                    double p = stack[sp - 1];
+                    if (p < 0 || p > 1) throw new IllegalArgumentException("p must be in [0, 1]: " + p);
+                    stack[sp - 1] = RandomUtil.getInstance().nextDouble() < p ? 1 : 0;
+                    pc += 1;
+                    break;
+                }
+                case DISCRETE: {
+                    int m = code[pc + 1];
+                    sp -= m;
+                    stack[sp] = discrete(Arrays.copyOfRange(stack, sp, sp + m));
+                    sp++;
+                    pc += 2;
+                    break;
+                }
+                case DISC_ERROR: {
+                    int m = code[pc + 1];
+                    sp -= m;
+                    stack[sp] = discError(Arrays.copyOfRange(stack, sp, sp + m), (String) pool[code[pc + 2]]);
+                    sp++;
+                    pc += 3;
+                    break;
+                }
+                case SPLIT: {
+                    int m = code[pc + 1];
+                    sp -= m;
+                    stack[sp] = split(Arrays.copyOfRange(stack, sp, sp + m));
+                    sp++;
+                    pc += 2;
+                    break;
+                }
+                case MIXTURE_CHECK: {
+                    double a = stack[sp - 1];
+                    if (a <= 0) throw new IllegalArgumentException("Coefficients must be > 0: " + a);
+                    pc += 1;
+                    break;
+                }
+                case MIXTURE: {
+                    int m = code[pc + 1];
+                    sp -= m;
+                    double[] a = Arrays.copyOfRange(stack, sp, sp + m);
+                    double totalA = 0;
+
+                    for (int i = 0; i < m; i++) {
+                        totalA += a[i];
+                    }
+
+                    if (Math.abs(totalA - 1.0) > 1e-2) {
+                        throw new IllegalArgumentException("Coefficients must sum to 1.0: " + totalA);
+                    }
+
+                    for (int i = 0; i < m; i++) {
+                        a[i] /= totalA;
+                    }
+
+                    double r = RandomUtil.getInstance().nextDouble();
+                    double sum = 0.0;
+                    int chosen = -1;
+
+                    for (int i = 0; i < m; i++) {
+                        sum += a[i];
+
+                        if (r < sum) {
+                            chosen = i;
+                            break;
+                        }
+                    }
+
+                    if (chosen == -1) {
+                        throw new IllegalStateException("Random expr did not choose one of the options: " + r);
+                    }
+
+                    pc = code[pc + 2 + chosen];
+                    break;
+                }
+                case SWITCH: {
+                    int m = code[pc + 1];
+                    double a = stack[--sp];
+
+                    if (a % 1 != 0 || a < 0) {
+                        throw new IllegalArgumentException("First term index must be non-negative integer");
+                    } else if (a >= m) {
+                        throw new IllegalArgumentException("First term index out of bounds");
+                    }
+
+                    pc = code[pc + 2 + (int) a];
+                    break;
+                }
+                case THROW:
+                    throw new IllegalArgumentException((String) pool[code[pc + 1]]);
+                default:
+                    throw new IllegalStateException("Unknown opcode: " + op);
+            }
+        }
+
+        return sp;
+    }
+
+    private static double function(int function, double a) {
+        switch (function) {
+            case 0:
+                return Math.exp(a);
+            case 1:
+                return Math.sqrt(a);
+            case 2:
+                return Math.cosh(a);
+            case 3:
+                return Math.sinh(a);
+            case 4:
+                return Math.tanh(a);
+            case 5:
+                return Math.cos(a);
+            case 6:
+                return Math.sin(a);
+            case 7:
+                return Math.tan(a);
+            case 8:
+                return Math.acos(a);
+            case 9:
+                return Math.asin(a);
+            case 10:
+                return Math.atan(a);
+            case 11:
+                return 1.0 / (1.0 + Math.exp(-a));
+            case 12:
+                return Math.log(a);
+            case 13:
+                return Math.log10(a);
+            case 14:
+                return Math.round(a);
+            case 15:
+                return Math.ceil(a);
+            case 16:
+                return Math.floor(a);
+            case 17:
+                return Math.abs(a);
+            case 18:
+                return Math.signum(a);
+            default:
+                throw new IllegalStateException("Unknown function: " + function);
+        }
+    }
+
+    private static double binary(int op, double a, double b) {
+        switch (op) {
+            case SUB:
+                return a - b;
+            case DIV:
+                return a / b;
+            case POW:
+                return Math.pow(a, b);
+            case XOR: {
+                double first = a == 1.0 ? 1.0 : 0.0;
+                double second = b == 1.0 ? 1.0 : 0.0;
+                return first + second == 1.0 ? 1.0 : 0.0;
+            }
+            case LT:
+                return a < b ? 1.0 : 0.0;
+            case LE:
+                return a <= b ? 1.0 : 0.0;
+            case EQ:
+                return a == b ? 1.0 : 0.0;
+            case GT:
+                return a > b ? 1.0 : 0.0;
+            case GE:
+                return a >= b ? 1.0 : 0.0;
+            default:
+                throw new IllegalStateException("Unknown opcode: " + op);
+        }
+    }
+
+    private static double eval(double value, String string) {
+        if (Double.doubleToRawLongBits(value) == UNSET_BITS) {
+            return 0.0;
+        }
+
+        return string.equals(Double.toString(value)) ? 1.0 : 0.0;
+    }
+
+    private static double sample(int distribution, double[] args, int i) {
+        RandomGenerator randomGenerator = RandomUtil.getInstance().getRandomGenerator();
+
+        switch (distribution) {
+            case 0:
+                return new ChiSquaredDistribution(randomGenerator, args[i]).sample();
+            case 1:
+                return new GammaDistribution(randomGenerator, args[i], args[i + 1]).sample();
+            case 2:
+                return new BetaDistribution(randomGenerator, args[i], args[i + 1]).sample();
+            case 3:
+                return new CauchyDistribution(randomGenerator, args[i], args[i + 1]).sample();
+            case 4:
+                return new FDistribution(randomGenerator, args[i], args[i + 1]).sample();
+            case 5:
+                return new GumbelDistribution(randomGenerator, args[i], args[i + 1]).sample();
+            case 6:
+                return new LaplaceDistribution(randomGenerator, args[i], args[i + 1]).sample();
+            case 7:
+                return new LevyDistribution(randomGenerator, args[i], args[i + 1]).sample();
+            case 8:
+                return new NakagamiDistribution(randomGenerator, args[i], args[i + 1], 1.0E-9D).sample();
+            case 9:
+                return new ParetoDistribution(randomGenerator, args[i], args[i + 1]).sample();
+            case 10:
+                return new TriangularDistribution(randomGenerator, args[i], args[i + 1], args[i + 2]).sample();
+            case 11:
+                return new UniformRealDistribution(randomGenerator, args[i], args[i + 1]).sample();
+            case 12:
+                return new WeibullDistribution(randomGenerator, args[i], args[i + 1]).sample();
+            case 13:
+                return new PoissonDistribution(randomGenerator, args[i], 1.0E-12D, 10000000).sample();
+            case 14:
+                return new ExponentialDistribution(randomGenerator, args[i]).sample();
+            case 15:
+                return new LogNormalDistribution(randomGenerator, args[i], args[i + 1]).sample();
+            case 16:
+            case 17:
+                return new NormalDistribution(randomGenerator, args[i], args[i + 1]).sample();
+            case 18:
+                return new TDistribution(randomGenerator, args[i]).sample();
+            case 19: {
+                double mean = args[i];
+                double sd = args[i + 1];
+                double low = args[i + 2];
+                double high = args[i + 3];
+
+                if (sd < 0) {
+                    return Double.NaN;
+                }
+
+                if (low >= high) {
+                    return Double.NaN;
+                }
+
+                return RandomUtil.getInstance().nextTruncatedNormal(mean, sd, low, high);
+            }
+            default:
+                throw new IllegalStateException("Unknown distribution: " + distribution);
+        }
+    }
+
+    private static double discrete(double[] p) {
+        for (double _p : p) {
+            if (_p < 0) throw new IllegalArgumentException("All arguments must be >= 0: " + _p);
+        }
+
+        double sum = 0.0;
+
+        for (double _p : p) {
+            sum += _p;
+        }
+
+        for (int i = 0; i < p.length; i++) {
+            p[i] /= sum;
+        }
+
+        for (int i = 1; i < p.length; i++) {
+            p[i] = p[i - 1] + p[i];
+        }
+
+        double r = RandomUtil.getInstance().nextDouble();
+
+        for (int i = 0; i < p.length; i++) {
+            if (r < p[i]) return i;
+        }
+
+        throw new IllegalArgumentException();
+    }
+
+    private static double discError(double[] args, String expPrint) {
+        double err = args[0];
+        double[] p = Arrays.copyOfRange(args, 1, args.length);
+        double[] p2 = new double[p.length];
+        double sum = 0.0;
+
+        for (int i = 0; i < p.length; i++) {
+            p2[i] = Math.exp(p[i]);
+            sum += p2[i];
+        }
+
+        for (int i = 0; i < p.length; i++) {
+            p2[i] /= sum;
+        }
+
+        for (int i = 1; i < p.length; i++) {
+            p2[i] = p2[i - 1] + p2[i];
+        }
+
+        for (int i = 0; i < p2.length; i++) {
+            if (err < p2[i]) return i;
+        }
+
+        throw new IllegalArgumentException("exps: " + expPrint + " err: " + err + " p: " + Arrays.toString(p)
+                + " p2: " + Arrays.toString(p2));
+    }
+
+    private static double split(double[] endpoints) {
+        double[] lengths = new double[endpoints.length / 2];
+        double totalLength = 0;
+
+        for (int i = 0; i < endpoints.length / 2; i++) {
+            if (endpoints[2 * i] >= endpoints[2 * i + 1]) {
+                throw new IllegalArgumentException("For Split, a must be less than b for each pair.");
+            }
+
+            lengths[i] = endpoints[2 * i + 1] - endpoints[2 * i];
+            totalLength += lengths[i];
+        }
+
+        double r = RandomUtil.getInstance().nextDouble() * totalLength;
+
+        for (int i = 0; i < endpoints.length / 2; i++) {
+            if (r < lengths[i]) {
+                return endpoints[2 * i] + r;
+            }
+
+            r -= lengths[i];
+        }
+
+        return Double.NaN;
+    }
+
+    /**
+     * Translates an expression tree into code, following the evaluate methods in ExpressionManager.
+     */
+    private static class Compiler {
+        private final Map<String, Integer> slots;
+        private final List<Object> pool = new ArrayList<>();
+        private final SortedSet<Integer> slotsRead = new TreeSet<>();
+        private int[] code = new int[64];
+        private int codeSize = 0;
+        private int depth = 0;
+        private int maxDepth = 0;
+        private boolean vectorizable = true;
+
+        Compiler(Map<String, Integer> slots) {
+            this.slots = slots;
+        }
+
+        void compile(Expression expression) {
+            if (expression instanceof ConstantExpression) {
+                constant(expression.evaluate(null));
+                return;
+            }
+
+            if (expression instanceof VariableExpression) {
+                emit(LOAD, slot(((VariableExpression) expression).getVariable()));
+                push(1);
+                return;
+            }
+
+            if (expression instanceof EvaluationExpression) {
+                VariableExpression variable = (VariableExpression) expression.getExpressions().get(0);
+                String string = ((EvaluationExpression) expression).getString();
+                emit(EVAL, slot(variable.getVariable()), pool(string));
+                push(1);
+                return;
+            }
+
+            String token = expression.getToken();
+            List<Expression> args = expression.getExpressions();
+            int n = args.size();
+
+            switch (token) {
+                case "NEW":
+                case "new":
+                case "TSUM":
+                case "tsum":
+                case "TPROD":
+                case "tprod":
+                    constant(Double.NaN);
+                    return;
+                case "+":
+                    for (Expression arg : args) {
+                        if (mayThrow(arg)) {
+                            int guard = emit(GUARD, 0);
+                            compile(arg);
+                            code[guard + 1] = codeSize;
+                        } else {
+                            compile(arg);
+                        }
+                    }
+
+                    emit(ADD, n);
+                    push(1 - n);
+                    return;
+                case "*":
+                    compileAll(args);
+                    emit(MUL, n);
+                    push(1 - n);
+                    return;
+                case "-":
+                    compileAll(args);
+
+                    if (n == 1) {
+                        emit(NEG);
+                    } else {
+                        emit(SUB);
+                        push(-1);
+                    }
+
+                    return;
+                case "/":
+                    binary(args, DIV);
+                    return;
+                case "pow":
+                case "^":
+                    binary(args, POW);
+                    return;
+                case "max":
+                    compileAll(args);
+                    emit(MAX, n);
+                    push(1 - n);
+                    return;
+                case "min":
+                    compileAll(args);
+                    emit(MIN, n);
+                    push(1 - n);
+                    return;
+                case "AND":
+                    compileAll(args);
+                    emit(AND, n);
+                    push(1 - n);
+                    return;
+                case "OR": {
+                    int[] tests = new int[n];
+                    constant(0.0);
+
+                    for (int i = 0; i < n; i++) {
+                        compile(args.get(i));
+                        tests[i] = emit(OR_TEST, 0);
+                        push(-1);
+                    }
+
+                    for (int test : tests) {
+                        code[test + 1] = codeSize;
+                    }
+
+                    return;
+                }
+                case "XOR":
+                    binary(args, XOR);
+                    return;
+                case "<":
+                    binary(args, LT);
+                    return;
+                case "<=":
+                    binary(args, LE);
+                    return;
+                case "=":
+                    binary(args, EQ);
+                    return;
+                case ">":
+                    binary(args, GT);
+                    return;
+                case ">=":
+                    binary(args, GE);
+                    return;
+                case "IF":
+                    compileAll(args);
+                    emit(IF);
+                    push(-2);
+                    return;
+                case "random":
+                    vectorizable = false;
+                    emit(RANDOM);
+                    push(1);
+                    return;
+                case "Indicator":
+                    vectorizable = false;
+                    compileAll(args);
+                    emit(INDICATOR);
+                    return;
+                case "Discrete":
+                    vectorizable = false;
+                    compileAll(args);
+                    emit(DISCRETE, n);
+                    push(1 - n);
+                    return;
+                case "DiscError": {
+                    vectorizable = false;
+                    compileAll(args);
+                    StringBuilder expPrint = new StringBuilder();
+
+                    for (int i = 1; i < n; i++) {
+                        expPrint.append(args.get(i)).append("\n");
+                    }
+
+                    emit(DISC_ERROR, n, pool(expPrint.toString()));
+                    push(1 - n);
+                    return;
+                }
+                case "Split":
+                    vectorizable = false;
+
+                    if (n < 2) {
+                        emit(THROW, pool("Split must have at least two arguments, Split(a, b)."));
+                        push(1);
+                        return;
+                    }
+
+                    if (n % 2 != 0) {
+                        emit(THROW, pool("Must have an even number of arguments for Split."));
+                        push(1);
+                        return;
+                    }
+
+                    compileAll(args);
+                    emit(SPLIT, n);
+                    push(1 - n);
+                    return;
+                case "Mixture": {
+                    vectorizable = false;
+                    int m = n / 2;
+
+                    for (int i = 0; i < m; i++) {
+                        compile(args.get(2 * i));
+                        emit(MIXTURE_CHECK);
+                    }
+
+                    int mixture = emitTable(MIXTURE, m);
+                    push(-m);
+                    cases(args, 1, 2, mixture);
+                    return;
+                }
+                case "Switch": {
+                    vectorizable = false;
+                    compile(args.get(0));
+                    int select = emitTable(SWITCH, n - 1);
+                    push(-1);
+                    cases(args, 1, 1, select);
+                    return;
+                }
+            }
+
+            for (int i = 0; i < FUNCTIONS.length; i++) {
+                if (FUNCTIONS[i].equals(token) && n == 1) {
+                    compile(args.get(0));
+                    emit(FUNCTION, i);
+                    return;
+                }
+            }
+
+            for (int i = 0; i < DISTRIBUTIONS.length; i++) {
+                if (DISTRIBUTIONS[i].equals(token) && n == DISTRIBUTION_ARITIES[i]) {
+                    vectorizable = false;
+                    compileAll(args);
+                    emit(DISTRIBUTION, i);
+                    push(1 - n);
+                    return;
+                }
+            }
+
+            throw new IllegalArgumentException("Cannot compile '" + token + "' with " + n + " arguments: "
+                    + expression);
+        }
+
+        /**
+         * Compiles the cases of a Mixture or Switch, args.get(first), args.get(first + step), ..., each jumping
+         * to the end when done; their addresses go in the jump table of the instruction at table.
+         */
+        private void cases(List<Expression> args, int first, int step, int table) {
+            List<Integer> jumps = new ArrayList<>();
+            int i = 0;
+
+            for (int k = first; k < args.size(); k += step) {
+                code[table + 2 + i++] = codeSize;
+                compile(args.get(k));
+                push(-1);
+                jumps.add(emit(JUMP, 0));
+            }
+
+            push(1);
+
+            for (int jump : jumps) {
+                code[jump + 1] = codeSize;
+            }
+        }
+
+        private void compileAll(List<Expression> args) {
+            for (Expression arg : args) {
+                compile(arg);
+            }
+        }
+
+        private void binary(List<Expression> args, int op) {
+            compileAll(args);
+            emit(op);
+            push(-1);
+        }
+
+        private void constant(double value) {
+            emit(CONST, pool(value));
+            push(1);
+        }
+
+        /**
+         * True if evaluating the expression might throw: it reads a variable, which might have no value, or it
+         * uses a function that checks its arguments.
+         */
+        private boolean mayThrow(Expression expression) {
+            if (expression instanceof ConstantExpression || expression instanceof EvaluationExpression) {
+                return false;
+            }
+
+            if (expression instanceof VariableExpression) {
+                return true;
+            }
+
+            switch (expression.getToken()) {
+                case "NEW":
+                case "new":
+                case "TSUM":
+                case "tsum":
+                case "TPROD":
+                case "tprod":
+                    return false;
+            }
+
+            if (!isPure(expression.getToken())) {
+                return true;
+            }
+
+            for (Expression arg : expression.getExpressions()) {
+                if (mayThrow(arg)) return true;
+            }
+
+            return false;
+        }
+
+        private boolean isPure(String token) {
+            switch (token) {
+                case "+":
+                case "*":
+                case "-":
+                case "/":
+                case "pow":
+                case "^":
+                case "max":
+                case "min":
+                case "AND":
+                case "OR":
+                case "XOR":
+                case "<":
+                case "<=":
+                case "=":
+                case ">":
+                case ">=":
+                case "IF":
+                    return true;
+            }
+
+            return Arrays.asList(FUNCTIONS).contains(token);
+        }
+
+        private int slot(String name) {
+            Integer slot = slots.get(name);
+
+            if (slot == null) {
+                slot = slots.size();
+                slots.put(name, slot);
+            }
+
+            slotsRead.add(slot);
+            return slot;
+        }
+
+        private int pool(Object value) {
+            pool.add(value);
+            return pool.size() - 1;
+        }
+
+        private void push(int n) {
+            depth += n;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        private int emitTable(int op, int size) {
+            int[] instruction = new int[size + 2];
+            instruction[0] = op;
+            instruction[1] = size;
+            return emit(instruction);
+        }
+
+        private int emit(int... instruction) {
+            while (codeSize + instruction.length > code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+
+            int address = codeSize;
+            System.arraycopy(instruction, 0, code, codeSize, instruction.length);
+            codeSize += instruction.length;
+            return address;
+        }
+    }
+}
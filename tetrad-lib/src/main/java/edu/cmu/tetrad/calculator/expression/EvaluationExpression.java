@@ -78,6 +78,13 @@ public class EvaluationExpression implements Expression {
         return "Eval";
     }
 
+    /**
+     * @return the string the variable's value is tested against.
+     */
+    public String getString() {
+        return string;
+    }
+
     public ExpressionDescriptor.Position getPosition() {
         return ExpressionDescriptor.Position.NEITHER;
     }
@@ -1249,7 +1249,8 @@ public final class BoxDataSet implements DataSet, TetradSerializable {
                         }
                     }
                 } else {
-                    if (!(val == otherVal)) {
+                    // Missing discrete values are NaN here, as for continuous ones.
+                    if (!(val == otherVal) && !(Double.isNaN(val) && Double.isNaN(otherVal))) {
                         return false;
                     }
                 }
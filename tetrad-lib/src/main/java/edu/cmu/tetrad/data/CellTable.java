@@ -88,6 +88,28 @@ public final class CellTable {
         }
     }
 
+    /**
+     * Resets the table to the given dimensions and fills it with the given counts, where the count for coordinates
+     * (c1,...,cn) is at index ((c1 * d2 + c2) * d3 + c3)... For instance, counts from
+     * DiscreteSufficientStatistics.getJointCounts() may be loaded without rescanning the data.
+     *
+     * @param dims   the number of values of each dimension.
+     * @param counts the counts, of length d1 * d2 * ... * dn.
+     */
+    public synchronized final void setCounts(int[] dims, int[] counts) {
+        table.reset(dims);
+
+        if (counts.length != table.getNumCells()) {
+            throw new IllegalArgumentException("Expecting " + table.getNumCells() + " counts: " + counts.length);
+        }
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                table.setValue(table.getCoordinates(i), counts[i]);
+            }
+        }
+    }
+
     /**
      * @param varIndex the index of the variable in question.
      * @return the number of dimensions of the variable.
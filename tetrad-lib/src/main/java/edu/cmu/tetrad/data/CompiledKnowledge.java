@@ -0,0 +1,343 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.OrderedPair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, index-based snapshot of a knowledge object over a fixed list of variables. The forbidden and
+ * required edges are held as rules--a set of variables from which edges go to a set of variables to which they
+ * go--with each variable listing the rules it is on either side of, and the tiers as an array of tier ranks. An
+ * edge is forbidden (required) if a rule has its tail on the one side and its head on the other, which is found by
+ * intersecting two short sorted lists, so a search can build one of these for its variables once and consult it for
+ * every candidate edge instead of asking the knowledge, which resolves names and walks its rules on each call.
+ * Memory grows with the size of the rules rather than with the square of the number of variables; variables in no
+ * rule cost nothing beyond their index.
+ * <p>
+ * The snapshot does not follow later changes to the knowledge; build a new one if the knowledge changes.
+ * Knowledge2 keeps one of these internally behind its string methods and rebuilds it when modified.
+ *
+ * @author Joseph Ramsey
+ */
+public final class CompiledKnowledge {
+
+    private final List<String> variables;
+    private final Map<String, Integer> indices;
+
+    private final Rules forbidden;
+    private final Rules required;
+
+    // The tier of each variable, or -1 if it is in no tier.
+    private final int[] tiers;
+
+    /**
+     * Compiles the given knowledge over the given variables, in the given order.
+     *
+     * @param knowledge The knowledge to compile.
+     * @param variables The names of the variables; variable i in lookups is the i'th of these.
+     */
+    public CompiledKnowledge(IKnowledge knowledge, List<String> variables) {
+        this(variables);
+
+        if (knowledge instanceof Knowledge2) {
+            ((Knowledge2) knowledge).compileInto(this);
+            return;
+        }
+
+        int n = variables.size();
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (knowledge.isForbidden(variables.get(i), variables.get(j))) {
+                    forbidden.add(new int[]{i}, new int[]{j}, true);
+                }
+
+                if (knowledge.isRequired(variables.get(i), variables.get(j))) {
+                    required.add(new int[]{i}, new int[]{j}, true);
+                }
+            }
+        }
+
+        forbidden.trim();
+        required.trim();
+
+        for (int t = knowledge.getNumTiers() - 1; t >= 0; t--) {
+            for (String name : knowledge.getTier(t)) {
+                Integer i = indices.get(name);
+                if (i != null) tiers[i] = t;
+            }
+        }
+    }
+
+    private CompiledKnowledge(List<String> variables) {
+        this.variables = Collections.unmodifiableList(new ArrayList<>(variables));
+        this.indices = new HashMap<>();
+
+        for (int i = 0; i < variables.size(); i++) {
+            indices.put(variables.get(i), i);
+        }
+
+        int n = variables.size();
+        this.forbidden = new Rules(n);
+        this.required = new Rules(n);
+        this.tiers = new int[n];
+        Arrays.fill(tiers, -1);
+    }
+
+    /**
+     * Compiles the given knowledge over the names of the given nodes.
+     */
+    public static CompiledKnowledge forNodes(IKnowledge knowledge, List<Node> nodes) {
+        List<String> names = new ArrayList<>();
+        for (Node node : nodes) names.add(node.getName());
+        return new CompiledKnowledge(knowledge, names);
+    }
+
+    /**
+     * @return the variables over which this knowledge was compiled, in index order.
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * @return the index of the variable with the given name, or -1 if there is none.
+     */
+    public int getIndex(String name) {
+        Integer index = indices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return true if the edge i --> j is forbidden.
+     */
+    public boolean isForbidden(int i, int j) {
+        return forbidden.holds(i, j) && !required.holds(i, j);
+    }
+
+    /**
+     * @return true if the edge i --> j is required.
+     */
+    public boolean isRequired(int i, int j) {
+        return required.holds(i, j);
+    }
+
+    /**
+     * @return true if neither i --> j nor j --> i is required.
+     */
+    public boolean noEdgeRequired(int i, int j) {
+        return !(required.holds(i, j) || required.holds(j, i));
+    }
+
+    /**
+     * @return the tier of variable i, or -1 if it is in no tier.
+     */
+    public int getTier(int i) {
+        return tiers[i];
+    }
+
+    /**
+     * @return true if the edge var1 --> var2 is forbidden; false if either name is not one of the variables.
+     */
+    public boolean isForbidden(String var1, String var2) {
+        Integer i = indices.get(var1);
+        Integer j = indices.get(var2);
+        return i != null && j != null && isForbidden((int) i, (int) j);
+    }
+
+    /**
+     * @return true if the edge var1 --> var2 is required; false if either name is not one of the variables.
+     */
+    public boolean isRequired(String var1, String var2) {
+        Integer i = indices.get(var1);
+        Integer j = indices.get(var2);
+        return i != null && j != null && required.holds(i, j);
+    }
+
+    /**
+     * @return the tier of the named variable, or -1 if it is in no tier or is not one of the variables.
+     */
+    public int getTier(String name) {
+        Integer i = indices.get(name);
+        return i == null ? -1 : tiers[i];
+    }
+
+    /**
+     * Compiles Knowledge2's rules directly. The forbidden and required rules exclude x --> x; the tier rules do
+     * not, as in Knowledge2. Required edges are never forbidden.
+     */
+    void compile(Collection<OrderedPair<Set<String>>> forbiddenRules,
+                 Collection<OrderedPair<Set<String>>> tierRules,
+                 Collection<OrderedPair<Set<String>>> requiredRules,
+                 List<Set<String>> tierSpecs) {
+        addRules(required, requiredRules, false);
+        addRules(forbidden, forbiddenRules, false);
+        addRules(forbidden, tierRules, true);
+
+        forbidden.trim();
+        required.trim();
+
+        for (int t = tierSpecs.size() - 1; t >= 0; t--) {
+            for (String name : tierSpecs.get(t)) {
+                Integer i = indices.get(name);
+                if (i != null) tiers[i] = t;
+            }
+        }
+    }
+
+    private void addRules(Rules rules, Collection<OrderedPair<Set<String>>> specs, boolean withSelf) {
+        for (OrderedPair<Set<String>> spec : specs) {
+            int[] from = indicesOf(spec.getFirst());
+            int[] to = indicesOf(spec.getSecond());
+
+            if (from.length > 0 && to.length > 0) {
+                rules.add(from, to, withSelf);
+            }
+        }
+    }
+
+    private int[] indicesOf(Set<String> names) {
+        int[] found = new int[names.size()];
+        int count = 0;
+
+        for (String name : names) {
+            Integer i = indices.get(name);
+            if (i != null) found[count++] = i;
+        }
+
+        return count == found.length ? found : Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Rules over the variables by index. For each variable, the ids of the rules it is on the from (to) side of, in
+     * increasing order.
+     */
+    private static final class Rules {
+        private final int[][] from;
+        private final int[][] to;
+        private final int[] fromCounts;
+        private final int[] toCounts;
+
+        // The rules that also hold from a variable to itself.
+        private final BitSet withSelf = new BitSet();
+
+        private int numRules = 0;
+
+        private Rules(int n) {
+            this.from = new int[n][];
+            this.to = new int[n][];
+            this.fromCounts = new int[n];
+            this.toCounts = new int[n];
+        }
+
+        private void add(int[] fromIndices, int[] toIndices, boolean withSelf) {
+            int rule = numRules++;
+
+            for (int i : fromIndices) append(from, fromCounts, i, rule);
+            for (int j : toIndices) append(to, toCounts, j, rule);
+
+            if (withSelf) this.withSelf.set(rule);
+        }
+
+        private static void append(int[][] lists, int[] counts, int i, int rule) {
+            int[] list = lists[i];
+            int count = counts[i];
+
+            // The same variable may be listed twice on one side of a rule.
+            if (count > 0 && list[count - 1] == rule) return;
+
+            if (list == null) {
+                list = lists[i] = new int[2];
+            } else if (count == list.length) {
+                list = lists[i] = Arrays.copyOf(list, count * 2);
+            }
+
+            list[count] = rule;
+            counts[i] = count + 1;
+        }
+
+        private void trim() {
+            trim(from, fromCounts);
+            trim(to, toCounts);
+        }
+
+        private static void trim(int[][] lists, int[] counts) {
+            for (int i = 0; i < lists.length; i++) {
+                if (lists[i] != null && lists[i].length != counts[i]) {
+                    lists[i] = Arrays.copyOf(lists[i], counts[i]);
+                }
+            }
+        }
+
+        /**
+         * @return true if some rule has i on its from side and j on its to side. The shorter of the two lists is
+         * walked and the rules in it looked up in the longer one.
+         */
+        private boolean holds(int i, int j) {
+            int[] a = from[i];
+            int[] b = to[j];
+
+            if (a == null || b == null) return false;
+
+            int aCount = fromCounts[i];
+            int bCount = toCounts[j];
+
+            if (aCount > bCount) {
+                int[] list = a;
+                a = b;
+                b = list;
+                int count = aCount;
+                aCount = bCount;
+                bCount = count;
+            }
+
+            int low = 0;
+
+            for (int k = 0; k < aCount; k++) {
+                int rule = a[k];
+                int found = Arrays.binarySearch(b, low, bCount, rule);
+
+                if (found >= 0) {
+                    if (i != j || withSelf.get(rule)) return true;
+                    low = found + 1;
+                } else {
+                    low = -found - 1;
+                }
+
+                if (low == bCount) return false;
+            }
+
+            return false;
+        }
+    }
+}
@@ -102,9 +102,25 @@ public class CovarianceMatrix implements ICovarianceMatrix {
             throw new IllegalArgumentException("Not a continuous data set.");
         }
 
-        CovariancesDoubleForkJoin covariances = new CovariancesDoubleForkJoin(dataSet.getDoubleData().toArray(), biasCorrected);
         this.variables = Collections.unmodifiableList(dataSet.getVariables());
         this.sampleSize = dataSet.getNumRows();
+
+        // Mapped data is streamed by column rather than copied onto the heap.
+        if (dataSet instanceof BoxDataSet && ((BoxDataSet) dataSet).getDataBox() instanceof MemoryMappedDataBox) {
+            MemoryMappedDataBox dataBox = (MemoryMappedDataBox) ((BoxDataSet) dataSet).getDataBox();
+            this._covariancesMatrix = new Matrix(dataBox.covariances(biasCorrected));
+            return;
+        }
+
+        // Resamples are computed from the rows drawn, weighted by the number of times each was drawn.
+        if (dataSet instanceof BoxDataSet && ((BoxDataSet) dataSet).getDataBox() instanceof ResampledDataBox
+                && !((ResampledDataBox) ((BoxDataSet) dataSet).getDataBox()).isEdited()) {
+            ResampledDataBox dataBox = (ResampledDataBox) ((BoxDataSet) dataSet).getDataBox();
+            this._covariancesMatrix = new Matrix(dataBox.covariances(biasCorrected));
+            return;
+        }
+
+        CovariancesDoubleForkJoin covariances = new CovariancesDoubleForkJoin(dataSet.getDoubleData().toArray(), biasCorrected);
         this._covariancesMatrix = new Matrix(covariances.getMatrix());
     }
 
@@ -842,6 +842,9 @@ public final class DataReader implements IDataReader {
     private IKnowledge parseKnowledge(Lineizer lineizer, Pattern delimiter) {
         IKnowledge knowledge = new Knowledge2();
 
+        // Set once all tiers are read, since only tiers that exist are forbidden.
+        List<Integer> onlyCanCauseNextTiers = new ArrayList<>();
+
         String line = lineizer.nextLine();
         String firstLine = line;
 
@@ -894,6 +897,11 @@ public final class DataReader implements IDataReader {
                     RegexTokenizer st = new RegexTokenizer(line, delimiter, quoteChar);
                     if (st.hasMoreTokens()) {
                         String token = st.nextToken();
+                        boolean onlyCanCauseNextTier = false;
+                        if (token.endsWith("-")) {
+                            onlyCanCauseNextTier = true;
+                            token = token.substring(0, token.length() - 1);
+                        }
                         boolean forbiddenWithin = false;
                         if (token.endsWith("*")) {
                             forbiddenWithin = true;
@@ -908,6 +916,9 @@ public final class DataReader implements IDataReader {
                         if (forbiddenWithin) {
                             knowledge.setTierForbiddenWithin(tier - 1, true);
                         }
+                        if (onlyCanCauseNextTier) {
+                            onlyCanCauseNextTiers.add(tier - 1);
+                        }
                     }
 
                     while (st.hasMoreTokens()) {
@@ -1127,6 +1138,10 @@ public final class DataReader implements IDataReader {
             }
         }
 
+        for (int tier : onlyCanCauseNextTiers) {
+            knowledge.setOnlyCanCauseNextTier(tier, true);
+        }
+
         return knowledge;
     }
 
@@ -34,10 +34,8 @@ import java.rmi.MarshalledObject;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Some static utility methods for dealing with data sets.
@@ -1225,7 +1223,7 @@ public final class DataUtils {
 
         final int NTHREADS = Runtime.getRuntime().availableProcessors();
 
-        ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+        List<Callable<Object>> tasks = new ArrayList<>();
 
         for (int t = 0; t < NTHREADS; t++) {
             final int _t = t;
@@ -1253,11 +1251,10 @@ public final class DataUtils {
                 }
             };
 
-            pool.submit(worker);
+            tasks.add(Executors.callable(worker));
         }
 
-        while (!pool.isQuiescent()) {
-        }
+        ComputeExecutor.getInstance().invokeAll(tasks);
 
         return out;
     }
@@ -1430,7 +1427,25 @@ public final class DataUtils {
      * given dataset.
      */
     public static DataSet getResamplingDataset(DataSet data, int sampleSize) {
-        int actualSampleSize = data.getNumRows();
+        int[] rows = getResamplingRows(data.getNumRows(), sampleSize);
+
+        int[] cols = new int[data.getNumColumns()];
+        for (int i = 0; i < cols.length; i++) cols[i] = i;
+
+        return new BoxDataSet(new VerticalDoubleDataBox(data.getDoubleData().getSelection(rows, cols).transpose().toArray()), data.getVariables());
+    }
+
+    /**
+     * @return a sample without replacement with the given sample size from the
+     * given dataset, as a view onto its rows rather than a copy. The rows are
+     * drawn as for getResamplingDataset().
+     * @see ResampledDataBox
+     */
+    public static DataSet getResamplingDatasetView(DataSet data, int sampleSize) {
+        return resampledView(data, getResamplingRows(data.getNumRows(), sampleSize));
+    }
+
+    private static int[] getResamplingRows(int actualSampleSize, int sampleSize) {
         int _size = sampleSize;
         if (actualSampleSize < _size) {
             _size = actualSampleSize;
@@ -1457,30 +1472,49 @@ public final class DataUtils {
             availRows.remove(index);
         }
 
+        return rows;
+    }
+
+    /**
+     * @return a sample with replacement with the given sample size from the
+     * given dataset.
+     */
+    public static DataSet getBootstrapSample(DataSet data, int sampleSize) {
+        int[] rows = getBootstrapRows(data.getNumRows(), sampleSize);
+
         int[] cols = new int[data.getNumColumns()];
         for (int i = 0; i < cols.length; i++) cols[i] = i;
 
-        return new BoxDataSet(new VerticalDoubleDataBox(data.getDoubleData().getSelection(rows, cols).transpose().toArray()), data.getVariables());
+        return new BoxDataSet(new VerticalDoubleDataBox(data.getDoubleData().getSelection(rows, cols).transpose().toArray()),
+                data.getVariables());
     }
 
     /**
      * @return a sample with replacement with the given sample size from the
-     * given dataset.
+     * given dataset, as a view onto its rows rather than a copy. The rows are
+     * drawn as for getBootstrapSample().
+     * @see ResampledDataBox
      */
-    public static DataSet getBootstrapSample(DataSet data, int sampleSize) {
-        int actualSampleSize = data.getNumRows();
+    public static DataSet getBootstrapSampleView(DataSet data, int sampleSize) {
+        return resampledView(data, getBootstrapRows(data.getNumRows(), sampleSize));
+    }
 
+    private static int[] getBootstrapRows(int actualSampleSize, int sampleSize) {
         int[] rows = new int[sampleSize];
 
         for (int i = 0; i < rows.length; i++) {
             rows[i] = RandomUtil.getInstance().nextInt(actualSampleSize);
         }
 
-        int[] cols = new int[data.getNumColumns()];
-        for (int i = 0; i < cols.length; i++) cols[i] = i;
+        return rows;
+    }
 
-        return new BoxDataSet(new VerticalDoubleDataBox(data.getDoubleData().getSelection(rows, cols).transpose().toArray()),
-                data.getVariables());
+    private static DataSet resampledView(DataSet data, int[] rows) {
+        if (data instanceof BoxDataSet) {
+            return new BoxDataSet(new ResampledDataBox(((BoxDataSet) data).getDataBox(), rows), data.getVariables());
+        }
+
+        return data.subsetRows(rows);
     }
 
     /**
@@ -1730,11 +1764,7 @@ public final class DataUtils {
     public static ICovarianceMatrix covarianceNonparanormalDrton(DataSet dataSet) {
         final CovarianceMatrix covMatrix = new CovarianceMatrix(dataSet);
         final Matrix data = dataSet.getDoubleData();
-        final int NTHREDS = Runtime.getRuntime().availableProcessors() * 10;
-        final int EPOCH_COUNT = 100000;
-
-        ExecutorService executor = Executors.newFixedThreadPool(NTHREDS);
-        int runnableCount = 0;
+        List<Callable<Object>> tasks = new ArrayList<>();
 
         for (int _i = 0; _i < dataSet.getNumColumns(); _i++) {
             for (int _j = _i; _j < dataSet.getNumColumns(); _j++) {
@@ -1751,36 +1781,11 @@ public final class DataUtils {
                     }
                 };
 
-                executor.execute(worker);
-
-                if (runnableCount < EPOCH_COUNT) {
-                    runnableCount++;
-//                    System.out.println(runnableCount);
-                } else {
-                    executor.shutdown();
-                    try {
-                        // Wait until all threads are finish
-                        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-                        System.out.println("Finished all threads");
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-
-                    executor = Executors.newFixedThreadPool(NTHREDS);
-                    runnableCount = 0;
-                }
+                tasks.add(Executors.callable(worker));
             }
         }
 
-        executor.shutdown();
-
-        try {
-            // Wait until all threads are finish
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-            System.out.println("Finished all threads");
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        ComputeExecutor.getInstance().invokeAll(tasks);
 
         return covMatrix;
     }
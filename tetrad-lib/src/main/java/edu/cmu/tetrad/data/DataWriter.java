@@ -22,12 +22,17 @@
 package edu.cmu.tetrad.data;
 
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.NodeVariableType;
 import edu.cmu.tetrad.util.NumberFormatUtil;
+import edu.pitt.dbmi.data.reader.binary.ColumnarBinaryFile;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.file.Path;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -222,6 +227,95 @@ public final class DataWriter {
         out.close();
     }
 
+    /**
+     * Writes a dataset to a columnar binary file (see ColumnarBinaryFile),
+     * which DataConvertUtils.toMemoryMappedDataModel() maps back into a data
+     * set without parsing. The variables, with their categories and variable
+     * types, are saved, as is the knowledge of the dataset, if any. For a
+     * continuous dataset the covariance matrix may be saved as well, so that
+     * searches over the loaded data need not recompute it.
+     *
+     * @param dataSet         The data set to save.
+     * @param file            The file to write.
+     * @param singlePrecision True if continuous values should be stored as
+     *                        32-bit floats.
+     * @param withCovariances True if the covariance matrix of a continuous
+     *                        data set should be saved.
+     * @throws IOException If there is some problem writing the file.
+     */
+    public static void writeBinaryData(DataSet dataSet, Path file, boolean singlePrecision,
+                                       boolean withCovariances) throws IOException {
+        if (withCovariances && !dataSet.isContinuous()) {
+            throw new IllegalArgumentException("Covariances can only be saved for continuous data.");
+        }
+
+        List<Node> variables = dataSet.getVariables();
+        List<String> names = new ArrayList<>();
+        List<List<String>> categories = new ArrayList<>();
+
+        for (Node variable : variables) {
+            names.add(variable.getName());
+            categories.add(variable instanceof DiscreteVariable ? ((DiscreteVariable) variable).getCategories() : null);
+        }
+
+        try (ColumnarBinaryFile binaryFile = ColumnarBinaryFile.create(file, names, categories,
+                dataSet.getNumRows(), singlePrecision)) {
+            for (int j = 0; j < variables.size(); j++) {
+                if (binaryFile.isDiscrete(j)) {
+                    for (int i = 0; i < dataSet.getNumRows(); i++) {
+                        binaryFile.setInt(i, j, dataSet.getInt(i, j));
+                    }
+                } else {
+                    for (int i = 0; i < dataSet.getNumRows(); i++) {
+                        binaryFile.setDouble(i, j, dataSet.getDouble(i, j));
+                    }
+                }
+
+                NodeVariableType type = variables.get(j).getNodeVariableType();
+
+                if (type != null && type != NodeVariableType.DOMAIN) {
+                    binaryFile.setVariableType(j, ColumnarBinaryFile.VariableType.valueOf(type.name()));
+                }
+            }
+
+            binaryFile.setKnowledge(knowledgeText(dataSet.getKnowledge()));
+
+            if (withCovariances) {
+                binaryFile.setCovariances(dataSet.getCovarianceMatrix().toArray(), dataSet.getNumRows());
+            }
+        }
+    }
+
+    /**
+     * Writes a covariance matrix to a columnar binary file (see
+     * ColumnarBinaryFile) with no rows, which
+     * DataConvertUtils.toCovarianceMatrix() loads back without parsing.
+     *
+     * @param covMatrix The covariance matrix to save.
+     * @param file      The file to write.
+     * @throws IOException If there is some problem writing the file.
+     */
+    public static void writeBinaryCovMatrix(ICovarianceMatrix covMatrix, Path file) throws IOException {
+        try (ColumnarBinaryFile binaryFile = ColumnarBinaryFile.create(file, covMatrix.getVariableNames(), 0, false)) {
+            binaryFile.setKnowledge(knowledgeText(covMatrix.getKnowledge()));
+            binaryFile.setCovariances(covMatrix.getMatrix().toArray(), covMatrix.getSampleSize());
+        }
+    }
+
+    /**
+     * @return the knowledge in the format written by saveKnowledge(), or null
+     * if there is none.
+     */
+    private static String knowledgeText(IKnowledge knowledge) throws IOException {
+        if (knowledge == null || knowledge.isEmpty()) {
+            return null;
+        }
+
+        StringWriter out = new StringWriter();
+        saveKnowledge(knowledge, out);
+        return out.toString();
+    }
+
     public static void saveKnowledge(IKnowledge knowledge, Writer out) throws IOException {
         StringBuilder buf = new StringBuilder();
         buf.append("/knowledge");
@@ -0,0 +1,707 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ComputeExecutor;
+import edu.cmu.tetrad.util.Matrix;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * A covariance matrix that is updated as rows arrive, without keeping the
+ * rows. It stores the sample size, means and co-moments (sums of products of
+ * deviations from the means) of the variables. A batch of rows is summarized
+ * on its own and merged in with the pairwise update of Chan, Golub and
+ * LeVeque, so appending rows takes time in the size of the batch rather than
+ * in the number of rows seen so far. Matrices built from different parts of
+ * the data--by different threads, say, or from different files--can be merged
+ * the same way.
+ * <p>
+ * getMatrix() returns the covariances as of the call; they are not changed by
+ * later updates. Scores and tests constructed from this matrix, such as
+ * SemBicScore and IndTestFisherZ, therefore see the rows added before they
+ * were constructed. To rerun a search after appending rows, construct them
+ * again from this matrix; that takes time in the number of variables only.
+ * <p>
+ * As for CovarianceMatrix, covariances involving missing values are NaN.
+ *
+ * @author Joseph Ramsey
+ * @see edu.cmu.tetrad.data.CovarianceMatrix
+ */
+public class IncrementalCovarianceMatrix implements ICovarianceMatrix {
+    static final long serialVersionUID = 23L;
+
+    /**
+     * Batches with fewer products than this are summarized on the calling
+     * thread.
+     */
+    private static final long PARALLEL_THRESHOLD = 1000000;
+
+    /**
+     * The name of the covariance matrix.
+     *
+     * @serial May be null.
+     */
+    private String name;
+
+    /**
+     * The variables (in order) for this covariance matrix.
+     *
+     * @serial Cannot be null.
+     */
+    private List<Node> variables;
+
+    /**
+     * True if covariances are divided by n - 1 rather than n.
+     *
+     * @serial
+     */
+    private final boolean biasCorrected;
+
+    /**
+     * The number of rows added.
+     *
+     * @serial Range >= 0.
+     */
+    private int sampleSize;
+
+    /**
+     * The means of the variables over the rows added.
+     *
+     * @serial Cannot be null.
+     */
+    private final double[] means;
+
+    /**
+     * The sums of products of deviations from the means over the rows added.
+     *
+     * @serial Cannot be null.
+     */
+    private final double[][] comoments;
+
+    /**
+     * The list of selected variables.
+     *
+     * @serial Cannot be null.
+     */
+    private Set<Node> selectedVariables = new HashSet<>();
+
+    /**
+     * The knowledge for this data.
+     *
+     * @serial Cannot be null.
+     */
+    private IKnowledge knowledge = new Knowledge2();
+
+    /**
+     * The covariances as of the last update, or null if not yet calculated.
+     */
+    private transient Matrix matrix;
+
+    //=============================CONSTRUCTORS=========================//
+
+    /**
+     * Constructs an empty, bias-corrected covariance matrix over the given
+     * variables.
+     */
+    public IncrementalCovarianceMatrix(List<Node> variables) {
+        this(variables, true);
+    }
+
+    /**
+     * Constructs an empty covariance matrix over the given variables.
+     *
+     * @param biasCorrected True if covariances should be divided by n - 1
+     *                      rather than n.
+     */
+    public IncrementalCovarianceMatrix(List<Node> variables, boolean biasCorrected) {
+        for (Node variable : variables) {
+            if (variable == null) {
+                throw new NullPointerException();
+            }
+        }
+
+        this.variables = Collections.unmodifiableList(new ArrayList<>(variables));
+        this.biasCorrected = biasCorrected;
+        this.means = new double[variables.size()];
+        this.comoments = new double[variables.size()][variables.size()];
+    }
+
+    /**
+     * Constructs a bias-corrected covariance matrix over the rows of the given
+     * continuous data set.
+     */
+    public IncrementalCovarianceMatrix(DataSet dataSet) {
+        this(dataSet, true);
+    }
+
+    /**
+     * Constructs a covariance matrix over the rows of the given continuous
+     * data set.
+     *
+     * @param biasCorrected True if covariances should be divided by n - 1
+     *                      rather than n.
+     */
+    public IncrementalCovarianceMatrix(DataSet dataSet, boolean biasCorrected) {
+        this(dataSet.getVariables(), biasCorrected);
+        addRows(dataSet);
+    }
+
+    /**
+     * Copy constructor. The copy is updated independently of the original.
+     */
+    public IncrementalCovarianceMatrix(IncrementalCovarianceMatrix covMatrix) {
+        synchronized (covMatrix) {
+            this.name = covMatrix.name;
+            this.variables = covMatrix.variables;
+            this.biasCorrected = covMatrix.biasCorrected;
+            this.sampleSize = covMatrix.sampleSize;
+            this.means = covMatrix.means.clone();
+            this.comoments = new double[means.length][];
+
+            for (int i = 0; i < means.length; i++) {
+                this.comoments[i] = covMatrix.comoments[i].clone();
+            }
+
+            this.knowledge = covMatrix.knowledge.copy();
+            this.selectedVariables = new HashSet<>(covMatrix.selectedVariables);
+        }
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static IncrementalCovarianceMatrix serializableInstance() {
+        List<Node> variables = new ArrayList<>();
+        variables.add(new ContinuousVariable("X"));
+        IncrementalCovarianceMatrix covMatrix = new IncrementalCovarianceMatrix(variables);
+        covMatrix.addRow(new double[]{1.0});
+        covMatrix.addRow(new double[]{2.0});
+        return covMatrix;
+    }
+
+    //============================PUBLIC METHODS=========================//
+
+    /**
+     * Adds a row, updating the means and co-moments in place.
+     *
+     * @param row The values of the variables, in order.
+     */
+    public synchronized void addRow(double[] row) {
+        if (row.length != means.length) {
+            throw new IllegalArgumentException("Expecting " + means.length + " values: " + row.length);
+        }
+
+        checkSampleSize(1);
+
+        int p = means.length;
+        double[] delta = new double[p];
+        sampleSize++;
+
+        for (int i = 0; i < p; i++) {
+            delta[i] = row[i] - means[i];
+            means[i] += delta[i] / sampleSize;
+        }
+
+        double f = (sampleSize - 1) / (double) sampleSize;
+
+        for (int i = 0; i < p; i++) {
+            for (int j = i; j < p; j++) {
+                comoments[i][j] += f * delta[i] * delta[j];
+                comoments[j][i] = comoments[i][j];
+            }
+        }
+
+        matrix = null;
+    }
+
+    /**
+     * Adds a batch of rows.
+     *
+     * @param rows The rows, each giving the values of the variables in order.
+     */
+    public void addRows(double[][] rows) {
+        int p = means.length;
+        double[][] columns = new double[p][rows.length];
+
+        for (int k = 0; k < rows.length; k++) {
+            if (rows[k].length != p) {
+                throw new IllegalArgumentException("Expecting " + p + " values in row " + k + ": " + rows[k].length);
+            }
+
+            for (int i = 0; i < p; i++) {
+                columns[i][k] = rows[k][i];
+            }
+        }
+
+        addColumns(columns, rows.length);
+    }
+
+    /**
+     * Adds the rows of a continuous data set whose variables have the same
+     * names, in the same order, as the variables of this matrix.
+     */
+    public void addRows(DataSet dataSet) {
+        if (!dataSet.isContinuous()) {
+            throw new IllegalArgumentException("Not a continuous data set.");
+        }
+
+        if (!dataSet.getVariableNames().equals(getVariableNames())) {
+            throw new IllegalArgumentException("The data set must have the variables of the covariance matrix, "
+                    + "in order: " + dataSet.getVariableNames());
+        }
+
+        int n = dataSet.getNumRows();
+        double[][] columns = new double[means.length][n];
+
+        for (int i = 0; i < means.length; i++) {
+            for (int k = 0; k < n; k++) {
+                columns[i][k] = dataSet.getDouble(k, i);
+            }
+        }
+
+        addColumns(columns, n);
+    }
+
+    /**
+     * Merges in the rows summarized by another matrix over variables with the
+     * same names, in the same order. The other matrix is not changed.
+     */
+    public void merge(IncrementalCovarianceMatrix covMatrix) {
+        if (!covMatrix.getVariableNames().equals(getVariableNames())) {
+            throw new IllegalArgumentException("The covariance matrix must have the same variables, in order: "
+                    + covMatrix.getVariableNames());
+        }
+
+        IncrementalCovarianceMatrix other = new IncrementalCovarianceMatrix(covMatrix);
+        merge(other.sampleSize, other.means, other.comoments);
+    }
+
+    /**
+     * @return the list of variables (unmodifiable).
+     */
+    public final List<Node> getVariables() {
+        return this.variables;
+    }
+
+    /**
+     * @return the variable names, in order.
+     */
+    public final List<String> getVariableNames() {
+        List<String> names = new ArrayList<>();
+
+        for (Node variable : getVariables()) {
+            names.add(variable.getName());
+        }
+
+        return names;
+    }
+
+    /**
+     * @return the variable name at the given index.
+     */
+    public final String getVariableName(int index) {
+        if (index >= getVariables().size()) {
+            throw new IllegalArgumentException("Index out of range: " + index);
+        }
+
+        return getVariables().get(index).getName();
+    }
+
+    /**
+     * @return the dimension of the covariance matrix.
+     */
+    public final int getDimension() {
+        return variables.size();
+    }
+
+    /**
+     * @return the number of rows added so far.
+     */
+    public final synchronized int getSampleSize() {
+        return this.sampleSize;
+    }
+
+    /**
+     * @return the means of the variables over the rows added so far.
+     */
+    public final synchronized double[] getMeans() {
+        return means.clone();
+    }
+
+    /**
+     * @return true if covariances are divided by n - 1 rather than n.
+     */
+    public final boolean isBiasCorrected() {
+        return biasCorrected;
+    }
+
+    /**
+     * Gets the name of the covariance matrix.
+     */
+    public final String getName() {
+        return this.name;
+    }
+
+    /**
+     * Sets the name of the covariance matrix.
+     */
+    public final void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the knowledge associated with this data.
+     */
+    public final IKnowledge getKnowledge() {
+        return this.knowledge.copy();
+    }
+
+    /**
+     * Associates knowledge with this data.
+     */
+    public final void setKnowledge(IKnowledge knowledge) {
+        if (knowledge == null) {
+            throw new NullPointerException();
+        }
+
+        this.knowledge = knowledge.copy();
+    }
+
+    /**
+     * @return a submatrix of the current covariances with variables in the
+     * given order.
+     */
+    public final ICovarianceMatrix getSubmatrix(int[] indices) {
+        List<Node> submatrixVars = new LinkedList<>();
+
+        for (int index : indices) {
+            submatrixVars.add(variables.get(index));
+        }
+
+        return new CovarianceMatrix(submatrixVars, getMatrix().getSelection(indices, indices), getSampleSize());
+    }
+
+    public final ICovarianceMatrix getSubmatrix(List<String> submatrixVarNames) {
+        return getSubmatrix(submatrixVarNames.toArray(new String[0]));
+    }
+
+    /**
+     * @return a submatrix of the current covariances, with variables in the
+     * given order.
+     */
+    public final ICovarianceMatrix getSubmatrix(String[] submatrixVarNames) {
+        int[] indices = new int[submatrixVarNames.length];
+
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = getVariableNames().indexOf(submatrixVarNames[i]);
+
+            if (indices[i] == -1) {
+                throw new IllegalArgumentException("The variables in the submatrix must be in the original matrix: "
+                        + submatrixVarNames[i]);
+            }
+        }
+
+        return getSubmatrix(indices);
+    }
+
+    /**
+     * @return the current value of element (i,j) in the matrix, NaN if too
+     * few rows have been added.
+     */
+    public final synchronized double getValue(int i, int j) {
+        double divisor = biasCorrected ? sampleSize - 1 : sampleSize;
+        return divisor > 0 ? comoments[i][j] / divisor : Double.NaN;
+    }
+
+    /**
+     * @throws IllegalStateException always; the covariances are determined by
+     * the rows added.
+     */
+    public void setMatrix(Matrix matrix) {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * @throws IllegalStateException always; the sample size is the number of
+     * rows added.
+     */
+    public final void setSampleSize(int sampleSize) {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * @return the size of the square matrix.
+     */
+    public final int getSize() {
+        return variables.size();
+    }
+
+    /**
+     * @return the covariances as of this call. The returned matrix is not
+     * changed by later updates and should not be modified.
+     */
+    public final synchronized Matrix getMatrix() {
+        if (matrix == null) {
+            int p = means.length;
+            double[][] cov = new double[p][p];
+
+            for (int i = 0; i < p; i++) {
+                for (int j = 0; j < p; j++) {
+                    cov[i][j] = getValue(i, j);
+                }
+            }
+
+            matrix = new Matrix(cov);
+        }
+
+        return matrix;
+    }
+
+    public final void select(Node variable) {
+        if (variables.contains(variable)) {
+            selectedVariables.add(variable);
+        }
+    }
+
+    public final void clearSelection() {
+        selectedVariables.clear();
+    }
+
+    public final boolean isSelected(Node variable) {
+        if (variable == null) {
+            throw new NullPointerException("Null variable. Try again.");
+        }
+
+        return selectedVariables.contains(variable);
+    }
+
+    public final List<String> getSelectedVariableNames() {
+        List<String> selectedVariableNames = new LinkedList<>();
+
+        for (Node variable : selectedVariables) {
+            selectedVariableNames.add(variable.getName());
+        }
+
+        return selectedVariableNames;
+    }
+
+    /**
+     * Prints out the current covariances, as for CovarianceMatrix.
+     */
+    public final String toString() {
+        return new CovarianceMatrix(getVariables(), getMatrix(), getSampleSize()).toString();
+    }
+
+    @Override
+    public boolean isContinuous() {
+        return true;
+    }
+
+    @Override
+    public boolean isDiscrete() {
+        return false;
+    }
+
+    @Override
+    public boolean isMixed() {
+        return false;
+    }
+
+    public void setVariables(List<Node> variables) {
+        if (variables.size() != this.variables.size()) {
+            throw new IllegalArgumentException("Wrong # of variables.");
+        }
+
+        for (int i = 0; i < variables.size(); i++) {
+            if (!variables.get(i).getName().equals(this.variables.get(i).getName())) {
+                throw new IllegalArgumentException("Variable in index " + (i + 1) + " does not have the same name "
+                        + "as the variable being substituted for it.");
+            }
+        }
+
+        this.variables = Collections.unmodifiableList(new ArrayList<>(variables));
+    }
+
+    @Override
+    public Matrix getSelection(int[] rows, int[] cols) {
+        return getMatrix().getSelection(rows, cols);
+    }
+
+    public Node getVariable(String name) {
+        for (Node variable : getVariables()) {
+            if (name.equals(variable.getName())) {
+                return variable;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public DataModel copy() {
+        return new IncrementalCovarianceMatrix(this);
+    }
+
+    /**
+     * @throws IllegalStateException always; the covariances are determined by
+     * the rows added.
+     */
+    @Override
+    public void setValue(int i, int j, double v) {
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public void removeVariables(List<String> remaining) {
+        throw new IllegalStateException();
+    }
+
+    //========================PRIVATE METHODS============================//
+
+    /**
+     * Summarizes a batch of rows, given as columns, and merges it in.
+     */
+    private void addColumns(double[][] columns, int n) {
+        if (n == 0) {
+            return;
+        }
+
+        int p = columns.length;
+        double[] batchMeans = new double[p];
+
+        for (int i = 0; i < p; i++) {
+            double sum = 0.0;
+            for (int k = 0; k < n; k++) sum += columns[i][k];
+            batchMeans[i] = sum / n;
+            for (int k = 0; k < n; k++) columns[i][k] -= batchMeans[i];
+        }
+
+        double[][] batchComoments = new double[p][p];
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < p; i++) {
+            final int _i = i;
+
+            tasks.add(() -> {
+                double[] x = columns[_i];
+
+                for (int j = _i; j < p; j++) {
+                    double[] y = columns[j];
+                    double sum = 0.0;
+                    for (int k = 0; k < n; k++) sum += x[k] * y[k];
+                    batchComoments[_i][j] = sum;
+                    batchComoments[j][_i] = sum;
+                }
+
+                return null;
+            });
+        }
+
+        if ((long) p * p * n < PARALLEL_THRESHOLD) {
+            for (Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        } else {
+            ComputeExecutor.getInstance().invokeAll(tasks);
+        }
+
+        merge(n, batchMeans, batchComoments);
+    }
+
+    /**
+     * Merges in the summary of n other rows (Chan, Golub and LeVeque).
+     */
+    private synchronized void merge(int n, double[] otherMeans, double[][] otherComoments) {
+        if (n == 0) {
+            return;
+        }
+
+        checkSampleSize(n);
+
+        int p = means.length;
+        double total = sampleSize + (double) n;
+        double f = sampleSize * (double) n / total;
+        double[] delta = new double[p];
+
+        for (int i = 0; i < p; i++) {
+            delta[i] = otherMeans[i] - means[i];
+        }
+
+        for (int i = 0; i < p; i++) {
+            for (int j = i; j < p; j++) {
+                comoments[i][j] += otherComoments[i][j] + f * delta[i] * delta[j];
+                comoments[j][i] = comoments[i][j];
+            }
+
+            means[i] += delta[i] * n / total;
+        }
+
+        sampleSize += n;
+        matrix = null;
+    }
+
+    private void checkSampleSize(int n) {
+        if ((long) sampleSize + n > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Sample size would exceed " + Integer.MAX_VALUE + ".");
+        }
+    }
+
+    /**
+     * Adds semantic checks to the default deserialization method. This method
+     * must have the standard signature for a readObject method, and the body of
+     * the method must begin with "s.defaultReadObject();". Other than that, any
+     * semantic checks can be specified and do not need to stay the same from
+     * version to version. A readObject method of this form may be added to any
+     * class, even if Tetrad sessions were previously saved out using a version
+     * of the class that didn't include it. (That's what the
+     * "s.defaultReadObject();" is for. See J. Bloch, Effective Java, for help.
+     */
+    private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        if (variables == null || means == null || comoments == null) {
+            throw new NullPointerException();
+        }
+
+        if (knowledge == null) {
+            throw new NullPointerException();
+        }
+
+        if (sampleSize < 0) {
+            throw new IllegalStateException();
+        }
+
+        if (selectedVariables == null) {
+            selectedVariables = new HashSet<>();
+        }
+    }
+}
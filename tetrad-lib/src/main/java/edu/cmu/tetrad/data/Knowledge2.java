@@ -27,6 +27,7 @@ import edu.cmu.tetrad.graph.OrderedPair;
 import edu.cmu.tetrad.util.TetradSerializable;
 import java.io.CharArrayWriter;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -38,6 +39,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -83,6 +85,12 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
     private final List<KnowledgeGroup> knowledgeGroups;
     private final Map<KnowledgeGroup, OrderedPair<Set<String>>> knowledgeGroupRules;
 
+    // Counts modifications. Shared with shallow copies, since they share rule sets with this knowledge.
+    private transient AtomicInteger modifications = new AtomicInteger();
+
+    // The compiled form of the rules behind isForbidden and isRequired, rebuilt after modifications.
+    private transient volatile Snapshot snapshot;
+
     public Knowledge2() {
         this.variables = new HashSet<>();
         this.forbiddenRulesSpecs = new ArrayList<>();
@@ -114,6 +122,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
 
         this.knowledgeGroups = knowledge.knowledgeGroups;
         this.knowledgeGroupRules = knowledge.knowledgeGroupRules;
+        this.modifications = knowledge.modifications;
     }
 
     private boolean checkVarName(String name) {
@@ -159,7 +168,52 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
                 .collect(Collectors.toSet());
     }
 
+    private void modified() {
+        modifications.incrementAndGet();
+    }
+
+    private CompiledKnowledge compiled() {
+        Snapshot snapshot = this.snapshot;
+        int version = modifications.get();
+
+        if (snapshot == null || snapshot.version != version) {
+            // Only the variables named in rules or tiers are indexed; for the others nothing is forbidden or
+            // required and there is no tier, which is what the compiled knowledge says for names it lacks.
+            Set<String> names = new LinkedHashSet<>();
+
+            if (!isEmpty()) {
+                for (OrderedPair<Set<String>> rule : forbiddenRulesSpecs) {
+                    names.addAll(rule.getFirst());
+                    names.addAll(rule.getSecond());
+                }
+
+                for (OrderedPair<Set<String>> rule : requiredRulesSpecs) {
+                    names.addAll(rule.getFirst());
+                    names.addAll(rule.getSecond());
+                }
+
+                tierSpecs.forEach(names::addAll);
+            }
+
+            snapshot = new Snapshot(version, new CompiledKnowledge(this, new ArrayList<>(names)));
+            this.snapshot = snapshot;
+        }
+
+        return snapshot.compiled;
+    }
+
+    /**
+     * Fills in the given compiled knowledge from the rules.
+     */
+    void compileInto(CompiledKnowledge compiled) {
+        compiled.compile(forbiddenRulesSpecs, forbiddenTierRules(), requiredRulesSpecs, tierSpecs);
+    }
+
     private void ensureTiers(int tier) {
+        if (tier >= tierSpecs.size()) {
+            modified();
+        }
+
         for (int i = tierSpecs.size(); i <= tier; i++) {
             tierSpecs.add(new LinkedHashSet<>());
 
@@ -216,6 +270,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void addToTier(int tier, String spec) {
+        modified();
         if (tier < 0) {
             throw new IllegalArgumentException();
         }
@@ -243,6 +298,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void addToTiersByVarNames(List<String> varNames) {
+        modified();
         if (!variables.containsAll(varNames)) {
             varNames.forEach(e -> {
                 if (checkVarName(e)) {
@@ -269,6 +325,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void addKnowledgeGroup(KnowledgeGroup group) {
+        modified();
         this.knowledgeGroups.add(group);
 
         OrderedPair<Set<String>> o = getGroupRule(group);
@@ -284,6 +341,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
     @Override
     public void addVariable(String varName) {
         if (!variables.contains(varName) && checkVarName(varName)) {
+            modified();
             variables.add(varName);
         }
     }
@@ -293,6 +351,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void clear() {
+        modified();
         this.forbiddenRulesSpecs.clear();
         this.requiredRulesSpecs.clear();
         this.tierSpecs.clear();
@@ -417,13 +476,6 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
         return defaultToKnowledgeLayout;
     }
 
-    private boolean isForbiddenByRules(String var1, String var2) {
-        return forbiddenRulesSpecs.stream()
-                .anyMatch(rule -> !var1.equals(var2)
-                && rule.getFirst().contains(var1)
-                && rule.getSecond().contains(var2));
-    }
-
     /**
      * Determines whether the edge var1 --> var2 is forbidden.
      *
@@ -433,11 +485,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public boolean isForbidden(String var1, String var2) {
-        if (isRequired(var1, var2)) {
-            return false;
-        }
-
-        return isForbiddenByRules(var1, var2) || isForbiddenByTiers(var1, var2);
+        return compiled().isForbidden(var1, var2);
     }
 
     /**
@@ -483,10 +531,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public boolean isRequired(String var1, String var2) {
-        return requiredRulesSpecs.stream()
-                .anyMatch(rule -> !var1.equals(var2)
-                && rule.getFirst().contains(var1)
-                && rule.getSecond().contains(var2));
+        return compiled().isRequired(var1, var2);
     }
 
     /**
@@ -573,6 +618,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void removeFromTiers(String spec) {
+        modified();
         if (spec == null) {
             throw new NullPointerException();
         }
@@ -588,6 +634,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void removeKnowledgeGroup(int index) {
+        modified();
         OrderedPair<Set<String>> old = knowledgeGroupRules.get(knowledgeGroups.get(index));
 
         forbiddenRulesSpecs.remove(old);
@@ -603,6 +650,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void removeVariable(String name) {
+        modified();
         if (!checkVarName(name)) {
             throw new IllegalArgumentException("Bad variable name: " + name);
         }
@@ -652,6 +700,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void setForbidden(String var1, String var2) {
+        modified();
         addVariable(var1);
         addVariable(var2);
 
@@ -672,6 +721,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void removeForbidden(String var1, String var2) {
+        modified();
         var1 = checkSpec(var1);
         var2 = checkSpec(var2);
 
@@ -689,6 +739,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void setRequired(String var1, String var2) {
+        modified();
         addVariable(var1);
         addVariable(var2);
 
@@ -720,6 +771,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void removeRequired(String var1, String var2) {
+        modified();
         var1 = checkSpec(var1);
         var2 = checkSpec(var2);
 
@@ -737,6 +789,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void setKnowledgeGroup(int index, KnowledgeGroup group) {
+        modified();
         OrderedPair<Set<String>> o = getGroupRule(group);
         OrderedPair<Set<String>> old = knowledgeGroupRules.get(knowledgeGroups.get(index));
 
@@ -760,6 +813,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void setTier(int tier, List<String> vars) {
+        modified();
         ensureTiers(tier);
         Set<String> varsInTier = tierSpecs.get(tier);
         if (varsInTier != null) {
@@ -778,6 +832,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public void setTierForbiddenWithin(int tier, boolean forbidden) {
+        modified();
         ensureTiers(tier);
         Set<String> varsInTier = tierSpecs.get(tier);
 
@@ -827,17 +882,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
      */
     @Override
     public int isInWhichTier(Node node) {
-        for (int i = 0; i < tierSpecs.size(); i++) {
-            Set<String> tier = tierSpecs.get(i);
-
-            for (String myNode : tier) {
-                if (myNode.equals(node.getName())) {
-                    return i;
-                }
-            }
-        }
-
-        return -1;
+        return compiled().getTier(node.getName());
     } // added by DMalinsky for tsFCI on 4/20/16
 
     @Override
@@ -926,6 +971,7 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
 
     @Override
     public void setOnlyCanCauseNextTier(int tier, boolean onlyCausesNext) {
+        modified();
         ensureTiers(tier);
 
         Set<String> varsInTier = tierSpecs.get(tier);
@@ -949,6 +995,27 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
         return new Knowledge2();
     }
 
+    /**
+     * Adds semantic checks to the default deserialization method. This
+     * method must have the standard signature for a readObject method, and
+     * the body of the method must begin with "s.defaultReadObject();".
+     * Other than that, any semantic checks can be specified and do not need
+     * to stay the same from version to version. A readObject method of this
+     * form may be added to any class, even if Tetrad sessions were
+     * previously saved out using a version of the class that didn't include
+     * it. (That's what the "s.defaultReadObject();" is for. See J. Bloch,
+     * Effective Java, for help.
+     *
+     * @throws java.io.IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        modifications = new AtomicInteger();
+    }
+
     /**
      * Computes a hashcode.
      */
@@ -995,4 +1062,14 @@ public final class Knowledge2 implements TetradSerializable, IKnowledge {
         }
     }
 
+    private static class Snapshot {
+        private final int version;
+        private final CompiledKnowledge compiled;
+
+        private Snapshot(int version, CompiledKnowledge compiled) {
+            this.version = version;
+            this.compiled = compiled;
+        }
+    }
+
 }
@@ -0,0 +1,671 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ComputeExecutor;
+import edu.cmu.tetrad.util.Matrix;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A covariance matrix over a continuous data set whose entries are computed
+ * only when asked for, for data with too many variables for the full matrix
+ * to be held. Entries are computed a block of 64 x 64 variables at a time
+ * from the columns of the data and kept in a bounded cache; when the cache is
+ * full, the least recently used blocks are dropped and recomputed if needed
+ * again. Searches over sparse data, such as FGES with SemBicScore or PC-style
+ * searches with IndTestFisherZ, ask for few of the entries, and so compute
+ * few of the blocks.
+ * <p>
+ * A search that knows which variables it is about to expand can call
+ * prefetch() to have their blocks computed in the background on the shared
+ * compute pool.
+ * <p>
+ * The columns of a VerticalDoubleDataBox are used in place, and those of a
+ * MemoryMappedDataBox are read from the file as needed; other data is copied
+ * into columns once. getMatrix() computes every entry and should be avoided
+ * for wide data. As for CovarianceMatrix, covariances involving missing
+ * values are NaN.
+ *
+ * @author Joseph Ramsey
+ * @see edu.cmu.tetrad.data.CovarianceMatrix
+ */
+public class LazyCovarianceMatrix implements ICovarianceMatrix {
+    static final long serialVersionUID = 23L;
+
+    /**
+     * The number of variables on a side of a block.
+     */
+    private static final int BLOCK_SIZE = 64;
+
+    /**
+     * The maximum number of separately locked segments of the cache.
+     */
+    private static final int NUM_SEGMENTS = 64;
+
+    /**
+     * The name of the covariance matrix.
+     *
+     * @serial May be null.
+     */
+    private String name;
+
+    /**
+     * The data the covariances are computed from.
+     *
+     * @serial Cannot be null.
+     */
+    private final DataSet dataSet;
+
+    /**
+     * The variables (in order) for this covariance matrix.
+     *
+     * @serial Cannot be null.
+     */
+    private List<Node> variables;
+
+    /**
+     * True if covariances are divided by n - 1 rather than n.
+     *
+     * @serial
+     */
+    private final boolean biasCorrected;
+
+    /**
+     * The maximum number of blocks cached.
+     *
+     * @serial Range > 0.
+     */
+    private final int maxBlocks;
+
+    /**
+     * The list of selected variables.
+     *
+     * @serial Cannot be null.
+     */
+    private Set<Node> selectedVariables = new HashSet<>();
+
+    /**
+     * The knowledge for this data.
+     *
+     * @serial Cannot be null.
+     */
+    private IKnowledge knowledge = new Knowledge2();
+
+    // The columns of the data, or null if they are read from a mapped data box.
+    private transient double[][] columns;
+    private transient MemoryMappedDataBox mappedBox;
+    private transient double[] means;
+    private transient Segment[] segments;
+    private transient Set<Long> pending;
+    private transient AtomicLong blocksComputed;
+
+    //=============================CONSTRUCTORS=========================//
+
+    /**
+     * Constructs bias-corrected covariances over the given continuous data
+     * set, caching up to 4096 blocks (128 MB).
+     */
+    public LazyCovarianceMatrix(DataSet dataSet) {
+        this(dataSet, true, 4096);
+    }
+
+    /**
+     * Constructs covariances over the given continuous data set.
+     *
+     * @param biasCorrected True if covariances should be divided by n - 1
+     *                      rather than n.
+     * @param maxBlocks     The maximum number of 64 x 64 blocks of covariances
+     *                      to cache, 32 KB each.
+     */
+    public LazyCovarianceMatrix(DataSet dataSet, boolean biasCorrected, int maxBlocks) {
+        if (!dataSet.isContinuous()) {
+            throw new IllegalArgumentException("Not a continuous data set.");
+        }
+
+        if (maxBlocks < 1) {
+            throw new IllegalArgumentException("The cache must hold at least one block: " + maxBlocks);
+        }
+
+        this.dataSet = dataSet;
+        this.variables = Collections.unmodifiableList(dataSet.getVariables());
+        this.biasCorrected = biasCorrected;
+        this.maxBlocks = maxBlocks;
+
+        initialize();
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static LazyCovarianceMatrix serializableInstance() {
+        List<Node> variables = new ArrayList<>();
+        variables.add(new ContinuousVariable("X"));
+        DataSet dataSet = new BoxDataSet(new VerticalDoubleDataBox(new double[][]{{1.0, 2.0}}), variables);
+        return new LazyCovarianceMatrix(dataSet);
+    }
+
+    //============================PUBLIC METHODS=========================//
+
+    /**
+     * Starts computing, in the background, the blocks of covariances between
+     * the given variables and all variables that are not already cached.
+     *
+     * @param indices The indices of the variables.
+     */
+    public void prefetch(int... indices) {
+        int numBlocks = numBlocks();
+        Set<Integer> rowBlocks = new TreeSet<>();
+
+        for (int i : indices) {
+            rowBlocks.add(i / BLOCK_SIZE);
+        }
+
+        for (int bi : rowBlocks) {
+            for (int bj = 0; bj < numBlocks; bj++) {
+                final int _bi = Math.min(bi, bj);
+                final int _bj = Math.max(bi, bj);
+                final long key = key(_bi, _bj);
+
+                if (segment(key).get(key) == null && pending.add(key)) {
+                    ComputeExecutor.getInstance().getPool().execute(() -> {
+                        try {
+                            getBlock(_bi, _bj);
+                        } finally {
+                            pending.remove(key);
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts computing, in the background, the blocks of covariances between
+     * the given variables and all variables that are not already cached.
+     */
+    public void prefetch(List<Node> variables) {
+        int[] indices = new int[variables.size()];
+
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = this.variables.indexOf(variables.get(i));
+        }
+
+        prefetch(indices);
+    }
+
+    /**
+     * @return the number of blocks computed so far, counting blocks computed
+     * again after being dropped from the cache.
+     */
+    public long getNumBlocksComputed() {
+        return blocksComputed.get();
+    }
+
+    /**
+     * @return the list of variables (unmodifiable).
+     */
+    public final List<Node> getVariables() {
+        return this.variables;
+    }
+
+    /**
+     * @return the variable names, in order.
+     */
+    public final List<String> getVariableNames() {
+        List<String> names = new ArrayList<>();
+
+        for (Node variable : getVariables()) {
+            names.add(variable.getName());
+        }
+
+        return names;
+    }
+
+    /**
+     * @return the variable name at the given index.
+     */
+    public final String getVariableName(int index) {
+        if (index >= getVariables().size()) {
+            throw new IllegalArgumentException("Index out of range: " + index);
+        }
+
+        return getVariables().get(index).getName();
+    }
+
+    /**
+     * @return the dimension of the covariance matrix.
+     */
+    public final int getDimension() {
+        return variables.size();
+    }
+
+    /**
+     * @return the number of rows of the data.
+     */
+    public final int getSampleSize() {
+        return dataSet.getNumRows();
+    }
+
+    /**
+     * Gets the name of the covariance matrix.
+     */
+    public final String getName() {
+        return this.name;
+    }
+
+    /**
+     * Sets the name of the covariance matrix.
+     */
+    public final void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the knowledge associated with this data.
+     */
+    public final IKnowledge getKnowledge() {
+        return this.knowledge.copy();
+    }
+
+    /**
+     * Associates knowledge with this data.
+     */
+    public final void setKnowledge(IKnowledge knowledge) {
+        if (knowledge == null) {
+            throw new NullPointerException();
+        }
+
+        this.knowledge = knowledge.copy();
+    }
+
+    /**
+     * @return a submatrix of the covariance matrix with variables in the given
+     * order, computing only the entries needed.
+     */
+    public final ICovarianceMatrix getSubmatrix(int[] indices) {
+        List<Node> submatrixVars = new LinkedList<>();
+
+        for (int index : indices) {
+            submatrixVars.add(variables.get(index));
+        }
+
+        return new CovarianceMatrix(submatrixVars, getSelection(indices, indices), getSampleSize());
+    }
+
+    public final ICovarianceMatrix getSubmatrix(List<String> submatrixVarNames) {
+        return getSubmatrix(submatrixVarNames.toArray(new String[0]));
+    }
+
+    /**
+     * @return a submatrix of this matrix, with variables in the given order.
+     */
+    public final ICovarianceMatrix getSubmatrix(String[] submatrixVarNames) {
+        List<String> names = getVariableNames();
+        int[] indices = new int[submatrixVarNames.length];
+
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = names.indexOf(submatrixVarNames[i]);
+
+            if (indices[i] == -1) {
+                throw new IllegalArgumentException("The variables in the submatrix must be in the original matrix: "
+                        + submatrixVarNames[i]);
+            }
+        }
+
+        return getSubmatrix(indices);
+    }
+
+    /**
+     * @return the value of element (i,j) in the matrix, computing its block if
+     * it is not cached.
+     */
+    public final double getValue(int i, int j) {
+        if (i > j) {
+            int t = i;
+            i = j;
+            j = t;
+        }
+
+        int bi = i / BLOCK_SIZE;
+        int bj = j / BLOCK_SIZE;
+
+        return getBlock(bi, bj)[(i - bi * BLOCK_SIZE) * BLOCK_SIZE + (j - bj * BLOCK_SIZE)];
+    }
+
+    public void setMatrix(Matrix matrix) {
+        throw new IllegalStateException();
+    }
+
+    public final void setSampleSize(int sampleSize) {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * @return the size of the square matrix.
+     */
+    public final int getSize() {
+        return variables.size();
+    }
+
+    /**
+     * @return the full covariance matrix. This computes every entry; for wide
+     * data use getValue() or getSelection() instead.
+     */
+    public final Matrix getMatrix() {
+        int[] all = new int[variables.size()];
+        for (int i = 0; i < all.length; i++) all[i] = i;
+        return getSelection(all, all);
+    }
+
+    public final void select(Node variable) {
+        if (variables.contains(variable)) {
+            selectedVariables.add(variable);
+        }
+    }
+
+    public final void clearSelection() {
+        selectedVariables.clear();
+    }
+
+    public final boolean isSelected(Node variable) {
+        if (variable == null) {
+            throw new NullPointerException("Null variable. Try again.");
+        }
+
+        return selectedVariables.contains(variable);
+    }
+
+    public final List<String> getSelectedVariableNames() {
+        List<String> selectedVariableNames = new LinkedList<>();
+
+        for (Node variable : selectedVariables) {
+            selectedVariableNames.add(variable.getName());
+        }
+
+        return selectedVariableNames;
+    }
+
+    /**
+     * Prints out the matrix. This computes every entry.
+     */
+    public final String toString() {
+        return new CovarianceMatrix(getVariables(), getMatrix(), getSampleSize()).toString();
+    }
+
+    @Override
+    public boolean isContinuous() {
+        return true;
+    }
+
+    @Override
+    public boolean isDiscrete() {
+        return false;
+    }
+
+    @Override
+    public boolean isMixed() {
+        return false;
+    }
+
+    public void setVariables(List<Node> variables) {
+        if (variables.size() != this.variables.size()) {
+            throw new IllegalArgumentException("Wrong # of variables.");
+        }
+
+        for (int i = 0; i < variables.size(); i++) {
+            if (!variables.get(i).getName().equals(this.variables.get(i).getName())) {
+                throw new IllegalArgumentException("Variable in index " + (i + 1) + " does not have the same name "
+                        + "as the variable being substituted for it.");
+            }
+        }
+
+        this.variables = Collections.unmodifiableList(new ArrayList<>(variables));
+    }
+
+    /**
+     * @return the covariances of the given rows and columns, computing only
+     * the entries needed.
+     */
+    @Override
+    public Matrix getSelection(int[] rows, int[] cols) {
+        Matrix selection = new Matrix(rows.length, cols.length);
+
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < cols.length; j++) {
+                selection.set(i, j, getValue(rows[i], cols[j]));
+            }
+        }
+
+        return selection;
+    }
+
+    public Node getVariable(String name) {
+        for (Node variable : getVariables()) {
+            if (name.equals(variable.getName())) {
+                return variable;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public DataModel copy() {
+        return null;
+    }
+
+    @Override
+    public void setValue(int i, int j, double v) {
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public void removeVariables(List<String> remaining) {
+        throw new IllegalStateException();
+    }
+
+    //========================PRIVATE METHODS============================//
+
+    private void initialize() {
+        DataBox dataBox = dataSet instanceof BoxDataSet ? ((BoxDataSet) dataSet).getDataBox() : null;
+        int n = dataSet.getNumRows();
+        int p = variables.size();
+
+        if (dataBox instanceof MemoryMappedDataBox) {
+            this.mappedBox = (MemoryMappedDataBox) dataBox;
+        } else if (dataBox instanceof VerticalDoubleDataBox) {
+            this.columns = ((VerticalDoubleDataBox) dataBox).getVariableVectors();
+        } else {
+            this.columns = new double[p][n];
+
+            for (int j = 0; j < p; j++) {
+                for (int k = 0; k < n; k++) {
+                    columns[j][k] = dataSet.getDouble(k, j);
+                }
+            }
+        }
+
+        this.means = new double[p];
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int j = 0; j < p; j++) {
+            final int _j = j;
+
+            tasks.add(() -> {
+                double[] column = getColumns(_j, _j + 1)[0];
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) sum += column[k];
+                means[_j] = sum / n;
+                return null;
+            });
+        }
+
+        ComputeExecutor.getInstance().invokeAll(tasks);
+
+        this.segments = new Segment[Math.min(NUM_SEGMENTS, maxBlocks)];
+        int capacity = maxBlocks / segments.length;
+
+        for (int s = 0; s < segments.length; s++) {
+            segments[s] = new Segment(capacity);
+        }
+
+        this.pending = ConcurrentHashMap.newKeySet();
+        this.blocksComputed = new AtomicLong();
+    }
+
+    private int numBlocks() {
+        return (variables.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    private long key(int bi, int bj) {
+        return (long) bi * numBlocks() + bj;
+    }
+
+    private Segment segment(long key) {
+        return segments[(int) (key % segments.length)];
+    }
+
+    /**
+     * @return the block of covariances between the variables of row block bi
+     * and column block bj, bi <= bj, computing it if it is not cached.
+     * Threads asking for the same missing block at once may each compute it.
+     */
+    private double[] getBlock(int bi, int bj) {
+        long key = key(bi, bj);
+        Segment segment = segment(key);
+        double[] block = segment.get(key);
+
+        if (block == null) {
+            block = computeBlock(bi, bj);
+            segment.put(key, block);
+        }
+
+        return block;
+    }
+
+    private double[] computeBlock(int bi, int bj) {
+        int p = variables.size();
+        int n = dataSet.getNumRows();
+        int r0 = bi * BLOCK_SIZE, r1 = Math.min(p, r0 + BLOCK_SIZE);
+        int c0 = bj * BLOCK_SIZE, c1 = Math.min(p, c0 + BLOCK_SIZE);
+        double[][] x = getColumns(r0, r1);
+        double[][] y = bi == bj ? x : getColumns(c0, c1);
+        double divisor = biasCorrected ? n - 1 : n;
+        double[] block = new double[BLOCK_SIZE * BLOCK_SIZE];
+
+        for (int r = r0; r < r1; r++) {
+            double[] _x = x[r - r0];
+            double mx = means[r];
+
+            for (int c = bi == bj ? r : c0; c < c1; c++) {
+                double[] _y = y[c - c0];
+                double my = means[c];
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) sum += (_x[k] - mx) * (_y[k] - my);
+                block[(r - r0) * BLOCK_SIZE + (c - c0)] = sum / divisor;
+
+                if (bi == bj) {
+                    block[(c - c0) * BLOCK_SIZE + (r - r0)] = sum / divisor;
+                }
+            }
+        }
+
+        blocksComputed.incrementAndGet();
+        return block;
+    }
+
+    /**
+     * @return the columns from..to - 1 of the data, read from the file if the
+     * data is mapped.
+     */
+    private double[][] getColumns(int from, int to) {
+        if (columns != null) {
+            return Arrays.copyOfRange(columns, from, to);
+        }
+
+        double[][] _columns = new double[to - from][dataSet.getNumRows()];
+
+        for (int j = from; j < to; j++) {
+            mappedBox.getColumn(j, _columns[j - from]);
+        }
+
+        return _columns;
+    }
+
+    // An access-ordered map holding one slice of the cache, evicting its eldest entry when full.
+    private static class Segment {
+        private final LinkedHashMap<Long, double[]> map;
+
+        Segment(final int capacity) {
+            this.map = new LinkedHashMap<Long, double[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized double[] get(long key) {
+            return map.get(key);
+        }
+
+        synchronized void put(long key, double[] block) {
+            map.put(key, block);
+        }
+    }
+
+    /**
+     * Adds semantic checks to the default deserialization method. This method
+     * must have the standard signature for a readObject method, and the body of
+     * the method must begin with "s.defaultReadObject();". Other than that, any
+     * semantic checks can be specified and do not need to stay the same from
+     * version to version. A readObject method of this form may be added to any
+     * class, even if Tetrad sessions were previously saved out using a version
+     * of the class that didn't include it. (That's what the
+     * "s.defaultReadObject();" is for. See J. Bloch, Effective Java, for help.
+     */
+    private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        if (dataSet == null || variables == null) {
+            throw new NullPointerException();
+        }
+
+        if (knowledge == null) {
+            throw new NullPointerException();
+        }
+
+        if (selectedVariables == null) {
+            selectedVariables = new HashSet<>();
+        }
+
+        initialize();
+    }
+}
@@ -0,0 +1,437 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.NodeVariableType;
+import edu.cmu.tetrad.util.ComputeExecutor;
+import edu.cmu.tetrad.util.TetradSerializableExcluded;
+import edu.pitt.dbmi.data.reader.binary.ColumnarBinaryFile;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Stores continuous, discrete or mixed data in a memory-mapped columnar binary
+ * file (see ColumnarBinaryFile), so that data sets larger than the heap can be
+ * searched over and saved data sets can be loaded without parsing. The
+ * operating system pages columns in and out as they are read; nothing is held
+ * on the heap but the row and column selection.
+ * <p>
+ * The box is read-only. Selections are views onto the same file; copy() and
+ * like() return heap data boxes. Covariances are taken from the file if they
+ * were saved with it, and otherwise computed by streaming columns, a block at
+ * a time, without materializing the data.
+ *
+ * @author Joseph Ramsey
+ */
+public class MemoryMappedDataBox implements DataBox, TetradSerializableExcluded {
+    static final long serialVersionUID = 23L;
+
+    /**
+     * The heap budget, in bytes, for columns held at once by covariances().
+     */
+    private static final long BLOCK_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The path of the binary file.
+     */
+    private final String path;
+
+    /**
+     * The selected rows of the file, or null if all rows are selected.
+     */
+    private final int[] rows;
+
+    /**
+     * The selected columns of the file, or null if all columns are selected.
+     */
+    private final int[] cols;
+
+    /**
+     * The mapped file. Mappings stay valid after the file is closed, so the
+     * file is closed as soon as it is mapped.
+     */
+    private transient ColumnarBinaryFile file;
+
+    /**
+     * Maps the given columnar binary file.
+     */
+    public MemoryMappedDataBox(Path path) throws IOException {
+        this.path = path.toString();
+        this.file = map(path);
+        this.rows = null;
+        this.cols = null;
+    }
+
+    private MemoryMappedDataBox(String path, ColumnarBinaryFile file, int[] rows, int[] cols) {
+        this.path = path;
+        this.file = file;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * @return the number of rows in this data box.
+     */
+    public int numRows() {
+        return rows == null ? file.getNumberOfRows() : rows.length;
+    }
+
+    /**
+     * @return the number of columns in this data box.
+     */
+    public int numCols() {
+        return cols == null ? file.getNumberOfColumns() : cols.length;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always; mapped data is read-only.
+     */
+    public void set(int row, int col, Number value) {
+        throw new UnsupportedOperationException("Memory-mapped data is read-only; copy it first to edit it.");
+    }
+
+    /**
+     * @return the Number value at the given row and column. Missing values
+     * are Double.NaN in continuous columns and null in discrete columns.
+     */
+    public Number get(int row, int col) {
+        int _col = cols == null ? col : cols[col];
+
+        if (file.isDiscrete(_col)) {
+            int value = file.getInt(rows == null ? row : rows[row], _col);
+            return value == -99 ? null : value;
+        }
+
+        return getDouble(row, col);
+    }
+
+    /**
+     * @return the value at the given row and column, without boxing. Values
+     * of discrete columns are category indices, Double.NaN if missing.
+     */
+    public double getDouble(int row, int col) {
+        return file.getDouble(rows == null ? row : rows[row], cols == null ? col : cols[col]);
+    }
+
+    /**
+     * Copies the given column into the given array, which must be at least
+     * numRows() long.
+     */
+    public void getColumn(int col, double[] values) {
+        int _col = cols == null ? col : cols[col];
+
+        if (rows == null) {
+            file.readColumn(_col, values);
+        } else {
+            for (int i = 0; i < rows.length; i++) {
+                values[i] = file.getDouble(rows[i], _col);
+            }
+        }
+    }
+
+    /**
+     * Copies the given discrete column into the given array, which must be at
+     * least numRows() long. Missing values are -99.
+     */
+    public void getColumn(int col, int[] values) {
+        int _col = cols == null ? col : cols[col];
+
+        if (rows == null) {
+            file.readColumn(_col, values);
+        } else {
+            for (int i = 0; i < rows.length; i++) {
+                values[i] = file.getInt(rows[i], _col);
+            }
+        }
+    }
+
+    /**
+     * @return a heap copy of this data box--a VerticalDoubleDataBox if all
+     * columns are continuous, a VerticalIntDataBox if all are discrete and a
+     * MixedDataBox otherwise.
+     */
+    public DataBox copy() {
+        double[][] continuousData = new double[numCols()][];
+        int[][] discreteData = new int[numCols()][];
+        int numDiscrete = 0;
+
+        for (int j = 0; j < numCols(); j++) {
+            if (isDiscrete(j)) {
+                discreteData[j] = new int[numRows()];
+                getColumn(j, discreteData[j]);
+                numDiscrete++;
+            } else {
+                continuousData[j] = new double[numRows()];
+                getColumn(j, continuousData[j]);
+            }
+        }
+
+        if (numDiscrete == 0) {
+            return new VerticalDoubleDataBox(continuousData);
+        } else if (numDiscrete == numCols()) {
+            return new VerticalIntDataBox(discreteData);
+        } else {
+            return new MixedDataBox(getVariables(), numRows(), continuousData, discreteData);
+        }
+    }
+
+    /**
+     * @return a view onto the given rows and columns of this data box.
+     */
+    public DataBox viewSelection(int[] rows, int[] cols) {
+        int[] _rows = new int[rows.length];
+        int[] _cols = new int[cols.length];
+
+        for (int i = 0; i < rows.length; i++) _rows[i] = this.rows == null ? rows[i] : this.rows[rows[i]];
+        for (int j = 0; j < cols.length; j++) _cols[j] = this.cols == null ? cols[j] : this.cols[cols[j]];
+
+        return new MemoryMappedDataBox(path, file, _rows, _cols);
+    }
+
+    /**
+     * @return an empty heap data box with the dimensions and column types of
+     * this one.
+     */
+    public DataBox like() {
+        int numDiscrete = 0;
+
+        for (int j = 0; j < numCols(); j++) {
+            if (isDiscrete(j)) numDiscrete++;
+        }
+
+        if (numDiscrete == 0) {
+            return new VerticalDoubleDataBox(numRows(), numCols());
+        } else if (numDiscrete == numCols()) {
+            return new VerticalIntDataBox(numRows(), numCols());
+        } else {
+            return new MixedDataBox(getVariables(), numRows());
+        }
+    }
+
+    /**
+     * @return the covariance matrix of the columns. If covariances over all
+     * rows were saved with the file they are read from it; otherwise they are
+     * computed in one pass over the file per block of columns. Column blocks
+     * are kept within a fixed heap budget; the work for each block is spread
+     * over the shared compute pool. As for heap data, covariances involving
+     * missing values are NaN.
+     */
+    public double[][] covariances(boolean biasCorrected) {
+        final int n = numRows();
+        final int p = numCols();
+
+        if (rows == null && file.hasCovariances() && file.getCovarianceSampleSize() == n) {
+            return storedCovariances(biasCorrected);
+        }
+        final double[] means = new double[p];
+        final double[][] cov = new double[p][p];
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int j = 0; j < p; j++) {
+            final int _j = j;
+
+            tasks.add(() -> {
+                double[] column = new double[n];
+                getColumn(_j, column);
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) sum += column[k];
+                means[_j] = sum / n;
+                return null;
+            });
+        }
+
+        ComputeExecutor executor = ComputeExecutor.getInstance();
+        executor.invokeAll(tasks);
+
+        final double divisor = biasCorrected ? n - 1 : n;
+        final int blockSize = (int) Math.max(1, Math.min(p, BLOCK_BYTES / Math.max(1, 8L * n)));
+        final int chunks = 4 * executor.getParallelism();
+
+        for (int start = 0; start < p; start += blockSize) {
+            final int from = start;
+            final int to = Math.min(p, start + blockSize);
+            final double[][] block = new double[to - from][n];
+
+            tasks.clear();
+
+            for (int i = from; i < to; i++) {
+                final int _i = i;
+
+                tasks.add(() -> {
+                    getColumn(_i, block[_i - from]);
+                    center(block[_i - from], means[_i]);
+                    return null;
+                });
+            }
+
+            executor.invokeAll(tasks);
+
+            // Each later column is read once and dotted against the block.
+            tasks.clear();
+            final int chunk = Math.max(1, (p - from + chunks - 1) / chunks);
+
+            for (int c = from; c < p; c += chunk) {
+                final int _from = c;
+                final int _to = Math.min(p, c + chunk);
+
+                tasks.add(() -> {
+                    double[] column = new double[n];
+
+                    for (int j = _from; j < _to; j++) {
+                        double[] y;
+
+                        if (j < to) {
+                            y = block[j - from];
+                        } else {
+                            getColumn(j, column);
+                            center(column, means[j]);
+                            y = column;
+                        }
+
+                        for (int i = from; i < to && i <= j; i++) {
+                            double[] x = block[i - from];
+                            double sum = 0.0;
+                            for (int k = 0; k < n; k++) sum += x[k] * y[k];
+                            cov[i][j] = sum / divisor;
+                            cov[j][i] = cov[i][j];
+                        }
+                    }
+
+                    return null;
+                });
+            }
+
+            executor.invokeAll(tasks);
+        }
+
+        return cov;
+    }
+
+    /**
+     * @return the selected columns of the saved covariance matrix. Saved
+     * covariances are bias-corrected, so they are rescaled if biased
+     * covariances are asked for.
+     */
+    private double[][] storedCovariances(boolean biasCorrected) {
+        int n = numRows();
+        int p = numCols();
+        double scale = biasCorrected ? 1.0 : (n - 1) / (double) n;
+        double[] row = new double[file.getNumberOfColumns()];
+        double[][] cov = new double[p][p];
+
+        for (int i = 0; i < p; i++) {
+            file.readCovariances(cols == null ? i : cols[i], row);
+
+            for (int j = 0; j < p; j++) {
+                cov[i][j] = row[cols == null ? j : cols[j]] * scale;
+            }
+        }
+
+        return cov;
+    }
+
+    /**
+     * @return the variables of the selected columns, with the names,
+     * categories and variable types stored in the file.
+     */
+    public List<Node> getVariables() {
+        List<Node> variables = new ArrayList<>();
+
+        for (int j = 0; j < numCols(); j++) {
+            int _col = cols == null ? j : cols[j];
+            String name = file.getColumnNames().get(_col);
+            Node variable = file.isDiscrete(_col)
+                    ? new DiscreteVariable(name, file.getCategories(_col))
+                    : new ContinuousVariable(name);
+            variable.setNodeVariableType(NodeVariableType.valueOf(file.getVariableType(_col).name()));
+            variables.add(variable);
+        }
+
+        return variables;
+    }
+
+    /**
+     * @return the knowledge saved with the file, in the text format of
+     * DataWriter.saveKnowledge(), or null if none was saved.
+     */
+    public String getKnowledge() {
+        return file.getKnowledge();
+    }
+
+    /**
+     * @return the names of the selected columns, as stored in the file.
+     */
+    public List<String> getColumnNames() {
+        List<String> names = new ArrayList<>();
+
+        for (int j = 0; j < numCols(); j++) {
+            names.add(file.getColumnNames().get(cols == null ? j : cols[j]));
+        }
+
+        return names;
+    }
+
+    /**
+     * @return the path of the mapped file.
+     */
+    public Path getPath() {
+        return Paths.get(path);
+    }
+
+    private boolean isDiscrete(int col) {
+        return file.isDiscrete(cols == null ? col : cols[col]);
+    }
+
+    private static void center(double[] column, double mean) {
+        for (int k = 0; k < column.length; k++) column[k] -= mean;
+    }
+
+    private static ColumnarBinaryFile map(Path path) throws IOException {
+        try (ColumnarBinaryFile file = ColumnarBinaryFile.open(path)) {
+            return file;
+        }
+    }
+
+    /**
+     * Adds semantic checks to the default deserialization method. This method
+     * must have the standard signature for a readObject method, and the body of
+     * the method must begin with "s.defaultReadObject();". Other than that, any
+     * semantic checks can be specified and do not need to stay the same from
+     * version to version. A readObject method of this form may be added to any
+     * class, even if Tetrad sessions were previously saved out using a version
+     * of the class that didn't include it. (That's what the
+     * "s.defaultReadObject();" is for. See J. Bloch, Effective Java, for help.
+     */
+    private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        this.file = map(Paths.get(path));
+    }
+}
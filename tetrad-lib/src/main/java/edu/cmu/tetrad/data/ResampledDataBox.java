@@ -0,0 +1,333 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.util.ComputeExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * A resample of the rows of another data box--a bootstrap sample or a
+ * subsample--held as the rows drawn rather than as a copy of the data. Each
+ * distinct row drawn is stored once with the number of times it was drawn,
+ * so covariances are computed in one weighted pass over those rows.
+ * <p>
+ * The underlying box is never modified. The first call to set() copies the
+ * resample onto the heap, and later calls edit the copy, so algorithms that
+ * edit their data see the same behavior as for a copied resample.
+ *
+ * @author Joseph Ramsey
+ */
+public class ResampledDataBox implements DataBox {
+    static final long serialVersionUID = 23L;
+
+    /**
+     * The data box resampled from.
+     */
+    private final DataBox dataBox;
+
+    /**
+     * The rows of the underlying box, in the order drawn.
+     */
+    private final int[] rows;
+
+    /**
+     * The selected columns of the underlying box, or null if all columns are
+     * selected.
+     */
+    private final int[] cols;
+
+    /**
+     * The distinct rows drawn, in increasing order.
+     */
+    private final int[] support;
+
+    /**
+     * The number of times each row in support was drawn.
+     */
+    private final int[] multiplicities;
+
+    /**
+     * The heap copy of the resample, made the first time it is edited; null
+     * until then.
+     */
+    private volatile DataBox edited;
+
+    /**
+     * Constructs a resample of all columns of the given rows of the given
+     * data box. Rows may repeat.
+     */
+    public ResampledDataBox(DataBox dataBox, int[] rows) {
+        this(dataBox, rows, null);
+    }
+
+    private ResampledDataBox(DataBox dataBox, int[] rows, int[] cols) {
+        if (dataBox == null) {
+            throw new NullPointerException("Data box not provided.");
+        }
+
+        int[] counts = new int[dataBox.numRows()];
+        int numDistinct = 0;
+
+        for (int row : rows) {
+            if (counts[row]++ == 0) numDistinct++;
+        }
+
+        this.dataBox = dataBox;
+        this.rows = rows;
+        this.cols = cols;
+        this.support = new int[numDistinct];
+        this.multiplicities = new int[numDistinct];
+
+        for (int i = 0, k = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                support[k] = i;
+                multiplicities[k++] = counts[i];
+            }
+        }
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static ResampledDataBox serializableInstance() {
+        return new ResampledDataBox(new VerticalDoubleDataBox(new double[][]{{1.0, 2.0}}), new int[]{1, 1, 0});
+    }
+
+    /**
+     * @return the number of rows in this data box.
+     */
+    public int numRows() {
+        return rows.length;
+    }
+
+    /**
+     * @return the number of columns in this data box.
+     */
+    public int numCols() {
+        return cols == null ? dataBox.numCols() : cols.length;
+    }
+
+    /**
+     * Sets the value at the given row and column, copying the resample onto
+     * the heap first if it has not yet been edited.
+     */
+    public synchronized void set(int row, int col, Number value) {
+        if (edited == null) {
+            edited = copy();
+        }
+
+        edited.set(row, col, value);
+    }
+
+    /**
+     * @return the Number value at the given row and column. If the value is
+     * missing, null is returned.
+     */
+    public Number get(int row, int col) {
+        DataBox edited = this.edited;
+
+        if (edited != null) {
+            return edited.get(row, col);
+        }
+
+        return dataBox.get(rows[row], cols == null ? col : cols[col]);
+    }
+
+    /**
+     * @return a heap copy of this data box.
+     */
+    public DataBox copy() {
+        DataBox edited = this.edited;
+
+        if (edited != null) {
+            return edited.copy();
+        }
+
+        // Heap boxes copy their selections; mapped boxes return views onto the file.
+        DataBox selection = dataBox.viewSelection(rows, selectedColumns());
+        return selection instanceof MemoryMappedDataBox ? selection.copy() : selection;
+    }
+
+    /**
+     * @return a resample of the given rows and columns of this one, still
+     * backed by the underlying data box unless this one has been edited.
+     */
+    public DataBox viewSelection(int[] rows, int[] cols) {
+        DataBox edited = this.edited;
+
+        if (edited != null) {
+            return edited.viewSelection(rows, cols);
+        }
+
+        int[] _rows = new int[rows.length];
+        int[] _cols = new int[cols.length];
+
+        for (int i = 0; i < rows.length; i++) _rows[i] = this.rows[rows[i]];
+        for (int j = 0; j < cols.length; j++) _cols[j] = this.cols == null ? cols[j] : this.cols[cols[j]];
+
+        return new ResampledDataBox(dataBox, _rows, _cols);
+    }
+
+    /**
+     * @return a heap data box with the dimensions and column types of this
+     * one, made from the resampled rows of the underlying box's like().
+     */
+    public DataBox like() {
+        DataBox edited = this.edited;
+
+        if (edited != null) {
+            return edited.like();
+        }
+
+        return dataBox.like().viewSelection(rows, selectedColumns());
+    }
+
+    /**
+     * @return true if the resample has been copied onto the heap by an edit.
+     */
+    public boolean isEdited() {
+        return edited != null;
+    }
+
+    /**
+     * @return the number of times each row of the underlying data box was
+     * drawn.
+     */
+    public int[] getMultiplicities() {
+        int[] counts = new int[dataBox.numRows()];
+
+        for (int k = 0; k < support.length; k++) {
+            counts[support[k]] = multiplicities[k];
+        }
+
+        return counts;
+    }
+
+    /**
+     * @return the covariance matrix of the columns of the resample, computed
+     * from the distinct rows drawn, each weighted by the number of times it was
+     * drawn, without copying the resample. The work is spread over the shared
+     * compute pool. As for heap data, covariances involving missing values are
+     * NaN.
+     * @throws IllegalStateException if the resample has been edited.
+     */
+    public double[][] covariances(boolean biasCorrected) {
+        if (isEdited()) {
+            throw new IllegalStateException("The resample has been edited; compute covariances from its data.");
+        }
+
+        final int n = numRows();
+        final int p = numCols();
+        final double[][] columns = new double[p][];
+        final double[] means = new double[p];
+        final double[][] cov = new double[p][p];
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int j = 0; j < p; j++) {
+            final int _j = j;
+
+            tasks.add(() -> {
+                columns[_j] = column(_j);
+                double sum = 0.0;
+                for (int k = 0; k < support.length; k++) sum += multiplicities[k] * columns[_j][k];
+                means[_j] = sum / n;
+                return null;
+            });
+        }
+
+        ComputeExecutor executor = ComputeExecutor.getInstance();
+        executor.invokeAll(tasks);
+
+        final double divisor = biasCorrected ? n - 1 : n;
+        tasks.clear();
+
+        for (int i = 0; i < p; i++) {
+            final int _i = i;
+
+            tasks.add(() -> {
+                double[] x = columns[_i];
+                double mx = means[_i];
+
+                for (int j = _i; j < p; j++) {
+                    double[] y = columns[j];
+                    double my = means[j];
+                    double sum = 0.0;
+
+                    for (int k = 0; k < support.length; k++) {
+                        sum += multiplicities[k] * (x[k] - mx) * (y[k] - my);
+                    }
+
+                    cov[_i][j] = sum / divisor;
+                    cov[j][_i] = cov[_i][j];
+                }
+
+                return null;
+            });
+        }
+
+        executor.invokeAll(tasks);
+        return cov;
+    }
+
+    //=============================PRIVATE METHODS=======================//
+
+    private int[] selectedColumns() {
+        if (cols != null) return cols;
+        int[] _cols = new int[dataBox.numCols()];
+        for (int j = 0; j < _cols.length; j++) _cols[j] = j;
+        return _cols;
+    }
+
+    /**
+     * @return the values of the given column at the distinct rows drawn, in
+     * the order of support, with NaN for missing values.
+     */
+    private double[] column(int col) {
+        int _col = cols == null ? col : cols[col];
+        double[] column = new double[support.length];
+
+        if (dataBox instanceof VerticalDoubleDataBox || dataBox instanceof MemoryMappedDataBox) {
+            double[] all;
+
+            if (dataBox instanceof VerticalDoubleDataBox) {
+                all = ((VerticalDoubleDataBox) dataBox).getVariableVectors()[_col];
+            } else {
+                all = new double[dataBox.numRows()];
+                ((MemoryMappedDataBox) dataBox).getColumn(_col, all);
+            }
+
+            for (int k = 0; k < support.length; k++) column[k] = all[support[k]];
+            return column;
+        }
+
+        for (int k = 0; k < support.length; k++) {
+            Number value = dataBox.get(support[k], _col);
+            column[k] = value == null ? Double.NaN : value.doubleValue();
+        }
+
+        return column;
+    }
+}
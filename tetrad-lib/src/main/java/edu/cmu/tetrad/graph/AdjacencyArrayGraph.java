@@ -0,0 +1,1732 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.graph;
+
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.*;
+
+/**
+ * <p>Stores a graph as an array of adjacency arrays, one per node, indexed by the position of the node in the
+ * graph. Each adjacency records the index of the neighbor and, packed into a single byte, the endpoint at each end
+ * of the edge. Edge objects are not stored; they are created on demand by the methods that return them, so the
+ * parent, child, adjacency and path methods that searches call in their inner loops run over int arrays without
+ * allocating edges or hashing nodes more than once.</p>
+ *
+ * <p>At most one edge may connect any pair of nodes. Adding an edge that is already in the graph is a no-op;
+ * adding a different edge between adjacent nodes, or an edge from a node to itself, fails. Properties of Edge
+ * objects other than their nodes and endpoints (line color, edge type probabilities) are not kept. No property
+ * change events are fired. The graph is meant for use inside searches; results may be copied into an
+ * EdgeListGraph before being returned to the user.</p>
+ *
+ * @author Joseph Ramsey
+ * @see EdgeListGraph
+ */
+public class AdjacencyArrayGraph implements Graph, TripleClassifier {
+    static final long serialVersionUID = 23L;
+
+    // Layout of the byte stored for each adjacency of a node: the endpoint at the node itself, the endpoint at the
+    // neighbor, and whether the node is node1 of the edge as it was added. Endpoints are coded as indices into
+    // Endpoint.TYPES.
+    private static final int NEAR_MASK = 0x07;
+    private static final int FAR_SHIFT = 3;
+    private static final int NODE1_BIT = 0x40;
+
+    private static final int TAIL = code(Endpoint.TAIL);
+    private static final int ARROW = code(Endpoint.ARROW);
+    private static final int CIRCLE = code(Endpoint.CIRCLE);
+
+    /**
+     * The nodes of the graph, in the order in which they were added. The index of a node in this list is its index
+     * into the adjacency arrays.
+     *
+     * @serial
+     */
+    private final List<Node> nodes = new ArrayList<>();
+
+    /**
+     * For each node index, the indices of the adjacent nodes; only the first degree[i] entries are used.
+     *
+     * @serial
+     */
+    private int[][] adj = new int[0][];
+
+    /**
+     * For each node index, the packed endpoints of the corresponding entries of adj.
+     *
+     * @serial
+     */
+    private byte[][] ends = new byte[0][];
+
+    /**
+     * The number of adjacencies of each node.
+     *
+     * @serial
+     */
+    private int[] degree = new int[0];
+
+    /**
+     * @serial
+     */
+    private int numEdges = 0;
+
+    /**
+     * Map from nodes to their indices.
+     */
+    private transient Map<Node, Integer> indices = new HashMap<>();
+
+    /**
+     * A hash from node names to nodes;
+     *
+     * @serial
+     */
+    private Map<String, Node> namesHash = new HashMap<>();
+
+    /**
+     * @serial
+     */
+    private Set<Triple> ambiguousTriples = new HashSet<>();
+
+    /**
+     * @serial
+     */
+    private Set<Triple> underLineTriples = new HashSet<>();
+
+    /**
+     * @serial
+     */
+    private Set<Triple> dottedUnderLineTriples = new HashSet<>();
+
+    /**
+     * The set of highlighted edges.
+     *
+     * @serial
+     */
+    private Set<Edge> highlightedEdges = new HashSet<>();
+
+    private boolean pattern = false;
+
+    private boolean pag = false;
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    //==============================CONSTUCTORS===========================//
+
+    /**
+     * Constructs a new (empty) graph.
+     */
+    public AdjacencyArrayGraph() {
+    }
+
+    /**
+     * Constructs a new graph, with no edges, using the the given nodes.
+     */
+    public AdjacencyArrayGraph(List<Node> nodes) {
+        if (nodes == null) {
+            throw new NullPointerException();
+        }
+
+        for (Node node : nodes) {
+            if (!addNode(node)) {
+                throw new IllegalArgumentException();
+            }
+        }
+    }
+
+    /**
+     * Constructs a graph using the nodes and edges of the given graph, keeping its triples, highlighted edges,
+     * attributes and pattern/PAG flags.
+     *
+     * @param graph the graph from which nodes and edges are is to be extracted.
+     * @throws IllegalArgumentException if the given graph has more than one edge between some pair of nodes.
+     */
+    public AdjacencyArrayGraph(Graph graph) throws IllegalArgumentException {
+        if (graph == null) {
+            throw new NullPointerException("Graph must not be null.");
+        }
+
+        transferNodesAndEdges(graph);
+        transferAttributes(graph);
+
+        this.ambiguousTriples = graph.getAmbiguousTriples();
+        this.underLineTriples = graph.getUnderLines();
+        this.dottedUnderLineTriples = graph.getDottedUnderlines();
+
+        for (Edge edge : graph.getEdges()) {
+            if (graph.isHighlighted(edge)) {
+                setHighlighted(edge, true);
+            }
+        }
+
+        this.pag = graph.isPag();
+        this.pattern = graph.isPattern();
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static AdjacencyArrayGraph serializableInstance() {
+        return new AdjacencyArrayGraph();
+    }
+
+    //===============================PUBLIC METHODS========================//
+
+    @Override
+    public boolean addBidirectedEdge(Node node1, Node node2) {
+        return addEdge(node1, node2, ARROW, ARROW);
+    }
+
+    @Override
+    public boolean addDirectedEdge(Node node1, Node node2) {
+        return addEdge(node1, node2, TAIL, ARROW);
+    }
+
+    @Override
+    public boolean addUndirectedEdge(Node node1, Node node2) {
+        return addEdge(node1, node2, TAIL, TAIL);
+    }
+
+    @Override
+    public boolean addNondirectedEdge(Node node1, Node node2) {
+        return addEdge(node1, node2, CIRCLE, CIRCLE);
+    }
+
+    @Override
+    public boolean addPartiallyOrientedEdge(Node node1, Node node2) {
+        return addEdge(node1, node2, CIRCLE, ARROW);
+    }
+
+    /**
+     * Adds an edge to the graph.
+     *
+     * @param edge the edge to be added
+     * @return true if the edge is in the graph after the call, false if a different edge already connects its nodes
+     * or the edge connects a node to itself.
+     * @throws NullPointerException if either node of the edge is not in the graph.
+     */
+    @Override
+    public boolean addEdge(Edge edge) {
+        if (edge == null) {
+            throw new NullPointerException();
+        }
+
+        return addEdge(edge.getNode1(), edge.getNode2(), code(edge.getEndpoint1()), code(edge.getEndpoint2()));
+    }
+
+    /**
+     * Throws unsupported operation exception.
+     */
+    @Override
+    public void addPropertyChangeListener(PropertyChangeListener l) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Adds a node to the graph.
+     *
+     * @param node the node to be added.
+     * @return true if the node is in the graph after the call.
+     */
+    @Override
+    public boolean addNode(Node node) {
+        if (node == null) {
+            throw new NullPointerException();
+        }
+
+        if (indices.containsKey(node)) {
+            return true;
+        }
+
+        int n = nodes.size();
+
+        if (n == degree.length) {
+            int capacity = Math.max(8, 2 * n);
+            adj = Arrays.copyOf(adj, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            degree = Arrays.copyOf(degree, capacity);
+        }
+
+        adj[n] = new int[4];
+        ends[n] = new byte[4];
+        degree[n] = 0;
+
+        nodes.add(node);
+        indices.put(node, n);
+        namesHash.put(node.getName(), node);
+        return true;
+    }
+
+    /**
+     * Removes all nodes (and therefore all edges) from the graph.
+     */
+    @Override
+    public void clear() {
+        nodes.clear();
+        indices.clear();
+        namesHash.clear();
+        adj = new int[0][];
+        ends = new byte[0][];
+        degree = new int[0];
+        numEdges = 0;
+        highlightedEdges.clear();
+    }
+
+    @Override
+    public boolean containsEdge(Edge edge) {
+        int i = index(edge.getNode1());
+        int j = index(edge.getNode2());
+        if (i == -1 || j == -1) return false;
+        int k = slot(i, j);
+        return k != -1 && near(i, k) == code(edge.getEndpoint1()) && far(i, k) == code(edge.getEndpoint2());
+    }
+
+    @Override
+    public boolean containsNode(Node node) {
+        return indices.containsKey(node);
+    }
+
+    @Override
+    public boolean existsDirectedCycle() {
+        int n = nodes.size();
+        int[] indegree = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < degree[i]; k++) {
+                if (isTailToArrow(i, k)) indegree[adj[i][k]]++;
+            }
+        }
+
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+
+        for (int i = 0; i < n; i++) {
+            if (indegree[i] == 0) queue[tail++] = i;
+        }
+
+        while (head < tail) {
+            int i = queue[head++];
+
+            for (int k = 0; k < degree[i]; k++) {
+                if (isTailToArrow(i, k) && --indegree[adj[i][k]] == 0) {
+                    queue[tail++] = adj[i][k];
+                }
+            }
+        }
+
+        return tail < n;
+    }
+
+    /**
+     * @return true iff there is a directed path of length at least one from node1 to node2.
+     */
+    @Override
+    public boolean existsDirectedPathFromTo(Node node1, Node node2) {
+        int from = index(node1);
+        int to = index(node2);
+        if (from == -1 || to == -1) return false;
+        return reachable(from, to);
+    }
+
+    @Override
+    public List<Node> findCycle() {
+        int n = nodes.size();
+
+        for (int a = 0; a < n; a++) {
+            if (!reachable(a, a)) continue;
+
+            // Walk back along a shortest path from a to itself.
+            int[] prev = new int[n];
+            Arrays.fill(prev, -1);
+            Deque<Integer> queue = new ArrayDeque<>();
+            queue.add(a);
+
+            while (!queue.isEmpty()) {
+                int i = queue.poll();
+
+                for (int k = 0; k < degree[i]; k++) {
+                    if (!isTailToArrow(i, k)) continue;
+                    int j = adj[i][k];
+
+                    if (j == a) {
+                        LinkedList<Node> path = new LinkedList<>();
+                        path.addFirst(nodes.get(a));
+
+                        for (int c = i; c != a; c = prev[c]) {
+                            path.addFirst(nodes.get(c));
+                        }
+
+                        path.addFirst(nodes.get(a));
+                        return path;
+                    }
+
+                    if (prev[j] == -1) {
+                        prev[j] = i;
+                        queue.add(j);
+                    }
+                }
+            }
+        }
+
+        return new LinkedList<>();
+    }
+
+    @Override
+    public boolean existsUndirectedPathFromTo(Node node1, Node node2) {
+        int from = index(node1);
+        int to = index(node2);
+        if (from == -1 || to == -1) return false;
+
+        boolean[] visited = new boolean[nodes.size()];
+        int[] stack = new int[nodes.size()];
+        int top = 0;
+        stack[top++] = from;
+        visited[from] = true;
+
+        while (top > 0) {
+            int i = stack[--top];
+
+            for (int k = 0; k < degree[i]; k++) {
+                int j = adj[i][k];
+                if (j == to) return true;
+
+                if (!visited[j]) {
+                    visited[j] = true;
+                    stack[top++] = j;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean existsSemiDirectedPathFromTo(Node node1, Set<Node> nodes) {
+        int from = index(node1);
+        if (from == -1) return false;
+
+        boolean[] targets = new boolean[this.nodes.size()];
+
+        for (Node node : nodes) {
+            int t = index(node);
+            if (t != -1) targets[t] = true;
+        }
+
+        boolean[] visited = new boolean[this.nodes.size()];
+        int[] stack = new int[this.nodes.size()];
+        int top = 0;
+        stack[top++] = from;
+        visited[from] = true;
+
+        while (top > 0) {
+            int i = stack[--top];
+
+            for (int k = 0; k < degree[i]; k++) {
+                int near = near(i, k);
+                if (near != TAIL && near != CIRCLE) continue;
+                int j = adj[i][k];
+                if (targets[j]) return true;
+
+                if (!visited[j]) {
+                    visited[j] = true;
+                    stack[top++] = j;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean existsInducingPath(Node node1, Node node2) {
+        return node1 == node2 || existsDirectedPathFromTo(node2, node1);
+    }
+
+    /**
+     * Determines whether a trek exists between two nodes in the graph, that is, whether the two nodes have a common
+     * ancestor, counting each node as an ancestor of itself.
+     */
+    @Override
+    public boolean existsTrek(Node node1, Node node2) {
+        int i = index(node1);
+        int j = index(node2);
+        if (i == -1 || j == -1) return false;
+
+        boolean[] ancestors1 = ancestors(new int[]{i});
+        boolean[] ancestors2 = ancestors(new int[]{j});
+
+        for (int k = 0; k < ancestors1.length; k++) {
+            if (ancestors1[k] && ancestors2[k]) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        int sum = 0;
+
+        for (Node node : getNodes()) {
+            sum += node.hashCode();
+        }
+
+        hashCode += 23 * sum;
+        sum = 0;
+
+        for (Edge edge : getEdges()) {
+            sum += edge.hashCode();
+        }
+
+        hashCode += 41 * sum;
+
+        return hashCode;
+    }
+
+    /**
+     * @return true iff the given object is a graph that is equal to this graph, in the sense that it contains the
+     * same nodes and the edges are isomorphic.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Graph)) {
+            return false;
+        }
+
+        Graph graph = (Graph) o;
+        return new HashSet<>(graph.getNodeNames()).equals(new HashSet<>(getNodeNames()))
+                && new HashSet<>(graph.getEdges()).equals(new HashSet<>(getEdges()));
+    }
+
+    /**
+     * Resets the graph so that it is fully connects it using #-# edges, where # is the given endpoint.
+     */
+    @Override
+    public void fullyConnect(Endpoint endpoint) {
+        int e = code(endpoint);
+        int n = nodes.size();
+
+        for (int i = 0; i < n; i++) {
+            degree[i] = 0;
+        }
+
+        numEdges = 0;
+
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                link(i, j, e, e);
+            }
+        }
+    }
+
+    @Override
+    public void reorientAllWith(Endpoint endpoint) {
+        int e = code(endpoint);
+
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int k = 0; k < degree[i]; k++) {
+                ends[i][k] = pack(e, e, (ends[i][k] & NODE1_BIT) != 0);
+            }
+        }
+    }
+
+    @Override
+    public List<Node> getAdjacentNodes(Node node) {
+        int i = index(node);
+        List<Node> adjacents = new ArrayList<>(i == -1 ? 0 : degree[i]);
+        if (i == -1) return adjacents;
+
+        for (int k = 0; k < degree[i]; k++) {
+            adjacents.add(nodes.get(adj[i][k]));
+        }
+
+        return adjacents;
+    }
+
+    @Override
+    public List<Node> getAncestors(List<Node> nodes) {
+        return sortedNodes(ancestors(indices(nodes)));
+    }
+
+    @Override
+    public List<Node> getChildren(Node node) {
+        List<Node> children = new ArrayList<>();
+        int i = index(node);
+        if (i == -1) return children;
+
+        for (int k = 0; k < degree[i]; k++) {
+            if (isTailToArrow(i, k)) children.add(nodes.get(adj[i][k]));
+        }
+
+        return children;
+    }
+
+    @Override
+    public int getConnectivity() {
+        int connectivity = 0;
+
+        for (int i = 0; i < nodes.size(); i++) {
+            connectivity = Math.max(connectivity, degree[i]);
+        }
+
+        return connectivity;
+    }
+
+    @Override
+    public List<Node> getDescendants(List<Node> nodes) {
+        int[] from = indices(nodes);
+        boolean[] descendants = new boolean[this.nodes.size()];
+        int[] stack = new int[this.nodes.size()];
+        int top = 0;
+
+        for (int i : from) {
+            if (!descendants[i]) {
+                descendants[i] = true;
+                stack[top++] = i;
+            }
+        }
+
+        while (top > 0) {
+            int i = stack[--top];
+
+            for (int k = 0; k < degree[i]; k++) {
+                int j = adj[i][k];
+
+                if (!descendants[j] && isTailToArrow(i, k)) {
+                    descendants[j] = true;
+                    stack[top++] = j;
+                }
+            }
+        }
+
+        return new LinkedList<>(sortedNodes(descendants));
+    }
+
+    /**
+     * @return the edge connecting node1 and node2, or null if there is none.
+     */
+    @Override
+    public Edge getEdge(Node node1, Node node2) {
+        int i = index(node1);
+        int j = index(node2);
+        if (i == -1 || j == -1) return null;
+        int k = slot(i, j);
+        return k == -1 ? null : edge(i, k);
+    }
+
+    @Override
+    public Edge getDirectedEdge(Node node1, Node node2) {
+        int i = index(node1);
+        int j = index(node2);
+        if (i == -1 || j == -1) return null;
+        int k = slot(i, j);
+        if (k == -1) return null;
+        return isTailToArrow(i, k) ? edge(i, k) : null;
+    }
+
+    @Override
+    public List<Edge> getEdges(Node node) {
+        List<Edge> edges = new ArrayList<>();
+        int i = index(node);
+        if (i == -1) return edges;
+
+        for (int k = 0; k < degree[i]; k++) {
+            edges.add(edge(i, k));
+        }
+
+        return edges;
+    }
+
+    @Override
+    public List<Edge> getEdges(Node node1, Node node2) {
+        List<Edge> edges = new ArrayList<>(1);
+        Edge edge = getEdge(node1, node2);
+        if (edge != null) edges.add(edge);
+        return edges;
+    }
+
+    @Override
+    public Set<Edge> getEdges() {
+        Set<Edge> edges = new TreeSet<>();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int k = 0; k < degree[i]; k++) {
+                if ((ends[i][k] & NODE1_BIT) != 0) edges.add(edge(i, k));
+            }
+        }
+
+        return edges;
+    }
+
+    /**
+     * @return the endpoint along the edge from node to node2 at the node2 end.
+     */
+    @Override
+    public Endpoint getEndpoint(Node node1, Node node2) {
+        int i = index(node1);
+        int j = index(node2);
+        if (i == -1 || j == -1) return null;
+        int k = slot(i, j);
+        return k == -1 ? null : Endpoint.TYPES[far(i, k)];
+    }
+
+    @Override
+    public Endpoint[][] getEndpointMatrix() {
+        int size = nodes.size();
+        Endpoint[][] endpoints = new Endpoint[size][size];
+
+        for (int i = 0; i < size; i++) {
+            for (int k = 0; k < degree[i]; k++) {
+                endpoints[i][adj[i][k]] = Endpoint.TYPES[far(i, k)];
+            }
+        }
+
+        return endpoints;
+    }
+
+    @Override
+    public int getIndegree(Node node) {
+        int i = index(node);
+        if (i == -1) return 0;
+        int indegree = 0;
+
+        for (int k = 0; k < degree[i]; k++) {
+            if (isArrowToTail(i, k)) indegree++;
+        }
+
+        return indegree;
+    }
+
+    @Override
+    public int getDegree(Node node) {
+        int i = index(node);
+        return i == -1 ? 0 : degree[i];
+    }
+
+    @Override
+    public Node getNode(String name) {
+        return namesHash.get(name);
+    }
+
+    @Override
+    public List<Node> getNodes() {
+        return new ArrayList<>(nodes);
+    }
+
+    @Override
+    public List<String> getNodeNames() {
+        List<String> names = new ArrayList<>();
+
+        for (Node node : nodes) {
+            names.add(node.getName());
+        }
+
+        return names;
+    }
+
+    @Override
+    public int getNumEdges() {
+        return numEdges;
+    }
+
+    @Override
+    public int getNumEdges(Node node) {
+        return getDegree(node);
+    }
+
+    @Override
+    public int getNumNodes() {
+        return nodes.size();
+    }
+
+    @Override
+    public int getOutdegree(Node node) {
+        int i = index(node);
+        if (i == -1) return 0;
+        int outdegree = 0;
+
+        for (int k = 0; k < degree[i]; k++) {
+            if (isTailToArrow(i, k)) outdegree++;
+        }
+
+        return outdegree;
+    }
+
+    @Override
+    public List<Node> getParents(Node node) {
+        List<Node> parents = new ArrayList<>();
+        int i = index(node);
+        if (i == -1) return parents;
+
+        for (int k = 0; k < degree[i]; k++) {
+            if (isArrowToTail(i, k)) parents.add(nodes.get(adj[i][k]));
+        }
+
+        return parents;
+    }
+
+    @Override
+    public boolean isAdjacentTo(Node node1, Node node2) {
+        int i = index(node1);
+        int j = index(node2);
+        return i != -1 && j != -1 && slot(i, j) != -1;
+    }
+
+    @Override
+    public boolean isAncestorOf(Node node1, Node node2) {
+        return node1 == node2 || existsDirectedPathFromTo(node1, node2);
+    }
+
+    @Override
+    public boolean possibleAncestor(Node node1, Node node2) {
+        return existsSemiDirectedPathFromTo(node1, Collections.singleton(node2));
+    }
+
+    @Override
+    public boolean isChildOf(Node node1, Node node2) {
+        return isParentOf(node2, node1);
+    }
+
+    @Override
+    public boolean isParentOf(Node node1, Node node2) {
+        int i = index(node1);
+        int j = index(node2);
+        if (i == -1 || j == -1) return false;
+        int k = slot(i, j);
+        return k != -1 && isTailToArrow(i, k);
+    }
+
+    @Override
+    public boolean isProperAncestorOf(Node node1, Node node2) {
+        return node1 != node2 && isAncestorOf(node1, node2);
+    }
+
+    @Override
+    public boolean isProperDescendentOf(Node node1, Node node2) {
+        return node1 != node2 && isDescendentOf(node1, node2);
+    }
+
+    @Override
+    public boolean isDescendentOf(Node node1, Node node2) {
+        return node1 == node2 || existsDirectedPathFromTo(node2, node1);
+    }
+
+    @Override
+    public boolean defNonDescendent(Node node1, Node node2) {
+        return !(possibleAncestor(node1, node2));
+    }
+
+    @Override
+    public boolean isDefNoncollider(Node node1, Node node2, Node node3) {
+        int j = index(node2);
+        if (j == -1) return false;
+        int k1 = slot(j, index(node1));
+        int k3 = slot(j, index(node3));
+
+        if (k1 != -1 && far(j, k1) == ARROW && (near(j, k1) == TAIL || near(j, k1) == CIRCLE)) {
+            return true;
+        }
+
+        if (k3 != -1 && far(j, k3) == ARROW && (near(j, k3) == TAIL || near(j, k3) == CIRCLE)) {
+            return true;
+        }
+
+        return k1 != -1 && k3 != -1 && near(j, k1) == CIRCLE && near(j, k3) == CIRCLE
+                && !isAdjacentTo(node1, node3);
+    }
+
+    @Override
+    public boolean isDefCollider(Node node1, Node node2, Node node3) {
+        int j = index(node2);
+        if (j == -1) return false;
+        int k1 = slot(j, index(node1));
+        int k3 = slot(j, index(node3));
+        return k1 != -1 && k3 != -1 && near(j, k1) == ARROW && near(j, k3) == ARROW;
+    }
+
+    /**
+     * Searches breadth first over the edges into each node, as GraphUtils.isDConnectedTo does, but marks the edges
+     * visited by index, since the Edge objects this graph returns are made anew on each call.
+     */
+    @Override
+    public boolean isDConnectedTo(Node x, Node y, List<Node> z) {
+        if (x == y) return true;
+
+        int i = index(x);
+        int j = index(y);
+        if (i == -1 || j == -1) return false;
+
+        boolean[] inZ = new boolean[nodes.size()];
+        int[] _z = indices(z);
+        for (int w : _z) inZ[w] = true;
+        boolean[] zAncestors = ancestors(_z);
+
+        // Each state is a node b together with the slot in b's adjacencies of the node the path came from.
+        boolean[][] visited = new boolean[nodes.size()][];
+        int[] queueNodes = new int[2 * numEdges];
+        int[] queueSlots = new int[2 * numEdges];
+        int head = 0;
+        int tail = 0;
+
+        for (int k = 0; k < degree[i]; k++) {
+            int b = adj[i][k];
+            if (b == j) return true;
+            int ka = slot(b, i);
+            if (visited[b] == null) visited[b] = new boolean[degree[b]];
+            visited[b][ka] = true;
+            queueNodes[tail] = b;
+            queueSlots[tail++] = ka;
+        }
+
+        while (head < tail) {
+            int b = queueNodes[head];
+            int ka = queueSlots[head++];
+            int a = adj[b][ka];
+
+            for (int kc = 0; kc < degree[b]; kc++) {
+                int c = adj[b][kc];
+                if (c == a) continue;
+
+                boolean collider = near(b, ka) == ARROW && near(b, kc) == ARROW;
+                boolean open = (!collider || (!underLineTriples.isEmpty()
+                        && isUnderlineTriple(nodes.get(a), nodes.get(b), nodes.get(c)))) && !inZ[b];
+
+                if (!open && !(collider && zAncestors[b])) continue;
+                if (c == j) return true;
+
+                int kb = slot(c, b);
+                if (visited[c] == null) visited[c] = new boolean[degree[c]];
+
+                if (!visited[c][kb]) {
+                    visited[c][kb] = true;
+                    queueNodes[tail] = c;
+                    queueSlots[tail++] = kb;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean isPattern() {
+        return pattern;
+    }
+
+    @Override
+    public void setPattern(boolean pattern) {
+        this.pattern = pattern;
+    }
+
+    @Override
+    public boolean isPag() {
+        return pag;
+    }
+
+    @Override
+    public void setPag(boolean pag) {
+        this.pag = pag;
+    }
+
+    @Override
+    public boolean isDSeparatedFrom(Node node1, Node node2, List<Node> z) {
+        return !isDConnectedTo(node1, node2, z);
+    }
+
+    /**
+     * Determines whether node1 is possibly d-connected to node2 given condNodes, by the same staged search over
+     * pairs of adjacent nodes as EdgeListGraph.
+     */
+    @Override
+    public boolean possDConnectedTo(Node node1, Node node2, List<Node> condNodes) {
+        int n1x = index(node1);
+        int n2x = index(node2);
+        int[][] edgeStage = new int[nodes.size()][nodes.size()];
+        int stage = 1;
+
+        edgeStage[n1x][n1x] = 1;
+        edgeStage[n2x][n2x] = 1;
+
+        List<int[]> currEdges;
+        List<int[]> nextEdges = new ArrayList<>();
+        nextEdges.add(new int[]{n1x, n1x});
+        nextEdges.add(new int[]{n2x, n2x});
+
+        while (true) {
+            currEdges = nextEdges;
+            nextEdges = new ArrayList<>();
+
+            for (int[] edge : currEdges) {
+                int center = edge[1];
+
+                for (int k = 0; k < degree[center]; k++) {
+                    int testIndex = adj[center][k];
+
+                    if (edgeStage[center][testIndex] != 0) {
+                        continue;
+                    }
+
+                    Node X = nodes.get(edge[0]);
+                    Node Y = nodes.get(center);
+                    Node Z = nodes.get(testIndex);
+
+                    if (!((isDefNoncollider(X, Y, Z) && !(condNodes.contains(Y)))
+                            || (isDefCollider(X, Y, Z) && possibleAncestorSet(Y, condNodes)))) {
+                        continue;
+                    }
+
+                    if (testIndex == n2x) {
+                        return true;
+                    }
+
+                    nextEdges.add(new int[]{center, testIndex});
+                    edgeStage[center][testIndex] = stage;
+                    edgeStage[testIndex][center] = stage;
+                }
+            }
+
+            if (nextEdges.isEmpty()) {
+                break;
+            }
+
+            stage++;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean isDirectedFromTo(Node node1, Node node2) {
+        int i = index(node1);
+        int j = index(node2);
+        if (i == -1 || j == -1) return false;
+        int k = slot(i, j);
+        return k != -1 && far(i, k) == ARROW && (near(i, k) == TAIL || near(i, k) == CIRCLE);
+    }
+
+    @Override
+    public boolean isUndirectedFromTo(Node node1, Node node2) {
+        int i = index(node1);
+        int j = index(node2);
+        if (i == -1 || j == -1) return false;
+        int k = slot(i, j);
+        return k != -1 && near(i, k) == TAIL && far(i, k) == TAIL;
+    }
+
+    /**
+     * @return true if the given edge is definitely visible (Jiji, pg 25)
+     * @throws IllegalArgumentException if the given edge is not a directed edge in the graph
+     */
+    @Override
+    public boolean defVisible(Edge edge) {
+        if (containsEdge(edge)) {
+            Node A = Edges.getDirectedEdgeTail(edge);
+            Node B = Edges.getDirectedEdgeHead(edge);
+
+            for (Node C : getAdjacentNodes(A)) {
+                if (C != B && !isAdjacentTo(C, B)) {
+                    if (getEndpoint(C, A) == Endpoint.ARROW) {
+                        return true;
+                    }
+                }
+            }
+
+            return EdgeListGraph.visibleEdgeHelper(A, B, this);
+        } else {
+            throw new IllegalArgumentException("Given edge is not in the graph.");
+        }
+    }
+
+    @Override
+    public boolean isExogenous(Node node) {
+        return getIndegree(node) == 0;
+    }
+
+    /**
+     * Nodes adjacent to the given node with the given proximal endpoint.
+     */
+    @Override
+    public List<Node> getNodesInTo(Node node, Endpoint n) {
+        List<Node> nodes = new ArrayList<>(4);
+        int i = index(node);
+        if (i == -1) return nodes;
+        int e = code(n);
+
+        for (int k = 0; k < degree[i]; k++) {
+            if (near(i, k) == e) nodes.add(this.nodes.get(adj[i][k]));
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Nodes adjacent to the given node with the given distal endpoint.
+     */
+    @Override
+    public List<Node> getNodesOutTo(Node node, Endpoint n) {
+        List<Node> nodes = new ArrayList<>(4);
+        int i = index(node);
+        if (i == -1) return nodes;
+        int e = code(n);
+
+        for (int k = 0; k < degree[i]; k++) {
+            if (far(i, k) == e) nodes.add(this.nodes.get(adj[i][k]));
+        }
+
+        return nodes;
+    }
+
+    @Override
+    public boolean removeEdge(Edge edge) {
+        if (!containsEdge(edge)) {
+            return false;
+        }
+
+        unlink(index(edge.getNode1()), index(edge.getNode2()));
+        highlightedEdges.remove(edge);
+        return true;
+    }
+
+    @Override
+    public boolean removeEdge(Node node1, Node node2) {
+        int i = index(node1);
+        int j = index(node2);
+        if (i == -1 || j == -1) return false;
+        int k = slot(i, j);
+        if (k == -1) return false;
+
+        highlightedEdges.remove(edge(i, k));
+        unlink(i, j);
+        return true;
+    }
+
+    @Override
+    public boolean removeEdges(Node node1, Node node2) {
+        return removeEdge(node1, node2);
+    }
+
+    @Override
+    public boolean removeEdges(Collection<Edge> edges) {
+        boolean change = false;
+
+        for (Edge edge : edges) {
+            boolean _change = removeEdge(edge);
+            change = change || _change;
+        }
+
+        return change;
+    }
+
+    /**
+     * Removes a node from the graph, along with its edges. The nodes after it move down one index.
+     */
+    @Override
+    public boolean removeNode(Node node) {
+        int r = index(node);
+        if (r == -1) return false;
+
+        boolean changed = degree[r] > 0;
+
+        while (degree[r] > 0) {
+            unlink(r, adj[r][degree[r] - 1]);
+        }
+
+        int n = nodes.size();
+        System.arraycopy(adj, r + 1, adj, r, n - r - 1);
+        System.arraycopy(ends, r + 1, ends, r, n - r - 1);
+        System.arraycopy(degree, r + 1, degree, r, n - r - 1);
+        adj[n - 1] = null;
+        ends[n - 1] = null;
+        degree[n - 1] = 0;
+
+        for (int i = 0; i < n - 1; i++) {
+            for (int k = 0; k < degree[i]; k++) {
+                if (adj[i][k] > r) adj[i][k]--;
+            }
+        }
+
+        nodes.remove(r);
+        namesHash.remove(node.getName());
+        reindex();
+        return changed;
+    }
+
+    @Override
+    public boolean removeNodes(List<Node> nodes) {
+        boolean changed = false;
+
+        for (Node node : nodes) {
+            boolean _changed = removeNode(node);
+            changed = changed || _changed;
+        }
+
+        return changed;
+    }
+
+    /**
+     * If there is an edge between from and to, sets the endpoint at the to end to the given endpoint. As in
+     * EdgeListGraph, the edge is removed and re-added, with from as node1, so it moves to the end of the adjacencies
+     * of both nodes.
+     *
+     * @throws IllegalArgumentException if there is no edge between from and to.
+     */
+    @Override
+    public boolean setEndpoint(Node from, Node to, Endpoint endPoint) throws IllegalArgumentException {
+        int i = index(from);
+        int j = index(to);
+        int k = i == -1 || j == -1 ? -1 : slot(i, j);
+
+        if (k == -1) {
+            throw new IllegalArgumentException("There is no edge between " + from + " and " + to + ".");
+        }
+
+        int e = code(endPoint);
+        int near = near(i, k);
+        highlightedEdges.remove(edge(i, k));
+        unlink(i, j);
+        link(i, j, near, e);
+        return true;
+    }
+
+    @Override
+    public Graph subgraph(List<Node> nodes) {
+        AdjacencyArrayGraph graph = new AdjacencyArrayGraph(nodes);
+
+        for (Node node : nodes) {
+            int i = index(node);
+            if (i == -1) continue;
+
+            for (int k = 0; k < degree[i]; k++) {
+                if ((ends[i][k] & NODE1_BIT) == 0) continue;
+                Node other = this.nodes.get(adj[i][k]);
+
+                if (graph.containsNode(other)) {
+                    graph.addEdge(node, other, near(i, k), far(i, k));
+                }
+            }
+        }
+
+        return graph;
+    }
+
+    @Override
+    public String toString() {
+        return GraphUtils.graphToText(this);
+    }
+
+    @Override
+    public void transferNodesAndEdges(Graph graph) throws IllegalArgumentException {
+        if (graph == null) {
+            throw new NullPointerException("No graph was provided.");
+        }
+
+        for (Node node : graph.getNodes()) {
+            if (!addNode(node)) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        for (Edge edge : graph.getEdges()) {
+            if (!addEdge(edge)) {
+                throw new IllegalArgumentException("Could not add " + edge + "; this graph allows only one edge "
+                        + "between any pair of nodes.");
+            }
+        }
+    }
+
+    @Override
+    public void transferAttributes(Graph graph) throws IllegalArgumentException {
+        if (graph == null) {
+            throw new NullPointerException("No graph was provided.");
+        }
+
+        this.attributes.putAll(graph.getAllAttributes());
+    }
+
+    @Override
+    public Set<Triple> getAmbiguousTriples() {
+        return new HashSet<>(ambiguousTriples);
+    }
+
+    @Override
+    public Set<Triple> getUnderLines() {
+        return new HashSet<>(underLineTriples);
+    }
+
+    @Override
+    public Set<Triple> getDottedUnderlines() {
+        return new HashSet<>(dottedUnderLineTriples);
+    }
+
+    @Override
+    public boolean isAmbiguousTriple(Node x, Node y, Node z) {
+        return ambiguousTriples.contains(new Triple(x, y, z));
+    }
+
+    @Override
+    public boolean isUnderlineTriple(Node x, Node y, Node z) {
+        return underLineTriples.contains(new Triple(x, y, z));
+    }
+
+    @Override
+    public boolean isDottedUnderlineTriple(Node x, Node y, Node z) {
+        return dottedUnderLineTriples.contains(new Triple(x, y, z));
+    }
+
+    @Override
+    public void addAmbiguousTriple(Node x, Node y, Node z) {
+        ambiguousTriples.add(new Triple(x, y, z));
+    }
+
+    @Override
+    public void addUnderlineTriple(Node x, Node y, Node z) {
+        Triple triple = new Triple(x, y, z);
+
+        if (!triple.alongPathIn(this)) {
+            return;
+        }
+
+        underLineTriples.add(triple);
+    }
+
+    @Override
+    public void addDottedUnderlineTriple(Node x, Node y, Node z) {
+        Triple triple = new Triple(x, y, z);
+
+        if (!triple.alongPathIn(this)) {
+            return;
+        }
+
+        dottedUnderLineTriples.add(triple);
+    }
+
+    @Override
+    public void removeAmbiguousTriple(Node x, Node y, Node z) {
+        ambiguousTriples.remove(new Triple(x, y, z));
+    }
+
+    @Override
+    public void removeUnderlineTriple(Node x, Node y, Node z) {
+        underLineTriples.remove(new Triple(x, y, z));
+    }
+
+    @Override
+    public void removeDottedUnderlineTriple(Node x, Node y, Node z) {
+        dottedUnderLineTriples.remove(new Triple(x, y, z));
+    }
+
+    @Override
+    public void setAmbiguousTriples(Set<Triple> triples) {
+        ambiguousTriples.clear();
+
+        for (Triple triple : triples) {
+            addAmbiguousTriple(triple.getX(), triple.getY(), triple.getZ());
+        }
+    }
+
+    @Override
+    public void setUnderLineTriples(Set<Triple> triples) {
+        underLineTriples.clear();
+
+        for (Triple triple : triples) {
+            addUnderlineTriple(triple.getX(), triple.getY(), triple.getZ());
+        }
+    }
+
+    @Override
+    public void setDottedUnderLineTriples(Set<Triple> triples) {
+        dottedUnderLineTriples.clear();
+
+        for (Triple triple : triples) {
+            addDottedUnderlineTriple(triple.getX(), triple.getY(), triple.getZ());
+        }
+    }
+
+    @Override
+    public List<Node> getCausalOrdering() {
+        return GraphUtils.getCausalOrdering(this);
+    }
+
+    @Override
+    public void setHighlighted(Edge edge, boolean highlighted) {
+        if (highlighted) {
+            highlightedEdges.add(edge);
+        } else {
+            highlightedEdges.remove(edge);
+        }
+    }
+
+    @Override
+    public boolean isHighlighted(Edge edge) {
+        return highlightedEdges.contains(edge);
+    }
+
+    @Override
+    public boolean isParameterizable(Node node) {
+        return true;
+    }
+
+    @Override
+    public boolean isTimeLagModel() {
+        return false;
+    }
+
+    @Override
+    public TimeLagGraph getTimeLagGraph() {
+        return null;
+    }
+
+    @Override
+    public void removeTriplesNotInGraph() {
+        removeTriplesNotInGraph(ambiguousTriples);
+        removeTriplesNotInGraph(underLineTriples);
+        removeTriplesNotInGraph(dottedUnderLineTriples);
+    }
+
+    @Override
+    public List<Node> getSepset(Node n1, Node n2) {
+        return GraphUtils.getSepset(n1, n2, this);
+    }
+
+    /**
+     * Replaces the nodes of the graph, position by position, with the given nodes; edges between the old nodes
+     * become edges between the corresponding new nodes.
+     */
+    @Override
+    public void setNodes(List<Node> nodes) {
+        if (nodes.size() != this.nodes.size()) {
+            throw new IllegalArgumentException("Sorry, there is a mismatch in the number of variables "
+                    + "you are trying to set.");
+        }
+
+        this.nodes.clear();
+        this.nodes.addAll(nodes);
+        this.namesHash.clear();
+
+        for (Node node : nodes) {
+            namesHash.put(node.getName(), node);
+        }
+
+        reindex();
+    }
+
+    @Override
+    public Map<String, Object> getAllAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Object getAttribute(String key) {
+        return attributes.get(key);
+    }
+
+    @Override
+    public void removeAttribute(String key) {
+        attributes.remove(key);
+    }
+
+    @Override
+    public void addAttribute(String key, Object value) {
+        attributes.put(key, value);
+    }
+
+    /**
+     * @return the names of the triple classifications. Coordinates with <code>getTriplesList</code>
+     */
+    @Override
+    public List<String> getTriplesClassificationTypes() {
+        List<String> names = new ArrayList<>();
+        names.add("Underlines");
+        names.add("Dotted Underlines");
+        names.add("Ambiguous Triples");
+        return names;
+    }
+
+    /**
+     * @return the list of triples corresponding to <code>getTripleClassificationNames</code> for the given node.
+     */
+    @Override
+    public List<List<Triple>> getTriplesLists(Node node) {
+        List<List<Triple>> triplesList = new ArrayList<>();
+        triplesList.add(GraphUtils.getUnderlinedTriplesFromGraph(node, this));
+        triplesList.add(GraphUtils.getDottedUnderlinedTriplesFromGraph(node, this));
+        triplesList.add(GraphUtils.getAmbiguousTriplesFromGraph(node, this));
+        return triplesList;
+    }
+
+    //===============================PRIVATE METHODS======================//
+
+    private static int code(Endpoint endpoint) {
+        if (endpoint == null) {
+            throw new NullPointerException("Endpoints must not be null.");
+        }
+
+        for (int e = 0; e < Endpoint.TYPES.length; e++) {
+            if (Endpoint.TYPES[e] == endpoint) return e;
+        }
+
+        throw new IllegalArgumentException("Unrecognized endpoint: " + endpoint);
+    }
+
+    private static byte pack(int near, int far, boolean node1) {
+        return (byte) (near | (far << FAR_SHIFT) | (node1 ? NODE1_BIT : 0));
+    }
+
+    private int near(int i, int k) {
+        return ends[i][k] & NEAR_MASK;
+    }
+
+    private int far(int i, int k) {
+        return (ends[i][k] >> FAR_SHIFT) & NEAR_MASK;
+    }
+
+    // True if the k'th adjacency of i is i --> adj[i][k].
+    private boolean isTailToArrow(int i, int k) {
+        return near(i, k) == TAIL && far(i, k) == ARROW;
+    }
+
+    // True if the k'th adjacency of i is adj[i][k] --> i.
+    private boolean isArrowToTail(int i, int k) {
+        return near(i, k) == ARROW && far(i, k) == TAIL;
+    }
+
+    private int index(Node node) {
+        Integer i = indices.get(node);
+        return i == null ? -1 : i;
+    }
+
+    private int[] indices(List<Node> nodes) {
+        int[] _indices = new int[nodes.size()];
+        int n = 0;
+
+        for (Node node : nodes) {
+            int i = index(node);
+            if (i != -1) _indices[n++] = i;
+        }
+
+        return Arrays.copyOf(_indices, n);
+    }
+
+    private void reindex() {
+        indices.clear();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            indices.put(nodes.get(i), i);
+        }
+    }
+
+    // The position of j in the adjacency array of i, or -1 if they are not adjacent.
+    private int slot(int i, int j) {
+        if (i == -1 || j == -1) return -1;
+        int[] a = adj[i];
+
+        for (int k = 0; k < degree[i]; k++) {
+            if (a[k] == j) return k;
+        }
+
+        return -1;
+    }
+
+    private boolean addEdge(Node node1, Node node2, int endpoint1, int endpoint2) {
+        int i = index(node1);
+        int j = index(node2);
+
+        if (i == -1 || j == -1) {
+            throw new NullPointerException("Can't add an edge unless both nodes are in the graph: "
+                    + node1 + ", " + node2);
+        }
+
+        if (i == j) {
+            return false;
+        }
+
+        int k = slot(i, j);
+
+        if (k != -1) {
+            return near(i, k) == endpoint1 && far(i, k) == endpoint2;
+        }
+
+        link(i, j, endpoint1, endpoint2);
+        return true;
+    }
+
+    // As in the Edge constructor, edges pointing left are stored with their nodes the other way around.
+    private static boolean pointingLeft(int endpoint1, int endpoint2) {
+        return endpoint1 == ARROW && (endpoint2 == TAIL || endpoint2 == CIRCLE);
+    }
+
+    // Adds node1 *-# node2 to the adjacency arrays of both nodes.
+    private void link(int i, int j, int endpoint1, int endpoint2) {
+        boolean flipped = pointingLeft(endpoint1, endpoint2);
+        append(i, j, pack(endpoint1, endpoint2, !flipped));
+        append(j, i, pack(endpoint2, endpoint1, flipped));
+        numEdges++;
+    }
+
+    private void append(int i, int j, byte end) {
+        if (degree[i] == adj[i].length) {
+            adj[i] = Arrays.copyOf(adj[i], 2 * adj[i].length + 1);
+            ends[i] = Arrays.copyOf(ends[i], 2 * ends[i].length + 1);
+        }
+
+        adj[i][degree[i]] = j;
+        ends[i][degree[i]] = end;
+        degree[i]++;
+    }
+
+    // Removes the adjacency between i and j from both arrays, keeping the remaining adjacencies in order.
+    private void unlink(int i, int j) {
+        remove(i, slot(i, j));
+        remove(j, slot(j, i));
+        numEdges--;
+    }
+
+    private void remove(int i, int k) {
+        int tail = degree[i] - k - 1;
+        System.arraycopy(adj[i], k + 1, adj[i], k, tail);
+        System.arraycopy(ends[i], k + 1, ends[i], k, tail);
+        degree[i]--;
+    }
+
+    // The edge for the k'th adjacency of i, oriented as it was added.
+    private Edge edge(int i, int k) {
+        Node node = nodes.get(i);
+        Node other = nodes.get(adj[i][k]);
+        Endpoint near = Endpoint.TYPES[near(i, k)];
+        Endpoint far = Endpoint.TYPES[far(i, k)];
+
+        if ((ends[i][k] & NODE1_BIT) != 0) {
+            return new Edge(node, other, near, far);
+        } else {
+            return new Edge(other, node, far, near);
+        }
+    }
+
+    // True if there is a directed path of length at least one from node index from to node index to.
+    private boolean reachable(int from, int to) {
+        boolean[] visited = new boolean[nodes.size()];
+        int[] stack = new int[nodes.size()];
+        int top = 0;
+        stack[top++] = from;
+        visited[from] = true;
+
+        while (top > 0) {
+            int i = stack[--top];
+
+            for (int k = 0; k < degree[i]; k++) {
+                if (!isTailToArrow(i, k)) continue;
+                int j = adj[i][k];
+                if (j == to) return true;
+
+                if (!visited[j]) {
+                    visited[j] = true;
+                    stack[top++] = j;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    // The given nodes and all of their ancestors.
+    private boolean[] ancestors(int[] from) {
+        boolean[] ancestors = new boolean[nodes.size()];
+        int[] stack = new int[nodes.size()];
+        int top = 0;
+
+        for (int i : from) {
+            if (!ancestors[i]) {
+                ancestors[i] = true;
+                stack[top++] = i;
+            }
+        }
+
+        while (top > 0) {
+            int i = stack[--top];
+
+            for (int k = 0; k < degree[i]; k++) {
+                int j = adj[i][k];
+
+                if (!ancestors[j] && isArrowToTail(i, k)) {
+                    ancestors[j] = true;
+                    stack[top++] = j;
+                }
+            }
+        }
+
+        return ancestors;
+    }
+
+    // The marked nodes, in the order EdgeListGraph returns ancestors and descendants.
+    private List<Node> sortedNodes(boolean[] marked) {
+        Set<Node> sorted = new TreeSet<>();
+
+        for (int i = 0; i < marked.length; i++) {
+            if (marked[i]) sorted.add(nodes.get(i));
+        }
+
+        return new ArrayList<>(sorted);
+    }
+
+    private boolean possibleAncestorSet(Node node1, List<Node> nodes2) {
+        for (Node node2 : nodes2) {
+            if (possibleAncestor(node1, node2)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void removeTriplesNotInGraph(Set<Triple> triples) {
+        for (Triple triple : new HashSet<>(triples)) {
+            if (!containsNode(triple.getX()) || !containsNode(triple.getY()) || !containsNode(triple.getZ())) {
+                triples.remove(triple);
+                continue;
+            }
+
+            if (!isAdjacentTo(triple.getX(), triple.getY()) || !isAdjacentTo(triple.getY(), triple.getZ())) {
+                triples.remove(triple);
+            }
+        }
+    }
+
+    /**
+     * Adds semantic checks to the default deserialization method. This method must have the standard signature for
+     * a readObject method, and the body of the method must begin with "s.defaultReadObject();". Other than that, any
+     * semantic checks can be specified and do not need to stay the same from version to version. A readObject method
+     * of this form may be added to any class, even if Tetrad sessions were previously saved out using a version of
+     * the class that didn't include it. (That's what the "s.defaultReadObject();" is for. See J. Bloch, Effective
+     * Java, for help.
+     */
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        if (nodes == null || adj == null || ends == null || degree == null) {
+            throw new NullPointerException();
+        }
+
+        indices = new HashMap<>();
+        reindex();
+    }
+}
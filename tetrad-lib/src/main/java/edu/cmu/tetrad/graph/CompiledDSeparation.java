@@ -0,0 +1,442 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, index-based snapshot of a graph for answering d-separation queries. The edges are held as
+ * int adjacency arrays with one slot per edge end, and queries run a breadth-first search over edge ends
+ * (the "Bayes ball" search of GraphUtils.isDConnectedTo) using visited bitsets and queues that are kept per
+ * thread and reused, so a query allocates nothing. The ancestor closure of every node is computed once, when
+ * the graph has at most CLOSURE_LIMIT nodes, so the ancestors of a conditioning set are the union of a few
+ * bit rows; for larger graphs they are found by a search up the parents for each query.
+ * <p>
+ * Colliders are judged by the endpoints of the two edges at the middle node, and underlined triples are
+ * treated as noncolliders, as in GraphUtils. The snapshot does not follow later changes to the graph, including
+ * endpoints changed in place on its Edge objects, so it is meant for graphs that are fixed while they are queried;
+ * IndTestDSep keeps one for the graph it tests. Build a new one if the graph changes. Queries are thread-safe.
+ *
+ * @author Joseph Ramsey
+ */
+public final class CompiledDSeparation {
+
+    /**
+     * The largest graph for which the ancestor closure is stored, as an n x n bit matrix (8 MB at this size).
+     */
+    public static final int CLOSURE_LIMIT = 8192;
+
+    private final List<Node> nodes;
+    private final Map<Node, Integer> indices;
+    private final int numNodes;
+
+    // Edge ends; the ends of node v are slots offsets[v] to offsets[v + 1] - 1.
+    private final int[] offsets;
+    private final int[] owners;
+    private final int[] neighbors;
+    private final int[] twins;
+
+    // Whether the edge has an arrow (tail) at the slot's node.
+    private final boolean[] arrows;
+    private final boolean[] tails;
+
+    // Node bits per row, rounded up to whole longs.
+    private final int words;
+
+    // Row-major ancestor closure; bit (v, w) is set if w is an ancestor of v (including v). Null if too large.
+    private final long[] closure;
+
+    // Underlined triples a-b-c, packed as (a * n + b) * n + c, in both orders; null if there are none.
+    private final Set<Long> underlines;
+
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * Compiles the given graph.
+     */
+    public CompiledDSeparation(Graph graph) {
+        this.nodes = graph.getNodes();
+        this.numNodes = nodes.size();
+        this.indices = new HashMap<>();
+
+        for (int i = 0; i < numNodes; i++) {
+            indices.put(nodes.get(i), i);
+        }
+
+        this.offsets = new int[numNodes + 1];
+        List<Edge> edges = new ArrayList<>(graph.getEdges());
+
+        edges.removeIf(edge -> !indices.containsKey(edge.getNode1()) || !indices.containsKey(edge.getNode2()));
+
+        for (Edge edge : edges) {
+            int i = indices.get(edge.getNode1());
+            int j = indices.get(edge.getNode2());
+            if (i == j) continue;
+            offsets[i + 1]++;
+            offsets[j + 1]++;
+        }
+
+        for (int v = 0; v < numNodes; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int numSlots = offsets[numNodes];
+        this.owners = new int[numSlots];
+        this.neighbors = new int[numSlots];
+        this.twins = new int[numSlots];
+        this.arrows = new boolean[numSlots];
+        this.tails = new boolean[numSlots];
+
+        int[] next = Arrays.copyOf(offsets, numNodes);
+
+        for (Edge edge : edges) {
+            int i = indices.get(edge.getNode1());
+            int j = indices.get(edge.getNode2());
+            if (i == j) continue;
+
+            int s = next[i]++;
+            int t = next[j]++;
+
+            owners[s] = i;
+            neighbors[s] = j;
+            twins[s] = t;
+            arrows[s] = edge.getEndpoint1() == Endpoint.ARROW;
+            tails[s] = edge.getEndpoint1() == Endpoint.TAIL;
+
+            owners[t] = j;
+            neighbors[t] = i;
+            twins[t] = s;
+            arrows[t] = edge.getEndpoint2() == Endpoint.ARROW;
+            tails[t] = edge.getEndpoint2() == Endpoint.TAIL;
+        }
+
+        this.words = (numNodes + 63) / 64;
+        this.closure = numNodes <= CLOSURE_LIMIT ? ancestorClosure() : null;
+
+        Set<Long> underlines = new HashSet<>();
+
+        for (Triple triple : graph.getUnderLines()) {
+            Integer a = indices.get(triple.getX());
+            Integer b = indices.get(triple.getY());
+            Integer c = indices.get(triple.getZ());
+            if (a == null || b == null || c == null) continue;
+            underlines.add(key(a, b, c));
+            underlines.add(key(c, b, a));
+        }
+
+        this.underlines = underlines.isEmpty() ? null : underlines;
+        this.scratch = ThreadLocal.withInitial(Scratch::new);
+    }
+
+    /**
+     * @return the nodes of the graph, in index order.
+     */
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the index of the given node, or -1 if it is not in the graph.
+     */
+    public int getIndex(Node node) {
+        Integer index = indices.get(node);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return true iff x and y are d-connected given z. A node not in the graph is connected only to itself;
+     * nodes of z that are not in the graph are ignored.
+     */
+    public boolean isDConnectedTo(Node x, Node y, List<Node> z) {
+        int _x = getIndex(x);
+        int _y = getIndex(y);
+
+        if (_x == -1 || _y == -1) {
+            return x == y;
+        }
+
+        Scratch s = scratch.get();
+        int numZ = indices(z, s);
+        return connected(s, _x, _y, s.z, numZ);
+    }
+
+    /**
+     * @return true iff x and y are d-separated given z.
+     * @see #isDConnectedTo(Node, Node, List)
+     */
+    public boolean isDSeparatedFrom(Node x, Node y, List<Node> z) {
+        return !isDConnectedTo(x, y, z);
+    }
+
+    /**
+     * @return true iff some node of x is d-connected to some node of y given z. Nodes that are not in the
+     * graph are ignored.
+     */
+    public boolean isDConnectedTo(List<Node> x, List<Node> y, List<Node> z) {
+        Scratch s = scratch.get();
+        int numZ = indices(z, s);
+
+        int[] _x = new int[x.size()];
+        int numX = 0;
+
+        for (Node node : x) {
+            int index = getIndex(node);
+            if (index != -1) _x[numX++] = index;
+        }
+
+        for (Node node : y) {
+            int index = getIndex(node);
+            if (index != -1) set(s.y, index);
+        }
+
+        try {
+            return connected(s, Arrays.copyOf(_x, numX), -1, s.z, numZ);
+        } finally {
+            for (Node node : y) {
+                int index = getIndex(node);
+                if (index != -1) clear(s.y, index);
+            }
+        }
+    }
+
+    /**
+     * @return true iff the nodes with indices x and y are d-connected given the nodes with the given indices.
+     */
+    public boolean isDConnectedTo(int x, int y, int[] z) {
+        return connected(scratch.get(), x, y, z, z.length);
+    }
+
+    private boolean connected(Scratch s, int x, int y, int[] z, int numZ) {
+        if (x == y) {
+            return true;
+        }
+
+        s.x[0] = x;
+        return connected(s, s.x, y, z, numZ);
+    }
+
+    // Searches from the nodes xs (only xs[0] if y >= 0) to y, or to the nodes in s.y if y < 0.
+    private boolean connected(Scratch s, int[] xs, int y, int[] z, int numZ) {
+        long[] visited = s.visited;
+        int[] queue = s.queue;
+        Arrays.fill(visited, 0L);
+        markConditioningSet(s, z, numZ);
+
+        try {
+            int head = 0;
+            int tail = 0;
+            int numX = y >= 0 ? 1 : xs.length;
+
+            for (int i = 0; i < numX; i++) {
+                int x = xs[i];
+
+                for (int slot = offsets[x]; slot < offsets[x + 1]; slot++) {
+                    if (isTarget(s, neighbors[slot], y)) {
+                        return true;
+                    }
+
+                    int t = twins[slot];
+
+                    if (!isSet(visited, t)) {
+                        set(visited, t);
+                        queue[tail++] = t;
+                    }
+                }
+            }
+
+            while (head < tail) {
+                int t = queue[head++];
+                int b = owners[t];
+                int a = neighbors[t];
+                boolean intoB = arrows[t];
+                boolean inZ = isSet(s.zMask, b);
+                boolean ancestorOfZ = isSet(s.zAncestors, b);
+
+                for (int slot = offsets[b]; slot < offsets[b + 1]; slot++) {
+                    int c = neighbors[slot];
+
+                    if (c == a) {
+                        continue;
+                    }
+
+                    boolean collider = intoB && arrows[slot];
+
+                    boolean reachable = ((!collider || isUnderline(a, b, c)) && !inZ)
+                            || (collider && ancestorOfZ);
+
+                    if (!reachable) {
+                        continue;
+                    }
+
+                    if (isTarget(s, c, y)) {
+                        return true;
+                    }
+
+                    int u = twins[slot];
+
+                    if (!isSet(visited, u)) {
+                        set(visited, u);
+                        queue[tail++] = u;
+                    }
+                }
+            }
+
+            return false;
+        } finally {
+            for (int i = 0; i < numZ; i++) clear(s.zMask, z[i]);
+        }
+    }
+
+    private boolean isTarget(Scratch s, int c, int y) {
+        return y >= 0 ? c == y : isSet(s.y, c);
+    }
+
+    private boolean isUnderline(int a, int b, int c) {
+        return underlines != null && underlines.contains(key(a, b, c));
+    }
+
+    // Marks z in zMask and the ancestors of z (including z) in zAncestors.
+    private void markConditioningSet(Scratch s, int[] z, int numZ) {
+        long[] zAncestors = s.zAncestors;
+        Arrays.fill(zAncestors, 0L);
+
+        for (int i = 0; i < numZ; i++) {
+            set(s.zMask, z[i]);
+        }
+
+        if (closure != null) {
+            for (int i = 0; i < numZ; i++) {
+                int row = z[i] * words;
+
+                for (int w = 0; w < words; w++) {
+                    zAncestors[w] |= closure[row + w];
+                }
+            }
+
+            return;
+        }
+
+        int[] stack = s.stack;
+        int top = 0;
+
+        for (int i = 0; i < numZ; i++) {
+            if (!isSet(zAncestors, z[i])) {
+                set(zAncestors, z[i]);
+                stack[top++] = z[i];
+            }
+        }
+
+        while (top > 0) {
+            int v = stack[--top];
+
+            for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                int p = neighbors[slot];
+
+                if (isParentSlot(slot) && !isSet(zAncestors, p)) {
+                    set(zAncestors, p);
+                    stack[top++] = p;
+                }
+            }
+        }
+    }
+
+    // True if the slot, an end at node v, is the end of an edge p --> v.
+    private boolean isParentSlot(int slot) {
+        return arrows[slot] && tails[twins[slot]];
+    }
+
+    private long[] ancestorClosure() {
+        long[] closure = new long[numNodes * words];
+        int[] stack = new int[numNodes];
+
+        for (int v = 0; v < numNodes; v++) {
+            int row = v * words;
+            int top = 0;
+            closure[row + v / 64] |= 1L << (v % 64);
+            stack[top++] = v;
+
+            while (top > 0) {
+                int w = stack[--top];
+
+                for (int slot = offsets[w]; slot < offsets[w + 1]; slot++) {
+                    int p = neighbors[slot];
+
+                    if (isParentSlot(slot) && (closure[row + p / 64] & (1L << (p % 64))) == 0) {
+                        closure[row + p / 64] |= 1L << (p % 64);
+                        stack[top++] = p;
+                    }
+                }
+            }
+        }
+
+        return closure;
+    }
+
+    private int indices(List<Node> z, Scratch s) {
+        if (s.z.length < z.size()) {
+            s.z = new int[z.size()];
+        }
+
+        int numZ = 0;
+
+        for (Node node : z) {
+            Integer index = indices.get(node);
+            if (index != null) s.z[numZ++] = index;
+        }
+
+        return numZ;
+    }
+
+    private long key(int a, int b, int c) {
+        return ((long) a * numNodes + b) * numNodes + c;
+    }
+
+    private static boolean isSet(long[] bits, int i) {
+        return (bits[i >> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] bits, int i) {
+        bits[i >> 6] |= 1L << i;
+    }
+
+    private static void clear(long[] bits, int i) {
+        bits[i >> 6] &= ~(1L << i);
+    }
+
+    // Per-thread search state, sized to the graph.
+    private final class Scratch {
+        final long[] visited = new long[(offsets[numNodes] + 63) / 64];
+        final int[] queue = new int[offsets[numNodes]];
+        final long[] zMask = new long[words];
+        final long[] zAncestors = new long[words];
+        final long[] y = new long[words];
+        final int[] stack = new int[numNodes];
+        final int[] x = new int[1];
+        int[] z = new int[16];
+    }
+}
@@ -3616,11 +3616,10 @@ public final class GraphUtils {
         List<Edge> edges = new ArrayList<>(edgeSet);
 
 //        System.out.println("Finding pool");
-        ForkJoinPoolInstance pool = ForkJoinPoolInstance.getInstance();
 
 //        System.out.println("Starting count task");
         CountTask task = new CountTask(500, 0, edges.size(), edges, leftGraph, topGraph, new int[1]);
-        Counts counts = pool.getPool().invoke(task);
+        Counts counts = ComputeExecutor.getInstance().invoke(task);
 
 //        System.out.println("Finishing count task");
         return counts.countArray();
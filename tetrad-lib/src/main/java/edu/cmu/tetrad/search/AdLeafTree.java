@@ -34,6 +34,9 @@ public class AdLeafTree {
     // Dimensions of the discrete variables (otherwise 0).
     private int[] dims;
 
+    // The number of row indices stored in the tree so far.
+    private long numRowIndices = 0;
+
     public AdLeafTree(DataSet dataSet) {
         this.dataSet = dataSet;
 
@@ -137,6 +140,22 @@ public class AdLeafTree {
         return rows;
     }
 
+    /**
+     * @return the number of row indices stored in the tree, a measure of the memory it takes up. The tree grows as
+     * cells over new combinations of variables are asked for.
+     */
+    public long getNumRowIndices() {
+        return numRowIndices;
+    }
+
+    /**
+     * Discards the tree grown so far; it will be regrown on demand.
+     */
+    public void clear() {
+        baseCase = null;
+        numRowIndices = 0;
+    }
+
     public void setColumn(DiscreteVariable var, int[] col) {
         discreteData[dataSet.getColumn(var)] = col;
     }
@@ -169,6 +188,7 @@ public class AdLeafTree {
             subVaries.add(new HashMap<Integer, Vary>());
             numCategories = 1;
             rows.add(_rows);
+            numRowIndices += _rows.size();
             subVaries = new ArrayList<>();
             subVaries.add(new HashMap<Integer, Vary>());
         }
@@ -189,6 +209,7 @@ public class AdLeafTree {
                 int index = discreteData[col][i];
                 if (index != -99) {
                     rows.get(index).add(i);
+                    numRowIndices++;
                 }
             }
         }
@@ -0,0 +1,152 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.graph.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts using an AD leaf tree (AdLeafTree), which is grown lazily as counts over new combinations of variables are
+ * asked for, so that a count over variables whose prefix has been counted before only visits the rows in the
+ * matching cells. Since the tree can grow large on wide data, it is discarded and regrown once it stores more than a
+ * given number of row indices.
+ *
+ * @author Joseph Ramsey
+ * @see AdLeafTree
+ */
+public class AdTreeCounter implements DiscreteCounter {
+
+    /**
+     * The default bound on the number of row indices stored in the tree.
+     */
+    public static final long DEFAULT_MAX_ROW_INDICES = 10000000L;
+
+    // The tree, grown on demand.
+    private final AdLeafTree tree;
+
+    // The variables of the data.
+    private final List<DiscreteVariable> variables;
+
+    // The number of rows in the data.
+    private final int sampleSize;
+
+    // True if some value in the data is missing.
+    private final boolean missingValues;
+
+    // The bound on the number of row indices stored in the tree.
+    private final long maxRowIndices;
+
+    /**
+     * Constructs a counter for the given discrete data set, with the default bound on the size of the tree.
+     */
+    public AdTreeCounter(DataSet dataSet) {
+        this(dataSet, DEFAULT_MAX_ROW_INDICES);
+    }
+
+    /**
+     * Constructs a counter for the given discrete data set, discarding the tree whenever it comes to store more than
+     * <code>maxRowIndices</code> row indices.
+     */
+    public AdTreeCounter(DataSet dataSet, long maxRowIndices) {
+        if (maxRowIndices < 0) {
+            throw new IllegalArgumentException("Max row indices must be >= 0: " + maxRowIndices);
+        }
+
+        this.variables = new ArrayList<>();
+
+        for (Node node : dataSet.getVariables()) {
+            if (!(node instanceof DiscreteVariable)) {
+                throw new IllegalArgumentException("Not a discrete variable: " + node);
+            }
+
+            this.variables.add((DiscreteVariable) node);
+        }
+
+        this.tree = new AdLeafTree(dataSet);
+        this.sampleSize = dataSet.getNumRows();
+        this.maxRowIndices = maxRowIndices;
+        this.missingValues = hasMissingValues(dataSet);
+    }
+
+    @Override
+    public synchronized int[] count(int[] vars) {
+        List<DiscreteVariable> A = new ArrayList<>();
+
+        for (int v : vars) {
+            A.add(variables.get(v));
+        }
+
+        List<List<Integer>> cells = tree.getCellLeaves(A);
+        int[] counts = new int[cells.size()];
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = cells.get(i).size();
+        }
+
+        if (tree.getNumRowIndices() > maxRowIndices) {
+            tree.clear();
+        }
+
+        return counts;
+    }
+
+    /**
+     * @return the number of row indices currently stored in the tree.
+     */
+    public synchronized long getNumRowIndices() {
+        return tree.getNumRowIndices();
+    }
+
+    @Override
+    public int getNumVariables() {
+        return variables.size();
+    }
+
+    @Override
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    @Override
+    public int getNumCategories(int var) {
+        return variables.get(var).getNumCategories();
+    }
+
+    @Override
+    public boolean hasMissingValues() {
+        return missingValues;
+    }
+
+    private static boolean hasMissingValues(DataSet dataSet) {
+        for (int j = 0; j < dataSet.getNumColumns(); j++) {
+            for (int i = 0; i < dataSet.getNumRows(); i++) {
+                if (dataSet.getInt(i, j) == DiscreteVariable.MISSING_VALUE) return true;
+            }
+        }
+
+        return false;
+    }
+}
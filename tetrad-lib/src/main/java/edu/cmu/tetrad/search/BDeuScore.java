@@ -42,6 +42,9 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
 
     private final int[] numCategories;
 
+    // Cached contingency counts, or null if the data is scanned for each score.
+    private DiscreteSufficientStatistics sufficientStatistics = null;
+
     public BDeuScore(DataSet dataSet) {
         if (dataSet == null) {
             throw new NullPointerException("Data was not provided.");
@@ -101,44 +104,61 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
         }
 
         // Conditional cell coefs of data for node given parents(node).
-        int[][] n_jk = new int[r][c];
+        int[][] n_jk;
         int[] n_j = new int[r];
+        int N = 0;
 
-        int[] parentValues = new int[parents.length];
+        if (sufficientStatistics != null) {
+            n_jk = sufficientStatistics.getConditionalCounts(node, parents);
 
-        int[][] myParents = new int[parents.length][];
-        for (int i = 0; i < parents.length; i++) {
-            myParents[i] = data[parents[i]];
-        }
+            for (int j = 0; j < r; j++) {
+                for (int k = 0; k < c; k++) {
+                    n_j[j] += n_jk[j][k];
+                }
 
-        int[] myChild = data[node];
+                N += n_j[j];
+            }
+        } else {
+            n_jk = new int[r][c];
 
-        int N = 0;
+            int[] parentValues = new int[parents.length];
 
-        ROW:
-        for (int i = 0; i < sampleSize; i++) {
-            for (int p = 0; p < parents.length; p++) {
-                if (myParents[p][i] == -99) continue ROW;
-                parentValues[p] = myParents[p][i];
+            int[][] myParents = new int[parents.length][];
+            for (int i = 0; i < parents.length; i++) {
+                myParents[i] = data[parents[i]];
             }
 
-            int childValue = myChild[i];
+            int[] myChild = data[node];
 
-            if (childValue == -99) {
-                continue;
-            }
+            ROW:
+            for (int i = 0; i < sampleSize; i++) {
+                for (int p = 0; p < parents.length; p++) {
+                    if (myParents[p][i] == -99) continue ROW;
+                    parentValues[p] = myParents[p][i];
+                }
+
+                int childValue = myChild[i];
+
+                if (childValue == -99) {
+                    continue;
+                }
 
-            int rowIndex = getRowIndex(dims, parentValues);
+                int rowIndex = getRowIndex(dims, parentValues);
 
-            n_jk[rowIndex][childValue]++;
-            n_j[rowIndex]++;
-            N++;
+                n_jk[rowIndex][childValue]++;
+                n_j[rowIndex]++;
+                N++;
+            }
         }
 
-        //Finally, compute the score
+        return score(c, r, n_jk, n_j, N, parents.length);
+    }
+
+    // Computes the score from the counts of a node with c categories given numParents parents with r states.
+    private double score(int c, int r, int[][] n_jk, int[] n_j, int N, int numParents) {
         double score = 0.0;
 
-        score += getPriorForStructure(parents.length, N);
+        score += getPriorForStructure(numParents, N);
 
         final double cellPrior = getSamplePrior() / (c * r);
         final double rowPrior = getSamplePrior() / r;
@@ -173,6 +193,75 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
         return localScore(y, x) - localScore(y);
     }
 
+    /**
+     * Counts all of the xs in one pass over the data for y and z: the index of each case in the table for z is
+     * found once, and each x only adds its own value to it. Falls back to scoring the xs one at a time if
+     * sufficient statistics are cached.
+     */
+    @Override
+    public double[] localScoreDiffs(int[] xs, int y, int[] z) {
+        if (sufficientStatistics != null) {
+            double[] diffs = new double[xs.length];
+            for (int k = 0; k < xs.length; k++) diffs[k] = localScoreDiff(xs[k], y, z);
+            return diffs;
+        }
+
+        int c = numCategories[y];
+        int[] dims = new int[z.length];
+        int rz = 1;
+
+        for (int p = 0; p < z.length; p++) {
+            dims[p] = numCategories[z[p]];
+            rz *= dims[p];
+        }
+
+        // The row index in the table for z of each case, or -1 if y or some z is missing.
+        int[] zRows = new int[sampleSize];
+        int[] zValues = new int[z.length];
+        int[] myChild = data[y];
+
+        ROW:
+        for (int i = 0; i < sampleSize; i++) {
+            for (int p = 0; p < z.length; p++) {
+                if (data[z[p]][i] == -99) {
+                    zRows[i] = -1;
+                    continue ROW;
+                }
+
+                zValues[p] = data[z[p]][i];
+            }
+
+            zRows[i] = myChild[i] == -99 ? -1 : getRowIndex(dims, zValues);
+        }
+
+        double score0 = localScore(y, z);
+        double[] diffs = new double[xs.length];
+
+        for (int k = 0; k < xs.length; k++) {
+            int cx = numCategories[xs[k]];
+            int r = rz * cx;
+            int[] myX = data[xs[k]];
+
+            int[][] n_jk = new int[r][c];
+            int[] n_j = new int[r];
+            int N = 0;
+
+            for (int i = 0; i < sampleSize; i++) {
+                if (zRows[i] == -1 || myX[i] == -99) continue;
+
+                int rowIndex = zRows[i] * cx + myX[i];
+
+                n_jk[rowIndex][myChild[i]]++;
+                n_j[rowIndex]++;
+                N++;
+            }
+
+            diffs[k] = score(c, r, n_jk, n_j, N, z.length + 1) - score0;
+        }
+
+        return diffs;
+    }
+
     int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
@@ -240,6 +329,23 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
         this.samplePrior = samplePrior;
     }
 
+    /**
+     * Sets the contingency counts to score from, which must be for the data this score was constructed with, so
+     * that the data is not rescanned for each score. Null (the default) scans the data each time.
+     */
+    public void setSufficientStatistics(DiscreteSufficientStatistics sufficientStatistics) {
+        if (sufficientStatistics != null && (sufficientStatistics.getNumVariables() != variables.size()
+                || sufficientStatistics.getSampleSize() != sampleSize)) {
+            throw new IllegalArgumentException("Those counts are not for this data.");
+        }
+
+        this.sufficientStatistics = sufficientStatistics;
+    }
+
+    public DiscreteSufficientStatistics getSufficientStatistics() {
+        return sufficientStatistics;
+    }
+
     public void setVariables(List<Node> variables) {
         for (int i = 0; i < variables.size(); i++) {
             if (!variables.get(i).getName().equals(this.variables.get(i).getName())) {
@@ -39,6 +39,9 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
     private final int[] numCategories;
     private double structurePrior = 1;
 
+    // Cached contingency counts, or null if the data is scanned for each score.
+    private DiscreteSufficientStatistics sufficientStatistics = null;
+
     public BicScore(DataSet dataSet) {
         if (dataSet == null) {
             throw new NullPointerException("Data was not provided.");
@@ -108,38 +111,51 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
         }
 
         // Conditional cell coefs of data for node given parents(node).
-        int[][] n_jk = new int[r][c];
+        int[][] n_jk;
         int[] n_j = new int[r];
+        int N = 0;
 
-        int[] parentValues = new int[parents.length];
+        if (sufficientStatistics != null) {
+            n_jk = sufficientStatistics.getConditionalCounts(node, parents);
 
-        int[][] myParents = new int[parents.length][];
-        for (int i = 0; i < parents.length; i++) {
-            myParents[i] = data[parents[i]];
-        }
+            for (int j = 0; j < r; j++) {
+                for (int k = 0; k < c; k++) {
+                    n_j[j] += n_jk[j][k];
+                }
 
-        int[] myChild = data[node];
+                N += n_j[j];
+            }
+        } else {
+            n_jk = new int[r][c];
 
-        int N = 0;
+            int[] parentValues = new int[parents.length];
 
-        ROW:
-        for (int i = 0; i < sampleSize; i++) {
-            for (int p = 0; p < parents.length; p++) {
-                if (myParents[p][i] == -99) continue ROW;
-                parentValues[p] = myParents[p][i];
+            int[][] myParents = new int[parents.length][];
+            for (int i = 0; i < parents.length; i++) {
+                myParents[i] = data[parents[i]];
             }
 
-            int childValue = myChild[i];
+            int[] myChild = data[node];
 
-            if (childValue == -99) {
-                continue;
-            }
+            ROW:
+            for (int i = 0; i < sampleSize; i++) {
+                for (int p = 0; p < parents.length; p++) {
+                    if (myParents[p][i] == -99) continue ROW;
+                    parentValues[p] = myParents[p][i];
+                }
 
-            int rowIndex = getRowIndex(dims, parentValues);
+                int childValue = myChild[i];
+
+                if (childValue == -99) {
+                    continue;
+                }
 
-            n_jk[rowIndex][childValue]++;
-            n_j[rowIndex]++;
-            N++;
+                int rowIndex = getRowIndex(dims, parentValues);
+
+                n_jk[rowIndex][childValue]++;
+                n_j[rowIndex]++;
+                N++;
+            }
         }
 
         //Finally, compute the score
@@ -243,6 +259,23 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Sets the contingency counts to score from, which must be for the data this score was constructed with, so
+     * that the data is not rescanned for each score. Null (the default) scans the data each time.
+     */
+    public void setSufficientStatistics(DiscreteSufficientStatistics sufficientStatistics) {
+        if (sufficientStatistics != null && (sufficientStatistics.getNumVariables() != variables.size()
+                || sufficientStatistics.getSampleSize() != sampleSize)) {
+            throw new IllegalArgumentException("Those counts are not for this data.");
+        }
+
+        this.sufficientStatistics = sufficientStatistics;
+    }
+
+    public DiscreteSufficientStatistics getSufficientStatistics() {
+        return sufficientStatistics;
+    }
+
     public void setVariables(List<Node> variables) {
         for (int i = 0; i < variables.size(); i++) {
             if (!variables.get(i).getName().equals(this.variables.get(i).getName())) {
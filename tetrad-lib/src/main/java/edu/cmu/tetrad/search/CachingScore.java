@@ -0,0 +1,183 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.graph.Node;
+
+import java.util.List;
+
+/**
+ * Wraps a score so that local scores and local score differences are computed once per
+ * (variable, parents) and thereafter looked up in a bounded LocalScoreCache. Any search
+ * taking a Score (FGES, FGES-MB, GFCI, TsFGES) can be given the wrapped score in place of
+ * the original. The wrapped score should be configured (penalty discount, priors) before
+ * it is wrapped; changing it afterward would leave stale entries in the cache.
+ *
+ * @author Joseph Ramsey
+ */
+public class CachingScore implements Score {
+
+    private final Score score;
+
+    // Scores keyed by (node, parents).
+    private final LocalScoreCache scoreCache;
+
+    // Score differences keyed by (y, x, z), with x kept apart from the sorted z.
+    private final LocalScoreCache diffCache;
+
+    public CachingScore(Score score) {
+        this(score, LocalScoreCache.DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param score      The score to wrap.
+     * @param maxEntries The maximum number of entries in each of the score and score-difference
+     *                   caches.
+     */
+    public CachingScore(Score score, int maxEntries) {
+        if (score == null) {
+            throw new NullPointerException("Score not provided.");
+        }
+
+        this.score = score;
+        this.scoreCache = new LocalScoreCache(maxEntries);
+        this.diffCache = new LocalScoreCache(maxEntries);
+    }
+
+    @Override
+    public double localScore(int node, int... parents) {
+        double s = scoreCache.get(node, parents);
+
+        if (Double.isNaN(s)) {
+            s = score.localScore(node, parents);
+
+            // NaN marks a miss, so NaN scores are simply recomputed.
+            if (!Double.isNaN(s)) {
+                scoreCache.add(node, parents, s);
+            }
+        }
+
+        return s;
+    }
+
+    @Override
+    public double localScoreDiff(int x, int y, int[] z) {
+        double d = diffCache.get(y, x, z);
+
+        if (Double.isNaN(d)) {
+            d = score.localScoreDiff(x, y, z);
+
+            if (!Double.isNaN(d)) {
+                diffCache.add(y, x, z, d);
+            }
+        }
+
+        return d;
+    }
+
+    @Override
+    public double localScoreDiff(int x, int y) {
+        return localScoreDiff(x, y, new int[0]);
+    }
+
+    @Override
+    public double localScore(int node, int parent) {
+        return localScore(node, new int[]{parent});
+    }
+
+    @Override
+    public double localScore(int node) {
+        return localScore(node, new int[0]);
+    }
+
+    @Override
+    public List<Node> getVariables() {
+        return score.getVariables();
+    }
+
+    @Override
+    public boolean isEffectEdge(double bump) {
+        return score.isEffectEdge(bump);
+    }
+
+    @Override
+    public int getSampleSize() {
+        return score.getSampleSize();
+    }
+
+    @Override
+    public Node getVariable(String targetName) {
+        return score.getVariable(targetName);
+    }
+
+    @Override
+    public int getMaxDegree() {
+        return score.getMaxDegree();
+    }
+
+    @Override
+    public boolean determines(List<Node> z, Node y) {
+        return score.determines(z, y);
+    }
+
+    @Override
+    public Score defaultScore() {
+        return score.defaultScore();
+    }
+
+    /**
+     * @return The wrapped score.
+     */
+    public Score getScore() {
+        return score;
+    }
+
+    /**
+     * @return The cache of local scores, for hit-rate and eviction statistics.
+     */
+    public LocalScoreCache getScoreCache() {
+        return scoreCache;
+    }
+
+    /**
+     * @return The cache of local score differences, for hit-rate and eviction statistics.
+     */
+    public LocalScoreCache getDiffCache() {
+        return diffCache;
+    }
+
+    /**
+     * Empties both caches; call this if the wrapped score is reconfigured.
+     */
+    public void clearCache() {
+        scoreCache.clear();
+        diffCache.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "Caching " + score.toString();
+    }
+}
+
+
+
@@ -57,6 +57,11 @@ public class ChiSquareTest {
      */
     private double alpha;
 
+    /**
+     * Cached contingency counts for the data, or null if the data is scanned for each test.
+     */
+    private DiscreteSufficientStatistics sufficientStatistics = null;
+
     //==============================CONSTRUCTORS=========================//
 
     /**
@@ -94,7 +99,7 @@ public class ChiSquareTest {
 
         // Reset the cell table for the columns referred to in
         // 'testIndices.' Do cell coefs for those columns.
-        this.getCellTable().addToTable(getDataSet(), testIndices);
+        fillCellTable(testIndices);
 
         // Indicator arrays to tell the cell table which margins
         // to calculate. For x _||_ y | z1, z2, ..., we want to
@@ -202,7 +207,7 @@ public class ChiSquareTest {
 
         // Reset the cell table for the columns referred to in
         // 'testIndices.' Do cell coefs for those columns.
-        this.getCellTable().addToTable(getDataSet(), testIndices);
+        fillCellTable(testIndices);
 
         // Indicator arrays to tell the cell table which margins
         // to calculate. For x _||_ y | z1, z2, ..., we want to
@@ -271,6 +276,35 @@ public class ChiSquareTest {
 
     //================================PRIVATE==============================//
 
+    /**
+     * Sets the contingency counts to test from, which must be for the data this test was constructed with, so that
+     * the data is not rescanned for each test. Null (the default) scans the data each time.
+     */
+    public void setSufficientStatistics(DiscreteSufficientStatistics sufficientStatistics) {
+        if (sufficientStatistics != null && (sufficientStatistics.getNumVariables() != dataSet.getNumColumns()
+                || sufficientStatistics.getSampleSize() != dataSet.getNumRows())) {
+            throw new IllegalArgumentException("Those counts are not for this data.");
+        }
+
+        this.sufficientStatistics = sufficientStatistics;
+    }
+
+    public DiscreteSufficientStatistics getSufficientStatistics() {
+        return sufficientStatistics;
+    }
+
+    /**
+     * Loads the cell table with the counts for the variables at the given indices, in order.
+     */
+    protected void fillCellTable(int[] testIndices) {
+        if (sufficientStatistics != null) {
+            getCellTable().setCounts(selectFromArray(getDims(), testIndices),
+                    sufficientStatistics.getJointCounts(testIndices));
+        } else {
+            getCellTable().addToTable(getDataSet(), testIndices);
+        }
+    }
+
     public int[] selectFromArray(int[] arr, int[] indices) {
         int[] retArr = new int[indices.length];
 
@@ -137,6 +137,21 @@ public class ConditionalGaussianScore implements Score {
         return localScore(y, x) - localScore(y);
     }
 
+    /**
+     * Scores y given z once for the batch, rather than once for each x.
+     */
+    @Override
+    public double[] localScoreDiffs(int[] xs, int y, int[] z) {
+        double score0 = localScore(y, z);
+        double[] diffs = new double[xs.length];
+
+        for (int i = 0; i < xs.length; i++) {
+            diffs[i] = localScore(y, append(z, xs[i])) - score0;
+        }
+
+        return diffs;
+    }
+
     private int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
@@ -31,6 +31,7 @@ import org.apache.commons.math3.linear.RealMatrix;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -182,12 +183,18 @@ public class DegenerateGaussianScore implements Score {
             B_[i_] = B.get(i_);
         }
 
-        int dof = (A_.length * (A_.length + 1) - B_.length * (B_.length + 1)) / 2;
-        double ldetA = log(getCov(rows, A_).det());
-        double ldetB = log(getCov(rows, B_).det());
+        return score(N, A_.length, B_.length, getCov(rows, A_), getCov(rows, B_), parents.length);
+    }
+
+    // The score from the covariance matrices of the embedded columns of a node and its parents (A) and of its
+    // parents alone (B).
+    private double score(int N, int a, int b, Matrix covA, Matrix covB, int numParents) {
+        int dof = (a * (a + 1) - b * (b + 1)) / 2;
+        double ldetA = log(covA.det());
+        double ldetB = log(covB.det());
 
-        double lik = N * (ldetB - ldetA + L2PE * (B_.length - A_.length));
-        return 2 * lik + 2 * calculateStructurePrior(parents.length) - dof * getPenaltyDiscount() * log(N);
+        double lik = N * (ldetB - ldetA + L2PE * (b - a));
+        return 2 * lik + 2 * calculateStructurePrior(numParents) - dof * getPenaltyDiscount() * log(N);
     }
 
     private double calculateStructurePrior(int k) {
@@ -210,6 +217,64 @@ public class DegenerateGaussianScore implements Score {
         return localScore(y, x) - localScore(y);
     }
 
+    /**
+     * Computes the covariances among the embedded columns of y and z once for the batch; for each x only the
+     * entries involving x's columns are added. An x whose complete rows differ from those of y and z is scored on
+     * its own.
+     */
+    @Override
+    public double[] localScoreDiffs(int[] xs, int y, int[] z) {
+        List<Integer> rows = getRows(y, z);
+
+        if (rows.isEmpty()) {
+            return Score.super.localScoreDiffs(xs, y, z);
+        }
+
+        List<Integer> base = new ArrayList<>(this.embedding.get(y));
+        int a = base.size();
+
+        for (int i_ : z) {
+            base.addAll(this.embedding.get(i_));
+        }
+
+        int[] _base = new int[base.size()];
+        for (int i_ = 0; i_ < base.size(); i_++) _base[i_] = base.get(i_);
+        Matrix baseCov = getCov(rows, _base);
+
+        double score0 = localScore(y, z);
+        double[] diffs = new double[xs.length];
+
+        for (int i = 0; i < xs.length; i++) {
+            int[] parents = append(z, xs[i]);
+
+            if (!getRows(y, parents).equals(rows)) {
+                diffs[i] = localScoreDiff(xs[i], y, z);
+                continue;
+            }
+
+            List<Integer> X = this.embedding.get(xs[i]);
+            int[] A_ = Arrays.copyOf(_base, _base.length + X.size());
+            for (int i_ = 0; i_ < X.size(); i_++) A_[_base.length + i_] = X.get(i_);
+
+            Matrix covA = new Matrix(A_.length, A_.length);
+
+            for (int p = 0; p < A_.length; p++) {
+                for (int q = 0; q < A_.length; q++) {
+                    covA.set(p, q, p < _base.length && q < _base.length ? baseCov.get(p, q)
+                            : covariance(rows, A_[p], A_[q]));
+                }
+            }
+
+            int[] bIndices = new int[A_.length - a];
+            for (int i_ = 0; i_ < bIndices.length; i_++) bIndices[i_] = a + i_;
+            Matrix covB = covA.getSelection(bIndices, bIndices);
+
+            diffs[i] = score(rows.size(), A_.length, bIndices.length, covA, covB, parents.length) - score0;
+        }
+
+        return diffs;
+    }
+
     private int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
@@ -295,29 +360,32 @@ public class DegenerateGaussianScore implements Score {
 
         for (int i = 0; i < cols.length; i++) {
             for (int j = 0; j < cols.length; j++) {
-                double mui = 0.0;
-                double muj = 0.0;
+                cov.set(i, j, covariance(rows, cols[i], cols[j]));
+            }
+        }
 
-                for (int k : rows) {
-                    mui += ddata.getDouble(k, cols[i]);
-                    muj += ddata.getDouble(k, cols[j]);
-                }
+        return cov;
+    }
 
-                mui /= rows.size() - 1;
-                muj /= rows.size() - 1;
+    private double covariance(List<Integer> rows, int i, int j) {
+        double mui = 0.0;
+        double muj = 0.0;
 
-                double _cov = 0.0;
+        for (int k : rows) {
+            mui += ddata.getDouble(k, i);
+            muj += ddata.getDouble(k, j);
+        }
 
-                for (int k : rows) {
-                    _cov += (ddata.getDouble(k, cols[i]) - mui) * (ddata.getDouble(k, cols[j]) - muj);
-                }
+        mui /= rows.size() - 1;
+        muj /= rows.size() - 1;
 
-                double mean = _cov / (rows.size());
-                cov.set(i, j, mean);
-            }
+        double _cov = 0.0;
+
+        for (int k : rows) {
+            _cov += (ddata.getDouble(k, i) - mui) * (ddata.getDouble(k, j) - muj);
         }
 
-        return cov;
+        return _cov / (rows.size());
     }
 
     private List<Integer> getRows(int i, int[] parents) {
@@ -41,6 +41,9 @@ public class DirichletScore implements LocalDiscreteScore, Score {
 
     private int[] numCategories;
 
+    // Cached contingency counts, or null if the data is scanned for each score.
+    private DiscreteSufficientStatistics sufficientStatistics = null;
+
     private double lastBumpThreshold = 0.0;
 
     public DirichletScore(DataSet dataSet) {
@@ -108,34 +111,46 @@ public class DirichletScore implements LocalDiscreteScore, Score {
         }
 
         // Conditional cell coefs of data for node given parents(node).
-        int n_jk[][] = new int[q][r];
+        int n_jk[][];
         int n_j[] = new int[q];
 
-        int[] parentValues = new int[parents.length];
+        if (sufficientStatistics != null) {
+            n_jk = sufficientStatistics.getConditionalCounts(node, parents);
 
-        int[][] myParents = new int[parents.length][];
-        for (int i = 0; i < parents.length; i++) {
-            myParents[i] = data[parents[i]];
-        }
+            for (int j = 0; j < q; j++) {
+                for (int k = 0; k < r; k++) {
+                    n_j[j] += n_jk[j][k];
+                }
+            }
+        } else {
+            n_jk = new int[q][r];
 
-        int[] myChild = data[node];
+            int[] parentValues = new int[parents.length];
 
-        for (int i = 0; i < sampleSize; i++) {
-            for (int p = 0; p < parents.length; p++) {
-                parentValues[p] = myParents[p][i];
+            int[][] myParents = new int[parents.length][];
+            for (int i = 0; i < parents.length; i++) {
+                myParents[i] = data[parents[i]];
             }
 
-            int childValue = myChild[i];
+            int[] myChild = data[node];
 
-            if (childValue == -99) {
-                throw new IllegalStateException("Please remove or impute missing " +
-                        "values (record " + i + " column " + i + ")");
-            }
+            for (int i = 0; i < sampleSize; i++) {
+                for (int p = 0; p < parents.length; p++) {
+                    parentValues[p] = myParents[p][i];
+                }
+
+                int childValue = myChild[i];
 
-            int rowIndex = getRowIndex(dims, parentValues);
+                if (childValue == -99) {
+                    throw new IllegalStateException("Please remove or impute missing " +
+                            "values (record " + i + " column " + i + ")");
+                }
 
-            n_jk[rowIndex][childValue]++;
-            n_j[rowIndex]++;
+                int rowIndex = getRowIndex(dims, parentValues);
+
+                n_jk[rowIndex][childValue]++;
+                n_j[rowIndex]++;
+            }
         }
 
         //Finally, compute the score
@@ -332,6 +347,27 @@ public class DirichletScore implements LocalDiscreteScore, Score {
         this.samplePrior = samplePrior;
     }
 
+    /**
+     * Sets the contingency counts to score from, which must be for the data this score was constructed with, so
+     * that the data is not rescanned for each score. Null (the default) scans the data each time.
+     */
+    public void setSufficientStatistics(DiscreteSufficientStatistics sufficientStatistics) {
+        if (sufficientStatistics != null && (sufficientStatistics.getNumVariables() != variables.size()
+                || sufficientStatistics.getSampleSize() != sampleSize)) {
+            throw new IllegalArgumentException("Those counts are not for this data.");
+        }
+
+        if (sufficientStatistics != null && sufficientStatistics.hasMissingValues()) {
+            throw new IllegalArgumentException("Please remove or impute missing values.");
+        }
+
+        this.sufficientStatistics = sufficientStatistics;
+    }
+
+    public DiscreteSufficientStatistics getSufficientStatistics() {
+        return sufficientStatistics;
+    }
+
     @Override
     public Node getVariable(String targetName) {
         for (Node node : variables) {
@@ -0,0 +1,63 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+/**
+ * Counts the value combinations of sets of discrete variables in a data set. This is the backend
+ * DiscreteSufficientStatistics builds its tables with; implementations trade memory and setup time against the cost
+ * of a count in different ways.
+ *
+ * @author Joseph Ramsey
+ * @see RowScanCounter
+ * @see AdTreeCounter
+ * @see DistinctRowCounter
+ */
+public interface DiscreteCounter {
+
+    /**
+     * @param vars Indices of distinct variables, in increasing order.
+     * @return the joint counts of the given variables. The count of the value combination (v1,...,vn) is at index
+     * ((v1 * d2 + v2) * d3 + v3)..., where di is the number of categories of the i'th variable. Rows with a missing
+     * value in any of the variables are not counted.
+     */
+    int[] count(int[] vars);
+
+    /**
+     * @return the number of variables.
+     */
+    int getNumVariables();
+
+    /**
+     * @return the number of rows of data.
+     */
+    int getSampleSize();
+
+    /**
+     * @return the number of categories of the given variable.
+     */
+    int getNumCategories(int var);
+
+    /**
+     * @return true if some value in the data is missing.
+     */
+    boolean hasMissingValues();
+}
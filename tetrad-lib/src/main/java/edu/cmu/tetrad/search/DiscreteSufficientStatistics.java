@@ -0,0 +1,492 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.Params;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contingency counts for a discrete data set, shared between the discrete scores (BDeu, BIC, Dirichlet) and the
+ * chi square and G square tests so that the data is not rescanned for every call.
+ * <p>
+ * Joint count tables are cached by the (unordered) set of variables they range over. A table that is not in the
+ * cache is, where possible, obtained by summing out one variable from a cached table over a superset of its
+ * variables--this is the common case in greedy searches, where the score of y given Z is asked for right after the
+ * score of y given Z + x. Otherwise it is counted by a DiscreteCounter backend, which by default scans the data. Rows with a missing value in any of the
+ * variables of a table are skipped, as in the scores and tests; since such a table can't be derived from a superset
+ * table, marginalization is only used when the data has no missing values.
+ * <p>
+ * The cache is bounded by the total number of cells it holds, evicting least recently used tables first. The class
+ * is thread safe.
+ *
+ * @author Joseph Ramsey
+ */
+public class DiscreteSufficientStatistics {
+
+    /**
+     * The default bound on the total number of cells held by the cache.
+     */
+    public static final long DEFAULT_MAX_CELLS = 10000000L;
+
+    /**
+     * The ways tables not obtainable from the cache can be counted.
+     */
+    public enum Backend {
+
+        /**
+         * Scan all rows of the data.
+         */
+        ROW_SCAN,
+
+        /**
+         * Look up cells in an AD tree grown on demand.
+         */
+        AD_TREE,
+
+        /**
+         * Scan a hash table of the distinct rows of the data.
+         */
+        DISTINCT_ROWS
+    }
+
+    // Counts tables that aren't cached.
+    private final DiscreteCounter counter;
+
+    // Copied from the counter.
+    private final boolean missingValues;
+
+    // The bound on the total number of cells cached.
+    private final long maxCells;
+
+    // Joint count tables keyed by sorted variable sets, in access order.
+    private final LinkedHashMap<Key, int[]> tables = new LinkedHashMap<>(64, 0.75f, true);
+
+    // The total number of cells in the cached tables.
+    private long numCells = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong marginalizations = new AtomicLong();
+    private final AtomicLong scans = new AtomicLong();
+
+    /**
+     * Constructs counts for the given discrete data set, with the default bound on the size of the cache.
+     */
+    public DiscreteSufficientStatistics(DataSet dataSet) {
+        this(dataSet, DEFAULT_MAX_CELLS);
+    }
+
+    /**
+     * Constructs counts for the given discrete data set, caching at most <code>maxCells</code> cells in total.
+     */
+    public DiscreteSufficientStatistics(DataSet dataSet, long maxCells) {
+        this(new RowScanCounter(dataSet), maxCells);
+    }
+
+    /**
+     * Constructs counts for the given discrete data set, counting with the given backend and caching at most
+     * <code>maxCells</code> cells in total.
+     */
+    public DiscreteSufficientStatistics(DataSet dataSet, Backend backend, long maxCells) {
+        this(counter(dataSet, backend), maxCells);
+    }
+
+    /**
+     * Constructs counts for the given column-major data.
+     *
+     * @param data          data[j][i] is the value of variable j in row i, or DiscreteVariable.MISSING_VALUE.
+     * @param numCategories the number of categories of each variable.
+     * @param sampleSize    the number of rows of data to use.
+     * @param maxCells      the bound on the total number of cells cached.
+     */
+    public DiscreteSufficientStatistics(int[][] data, int[] numCategories, int sampleSize, long maxCells) {
+        this(new RowScanCounter(data, numCategories, sampleSize), maxCells);
+    }
+
+    /**
+     * Constructs counts that are obtained from the given counter when not cached, caching at most
+     * <code>maxCells</code> cells in total.
+     */
+    public DiscreteSufficientStatistics(DiscreteCounter counter, long maxCells) {
+        if (counter == null) {
+            throw new NullPointerException("Counter was not provided.");
+        }
+
+        if (maxCells < 0) {
+            throw new IllegalArgumentException("Max cells must be >= 0: " + maxCells);
+        }
+
+        this.counter = counter;
+        this.maxCells = maxCells;
+        this.missingValues = counter.hasMissingValues();
+    }
+
+    /**
+     * @return counts for the given discrete data set as configured by the cacheDiscreteCounts and
+     * discreteCountsBackend parameters, or null if they call for neither caching nor a backend other than a row
+     * scan, in which case scores and tests may as well scan the data themselves.
+     */
+    public static DiscreteSufficientStatistics fromParameters(DataSet dataSet, Parameters parameters) {
+        boolean cache = parameters.getBoolean(Params.CACHE_DISCRETE_COUNTS);
+        int backend = parameters.getInt(Params.DISCRETE_COUNTS_BACKEND);
+
+        if (backend < 1 || backend > Backend.values().length) {
+            throw new IllegalArgumentException("Unrecognized discrete counts backend: " + backend);
+        }
+
+        if (!cache && backend == 1) {
+            return null;
+        }
+
+        return new DiscreteSufficientStatistics(dataSet, Backend.values()[backend - 1], cache ? DEFAULT_MAX_CELLS : 0);
+    }
+
+    /**
+     * @return the joint counts of the given (distinct) variables. The count of the value combination (v1,...,vn)
+     * is at index ((v1 * d2 + v2) * d3 + v3)..., where di is the number of categories of the i'th variable, so the
+     * first variable varies slowest. The returned array is not shared.
+     */
+    public int[] getJointCounts(int... vars) {
+        int[] sorted = Arrays.copyOf(vars, vars.length);
+        Arrays.sort(sorted);
+
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] == sorted[i - 1]) {
+                throw new IllegalArgumentException("Variable listed twice: " + sorted[i]);
+            }
+        }
+
+        int[] table = getTable(sorted);
+
+        if (Arrays.equals(sorted, vars)) {
+            return Arrays.copyOf(table, table.length);
+        }
+
+        // Reorder from sorted order to the requested order.
+        int n = vars.length;
+        int[] strides = new int[n];
+        int stride = 1;
+
+        for (int i = n - 1; i >= 0; i--) {
+            strides[i] = stride;
+            stride *= counter.getNumCategories(vars[i]);
+        }
+
+        int[] sortedStrides = new int[n];
+        int[] sortedDims = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            int pos = Arrays.binarySearch(sorted, vars[i]);
+            sortedStrides[pos] = strides[i];
+            sortedDims[pos] = counter.getNumCategories(vars[i]);
+        }
+
+        int[] counts = new int[table.length];
+        int[] coords = new int[n];
+        int index = 0;
+
+        for (int cell = 0; cell < table.length; cell++) {
+            counts[index] += table[cell];
+
+            // Advance the coordinates over the sorted table, last variable fastest.
+            for (int i = n - 1; i >= 0; i--) {
+                index += sortedStrides[i];
+
+                if (++coords[i] < sortedDims[i]) break;
+
+                index -= sortedStrides[i] * coords[i];
+                coords[i] = 0;
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * @return the counts n_jk of the child taking its k'th value in rows where the parents take their j'th value
+     * combination, with the first parent varying slowest. Rows with a missing value in the child or a parent are
+     * not counted.
+     */
+    public int[][] getConditionalCounts(int child, int[] parents) {
+        int[] vars = new int[parents.length + 1];
+        System.arraycopy(parents, 0, vars, 0, parents.length);
+        vars[parents.length] = child;
+
+        int[] joint = getJointCounts(vars);
+        int c = counter.getNumCategories(child);
+        int[][] n_jk = new int[joint.length / c][c];
+
+        for (int j = 0; j < n_jk.length; j++) {
+            System.arraycopy(joint, j * c, n_jk[j], 0, c);
+        }
+
+        return n_jk;
+    }
+
+    /**
+     * @return the number of variables.
+     */
+    public int getNumVariables() {
+        return counter.getNumVariables();
+    }
+
+    /**
+     * @return the number of rows of data.
+     */
+    public int getSampleSize() {
+        return counter.getSampleSize();
+    }
+
+    /**
+     * @return the number of categories of the given variable.
+     */
+    public int getNumCategories(int var) {
+        return counter.getNumCategories(var);
+    }
+
+    /**
+     * @return true if some value in the data is missing.
+     */
+    public boolean hasMissingValues() {
+        return missingValues;
+    }
+
+    /**
+     * @return the backend that counts tables that aren't cached.
+     */
+    public DiscreteCounter getCounter() {
+        return counter;
+    }
+
+    /**
+     * @return the bound on the total number of cells cached.
+     */
+    public long getMaxCells() {
+        return maxCells;
+    }
+
+    /**
+     * @return the total number of cells in the cached tables.
+     */
+    public synchronized long getNumCells() {
+        return numCells;
+    }
+
+    /**
+     * @return the number of cached tables.
+     */
+    public synchronized int getNumTables() {
+        return tables.size();
+    }
+
+    /**
+     * @return the number of tables found in the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of tables obtained by summing out a variable from a cached table.
+     */
+    public long getMarginalizations() {
+        return marginalizations.get();
+    }
+
+    /**
+     * @return the number of tables obtained from the backend.
+     */
+    public long getScans() {
+        return scans.get();
+    }
+
+    /**
+     * Removes all cached tables and resets the statistics.
+     */
+    public synchronized void clear() {
+        tables.clear();
+        numCells = 0;
+        hits.set(0);
+        marginalizations.set(0);
+        scans.set(0);
+    }
+
+    public String toString() {
+        return "DiscreteSufficientStatistics(tables = " + getNumTables() + ", cells = " + getNumCells()
+                + ", hits = " + getHits() + ", marginalizations = " + getMarginalizations()
+                + ", scans = " + getScans() + ")";
+    }
+
+    //==============================PRIVATE METHODS=========================//
+
+    // The table for the given sorted variables, in sorted order. Not to be modified.
+    private int[] getTable(int[] sorted) {
+        Key key = new Key(sorted);
+        int[] table = lookup(key);
+
+        if (table != null) {
+            hits.incrementAndGet();
+            return table;
+        }
+
+        long size = numCells(sorted);
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Table over " + Arrays.toString(sorted) + " has too many cells: "
+                    + size);
+        }
+
+        table = marginalizeCached(sorted);
+
+        if (table == null) {
+            table = counter.count(sorted);
+            scans.incrementAndGet();
+        } else {
+            marginalizations.incrementAndGet();
+        }
+
+        store(key, table);
+        return table;
+    }
+
+    // Sums out one variable from a cached table over the sorted variables plus that variable, if there is one
+    // smaller than a scan of the data would cost; otherwise returns null.
+    private int[] marginalizeCached(int[] sorted) {
+        if (missingValues || maxCells == 0) return null;
+
+        long scanCost = (long) counter.getSampleSize() * (sorted.length + 1);
+        int[] superset = new int[sorted.length + 1];
+
+        for (int v = 0; v < counter.getNumVariables(); v++) {
+            int pos = -Arrays.binarySearch(sorted, v) - 1;
+            if (pos < 0) continue;
+
+            System.arraycopy(sorted, 0, superset, 0, pos);
+            superset[pos] = v;
+            System.arraycopy(sorted, pos, superset, pos + 1, sorted.length - pos);
+
+            int[] table = lookup(new Key(superset));
+
+            if (table != null && table.length <= scanCost) {
+                return sumOut(table, superset, pos);
+            }
+        }
+
+        return null;
+    }
+
+    // Sums the table over the sorted variables out along the variable at position pos.
+    private int[] sumOut(int[] table, int[] vars, int pos) {
+        int dim = counter.getNumCategories(vars[pos]);
+        int inner = 1;
+
+        for (int i = pos + 1; i < vars.length; i++) {
+            inner *= counter.getNumCategories(vars[i]);
+        }
+
+        int outer = table.length / (dim * inner);
+        int[] counts = new int[outer * inner];
+
+        for (int o = 0; o < outer; o++) {
+            for (int c = 0; c < dim; c++) {
+                int from = (o * dim + c) * inner;
+                int to = o * inner;
+
+                for (int r = 0; r < inner; r++) {
+                    counts[to + r] += table[from + r];
+                }
+            }
+        }
+
+        return counts;
+    }
+
+    private synchronized int[] lookup(Key key) {
+        return tables.get(key);
+    }
+
+    private synchronized void store(Key key, int[] table) {
+        if (table.length > maxCells || tables.containsKey(key)) return;
+
+        tables.put(key, table);
+        numCells += table.length;
+
+        Iterator<Map.Entry<Key, int[]>> iterator = tables.entrySet().iterator();
+
+        while (numCells > maxCells && iterator.hasNext()) {
+            Map.Entry<Key, int[]> eldest = iterator.next();
+            numCells -= eldest.getValue().length;
+            iterator.remove();
+        }
+    }
+
+    private static DiscreteCounter counter(DataSet dataSet, Backend backend) {
+        switch (backend) {
+            case ROW_SCAN:
+                return new RowScanCounter(dataSet);
+            case AD_TREE:
+                return new AdTreeCounter(dataSet);
+            case DISTINCT_ROWS:
+                return new DistinctRowCounter(dataSet);
+            default:
+                throw new IllegalArgumentException("Unrecognized backend: " + backend);
+        }
+    }
+
+    private long numCells(int[] vars) {
+        long size = 1;
+
+        for (int v : vars) {
+            size *= counter.getNumCategories(v);
+            if (size > Integer.MAX_VALUE) break;
+        }
+
+        return size;
+    }
+
+    // A sorted set of variable indices.
+    private static final class Key {
+        private final int[] vars;
+        private final int hash;
+
+        Key(int[] vars) {
+            this.vars = Arrays.copyOf(vars, vars.length);
+            this.hash = Arrays.hashCode(vars);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).hash == hash && Arrays.equals(((Key) o).vars, vars);
+        }
+    }
+}
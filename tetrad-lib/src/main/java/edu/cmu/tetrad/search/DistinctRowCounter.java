@@ -0,0 +1,196 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts from a hash table of the distinct rows of the data with their multiplicities, built once up front. Each
+ * count then scans the distinct rows rather than all rows, which pays off when rows repeat--few variables, few
+ * categories or large samples--and costs little more than a row scan when they don't.
+ *
+ * @author Joseph Ramsey
+ */
+public class DistinctRowCounter implements DiscreteCounter {
+
+    // The distinct rows, column major.
+    private final int[][] rows;
+
+    // The number of times each distinct row occurs in the data.
+    private final int[] multiplicities;
+
+    // The number of categories of each variable.
+    private final int[] numCategories;
+
+    // The number of rows in the data.
+    private final int sampleSize;
+
+    // True if some value in the data is missing.
+    private final boolean missingValues;
+
+    /**
+     * Constructs a counter for the given discrete data set.
+     */
+    public DistinctRowCounter(DataSet dataSet) {
+        this(RowScanCounter.columns(dataSet), RowScanCounter.categories(dataSet.getVariables()),
+                dataSet.getNumRows());
+    }
+
+    /**
+     * Constructs a counter for the given column-major data.
+     *
+     * @param data          data[j][i] is the value of variable j in row i, or DiscreteVariable.MISSING_VALUE.
+     * @param numCategories the number of categories of each variable.
+     * @param sampleSize    the number of rows of data to use.
+     */
+    public DistinctRowCounter(int[][] data, int[] numCategories, int sampleSize) {
+        if (data.length != numCategories.length) {
+            throw new IllegalArgumentException("Expecting the number of categories of each of the "
+                    + data.length + " variables.");
+        }
+
+        int p = data.length;
+        Map<Row, Integer> indices = new HashMap<>();
+        List<int[]> distinct = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+
+        for (int i = 0; i < sampleSize; i++) {
+            int[] values = new int[p];
+
+            for (int j = 0; j < p; j++) {
+                values[j] = data[j][i];
+            }
+
+            Row row = new Row(values);
+            Integer index = indices.get(row);
+
+            if (index == null) {
+                indices.put(row, distinct.size());
+                distinct.add(values);
+                counts.add(1);
+            } else {
+                counts.set(index, counts.get(index) + 1);
+            }
+        }
+
+        this.rows = new int[p][distinct.size()];
+        this.multiplicities = new int[distinct.size()];
+
+        for (int i = 0; i < distinct.size(); i++) {
+            for (int j = 0; j < p; j++) {
+                this.rows[j][i] = distinct.get(i)[j];
+            }
+
+            this.multiplicities[i] = counts.get(i);
+        }
+
+        this.numCategories = Arrays.copyOf(numCategories, numCategories.length);
+        this.sampleSize = sampleSize;
+        this.missingValues = RowScanCounter.hasMissingValues(data, sampleSize);
+    }
+
+    @Override
+    public int[] count(int[] vars) {
+        int n = vars.length;
+        int[][] columns = new int[n][];
+        int[] dims = new int[n];
+        int size = 1;
+
+        for (int i = 0; i < n; i++) {
+            columns[i] = rows[vars[i]];
+            dims[i] = numCategories[vars[i]];
+            size *= dims[i];
+        }
+
+        int[] counts = new int[size];
+
+        ROW:
+        for (int row = 0; row < multiplicities.length; row++) {
+            int index = 0;
+
+            for (int i = 0; i < n; i++) {
+                int value = columns[i][row];
+                if (value == DiscreteVariable.MISSING_VALUE) continue ROW;
+                index = index * dims[i] + value;
+            }
+
+            counts[index] += multiplicities[row];
+        }
+
+        return counts;
+    }
+
+    /**
+     * @return the number of distinct rows in the data.
+     */
+    public int getNumDistinctRows() {
+        return multiplicities.length;
+    }
+
+    @Override
+    public int getNumVariables() {
+        return numCategories.length;
+    }
+
+    @Override
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    @Override
+    public int getNumCategories(int var) {
+        return numCategories[var];
+    }
+
+    @Override
+    public boolean hasMissingValues() {
+        return missingValues;
+    }
+
+    // A row of data, hashed by value.
+    private static final class Row {
+        private final int[] values;
+        private final int hash;
+
+        Row(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Row && ((Row) o).hash == hash && Arrays.equals(((Row) o).values, values);
+        }
+    }
+}
@@ -25,7 +25,7 @@ import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.util.ChoiceGenerator;
-import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.StatUtils;
 import edu.cmu.tetrad.util.TetradLogger;
 
@@ -34,7 +34,6 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveTask;
 
 /**
@@ -95,8 +94,8 @@ public class FasStableConcurrentFdr implements IFas {
      */
     private boolean verbose = false;
 
-    // The concurrency pool.
-    private ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+    // The shared executor for the parallel steps.
+    private final ComputeExecutor executor = ComputeExecutor.getInstance();
 
     /**
      * Where verbose output is sent.
@@ -263,7 +262,7 @@ public class FasStableConcurrentFdr implements IFas {
         final List<Node> empty = Collections.emptyList();
         final Map<Double, Edge> scoredEdges = new ConcurrentSkipListMap<>();
 
-        final List<Double> sorted = new ArrayList<>();
+        final List<Double> sorted = Collections.synchronizedList(new ArrayList<>());
 
         class Depth0Task extends RecursiveTask<Boolean> {
             private int chunk;
@@ -298,17 +297,19 @@ public class FasStableConcurrentFdr implements IFas {
                                 }
                             }
 
+                            double pValue = Double.NaN;
+
                             try {
-                                test.isIndependent(x, y, empty);
+                                pValue = test.checkIndependence(x, y, empty).getPValue();
                             } catch (Exception e) {
                                 e.printStackTrace();
                             }
 
                             numIndependenceTests++;
 
-                            final double pValue = test.getPValue();
-
-                            sorted.add(pValue);
+                            if (!Double.isNaN(pValue)) {
+                                sorted.add(pValue);
+                            }
                         }
                     }
 
@@ -328,7 +329,7 @@ public class FasStableConcurrentFdr implements IFas {
             }
         }
 
-        pool.invoke(new Depth0Task(chunk, 0, nodes.size()));
+        executor.invoke(new Depth0Task(chunk, 0, nodes.size()));
         Collections.sort(sorted);
         final double cutoff = StatUtils.fdrCutoff(test.getAlpha(), sorted, false, true);
 
@@ -365,8 +366,10 @@ public class FasStableConcurrentFdr implements IFas {
                                 }
                             }
 
+                            double pValue = Double.NaN;
+
                             try {
-                                test.isIndependent(x, y, empty);
+                                pValue = test.checkIndependence(x, y, empty).getPValue();
                             } catch (Exception e) {
                                 e.printStackTrace();
                             }
@@ -376,7 +379,7 @@ public class FasStableConcurrentFdr implements IFas {
                             boolean noEdgeRequired =
                                     knowledge.noEdgeRequired(x.getName(), y.getName());
 
-                            if (test.getPValue() > cutoff && noEdgeRequired) {
+                            if (pValue > cutoff && noEdgeRequired) {
                                 if (recordSepsets /*&& !sepsets.isReturnEmptyIfNotSet()*/) {
                                     getSepsets().set(x, y, empty);
                                 }
@@ -386,7 +389,7 @@ public class FasStableConcurrentFdr implements IFas {
 
                                 if (verbose) {
                                     TetradLogger.getInstance().log("dependencies", SearchLogUtils.independenceFact(x, y, empty) + " p = " +
-                                            nf.format(test.getPValue()));
+                                            nf.format(pValue));
                                 }
                             }
                         }
@@ -408,7 +411,7 @@ public class FasStableConcurrentFdr implements IFas {
             }
         }
 
-        pool.invoke(new Depth0Task2(chunk, 0, nodes.size()));
+        executor.invoke(new Depth0Task2(chunk, 0, nodes.size()));
 
         return freeDegree(nodes, adjacencies) > 0;
     }
@@ -476,7 +479,7 @@ public class FasStableConcurrentFdr implements IFas {
             adjacenciesCopy.put(node, new HashSet<>(adjacencies.get(node)));
         }
 
-        final List<Double> sorted = new ArrayList<>();
+        final List<Double> sorted = Collections.synchronizedList(new ArrayList<>());
 
         class DepthTask extends RecursiveTask<Boolean> {
             private int chunk;
@@ -518,20 +521,20 @@ public class FasStableConcurrentFdr implements IFas {
                                 while ((choice = cg.next()) != null) {
                                     List<Node> condSet = GraphUtils.asList(choice, ppx);
 
-                                    boolean independent;
+                                    IndependenceResult result;
 
                                     try {
                                         numIndependenceTests++;
-                                        independent = test.isIndependent(x, y, condSet);
+                                        result = test.checkIndependence(x, y, condSet);
                                     } catch (Exception e) {
-                                        independent = false;
+                                        result = null;
                                     }
 
                                     boolean noEdgeRequired =
                                             knowledge.noEdgeRequired(x.getName(), y.getName());
 
-                                    if (independent && noEdgeRequired) {
-                                        sorted.add(test.getPValue());
+                                    if (result != null && result.isIndependent() && noEdgeRequired) {
+                                        sorted.add(result.getPValue());
                                         continue EDGE;
                                     }
                                 }
@@ -555,7 +558,7 @@ public class FasStableConcurrentFdr implements IFas {
             }
         }
 
-        pool.invoke(new DepthTask(chunk, 0, nodes.size()));
+        executor.invoke(new DepthTask(chunk, 0, nodes.size()));
 
         Collections.sort(sorted);
         final double cutoff = StatUtils.fdrCutoff(test.getAlpha(), sorted, false, true);
@@ -600,9 +603,9 @@ public class FasStableConcurrentFdr implements IFas {
 
                                     try {
                                         numIndependenceTests++;
-                                        test.isIndependent(x, y, condSet);
+                                        double pValue = test.checkIndependence(x, y, condSet).getPValue();
 
-                                        if (test.getPValue() > cutoff) {
+                                        if (pValue > cutoff) {
                                             adjacencies.get(x).remove(y);
                                             adjacencies.get(y).remove(x);
 
@@ -636,7 +639,7 @@ public class FasStableConcurrentFdr implements IFas {
             }
         }
 
-        pool.invoke(new DepthTask2(chunk, 0, nodes.size()));
+        executor.invoke(new DepthTask2(chunk, 0, nodes.size()));
 
         if (verbose) {
             System.out.println("Done with depth");
@@ -27,7 +27,7 @@ import edu.cmu.tetrad.data.KnowledgeEdge;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.util.ChoiceGenerator;
 import edu.cmu.tetrad.util.DepthChoiceGenerator;
-import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.TetradLogger;
 
 import java.util.*;
@@ -258,7 +258,7 @@ public final class FciMax implements GraphSearch {
 
         Task task = new Task(nodes, graph, scores, 0, nodes.size());
 
-        ForkJoinPoolInstance.getInstance().getPool().invoke(task);
+        ComputeExecutor.getInstance().invoke(task);
 
         List<Triple> tripleList = new ArrayList<>(scores.keySet());
 
@@ -309,8 +309,7 @@ public final class FciMax implements GraphSearch {
 
             while ((comb2 = cg2.next()) != null) {
                 List<Node> s = GraphUtils.asList(comb2, adja);
-                independenceTest.isIndependent(a, c, s);
-                double _score = independenceTest.getScore();
+                double _score = independenceTest.checkIndependence(a, c, s).getScore();
 
                 if (_score < score) {
                     score = _score;
@@ -325,8 +324,7 @@ public final class FciMax implements GraphSearch {
 
             while ((comb3 = cg3.next()) != null) {
                 List<Node> s = GraphUtils.asList(comb3, adjc);
-                independenceTest.isIndependent(c, a, s);
-                double _score = independenceTest.getScore();
+                double _score = independenceTest.checkIndependence(c, a, s).getScore();
 
                 if (_score < score) {
                     score = _score;
@@ -24,6 +24,7 @@ import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.data.KnowledgeEdge;
 import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.DepthChoiceGenerator;
 import edu.cmu.tetrad.util.TetradLogger;
 import org.jetbrains.annotations.NotNull;
@@ -147,8 +148,8 @@ public final class Fges implements GraphSearch, GraphScorer {
     // Map from variables to their column indices in the data set.
     private ConcurrentMap<Node, Integer> hashIndices;
 
-    // The static ForkJoinPool instance.
-    private final ForkJoinPool pool;
+    // The shared executor on which the parallel steps are run.
+    private final ComputeExecutor executor = ComputeExecutor.getInstance();
 
     // A graph where X--Y means that X and Y have non-zero total effect on one another.
     private Graph effectEdgesGraph;
@@ -179,9 +180,12 @@ public final class Fges implements GraphSearch, GraphScorer {
     // for each edge with the maximum score chosen.
     private boolean symmetricFirstStep = false;
 
-    // The maximum number of threads to use.
+    // The number of chunks into which parallel steps are split; the threads themselves come from the executor.
     private final int maxThreads;
 
+    // True if the search should be done over an AdjacencyArrayGraph, copied to an EdgeListGraph on return.
+    private boolean useAdjacencyArrayGraph = false;
+
     //===========================CONSTRUCTORS=============================//
 
     /**
@@ -196,7 +200,8 @@ public final class Fges implements GraphSearch, GraphScorer {
     }
 
     /**
-     * Lets one construct with a score and a parallelism, that is, the number of threads to effectively use.
+     * Lets one construct with a score and a parallelism, that is, the number of chunks into which each parallel
+     * step is divided. The number of threads is set globally through ComputeExecutor.
      */
     public Fges(Score score, int parallelism) {
         if (score == null) {
@@ -209,7 +214,6 @@ public final class Fges implements GraphSearch, GraphScorer {
 
         setScore(score);
         this.maxThreads = parallelism;
-        this.pool = new ForkJoinPool(parallelism);
         this.graph = new EdgeListGraph(getVariables());
     }
 
@@ -237,6 +241,10 @@ public final class Fges implements GraphSearch, GraphScorer {
             graph = GraphUtils.replaceNodes(graph, getVariables());
         }
 
+        if (useAdjacencyArrayGraph) {
+            graph = new AdjacencyArrayGraph(graph);
+        }
+
         addRequiredEdges(graph);
 
         initializeEffectEdges(getVariables());
@@ -262,6 +270,10 @@ public final class Fges implements GraphSearch, GraphScorer {
             this.logger.forceLogMessage("Elapsed time = " + (elapsedTime) / 1000. + " s");
         }
 
+        if (useAdjacencyArrayGraph) {
+            graph = new EdgeListGraph(graph);
+        }
+
         this.modelScore = scoreDag(SearchGraphUtils.dagFromPattern(graph), true);
 
         return graph;
@@ -455,6 +467,14 @@ public final class Fges implements GraphSearch, GraphScorer {
         this.symmetricFirstStep = symmetricFirstStep;
     }
 
+    /**
+     * True if the graph being searched over should be kept as an AdjacencyArrayGraph, which is faster to query, and
+     * copied to an EdgeListGraph only when the search is done.
+     */
+    public void setUseAdjacencyArrayGraph(boolean useAdjacencyArrayGraph) {
+        this.useAdjacencyArrayGraph = useAdjacencyArrayGraph;
+    }
+
     public String logEdgeBayesFactorsString(Graph dag) {
         Map<Edge, Double> factors = logEdgeBayesFactors(dag);
         return logBayesPosteriorFactorsString(factors);
@@ -514,6 +534,7 @@ public final class Fges implements GraphSearch, GraphScorer {
                 }
 
                 Node y = nodes.get(i);
+                List<Node> candidates = new ArrayList<>();
 
                 for (int j = i + 1; j < nodes.size() && !Thread.currentThread().isInterrupted(); j++) {
                     Node x = nodes.get(j);
@@ -532,19 +553,32 @@ public final class Fges implements GraphSearch, GraphScorer {
                         continue;
                     }
 
-                    int child = hashIndices.get(y);
-                    int parent = hashIndices.get(x);
-                    double bump = score.localScoreDiff(parent, child);
+                    if (boundGraph != null && !boundGraph.isAdjacentTo(x, y)) {
+                        continue;
+                    }
+
+                    candidates.add(x);
+                }
+
+                // Score all of the candidate parents of y together, so the score can share work across them.
+                int child = hashIndices.get(y);
+                int[] parents = new int[candidates.size()];
+
+                for (int j = 0; j < candidates.size(); j++) {
+                    parents[j] = hashIndices.get(candidates.get(j));
+                }
+
+                double[] bumps = score.localScoreDiffs(parents, child, new int[0]);
+
+                for (int j = 0; j < candidates.size(); j++) {
+                    Node x = candidates.get(j);
+                    double bump = bumps[j];
 
                     if (symmetricFirstStep) {
-                        double bump2 = score.localScoreDiff(child, parent);
+                        double bump2 = score.localScoreDiff(child, parents[j]);
                         bump = max(bump, bump2);
                     }
 
-                    if (boundGraph != null && !boundGraph.isAdjacentTo(x, y)) {
-                        continue;
-                    }
-
                     if (bump > 0) {
                         effectEdgesGraph.addEdge(Edges.undirectedEdge(x, y));
 //                        addArrowForward(x, y, emptySet, emptySet, emptySet, emptySet, bump);
@@ -582,7 +616,7 @@ public final class Fges implements GraphSearch, GraphScorer {
                 throw new RuntimeException(e);
             }
         } else {
-            pool.invokeAll(tasks);
+            executor.invokeAll(tasks);
         }
 
         long stop = System.currentTimeMillis();
@@ -799,7 +833,7 @@ public final class Fges implements GraphSearch, GraphScorer {
             tasks.add(task);
         }
 
-        pool.invokeAll(tasks);
+        executor.invokeAll(tasks);
     }
 
     // Calculates the new arrows for an a->b edge.
@@ -1014,7 +1048,7 @@ public final class Fges implements GraphSearch, GraphScorer {
         for (Node r : toProcess) {
             List<Node> adjacentNodes = graph.getAdjacentNodes(r);
             adjacentNodes.retainAll(toProcess);
-            pool.invoke(new BackwardTask(r, adjacentNodes, getChunkSize(adjacentNodes.size()), 0,
+            executor.invoke(new BackwardTask(r, adjacentNodes, getChunkSize(adjacentNodes.size()), 0,
                     adjacentNodes.size(), hashIndices));
         }
     }
@@ -25,7 +25,7 @@ import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.data.KnowledgeEdge;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.util.ChoiceGenerator;
-import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.TaskManager;
 import edu.cmu.tetrad.util.TetradLogger;
 import java.io.PrintStream;
@@ -146,7 +146,7 @@ public final class FgesMb {
     private ConcurrentMap<Node, Integer> hashIndices;
 
     // The static ForkJoinPool instance.
-    private ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+    private final ComputeExecutor executor = ComputeExecutor.getInstance();
 
     // A running tally of the total BIC totalScore.
     private double totalScore;
@@ -184,7 +184,8 @@ public final class FgesMb {
      */
     private boolean faithfulnessAssumed = true;
 
-    final int maxThreads = ForkJoinPoolInstance.getInstance().getPool().getParallelism();
+    // The number of chunks into which parallel steps are split; the threads themselves come from the executor.
+    private int maxThreads = ComputeExecutor.getInstance().getParallelism();
 
     //===========================CONSTRUCTORS=============================//
     /**
@@ -441,7 +442,7 @@ public final class FgesMb {
                         }
                     }
 
-                    pool.invoke(new MbAboutNodeTask());
+                    executor.invoke(new MbAboutNodeTask());
                 }
             }
         }
@@ -665,10 +666,15 @@ public final class FgesMb {
     }
 
     /**
-     * Creates a new processors pool with the specified number of threads.
+     * Sets the number of chunks into which each parallel step of this search is divided. The threads themselves
+     * come from ComputeExecutor, whose size is set for the whole program there.
      */
     public void setParallelism(int numProcessors) {
-        this.pool = new ForkJoinPool(numProcessors);
+        if (numProcessors < 1) {
+            throw new IllegalArgumentException("Parallelism must be >= 1.");
+        }
+
+        this.maxThreads = numProcessors;
     }
 
     /**
@@ -902,7 +908,7 @@ public final class FgesMb {
             }
         }
 
-        pool.invoke(new InitializeFromEmptyGraphTask());
+        executor.invoke(new InitializeFromEmptyGraphTask());
 
         long stop = System.currentTimeMillis();
 
@@ -1034,7 +1040,7 @@ public final class FgesMb {
             }
         }
 
-        pool.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
+        executor.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
     }
 
     private void initializeForwardEdgesFromExistingGraph(final List<Node> nodes) {
@@ -1137,7 +1143,7 @@ public final class FgesMb {
             }
         }
 
-        pool.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
+        executor.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
     }
 
     private void fes() {
@@ -1423,7 +1429,7 @@ public final class FgesMb {
         }
 
         final AdjTask task = new AdjTask(getMinChunk(nodes.size()), new ArrayList<>(nodes), 0, nodes.size());
-        pool.invoke(task);
+        executor.invoke(task);
     }
 
     // Calculates the new arrows for an a->b edge.
@@ -1579,7 +1585,7 @@ public final class FgesMb {
         for (Node r : toProcess) {
             this.neighbors.put(r, getNeighbors(r));
             List<Node> adjacentNodes = graph.getAdjacentNodes(r);
-            pool.invoke(new BackwardTask(r, adjacentNodes, getMinChunk(adjacentNodes.size()), 0,
+            executor.invoke(new BackwardTask(r, adjacentNodes, getMinChunk(adjacentNodes.size()), 0,
                     adjacentNodes.size(), hashIndices));
         }
     }
@@ -149,7 +149,7 @@ public final class FgesOrienter implements GraphSearch, GraphScorer, Reorienter
     private ConcurrentMap<Node, Integer> hashIndices;
 
     // The static ForkJoinPool instance.
-    private ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+    private final ComputeExecutor executor = ComputeExecutor.getInstance();
 
     // A running tally of the total BIC score.
     private double score;
@@ -633,7 +633,7 @@ public final class FgesOrienter implements GraphSearch, GraphScorer, Reorienter
         }
 
         buildIndexing(nodes);
-        pool.invoke(new EffectTask(minChunk, 0, nodes.size()));
+        executor.invoke(new EffectTask(minChunk, 0, nodes.size()));
 
         long stop = System.currentTimeMillis();
 
@@ -846,7 +846,7 @@ public final class FgesOrienter implements GraphSearch, GraphScorer, Reorienter
 
         final AdjTask task = new AdjTask(pairs, 0, pairs.size());
 
-        pool.invoke(task);
+        executor.invoke(task);
 
     }
 
@@ -958,7 +958,7 @@ public final class FgesOrienter implements GraphSearch, GraphScorer, Reorienter
         Set<Node> _adj = adjNodes(graph, x, y);
         final List<Node> adj = new ArrayList<>(_adj);
 
-        pool.invoke(new BackwardTask(adj, minChunk, 0, adj.size(), hashIndices));
+        executor.invoke(new BackwardTask(adj, minChunk, 0, adj.size(), hashIndices));
     }
 
     // Calculates the arrows for the removal in the backward direction.
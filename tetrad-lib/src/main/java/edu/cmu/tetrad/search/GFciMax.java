@@ -26,7 +26,7 @@ import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.data.KnowledgeEdge;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.util.ChoiceGenerator;
-import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.TetradLogger;
 import java.io.PrintStream;
 import java.util.Iterator;
@@ -416,7 +416,7 @@ public final class GFciMax implements GraphSearch {
 
         Task task = new Task(nodes, graph, 0, nodes.size());
 
-        ForkJoinPoolInstance.getInstance().getPool().invoke(task);
+        ComputeExecutor.getInstance().invoke(task);
     }
 
     private void doNode(Graph graph, Graph fgesGraph, Node b) {
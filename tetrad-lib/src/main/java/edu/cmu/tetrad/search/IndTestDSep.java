@@ -23,6 +23,7 @@ package edu.cmu.tetrad.search;
 
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.CompiledDSeparation;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.IndependenceFact;
 import edu.cmu.tetrad.graph.Node;
@@ -33,7 +34,9 @@ import java.util.*;
 
 /**
  * Checks independence facts for variables associated with the nodes in a given graph by checking d-separation facts on
- * the underlying nodes.
+ * the underlying nodes. Queries are answered from a compiled, index-based copy of the graph (see CompiledDSeparation),
+ * made at the first query, so the graph must not be changed while the test is in use; make a new test for a changed
+ * graph.
  *
  * @author Joseph Ramsey
  */
@@ -53,6 +56,11 @@ public class IndTestDSep implements IndependenceTest {
     private boolean verbose = false;
     private double pvalue = 0;
 
+    /**
+     * The compiled copy of the graph, made at the first query.
+     */
+    private transient volatile CompiledDSeparation dSeparation = null;
+
     public IndTestDSep(Graph graph) {
         this(graph, false);
     }
@@ -128,6 +136,39 @@ public class IndTestDSep implements IndependenceTest {
      * @return true iff x _||_ y | z
      */
     public boolean isIndependent(Node x, Node y, List<Node> z) {
+        boolean dSeparated = isDSeparatedObserved(x, y, z);
+
+        if (dSeparated) {
+            if (this.facts != null) {
+                this.facts.add(new IndependenceFact(x, y, z));
+            }
+
+            pvalue = 1.0;
+        } else {
+            pvalue = 0.0;
+        }
+
+        return dSeparated;
+    }
+
+    /**
+     * Checks the indicated d-separation fact without recording it, so that, unless facts are being recorded,
+     * queries may be run concurrently without locking. The p value is 1 if x _||_ y | z and 0 if not.
+     */
+    @Override
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        if (this.facts != null) {
+            return IndependenceTest.super.checkIndependence(x, y, z);
+        }
+
+        boolean dSeparated = isDSeparatedObserved(x, y, z);
+        return new IndependenceResult(x, y, z, dSeparated, dSeparated ? 1.0 : 0.0, dSeparated ? -1 : 1);
+    }
+
+    /**
+     * Checks that x, y and z are observed and answers whether x _||_ y | z from the compiled graph.
+     */
+    private boolean isDSeparatedObserved(Node x, Node y, List<Node> z) {
         if (z == null) {
             throw new NullPointerException();
         }
@@ -152,7 +193,7 @@ public class IndTestDSep implements IndependenceTest {
             }
         }
 
-        boolean dSeparated = !getGraph().isDConnectedTo(x, y, z);
+        boolean dSeparated = getDSeparation().isDSeparatedFrom(x, y, z);
 
         if (verbose) {
             if (dSeparated) {
@@ -166,16 +207,6 @@ public class IndTestDSep implements IndependenceTest {
             }
         }
 
-        if (dSeparated) {
-            if (this.facts != null) {
-                this.facts.add(new IndependenceFact(x, y, z));
-            }
-
-            pvalue = 1.0;
-        } else {
-            pvalue = 0.0;
-        }
-
         return dSeparated;
     }
 
@@ -207,7 +238,18 @@ public class IndTestDSep implements IndependenceTest {
             }
         }
 
-        return getGraph().isDSeparatedFrom(x, y, z);
+        return getDSeparation().isDSeparatedFrom(x, y, z);
+    }
+
+    private CompiledDSeparation getDSeparation() {
+        CompiledDSeparation dSeparation = this.dSeparation;
+
+        if (dSeparation == null) {
+            dSeparation = new CompiledDSeparation(graph);
+            this.dSeparation = dSeparation;
+        }
+
+        return dSeparation;
     }
 
     /**
@@ -44,9 +44,9 @@ import static java.lang.StrictMath.log;
 public final class IndTestFisherZ implements IndependenceTest {
 
     /**
-     * The correlation matrix.
+     * The correlation matrix, or lazily computed covariances.
      */
-    private CorrelationMatrix cor;
+    private ICovarianceMatrix cor;
 
     /**
      * The variables of the covariance matrix, in order. (Unmodifiable list.)
@@ -66,13 +66,16 @@ public final class IndTestFisherZ implements IndependenceTest {
     private final Map<Node, Integer> indexMap;
     private final Map<String, Node> nameMap;
     private boolean verbose = true;
-    private double p = Double.NaN;
+    private volatile double p = Double.NaN;
     private final NormalDistribution normal = new NormalDistribution(0, 1);
     private boolean sellke = false;
-    private double r = Double.NaN;
+    private volatile double r = Double.NaN;
 
     private final Map<Node, Integer> nodesHash;
 
+    // Calculates partial correlations from cached Cholesky factors, if set.
+    private PartialCorrelationEngine partialCorrelationEngine = null;
+
 
     //==========================CONSTRUCTORS=============================//
 
@@ -158,7 +161,10 @@ public final class IndTestFisherZ implements IndependenceTest {
      * matrix and the given significance level.
      */
     public IndTestFisherZ(ICovarianceMatrix covMatrix, double alpha) {
-        this.cor = new CorrelationMatrix(covMatrix);
+
+        // Partial correlations don't depend on scale, so lazy covariances are used as they are, rather than
+        // computing every entry to make a correlation matrix.
+        this.cor = covMatrix instanceof LazyCovarianceMatrix ? covMatrix : new CorrelationMatrix(covMatrix);
         this.variables = covMatrix.getVariables();
         this.indexMap = indexMap(variables);
         this.nameMap = nameMap(variables);
@@ -211,15 +217,42 @@ public final class IndTestFisherZ implements IndependenceTest {
      * @return true iff x _||_ y | z.
      * @throws RuntimeException if a matrix singularity is encountered.
      */
-    public synchronized boolean isIndependent(Node x, Node y, List<Node> z) {
-        double p = getPValue(x, y, z);
-//        this.p = p;
+    public boolean isIndependent(Node x, Node y, List<Node> z) {
+        return checkIndependence(x, y, z).isIndependent();
+    }
+
+    /**
+     * Tests x _||_ y | z without locking, so that one instance of this test may be shared by many threads. The
+     * p value of the test is also recorded for getPValue(), for callers that use the test from a single thread.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        double r;
+        int n;
+
+        if (partialCorrelationEngine != null) {
+            r = partialCorrelationEngine.partialCorrelation(indexMap.get(x), indexMap.get(y), indices(z));
+            n = sampleSize();
+        } else if (covMatrix() != null) {
+            r = partialCorrelation(x, y, z, null);
+            n = sampleSize();
+        } else {
+            List<Node> allVars = new ArrayList<>(z);
+            allVars.add(x);
+            allVars.add(y);
+
+            List<Integer> rows = getRows(allVars, nodesHash);
+            r = getR(x, y, z, rows);
+            n = rows.size();
+        }
+
+        double q = .5 * (log(1.0 + abs(r)) - log(1.0 - abs(r)));
+        double fisherZ = sqrt(n - 3. - z.size()) * q;
+        double p = 2 * (1.0 - normal.cumulativeProbability(fisherZ));
+
+        this.r = r;
+        this.p = p;
 
-//        if (isSellke()) {
-//            return p > SearchGraphUtils.getSelkeAlpha(p, this.alpha);
-//        } else {
-        return p > alpha;
-//        }
+        return new IndependenceResult(x, y, z, p > alpha, p, alpha - p);
     }
 
     public boolean isIndependent(Node x, Node y, Node... z) {
@@ -244,33 +277,34 @@ public final class IndTestFisherZ implements IndependenceTest {
     }
 
     public double getPValue(Node x, Node y, List<Node> z) {
-        List<Node> allVars = new ArrayList<>(z);
-        allVars.add(x);
-        allVars.add(y);
-
-        double r;
-        int n;
+        return checkIndependence(x, y, z).getPValue();
+    }
 
-        if (covMatrix() != null) {
-            r = partialCorrelation(x, y, z, null);
-            n = sampleSize();
+    /**
+     * If true, partial correlations are calculated from Cholesky factors of the conditioning set covariance matrices,
+     * cached and extended one variable at a time, rather than by inverting a fresh submatrix for each test. Ignored if
+     * the data has missing values, since then each test uses its own rows.
+     */
+    public void setUsePartialCorrelationEngine(boolean usePartialCorrelationEngine) {
+        if (usePartialCorrelationEngine && cor != null) {
+            this.partialCorrelationEngine = new PartialCorrelationEngine(cor);
         } else {
-            List<Integer> rows = getRows(allVars, nodesHash);
-            r = getR(x, y, z, rows);
-            n = rows.size();
+            this.partialCorrelationEngine = null;
         }
+    }
 
-        this.r = r;
-        double q = .5 * (log(1.0 + abs(r)) - log(1.0 - abs(r)));
-        double fisherZ = sqrt(n - 3. - z.size()) * q;
-        double p = 2 * (1.0 - normal.cumulativeProbability(fisherZ));
-
-        this.p = p;
-        return p;
+    public boolean isUsePartialCorrelationEngine() {
+        return partialCorrelationEngine != null;
     }
 
     //======================PRIVATE==========================//
 
+    private int[] indices(List<Node> z) {
+        int[] indices = new int[z.size()];
+        for (int i = 0; i < z.size(); i++) indices[i] = indexMap.get(z.get(i));
+        return indices;
+    }
+
     private double partialCorrelation(Node x, Node y, List<Node> z, List<Integer> rows) throws SingularMatrixException {
         int[] indices = new int[z.size() + 2];
         indices[0] = indexMap.get(x);
@@ -287,7 +321,7 @@ public final class IndTestFisherZ implements IndependenceTest {
 
     private Matrix getCov(List<Integer> rows, int[] cols) {
         if (getCov() != null) {
-            return getCov().getMatrix().getSelection(cols, cols);
+            return getCov().getSelection(cols, cols);
         }
 
         Matrix cov = new Matrix(cols.length, cols.length);
@@ -65,12 +65,12 @@ public final class IndTestFisherZGeneralizedInverse implements IndependenceTest
     /**
      * The cutoff value for 'alpha' area in the two tails of the partial correlation distribution function.
      */
-    private double thresh = Double.NaN;
+    private volatile double thresh = Double.NaN;
 
     /**
      * The value of the Fisher's Z statistic associated with the las calculated partial correlation.
      */
-    private double fishersZ;
+    private volatile double fishersZ;
 
     /**
      * Formats as 0.0000.
@@ -148,6 +148,14 @@ public final class IndTestFisherZGeneralizedInverse implements IndependenceTest
      * @throws RuntimeException if a matrix singularity is encountered.
      */
     public boolean isIndependent(Node xVar, Node yVar, List<Node> z) {
+        return checkIndependence(xVar, yVar, z).isIndependent();
+    }
+
+    /**
+     * Tests x _||_ y | z without locking, so that one instance of this test may be shared by many threads. The
+     * Fisher's Z statistic is also recorded for getPValue(), for callers that use the test from a single thread.
+     */
+    public IndependenceResult checkIndependence(Node xVar, Node yVar, List<Node> z) {
         if (z == null) {
             throw new NullPointerException();
         }
@@ -198,27 +206,31 @@ public final class IndTestFisherZGeneralizedInverse implements IndependenceTest
         // Note that r will be NaN if either xRes or yRes is constant.
         double r = StatUtils.correlation(xRes.toArray(), yRes.toArray());
 
+        double thresh = this.thresh;
+
         if (Double.isNaN(thresh)) {
-            this.thresh = cutoffGaussian();
+            thresh = cutoffGaussian();
+            this.thresh = thresh;
         }
 
         if (Double.isNaN(r)) {
             if (verbose) {
-                TetradLogger.getInstance().log("independencies", SearchLogUtils.independenceFactMsg(xVar, yVar, z, getPValue()));
+                TetradLogger.getInstance().log("independencies", SearchLogUtils.independenceFactMsg(xVar, yVar, z, Double.NaN));
             }
-            return true;
+
+            return new IndependenceResult(xVar, yVar, z, true, Double.NaN, Double.NaN);
         }
 
         if (r > 1) r = 1;
         if (r < -1) r = -1;
 
-        this.fishersZ = Math.sqrt(sampleSize() - z.size() - 3.0) *
+        double fishersZ = Math.sqrt(sampleSize() - z.size() - 3.0) *
                 0.5 * (Math.log(1.0 + r) - Math.log(1.0 - r));
 
 //        this.fishersZ = 0.5 * Math.sqrt(sampleSize() - z.size() - 3.0) *
 //                Math.log(Math.abs(1.0 + r) / Math.abs(1.0 - r));
 
-        if (Double.isNaN(this.fishersZ)) {
+        if (Double.isNaN(fishersZ)) {
             throw new IllegalArgumentException("The Fisher's Z " +
                     "score for independence fact " + xVar + " _||_ " + yVar +
                     " | " + z + " is undefined.");
@@ -232,15 +244,18 @@ public final class IndTestFisherZGeneralizedInverse implements IndependenceTest
             indFisher = false;  //Two sided
         }
 
+        double p = pValue(fishersZ);
+        this.fishersZ = fishersZ;
+
         if (verbose) {
             if (indFisher) {
-                TetradLogger.getInstance().log("independencies", SearchLogUtils.independenceFactMsg(xVar, yVar, z, getPValue()));
+                TetradLogger.getInstance().log("independencies", SearchLogUtils.independenceFactMsg(xVar, yVar, z, p));
             } else {
-                TetradLogger.getInstance().log("independencies", SearchLogUtils.independenceFactMsg(xVar, yVar, z, getPValue()));
+                TetradLogger.getInstance().log("independencies", SearchLogUtils.independenceFactMsg(xVar, yVar, z, p));
             }
         }
 
-        return indFisher;
+        return new IndependenceResult(xVar, yVar, z, indFisher, p, p);
     }
 
     public boolean isIndependent(Node x, Node y, Node... z) {
@@ -261,7 +276,7 @@ public final class IndTestFisherZGeneralizedInverse implements IndependenceTest
      * @return the probability associated with the most recently computed independence test.
      */
     public double getPValue() {
-        return 2.0 * (1.0 - RandomUtil.getInstance().normalCdf(0, 1, Math.abs(fishersZ)));
+        return pValue(fishersZ);
 
 //        double q = 2.0 * Integrator.getArea(npdf, 0.0, Math.abs(fishersZ), 100);
 //        if (q > 1.0) {
@@ -280,6 +295,7 @@ public final class IndTestFisherZGeneralizedInverse implements IndependenceTest
         }
 
         this.alpha = alpha;
+        this.thresh = Double.NaN;
     }
 
     /**
@@ -365,6 +381,10 @@ public final class IndTestFisherZGeneralizedInverse implements IndependenceTest
 //        return CutoffFinder.getCutoff(npdf, upperBound, alpha, delta);
     }
 
+    private double pValue(double fishersZ) {
+        return 2.0 * (1.0 - RandomUtil.getInstance().normalCdf(0, 1, Math.abs(fishersZ)));
+    }
+
     private int sampleSize() {
         return data.rows();
     }
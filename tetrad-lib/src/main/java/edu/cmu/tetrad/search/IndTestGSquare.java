@@ -269,6 +269,18 @@ public final class IndTestGSquare implements IndependenceTest {
         return this.gSquareTest.getAlpha();
     }
 
+    /**
+     * Sets the contingency counts to test from, which must be for the data of this test, so that the data is not
+     * rescanned for each test. Null (the default) scans the data each time.
+     */
+    public void setSufficientStatistics(DiscreteSufficientStatistics sufficientStatistics) {
+        this.gSquareTest.setSufficientStatistics(sufficientStatistics);
+    }
+
+    public DiscreteSufficientStatistics getSufficientStatistics() {
+        return this.gSquareTest.getSufficientStatistics();
+    }
+
     /**
      * @return the list of variables over which this independence checker is capable of determinine independence
      * relations-- that is, all the variables in the given graph or the given data set.
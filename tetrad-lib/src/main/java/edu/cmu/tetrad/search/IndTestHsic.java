@@ -27,6 +27,7 @@ import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.kernel.Kernel;
 import edu.cmu.tetrad.search.kernel.KernelGaussian;
 import edu.cmu.tetrad.search.kernel.KernelUtils;
+import edu.cmu.tetrad.search.kernel.LowRankKernels;
 import edu.cmu.tetrad.util.NumberFormatUtil;
 import edu.cmu.tetrad.util.TetradLogger;
 import edu.cmu.tetrad.util.Matrix;
@@ -37,10 +38,14 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static edu.cmu.tetrad.search.kernel.LowRankKernels.crossProduct;
+import static edu.cmu.tetrad.search.kernel.LowRankKernels.frobeniusSquared;
+import static edu.cmu.tetrad.search.kernel.LowRankKernels.permuteRows;
+
 /**
  * Checks the conditional independence X _||_ Y | S, where S is a set of continuous variable, and X and Y are discrete
  * variable not in S, using the Hilbert-Schmidth Independence Criterion (HSIC), a kernel based nonparametric test for
- * conditional independence.
+ * conditional independence. For large samples, the Gram matrices may be replaced by low-rank factors; see setRank.
  *
  * @author Robert Tillman
  */
@@ -98,6 +103,21 @@ public final class IndTestHsic implements IndependenceTest {
     private double useIncompleteCholesky = 1e-18;
     private boolean verbose = false;
 
+    /**
+     * The rank of the low-rank approximation to the Gram matrices, or 0 to use the Gram matrices themselves.
+     */
+    private int rank = 0;
+
+    /**
+     * Low-rank Gram matrix factors of the data, shared by all tests.
+     */
+    private LowRankKernels lowRankKernels;
+
+    /**
+     * Median distance bandwidths of the variables, for the shared factors.
+     */
+    private double[] lowRankBandwidths;
+
     //==========================CONSTRUCTORS=============================//
 
     /**
@@ -166,6 +186,10 @@ public final class IndTestHsic implements IndependenceTest {
      */
     public boolean isIndependent(Node y, Node x, List<Node> z) {
 
+        if (this.rank > 0) {
+            return judge(x, y, z, lowRankNullDistribution(y, x, z));
+        }
+
         int m = sampleSize();
 
         // choose kernels using median distance heuristic
@@ -302,6 +326,12 @@ public final class IndTestHsic implements IndependenceTest {
             }
         }
 
+        return judge(x, y, z, nullapprox);
+    }
+
+    // Judges independence from the permutation distribution of HSIC.
+    private boolean judge(Node x, Node y, List<Node> z, double[] nullapprox) {
+
         // permutation test to get p-value
         double evalCdf = 0.0;
         for (int i = 0; i < this.perms; i++) {
@@ -657,6 +687,118 @@ public final class IndTestHsic implements IndependenceTest {
         return empHSIC;
     }
 
+    /**
+     * Computes HSIC, and its distribution under permutations, from low-rank factors of the Gram matrices, which are
+     * permuted along with the data. Only N x r and r x r matrices are formed.
+     */
+    private double[] lowRankNullDistribution(Node y, Node x, List<Node> z) {
+        int m = sampleSize();
+        LowRankKernels kernels = getLowRankKernels();
+
+        double[][] Gy = lowRankFactor(kernels, Collections.singletonList(y));
+        double[][] Gx = lowRankFactor(kernels, Collections.singletonList(x));
+        double[][] Gz = z.isEmpty() ? null : lowRankFactor(kernels, z);
+
+        if (z.isEmpty()) {
+            this.hsic = lowRankHSIC(Gy, Gx, m);
+        } else {
+            this.hsic = lowRankHSIC(Gy, Gx, Gz, m);
+        }
+
+        // permute y, and z within clusters of z, as the direct method does the data
+        List<List<Integer>> clusterAssign = null;
+        if (!z.isEmpty()) {
+            KMeans kmeans = KMeans.randomClusters((m / 3));
+            kmeans.cluster(dataSet.subsetColumns(z).getDoubleData());
+            clusterAssign = kmeans.getClusters();
+        }
+
+        double[] nullapprox = new double[this.perms];
+
+        for (int i = 0; i < this.perms; i++) {
+            int[] perm = new int[m];
+            for (int j = 0; j < m; j++) perm[j] = j;
+
+            if (z.isEmpty()) {
+                List<Integer> indicesList = new ArrayList<>();
+                for (int j = 0; j < m; j++) {
+                    indicesList.add(j);
+                }
+                Collections.shuffle(indicesList);
+                for (int j = 0; j < m; j++) {
+                    perm[j] = indicesList.get(j);
+                }
+
+                nullapprox[i] = lowRankHSIC(permuteRows(Gy, perm), Gx, m);
+            } else {
+                for (List<Integer> cluster : clusterAssign) {
+                    List<Integer> shuffleCluster = new ArrayList<>(cluster);
+                    Collections.shuffle(shuffleCluster);
+                    for (int k = 0; k < shuffleCluster.size(); k++) {
+                        perm[shuffleCluster.get(k)] = cluster.get(k);
+                    }
+                }
+
+                nullapprox[i] = lowRankHSIC(permuteRows(Gy, perm), Gx, permuteRows(Gz, perm), m);
+            }
+        }
+
+        return nullapprox;
+    }
+
+    /**
+     * Empirical unconditional Hilbert-Schmidt Dependence Measure for X and Y from low-rank factors of the Gram
+     * matrices.
+     *
+     * @param Gy centered factor of the Gram matrix for Y, as columns
+     * @param Gx centered factor of the Gram matrix for X, as columns
+     * @param m  sample size
+     */
+    public double lowRankHSIC(double[][] Gy, double[][] Gx, int m) {
+        return frobeniusSquared(crossProduct(Gy, Gx)) / Math.pow(m - 1, 2);
+    }
+
+    /**
+     * Empirical conditional Hilbert-Schmidt Dependence Measure for Y and X given Z from low-rank factors of the Gram
+     * matrices. With Kz = Gz Gz', Kz (Kz + rI)^-2 Kz = Gz M Gz' for M = W Gz'Gz W, W = (Gz'Gz + rI)^-1, r being the
+     * regularizer, so each trace in the direct method reduces to one over small matrices.
+     *
+     * @param Gy centered factor of the Gram matrix for Y, as columns
+     * @param Gx centered factor of the Gram matrix for X, as columns
+     * @param Gz centered factor of the Gram matrix for Z, as columns
+     * @param m  sample size
+     */
+    public double lowRankHSIC(double[][] Gy, double[][] Gx, double[][] Gz, int m) {
+        Matrix zz = new Matrix(crossProduct(Gz, Gz));
+        Matrix W = zz.plus(Matrix.identity(zz.rows()).scalarMult(this.regularizer)).inverse();
+        Matrix M = W.times(zz).times(W);
+
+        double[][] yx = crossProduct(Gy, Gx);
+        double[][] yzMzx = new Matrix(crossProduct(Gy, Gz)).times(M).times(new Matrix(crossProduct(Gz, Gx))).toArray();
+
+        // tr(Ky Kx) - 2 tr(Ky S Kx) + tr(Ky S Kx S), S = Gz M Gz'
+        double second = 0.0;
+        for (int i = 0; i < yx.length; i++) {
+            for (int j = 0; j < yx[i].length; j++) {
+                second += yzMzx[i][j] * yx[i][j];
+            }
+        }
+
+        double empHSIC = frobeniusSquared(yx) - 2 * second + frobeniusSquared(yzMzx);
+        empHSIC /= Math.pow(m - 1, 2);
+
+        // sum of squared off-diagonal entries of Kz
+        double offDiagonal = frobeniusSquared(zz.toArray());
+        for (int i = 0; i < m; i++) {
+            double d = 0.0;
+            for (double[] g : Gz) d += g[i] * g[i];
+            offDiagonal -= d * d;
+        }
+
+        empHSIC *= (m * (m - 1)) / offDiagonal;
+        return empHSIC;
+    }
+
     public boolean isIndependent(Node x, Node y, Node... z) {
         return isIndependent(x, y, Arrays.asList(z));
     }
@@ -705,6 +847,28 @@ public final class IndTestHsic implements IndependenceTest {
         this.useIncompleteCholesky = precision;
     }
 
+    /**
+     * Sets the rank of the low-rank approximation to the Gram matrices. If rank > 0, each Gram matrix is replaced by
+     * an N x rank factor found by pivoted incomplete Cholesky decomposition, stopping early at the precision given by
+     * setIncompleteCholesky, and HSIC is computed without forming any N x N matrix. The factor of each variable, and
+     * of each conditioning set, is reused across tests. If rank = 0 (the default), Gram matrices are used as before.
+     */
+    public void setRank(int rank) {
+        if (rank < 0) throw new IllegalArgumentException("Rank must be >= 0: " + rank);
+        this.rank = rank;
+
+        synchronized (this) {
+            this.lowRankKernels = null;
+        }
+    }
+
+    /**
+     * Gets the rank of the low-rank approximation to the Gram matrices, or 0 if it is not used.
+     */
+    public int getRank() {
+        return this.rank;
+    }
+
     /**
      * Set the number of bootstrap samples to use
      */
@@ -836,6 +1000,35 @@ public final class IndTestHsic implements IndependenceTest {
         return this.dataSet.getNumRows();
     }
 
+    private synchronized LowRankKernels getLowRankKernels() {
+        if (this.lowRankKernels == null) {
+            double[] bandwidths = new double[this.dataSet.getNumColumns()];
+
+            for (int j = 0; j < bandwidths.length; j++) {
+                bandwidths[j] = new KernelGaussian(this.dataSet, this.dataSet.getVariable(j)).getBandwidth();
+            }
+
+            this.lowRankBandwidths = bandwidths;
+            this.lowRankKernels = new LowRankKernels(this.dataSet.getDoubleData().transpose().toArray(), this.rank,
+                    Math.max(this.useIncompleteCholesky, 0));
+        }
+
+        return this.lowRankKernels;
+    }
+
+    // The centered factor of the product of Gaussian kernels over the given variables, exp(-.5 (x - y)^2 / sigma^2).
+    private double[][] lowRankFactor(LowRankKernels kernels, List<Node> nodes) {
+        int[] cols = new int[nodes.size()];
+        double[] scales = new double[nodes.size()];
+
+        for (int i = 0; i < nodes.size(); i++) {
+            cols[i] = this.dataSet.getColumn(nodes.get(i));
+            scales[i] = Math.sqrt(2) * this.lowRankBandwidths[cols[i]];
+        }
+
+        return kernels.getFactor(cols, scales);
+    }
+
     private double matrixProductEntry(Matrix X, Matrix Y, int i, int j) {
         double entry = 0.0;
         for (int k = 0; k < X.columns(); k++) {
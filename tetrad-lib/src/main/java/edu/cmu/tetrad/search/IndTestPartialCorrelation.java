@@ -57,7 +57,7 @@ public final class IndTestPartialCorrelation implements IndependenceTest {
     /**
      * The value of the Fisher's Z statistic associated with the las calculated partial correlation.
      */
-    private double pValue;
+    private volatile double pValue;
 
     /**
      * Formats as 0.0000.
@@ -73,6 +73,9 @@ public final class IndTestPartialCorrelation implements IndependenceTest {
 
     CovarianceMatrix cov;
 
+    // The inverse of cov, computed on first use.
+    private volatile Matrix inverse;
+
     private boolean verbose = false;
 
 
@@ -96,19 +99,21 @@ public final class IndTestPartialCorrelation implements IndependenceTest {
     }
 
     public boolean isIndependent(Node x, Node y, List<Node> z) {
-        return indepCollection(x, y, alpha);
+        return checkIndependence(x, y, z).isIndependent();
     }
 
-    private boolean indepCollection(Node x, Node y, double alpha) {
-        Matrix submatrix = cov.getMatrix();
-
-        Matrix inverse;
+    /**
+     * Tests x _||_ y given all other variables, without locking, so that one instance of this test may be shared by
+     * many threads. The p value is also recorded for getPValue(), for callers that use the test from a single thread.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        double p = indepCollection(x, y);
+        this.pValue = p;
+        return new IndependenceResult(x, y, z, p > alpha, p, p);
+    }
 
-        try {
-            inverse = submatrix.inverse();
-        } catch (Exception e) {
-            throw new IllegalArgumentException();
-        }
+    private double indepCollection(Node x, Node y) {
+        Matrix inverse = getInverse();
 
         int i = variables.indexOf(x);
         int j = variables.indexOf(y);
@@ -121,9 +126,30 @@ public final class IndTestPartialCorrelation implements IndependenceTest {
         double r = a / b;
 
         double fisherZ = Math.sqrt(cov.getSampleSize() - 3 - (variables.size() - 2)) * 0.5 * (Math.log(1.0 + r) - Math.log(1.0 - r));
-        double p = 2.0 * (1.0 - RandomUtil.getInstance().normalCdf(0, 1, abs(fisherZ)));
-        return p > alpha;
+        return 2.0 * (1.0 - RandomUtil.getInstance().normalCdf(0, 1, abs(fisherZ)));
+    }
+
+    // The inverse of the covariance matrix doesn't depend on x or y, so it is computed once and shared.
+    private Matrix getInverse() {
+        Matrix inverse = this.inverse;
+
+        if (inverse == null) {
+            synchronized (this) {
+                inverse = this.inverse;
+
+                if (inverse == null) {
+                    try {
+                        inverse = cov.getMatrix().inverse();
+                    } catch (Exception e) {
+                        throw new IllegalArgumentException();
+                    }
+
+                    this.inverse = inverse;
+                }
+            }
+        }
 
+        return inverse;
     }
 
     private List<Node> listVars(int[] indices, List<Node> vars) {
@@ -122,7 +122,8 @@ public class IndTestProbabilistic implements IndependenceTest {
     }
 
     private BCInference setup(DataSet dataSet) {
-        int[] nodeDimensions = new int[dataSet.getNumColumns() + 1];
+        // BCInference keeps the product of X and Y in the last slot, after the variables.
+        int[] nodeDimensions = new int[dataSet.getNumColumns() + 2];
 
         for (int j = 0; j < dataSet.getNumColumns(); j++) {
             DiscreteVariable variable = (DiscreteVariable) (dataSet.getVariable(j));
@@ -0,0 +1,89 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.graph.IndependenceFact;
+import edu.cmu.tetrad.graph.Node;
+
+import java.util.List;
+
+/**
+ * The immutable outcome of a single conditional independence test x _||_ y | z. Unlike
+ * IndependenceTest.getPValue(), which reports on whichever test happened to run last,
+ * a result belongs to one call and so may be handed across threads freely.
+ *
+ * @author Joseph Ramsey
+ */
+public final class IndependenceResult {
+    private final IndependenceFact fact;
+    private final boolean independent;
+    private final double pValue;
+    private final double score;
+
+    /**
+     * @param fact        The fact x _||_ y | z that was tested.
+     * @param independent True iff the test judged x _||_ y | z.
+     * @param pValue      The p value of the test, or Double.NaN if not meaningful for the test.
+     * @param score       A score that is higher for more likely dependence, as IndependenceTest.getScore().
+     */
+    public IndependenceResult(IndependenceFact fact, boolean independent, double pValue, double score) {
+        if (fact == null) {
+            throw new NullPointerException("Fact not provided.");
+        }
+
+        this.fact = fact;
+        this.independent = independent;
+        this.pValue = pValue;
+        this.score = score;
+    }
+
+    public IndependenceResult(Node x, Node y, List<Node> z, boolean independent, double pValue, double score) {
+        this(new IndependenceFact(x, y, z), independent, pValue, score);
+    }
+
+    public IndependenceFact getFact() {
+        return fact;
+    }
+
+    public boolean isIndependent() {
+        return independent;
+    }
+
+    public boolean isDependent() {
+        return !independent;
+    }
+
+    public double getPValue() {
+        return pValue;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public String toString() {
+        return fact + (independent ? " independent" : " dependent") + ", p = " + pValue;
+    }
+}
+
+
+
@@ -71,6 +71,18 @@ public interface IndependenceTest {
      */
     boolean isDependent(Node x, Node y, Node... z);
 
+    /**
+     * @return the outcome of the test x _||_ y | z as an immutable result, which, unlike getPValue(), is not
+     * affected by tests run concurrently on other threads. Tests that keep no per-call state override this to run
+     * without locking; by default the test is run and its p value and score read under a lock on this test.
+     */
+    default IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        synchronized (this) {
+            boolean independent = isIndependent(x, y, z);
+            return new IndependenceResult(x, y, z, independent, getPValue(), getScore());
+        }
+    }
+
     /**
      * @return the probability associated with the most recently executed independence test, of Double.NaN if p value is
      * not meaningful for tis test.
@@ -6,6 +6,7 @@ import edu.cmu.tetrad.data.DataUtils;
 import edu.cmu.tetrad.data.ICovarianceMatrix;
 import edu.cmu.tetrad.graph.IndependenceFact;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.kernel.LowRankKernels;
 import edu.cmu.tetrad.util.Matrix;
 import edu.cmu.tetrad.util.TetradLogger;
 import edu.cmu.tetrad.util.Vector;
@@ -20,6 +21,10 @@ import org.apache.commons.math3.random.Well44497b;
 import java.util.*;
 
 import static com.google.common.primitives.Doubles.asList;
+import static edu.cmu.tetrad.search.kernel.LowRankKernels.crossProduct;
+import static edu.cmu.tetrad.search.kernel.LowRankKernels.frobeniusSquared;
+import static edu.cmu.tetrad.search.kernel.LowRankKernels.minus;
+import static edu.cmu.tetrad.search.kernel.LowRankKernels.times;
 import static edu.cmu.tetrad.util.StatUtils.median;
 import static java.lang.Math.*;
 
@@ -36,6 +41,8 @@ import static java.lang.Math.*;
  * Bowman, A. W., & Azzalini, A. (1997). Applied smoothing techniques for data analysis: the kernel
  * approach with S-Plus illustrations (Vol. 18). OUP Oxford.
  *
+ * For large samples, the kernel matrices may be replaced by low-rank factors; see setRank.
+ *
  * @author Vineet Raghu on 7/3/2016
  * @author jdramsey refactoring 7/4/2018
  */
@@ -83,6 +90,18 @@ public class Kci implements IndependenceTest, ScoreForFact {
 
     private boolean verbose = false;
 
+    // The rank of the low-rank approximation to the kernel matrices, or 0 for the exact test.
+    private int rank = 0;
+
+    // Incomplete Cholesky stops once no residual diagonal entry of a kernel matrix is larger than this.
+    private static final double LOW_RANK_PRECISION = 1e-6;
+
+    // Low-rank kernel factors of the standardized data, shared by all tests.
+    private LowRankKernels lowRankKernels;
+
+    // Kernel widths of the standardized variables, for the shared factors.
+    private double[] lowRankWidths;
+
     /**
      * Constructor.
      *
@@ -122,71 +141,21 @@ public class Kci implements IndependenceTest, ScoreForFact {
      * getVariableNames().
      */
     public boolean isIndependent(Node x, Node y, List<Node> z) {
-        List<Node> allVars = new ArrayList<>();
-        allVars.add(x);
-        allVars.add(y);
-        allVars.addAll(z);
-
-        List<Integer> rows = getRows(allVars, this.hash, this.data);
-
-        int[] _cols = new int[allVars.size()];
-        for (int i = 0; i < _cols.length; i++) _cols[i] = this.hash.get(allVars.get(i));
-
-        int[] _rows = new int[rows.size()];
-        for (int i = 0; i < rows.size(); i++) _rows[i] = rows.get(i);
-
-        DataSet data = this.data.subsetRowsColumns(_rows, _cols);
-        data = DataUtils.standardizeData(data);
-        double[][] _data = data.getDoubleData().transpose().toArray();
-
-        Map<Node, Integer> hash = new HashMap<>();
-        for (int i = 0; i < allVars.size(); i++) hash.put(allVars.get(i), i);
-
-        int N = data.getNumRows();
-
-        Matrix Ones = new Matrix(N, 1);
-        for (int j = 0; j < N; j++) Ones.set(j, 0, 1);
-
-        Matrix I = Matrix.identity(N);
-
-        Matrix H = Matrix.identity(N).minus(Ones.times(Ones.transpose()).scalarMult(1.0 / N));
-
-        double[] h = new double[data.getNumColumns()];
-        int count = 0;
-
-        double sum = 0.0;
-        for (int i = 0; i < data.getNumColumns(); i++) {
-            h[i] = h(allVars.get(i), _data, hash);
-
-            if (h[i] != 0) {
-                sum += h[i];
-                count++;
-            }
-        }
-
-        double avg = sum / count;
-
-        for (int i = 0; i < h.length; i++) {
-            if (h[i] == 0) h[i] = avg;
-        }
-
-
-        boolean independent;
-
         if (Thread.currentThread().isInterrupted()) {
             return false;
         }
 
+        boolean independent;
         IndependenceFact fact = new IndependenceFact(x, y, z);
 
         if (facts.get(fact) != null) {
             independent = facts.get(fact);
             this.p = pValues.get(fact);
         } else {
-            if (z.isEmpty()) {
-                independent = isIndependentUnconditional(x, y, fact, _data, h, N, hash);
+            if (rank > 0) {
+                independent = isIndependentLowRank(x, y, z, fact);
             } else {
-                independent = isIndependentConditional(x, y, z, fact, _data, N, H, I, h, hash);
+                independent = isIndependentExact(x, y, z, fact);
             }
 
             facts.put(fact, independent);
@@ -371,8 +340,89 @@ public class Kci implements IndependenceTest, ScoreForFact {
         this.epsilon = epsilon;
     }
 
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * Sets the rank of the low-rank approximation to the kernel matrices. If rank > 0, each kernel matrix K is
+     * replaced by G G', G being an N x rank factor found by pivoted incomplete Cholesky decomposition, and the tests
+     * are done with N x rank and rank x rank matrices, so that no N x N matrix is formed. The factor of each
+     * variable, and of each conditioning set, is reused across tests. If rank = 0 (the default), the exact kernel
+     * matrices are used.
+     */
+    public void setRank(int rank) {
+        if (rank < 0) throw new IllegalArgumentException("Rank must be >= 0: " + rank);
+        this.rank = rank;
+
+        synchronized (this) {
+            this.lowRankKernels = null;
+        }
+    }
+
     //====================================PRIVATE METHODS==================================//
 
+    /**
+     * KCI independence using the exact kernel matrices.
+     *
+     * @return true just in case independence holds.
+     */
+    private boolean isIndependentExact(Node x, Node y, List<Node> z, IndependenceFact fact) {
+        List<Node> allVars = new ArrayList<>();
+        allVars.add(x);
+        allVars.add(y);
+        allVars.addAll(z);
+
+        List<Integer> rows = getRows(allVars, this.hash, this.data);
+
+        int[] _cols = new int[allVars.size()];
+        for (int i = 0; i < _cols.length; i++) _cols[i] = this.hash.get(allVars.get(i));
+
+        int[] _rows = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) _rows[i] = rows.get(i);
+
+        DataSet data = this.data.subsetRowsColumns(_rows, _cols);
+        data = DataUtils.standardizeData(data);
+        double[][] _data = data.getDoubleData().transpose().toArray();
+
+        Map<Node, Integer> hash = new HashMap<>();
+        for (int i = 0; i < allVars.size(); i++) hash.put(allVars.get(i), i);
+
+        int N = data.getNumRows();
+
+        Matrix Ones = new Matrix(N, 1);
+        for (int j = 0; j < N; j++) Ones.set(j, 0, 1);
+
+        Matrix I = Matrix.identity(N);
+
+        Matrix H = Matrix.identity(N).minus(Ones.times(Ones.transpose()).scalarMult(1.0 / N));
+
+        double[] h = new double[data.getNumColumns()];
+        int count = 0;
+
+        double sum = 0.0;
+        for (int i = 0; i < data.getNumColumns(); i++) {
+            h[i] = h(allVars.get(i), _data, hash);
+
+            if (h[i] != 0) {
+                sum += h[i];
+                count++;
+            }
+        }
+
+        double avg = sum / count;
+
+        for (int i = 0; i < h.length; i++) {
+            if (h[i] == 0) h[i] = avg;
+        }
+
+        if (z.isEmpty()) {
+            return isIndependentUnconditional(x, y, fact, _data, h, N, hash);
+        } else {
+            return isIndependentConditional(x, y, z, fact, _data, N, H, I, h, hash);
+        }
+    }
+
     /**
      * KCI independence for the unconditional case. Uses Theorem 4 from the paper.
      *
@@ -440,6 +490,208 @@ public class Kci implements IndependenceTest, ScoreForFact {
         }
     }
 
+    /**
+     * KCI independence with the kernel matrices replaced by low-rank factors. Theorem 4 and Proposition 5 only need
+     * the eigenvalues and eigenvectors of the (centered) kernel matrices, which are found from those of G'G, and the
+     * traces of their products, which are found from products of the factors.
+     *
+     * @return true just in case independence holds.
+     */
+    private boolean isIndependentLowRank(Node x, Node y, List<Node> z, IndependenceFact fact) {
+        List<Node> allVars = new ArrayList<>();
+        allVars.add(x);
+        allVars.add(y);
+        allVars.addAll(z);
+
+        List<Integer> rows = getRows(allVars, this.hash, this.data);
+
+        LowRankKernels kernels;
+        Map<Node, Integer> hash;
+        Map<Node, Double> h = new HashMap<>();
+
+        if (rows.size() == this.data.getNumRows()) {
+            kernels = getLowRankKernels();
+            hash = this.hash;
+
+            for (Node node : allVars) {
+                h.put(node, lowRankWidths[hash.get(node)]);
+            }
+        } else {
+
+            // Rows are dropped for missing values, so the shared factors don't apply.
+            int[] _cols = new int[allVars.size()];
+            for (int i = 0; i < _cols.length; i++) _cols[i] = this.hash.get(allVars.get(i));
+
+            int[] _rows = new int[rows.size()];
+            for (int i = 0; i < rows.size(); i++) _rows[i] = rows.get(i);
+
+            DataSet data = DataUtils.standardizeData(this.data.subsetRowsColumns(_rows, _cols));
+            double[][] _data = data.getDoubleData().transpose().toArray();
+
+            hash = new HashMap<>();
+            for (int i = 0; i < allVars.size(); i++) hash.put(allVars.get(i), i);
+
+            kernels = new LowRankKernels(_data, rank, LOW_RANK_PRECISION, 0);
+
+            for (Node node : allVars) {
+                h.put(node, h(node, _data, hash));
+            }
+        }
+
+        int count = 0;
+        double sum = 0.0;
+
+        for (double _h : h.values()) {
+            if (_h != 0) {
+                sum += _h;
+                count++;
+            }
+        }
+
+        double avg = sum / count;
+
+        for (Node node : allVars) {
+            if (h.get(node) == 0) h.put(node, avg);
+        }
+
+        int N = rows.size();
+
+        try {
+            if (z.isEmpty()) {
+                double[][] gx = lowRankFactor(kernels, hash, h, x, null);
+                double[][] gy = lowRankFactor(kernels, hash, h, y, null);
+
+                double sta = frobeniusSquared(crossProduct(gx, gy));
+
+                if (isApproximate()) {
+                    double mean_appr = frobeniusSquared(gx) * frobeniusSquared(gy) / N;
+                    double var_appr = 2 * frobeniusSquared(crossProduct(gx, gx))
+                            * frobeniusSquared(crossProduct(gy, gy)) / (N * (double) N);
+                    double k_appr = mean_appr * mean_appr / var_appr;
+                    double theta_appr = var_appr / mean_appr;
+                    double p = 1.0 - new GammaDistribution(k_appr, theta_appr).cumulativeProbability(sta);
+                    pValues.put(fact, p);
+                    this.p = p;
+                    return p > alpha;
+                } else {
+                    List<Double> evx = new Eigendecomposition(new Matrix(crossProduct(gx, gx))).invoke()
+                            .getTopEigenvalues();
+                    List<Double> evy = new Eigendecomposition(new Matrix(crossProduct(gy, gy))).invoke()
+                            .getTopEigenvalues();
+                    return theorem4(sta / N, evx, evy, fact, N);
+                }
+            } else {
+                double[][] gxz = lowRankFactor(kernels, hash, h, x, z);
+                double[][] gy = lowRankFactor(kernels, hash, h, y, null);
+                double[][] gz = lowRankFactor(kernels, hash, h, null, z);
+
+                // Rz = epsilon (Kz + epsilon I)^-1 = I - Gz (Gz'Gz + epsilon I)^-1 Gz', by the Woodbury identity,
+                // so Rz Kxz Rz = Fx Fx' for Fx = Rz Gxz, and likewise for y.
+                Matrix zz = new Matrix(crossProduct(gz, gz));
+                Matrix inv = zz.plus(Matrix.identity(zz.rows()).scalarMult(epsilon)).inverse();
+
+                double[][] fx = minus(gxz, times(gz, inv.times(new Matrix(crossProduct(gz, gxz))).toArray()));
+                double[][] fy = minus(gy, times(gz, inv.times(new Matrix(crossProduct(gz, gy))).toArray()));
+
+                double sta = frobeniusSquared(crossProduct(fx, fy));
+
+                // The eigenvectors of Fx Fx', scaled by the square roots of their eigenvalues, are Fx V, where V
+                // holds the eigenvectors of Fx'Fx.
+                double[][] vdx = times(fx, new Eigendecomposition(new Matrix(crossProduct(fx, fx))).invoke()
+                        .getV().toArray());
+                double[][] vdy = times(fy, new Eigendecomposition(new Matrix(crossProduct(fy, fy))).invoke()
+                        .getV().toArray());
+
+                return proposition5(uuProduct(vdx, vdy, N), sta, fact, N);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            pValues.put(fact, 0.0);
+            facts.put(fact, false);
+            return false;
+        }
+    }
+
+    private synchronized LowRankKernels getLowRankKernels() {
+        if (lowRankKernels == null) {
+            double[][] columns = data.getDoubleData().transpose().toArray();
+
+            for (int j = 0; j < columns.length; j++) {
+                columns[j] = DataUtils.standardizeData(columns[j]);
+            }
+
+            double[] widths = new double[columns.length];
+
+            for (int j = 0; j < columns.length; j++) {
+                widths[j] = h(variables.get(j), columns, hash);
+            }
+
+            lowRankWidths = widths;
+            lowRankKernels = new LowRankKernels(columns, rank, LOW_RANK_PRECISION);
+        }
+
+        return lowRankKernels;
+    }
+
+    // The centered low-rank factor of the kernel matrix over x and z, with the same widths as kernelMatrix.
+    private double[][] lowRankFactor(LowRankKernels kernels, Map<Node, Integer> hash, Map<Node, Double> h,
+                                     Node x, List<Node> z) {
+        List<Node> nodes = new ArrayList<>();
+        if (x != null) nodes.add(x);
+        if (z != null) nodes.addAll(z);
+
+        int[] cols = new int[nodes.size()];
+        double width = 0;
+
+        for (int i = 0; i < nodes.size(); i++) {
+            cols[i] = hash.get(nodes.get(i));
+            width = max(width, h.get(nodes.get(i)));
+        }
+
+        width *= sqrt(nodes.size()) * getWidthMultiplier();
+
+        if (width == 0) {
+            throw new IllegalArgumentException("Width is zero.");
+        }
+
+        // kernelMatrix halves coordinate differences before scaling them by the width.
+        double[] scales = new double[cols.length];
+        Arrays.fill(scales, 2 * width);
+
+        return kernels.getFactor(cols, scales);
+    }
+
+    // UU'UU for the matrix UU of Proposition 5, accumulated row by row so that UU is never formed.
+    private Matrix uuProduct(double[][] vdx, double[][] vdy, int N) {
+        int prod = vdx.length * vdy.length;
+        double[][] uuprod = new double[prod][prod];
+        double[] u = new double[prod];
+
+        for (int k = 0; k < N; k++) {
+            for (int i = 0; i < vdx.length; i++) {
+                for (int j = 0; j < vdy.length; j++) {
+                    u[i * vdy.length + j] = vdx[i][k] * vdy[j][k];
+                }
+            }
+
+            for (int a = 0; a < prod; a++) {
+                if (u[a] == 0) continue;
+
+                for (int b = a; b < prod; b++) {
+                    uuprod[a][b] += u[a] * u[b];
+                }
+            }
+        }
+
+        for (int a = 0; a < prod; a++) {
+            for (int b = 0; b < a; b++) {
+                uuprod[a][b] = uuprod[b][a];
+            }
+        }
+
+        return new Matrix(uuprod);
+    }
+
     private boolean theorem4(Matrix kx, Matrix ky, IndependenceFact fact, int N) {
 
         double T = (1.0 / N) * (kx.times(ky).trace());
@@ -451,6 +703,11 @@ public class Kci implements IndependenceTest, ScoreForFact {
         Eigendecomposition eigendecompositiony = new Eigendecomposition(ky).invoke();
         List<Double> evy = eigendecompositiony.getTopEigenvalues();
 
+        return theorem4(T, evx, evy, fact, N);
+    }
+
+    private boolean theorem4(double T, List<Double> evx, List<Double> evy, IndependenceFact fact, int N) {
+
         // Calculate formula (9).
         int sum = 0;
 
@@ -471,6 +728,7 @@ public class Kci implements IndependenceTest, ScoreForFact {
         // Calculate p.
         double p = sum / (double) getNumBootstraps();
         pValues.put(fact, p);
+        this.p = p;
 
         final boolean independent = p > alpha;
 
@@ -487,7 +745,6 @@ public class Kci implements IndependenceTest, ScoreForFact {
     }
 
     private boolean proposition5(Matrix kx, Matrix ky, IndependenceFact fact, int N) {
-        double T = (1.0 / N) * kx.times(ky).trace();
 
         Eigendecomposition eigendecompositionx = new Eigendecomposition(kx).invoke();
         Matrix vx = eigendecompositionx.getV();
@@ -515,8 +772,13 @@ public class Kci implements IndependenceTest, ScoreForFact {
 
         Matrix uuprod = prod > N ? UU.times(UU.transpose()) : UU.transpose().times(UU);
 
+        return proposition5(uuprod, kx.times(ky).trace(), fact, N);
+    }
+
+    private boolean proposition5(Matrix uuprod, double sta, IndependenceFact fact, int N) {
+        double T = (1.0 / N) * sta;
+
         if (isApproximate()) {
-            double sta = kx.times(ky).trace();
             double mean_appr = uuprod.trace();
             double var_appr = 2.0 * uuprod.times(uuprod).trace();
             double k_appr = mean_appr * mean_appr / var_appr;
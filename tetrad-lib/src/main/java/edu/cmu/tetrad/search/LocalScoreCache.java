@@ -21,46 +21,223 @@
 
 package edu.cmu.tetrad.search;
 
-import org.apache.commons.collections4.map.MultiKeyMap;
-
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Stores a map from (variable, parents) to score.
+ * Stores a map from (variable, parents) to score. Parent sets are keyed by their sorted
+ * int indices, so the order in which parents are given does not matter. A key may also name
+ * one variable set apart from the parents, as for the score difference of adding x to
+ * parents z of y, so that (y, x, {z}) and (y, z, {x}) are kept distinct. The cache holds at
+ * most a fixed number of entries; once full, the least recently used entry is evicted. The
+ * map is split into independently locked segments so that concurrent searches do not
+ * serialize on a single lock. Hits, misses and evictions are counted.
  *
  * @author Joseph Ramsey
  */
 public class LocalScoreCache {
-    private MultiKeyMap map;
+
+    // The default maximum number of entries, about 100 MB for small parent sets.
+    public static final int DEFAULT_MAX_ENTRIES = 1000000;
+
+    private final Segment[] segments;
+    private final int maxEntries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
 
     public LocalScoreCache() {
-        map = new MultiKeyMap();
+        this(DEFAULT_MAX_ENTRIES);
     }
 
-    public void add(int variable, int[] parents, double score) {
-        Set<Integer> _parents = new HashSet<>(parents.length);
+    /**
+     * @param maxEntries The maximum number of (variable, parents) scores held at any time.
+     */
+    public LocalScoreCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Max entries must be at least 1: " + maxEntries);
+        }
 
-        for (int parent : parents) {
-            _parents.add(parent);
+        int numSegments = 1;
+
+        while (numSegments < 4 * Runtime.getRuntime().availableProcessors()
+                && numSegments * 64 < maxEntries) {
+            numSegments <<= 1;
         }
 
-        map.put(variable, _parents, score);
+        this.maxEntries = maxEntries;
+        this.segments = new Segment[numSegments];
+
+        for (int i = 0; i < numSegments; i++) {
+            segments[i] = new Segment(Math.max(1, maxEntries / numSegments));
+        }
+    }
+
+    public void add(int variable, int[] parents, double score) {
+        add(variable, -1, parents, score);
     }
 
+    /**
+     * Adds a score keyed by variable, the added variable and the parents, where the added
+     * variable is not sorted in with the parents.
+     */
+    public void add(int variable, int added, int[] parents, double score) {
+        Key key = new Key(variable, added, parents);
+        segmentFor(key).put(key, score);
+    }
+
+    /**
+     * @return The cached score, or Double.NaN if (variable, parents) is not in the cache.
+     */
     public double get(int variable, int[] parents) {
-        Set<Integer> _parents = new HashSet<>(parents.length);
+        return get(variable, -1, parents);
+    }
 
-        for (int parent : parents) {
-            _parents.add(parent);
+    /**
+     * @return The cached score, or Double.NaN if (variable, added, parents) is not in the cache.
+     */
+    public double get(int variable, int added, int[] parents) {
+        Key key = new Key(variable, added, parents);
+        Double score = segmentFor(key).get(key);
+
+        if (score == null) {
+            misses.incrementAndGet();
+            return Double.NaN;
         }
 
-        Double _score = (Double) map.get(variable, _parents);
-        return _score == null ? Double.NaN : (_score);
+        hits.incrementAndGet();
+        return score;
     }
 
     public void clear() {
-        map.clear();
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return The number of entries currently held.
+     */
+    public int size() {
+        int size = 0;
+
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+
+        return size;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return hits / (hits + misses), or 0 if nothing has been looked up yet.
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : h / (double) total;
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    public String toString() {
+        return "LocalScoreCache: size = " + size() + " max = " + maxEntries + " hits = " + getHits()
+                + " misses = " + getMisses() + " evictions = " + getEvictions()
+                + " hit rate = " + getHitRate();
+    }
+
+    private Segment segmentFor(Key key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    // A (variable, added, sorted parents) key, with added = -1 for a plain local score. The
+    // parent array is copied, since callers reuse theirs.
+    private static class Key {
+        private final int variable;
+        private final int added;
+        private final int[] parents;
+        private final int hash;
+
+        Key(int variable, int added, int[] parents) {
+            int[] sorted = Arrays.copyOf(parents, parents.length);
+            Arrays.sort(sorted);
+            this.variable = variable;
+            this.added = added;
+            this.parents = sorted;
+            this.hash = 31 * (31 * variable + added) + Arrays.hashCode(sorted);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return variable == key.variable && added == key.added && hash == key.hash && Arrays.equals(parents, key.parents);
+        }
+    }
+
+    // An access-ordered map holding one slice of the cache, evicting its eldest entry when full.
+    private class Segment {
+        private final LinkedHashMap<Key, Double> map;
+
+        Segment(final int capacity) {
+            this.map = new LinkedHashMap<Key, Double>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Double> eldest) {
+                    if (size() > capacity) {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+
+                    return false;
+                }
+            };
+        }
+
+        synchronized Double get(Key key) {
+            return map.get(key);
+        }
+
+        synchronized void put(Key key, double score) {
+            map.put(key, score);
+        }
+
+        synchronized void clear() {
+            map.clear();
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
     }
 }
 
@@ -219,8 +219,7 @@ public final class OrientCollidersMaxP {
 
             List<Node> s = GraphUtils.asList(comb2, adja);
 
-            independenceTest.isIndependent(a, c, s);
-            double _p = independenceTest.getPValue();
+            double _p = independenceTest.checkIndependence(a, c, s).getPValue();
 
             if (_p > p) {
                 p = _p;
@@ -248,8 +247,7 @@ public final class OrientCollidersMaxP {
 
             List<Node> s = GraphUtils.asList(comb3, adjc);
 
-            independenceTest.isIndependent(a, c, s);
-            double _p = independenceTest.getPValue();
+            double _p = independenceTest.checkIndependence(a, c, s).getPValue();
 
             if (_p > p) {
                 p = _p;
@@ -0,0 +1,252 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import org.apache.commons.math3.linear.SingularMatrixException;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calculates partial correlations and residual variances from a covariance matrix by way of
+ * Cholesky factors of the covariance matrices of conditioning sets. Factors are cached, keyed
+ * by the sorted indices of the conditioning set, and a factor for a set is built by extending
+ * the cached factor for the set minus its largest index by one row, which costs O(k^2) rather
+ * than the O(k^3) of refactoring. Since PC-style searches enumerate conditioning sets in
+ * lexicographic order, nearly every factor needed at depth d is one row away from a factor
+ * already computed at depth d - 1. Given the factor L for Z, a test of x _||_ y | Z is two
+ * triangular solves against L, so also O(k^2).
+ * <p>
+ * This is safe to use from many threads at once. When the number of cached factors reaches
+ * its maximum, the cache is emptied and refilled as needed.
+ *
+ * @author Joseph Ramsey
+ */
+public class PartialCorrelationEngine {
+
+    // Pivots smaller than this fraction of the variance being factored are taken as singular.
+    private static final double SINGULARITY_TOLERANCE = 1e-10;
+
+    private final ICovarianceMatrix covariances;
+    private final int maxFactors;
+    private final Map<Key, double[]> factors = new ConcurrentHashMap<>();
+
+    public PartialCorrelationEngine(ICovarianceMatrix covariances) {
+        this(covariances, 100000);
+    }
+
+    /**
+     * @param covariances The covariance (or correlation) matrix.
+     * @param maxFactors  The maximum number of Cholesky factors to cache.
+     */
+    public PartialCorrelationEngine(ICovarianceMatrix covariances, int maxFactors) {
+        if (covariances == null) {
+            throw new NullPointerException("Covariances not provided.");
+        }
+
+        if (maxFactors < 1) {
+            throw new IllegalArgumentException("Max factors must be at least 1: " + maxFactors);
+        }
+
+        this.covariances = covariances;
+        this.maxFactors = maxFactors;
+    }
+
+    /**
+     * @return The partial correlation of x and y given z, where x, y and z are indices into the
+     * covariance matrix.
+     * @throws SingularMatrixException if the covariance matrix of z is singular.
+     */
+    public double partialCorrelation(int x, int y, int... z) {
+        int[] _z = sorted(z);
+        double[] l = factor(_z);
+
+        double[] a = solve(l, _z, x);
+        double[] b = solve(l, _z, y);
+
+        double cxy = covariances.getValue(x, y) - dot(a, b);
+        double vx = covariances.getValue(x, x) - dot(a, a);
+        double vy = covariances.getValue(y, y) - dot(b, b);
+
+        return cxy / Math.sqrt(vx * vy);
+    }
+
+    /**
+     * @return The variance of the residual of y regressed on z, where y and z are indices into
+     * the covariance matrix.
+     * @throws SingularMatrixException if the covariance matrix of z is singular.
+     */
+    public double residualVariance(int y, int... z) {
+        int[] _z = sorted(z);
+        double[] b = solve(factor(_z), _z, y);
+        return covariances.getValue(y, y) - dot(b, b);
+    }
+
+    /**
+     * @return The number of cached factors.
+     */
+    public int getNumFactors() {
+        return factors.size();
+    }
+
+    public void clear() {
+        factors.clear();
+    }
+
+    public ICovarianceMatrix getCovariances() {
+        return covariances;
+    }
+
+    //===========================PRIVATE METHODS=========================//
+
+    // Returns the lower triangular Cholesky factor of cov(z, z) for sorted z, packed by rows,
+    // extending the longest cached prefix of z one variable at a time.
+    private double[] factor(int[] z) {
+        if (z.length == 0) {
+            return new double[0];
+        }
+
+        Key key = new Key(z);
+        double[] l = factors.get(key);
+
+        if (l != null) {
+            return l;
+        }
+
+        int k = z.length - 1;
+
+        while (k > 0 && (l = factors.get(new Key(Arrays.copyOf(z, k)))) == null) {
+            k--;
+        }
+
+        if (l == null) {
+            l = new double[0];
+        }
+
+        for (; k < z.length; k++) {
+            l = extend(l, z, k);
+
+            if (k < z.length - 1) {
+                cache(new Key(Arrays.copyOf(z, k + 1)), l);
+            }
+        }
+
+        cache(key, l);
+        return l;
+    }
+
+    // Given the factor l of cov(z[0..k-1]), returns the factor of cov(z[0..k]).
+    private double[] extend(double[] l, int[] z, int k) {
+        double[] row = new double[k];
+        int v = z[k];
+
+        for (int i = 0; i < k; i++) {
+            double sum = covariances.getValue(z[i], v);
+            int start = i * (i + 1) / 2;
+
+            for (int j = 0; j < i; j++) {
+                sum -= l[start + j] * row[j];
+            }
+
+            row[i] = sum / l[start + i];
+        }
+
+        double vv = covariances.getValue(v, v);
+        double d2 = vv - dot(row, row);
+
+        if (!(d2 > SINGULARITY_TOLERANCE * Math.abs(vv))) {
+            throw new SingularMatrixException();
+        }
+
+        double[] extended = Arrays.copyOf(l, l.length + k + 1);
+        System.arraycopy(row, 0, extended, l.length, k);
+        extended[l.length + k] = Math.sqrt(d2);
+        return extended;
+    }
+
+    // Solves l a = cov(z, x) by forward substitution.
+    private double[] solve(double[] l, int[] z, int x) {
+        double[] a = new double[z.length];
+
+        for (int i = 0; i < z.length; i++) {
+            double sum = covariances.getValue(z[i], x);
+            int start = i * (i + 1) / 2;
+
+            for (int j = 0; j < i; j++) {
+                sum -= l[start + j] * a[j];
+            }
+
+            a[i] = sum / l[start + i];
+        }
+
+        return a;
+    }
+
+    private void cache(Key key, double[] l) {
+        if (factors.size() >= maxFactors) {
+            factors.clear();
+        }
+
+        factors.put(key, l);
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0.0;
+
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+
+        return sum;
+    }
+
+    private static int[] sorted(int[] z) {
+        int[] _z = Arrays.copyOf(z, z.length);
+        Arrays.sort(_z);
+        return _z;
+    }
+
+    private static class Key {
+        private final int[] z;
+        private final int hash;
+
+        Key(int[] z) {
+            this.z = z;
+            this.hash = Arrays.hashCode(z);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && hash == ((Key) o).hash && Arrays.equals(z, ((Key) o).z);
+        }
+    }
+}
+
+
+
@@ -0,0 +1,174 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.DataBox;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.data.VerticalIntDataBox;
+import edu.cmu.tetrad.graph.Node;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts by scanning every row of the data. Needs no memory beyond the data itself, at a cost per count linear in
+ * the sample size.
+ *
+ * @author Joseph Ramsey
+ */
+public class RowScanCounter implements DiscreteCounter {
+
+    // The data, column major, with DiscreteVariable.MISSING_VALUE for missing values.
+    private final int[][] data;
+
+    // The number of categories of each variable.
+    private final int[] numCategories;
+
+    // The number of rows in the data.
+    private final int sampleSize;
+
+    // True if some value in the data is missing.
+    private final boolean missingValues;
+
+    /**
+     * Constructs a counter for the given discrete data set.
+     */
+    public RowScanCounter(DataSet dataSet) {
+        this(columns(dataSet), categories(dataSet.getVariables()), dataSet.getNumRows());
+    }
+
+    /**
+     * Constructs a counter for the given column-major data.
+     *
+     * @param data          data[j][i] is the value of variable j in row i, or DiscreteVariable.MISSING_VALUE.
+     * @param numCategories the number of categories of each variable.
+     * @param sampleSize    the number of rows of data to use.
+     */
+    public RowScanCounter(int[][] data, int[] numCategories, int sampleSize) {
+        if (data.length != numCategories.length) {
+            throw new IllegalArgumentException("Expecting the number of categories of each of the "
+                    + data.length + " variables.");
+        }
+
+        this.data = data;
+        this.numCategories = Arrays.copyOf(numCategories, numCategories.length);
+        this.sampleSize = sampleSize;
+        this.missingValues = hasMissingValues(data, sampleSize);
+    }
+
+    @Override
+    public int[] count(int[] vars) {
+        int n = vars.length;
+        int[][] columns = new int[n][];
+        int[] dims = new int[n];
+        int size = 1;
+
+        for (int i = 0; i < n; i++) {
+            columns[i] = data[vars[i]];
+            dims[i] = numCategories[vars[i]];
+            size *= dims[i];
+        }
+
+        int[] counts = new int[size];
+
+        ROW:
+        for (int row = 0; row < sampleSize; row++) {
+            int index = 0;
+
+            for (int i = 0; i < n; i++) {
+                int value = columns[i][row];
+                if (value == DiscreteVariable.MISSING_VALUE) continue ROW;
+                index = index * dims[i] + value;
+            }
+
+            counts[index]++;
+        }
+
+        return counts;
+    }
+
+    @Override
+    public int getNumVariables() {
+        return numCategories.length;
+    }
+
+    @Override
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    @Override
+    public int getNumCategories(int var) {
+        return numCategories[var];
+    }
+
+    @Override
+    public boolean hasMissingValues() {
+        return missingValues;
+    }
+
+    static int[][] columns(DataSet dataSet) {
+        if (dataSet instanceof BoxDataSet) {
+            DataBox dataBox = ((BoxDataSet) dataSet).getDataBox();
+
+            if (dataBox instanceof VerticalIntDataBox) {
+                return ((VerticalIntDataBox) dataBox).getVariableVectors();
+            }
+        }
+
+        int[][] data = new int[dataSet.getNumColumns()][dataSet.getNumRows()];
+
+        for (int j = 0; j < dataSet.getNumColumns(); j++) {
+            for (int i = 0; i < dataSet.getNumRows(); i++) {
+                data[j][i] = dataSet.getInt(i, j);
+            }
+        }
+
+        return data;
+    }
+
+    static int[] categories(List<Node> variables) {
+        int[] numCategories = new int[variables.size()];
+
+        for (int i = 0; i < variables.size(); i++) {
+            if (!(variables.get(i) instanceof DiscreteVariable)) {
+                throw new IllegalArgumentException("Not a discrete variable: " + variables.get(i));
+            }
+
+            numCategories[i] = ((DiscreteVariable) variables.get(i)).getNumCategories();
+        }
+
+        return numCategories;
+    }
+
+    static boolean hasMissingValues(int[][] data, int sampleSize) {
+        for (int[] column : data) {
+            for (int i = 0; i < sampleSize; i++) {
+                if (column[i] == DiscreteVariable.MISSING_VALUE) return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -30,13 +30,13 @@ import edu.cmu.tetrad.sem.SemIm;
 import edu.cmu.tetrad.sem.SemPm;
 import edu.cmu.tetrad.util.ChoiceGenerator;
 import edu.cmu.tetrad.util.CombinationGenerator;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.TetradLogger;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Implements a convervative version of PC, in which the Markov condition is assumed but faithfulness is tested
@@ -46,7 +46,6 @@ import java.util.concurrent.TimeUnit;
  */
 public final class SampleVcpcFast implements GraphSearch {
 
-    private int NTHREDS = Runtime.getRuntime().availableProcessors() * 5;
 
     /**
      * The independence test used for the PC search.
@@ -1594,7 +1593,7 @@ public final class SampleVcpcFast implements GraphSearch {
 
     private void orientUnshieldedTriplesConcurrent(final IKnowledge knowledge,
                                                    final IndependenceTest test, final int depth) {
-        ExecutorService executor = Executors.newFixedThreadPool(NTHREDS);
+        List<Callable<Object>> tasks = new ArrayList<>();
 
         TetradLogger.getInstance().log("info", "Starting Collider Orientation:");
 
@@ -1655,20 +1654,11 @@ public final class SampleVcpcFast implements GraphSearch {
                     }
                 };
 
-                executor.execute(worker);
+                tasks.add(Executors.callable(worker));
             }
         }
 
-        // This will make the executor accept no new threads
-        // and finish all existing threads in the queue
-        executor.shutdown();
-        try {
-            // Wait until all threads are finish
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-            System.out.println("Finished all threads");
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        ComputeExecutor.getInstance().invokeAll(tasks);
 
         TetradLogger.getInstance().log("info", "Finishing Collider Orientation.");
     }
@@ -35,6 +35,22 @@ public interface Score {
 
     double localScoreDiff(int x, int y);
 
+    /**
+     * Returns the score differences for adding each of the given xs, one at a time, as a parent of y given
+     * parents z, in the order of the xs; for each x this is localScoreDiff(x, y, z), or localScoreDiff(x, y) if z is
+     * empty. Scores that can share work across the xs, such as a single regression of y on z, override this to
+     * evaluate the batch together.
+     */
+    default double[] localScoreDiffs(int[] xs, int y, int[] z) {
+        double[] diffs = new double[xs.length];
+
+        for (int i = 0; i < xs.length; i++) {
+            diffs[i] = z.length == 0 ? localScoreDiff(xs[i], y) : localScoreDiff(xs[i], y, z);
+        }
+
+        return diffs;
+    }
+
     double localScore(int node, int parent);
 
     double localScore(int node);
@@ -25,6 +25,8 @@ import edu.cmu.tetrad.data.CovarianceMatrix;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DataUtils;
 import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.data.IncrementalCovarianceMatrix;
+import edu.cmu.tetrad.data.LazyCovarianceMatrix;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.util.Matrix;
 import edu.cmu.tetrad.util.StatUtils;
@@ -75,12 +77,12 @@ public class SemBicScore implements Score {
     // The structure prior, 0 for standard BIC.
     private double structurePrior = 0.0;
 
-    // Equivalent sample size
-    private Matrix matrix;
-
     // The rule type to use.
     private RuleType ruleType = RuleType.CHICKERING;
 
+    // Calculates residual variances from cached Cholesky factors, if set.
+    private PartialCorrelationEngine partialCorrelationEngine = null;
+
     /**
      * Constructs the score using a covariance matrix.
      */
@@ -89,6 +91,12 @@ public class SemBicScore implements Score {
             throw new NullPointerException();
         }
 
+        // Rows appended to an incremental matrix later don't change this score.
+        if (covariances instanceof IncrementalCovarianceMatrix) {
+            covariances = new CovarianceMatrix(covariances.getVariables(), covariances.getMatrix(),
+                    covariances.getSampleSize());
+        }
+
         setCovariances(covariances);
         this.variables = covariances.getVariables();
         this.sampleSize = covariances.getSampleSize();
@@ -104,7 +112,6 @@ public class SemBicScore implements Score {
         }
 
         this.dataSet = dataSet;
-        this.data = dataSet.getDoubleData();
 
         if (!dataSet.existsMissingValue()) {
             setCovariances(new CovarianceMatrix(dataSet, false));
@@ -115,6 +122,8 @@ public class SemBicScore implements Score {
             return;
         }
 
+        // The raw data is only needed to find complete rows when values are missing.
+        this.data = dataSet.getDoubleData();
         this.variables = dataSet.getVariables();
         this.sampleSize = dataSet.getNumRows();
         this.indexMap = indexMap(this.variables);
@@ -140,6 +149,21 @@ public class SemBicScore implements Score {
         }
     }
 
+    /**
+     * Calculates the residual variance of i given its parents from the Cholesky factors cached in the given engine.
+     */
+    public static double getVarRy(int i, int[] parents, PartialCorrelationEngine engine) {
+        try {
+            return engine.residualVariance(i, parents);
+        } catch (SingularMatrixException e) {
+            List<Node> variables = engine.getCovariances().getVariables();
+            List<Node> p = new ArrayList<>();
+            for (int _p : parents) p.add(variables.get(_p));
+            System.out.println("Singularity " + variables.get(i) + " | " + p);
+            return NEGATIVE_INFINITY;
+        }
+    }
+
     @NotNull
     public static Matrix bStar(Matrix b) {
         Matrix byx = new Matrix(b.rows() + 1, 1);
@@ -233,13 +257,23 @@ public class SemBicScore implements Score {
         Node _y = variables.get(y);
         List<Node> _z = getVariableList(z);
 
-        List<Integer> rows = getRows(x, z);
+        double r;
 
-        if (rows != null) {
-            rows.retainAll(Objects.requireNonNull(getRows(y, z)));
-        }
+        if (partialCorrelationEngine != null) {
+            try {
+                r = partialCorrelationEngine.partialCorrelation(x, y, z);
+            } catch (SingularMatrixException e) {
+                r = NaN;
+            }
+        } else {
+            List<Integer> rows = getRows(x, z);
 
-        double r = partialCorrelation(_x, _y, _z, rows);
+            if (rows != null) {
+                rows.retainAll(Objects.requireNonNull(getRows(y, z)));
+            }
+
+            r = partialCorrelation(_x, _y, _z, rows);
+        }
 
         double c = getPenaltyDiscount();
 
@@ -252,6 +286,81 @@ public class SemBicScore implements Score {
         return localScoreDiff(x, y, new int[0]);
     }
 
+    /**
+     * Scores all of the xs against one regression of y on z. With S the covariance matrix, the residual variance of
+     * y given z and x is var(y | z) - cov(y, x | z)^2 / var(x | z), where the partial (co)variances need only the
+     * inverse of S(z, z) and the coefficients of y on z, computed once for the batch. Falls back to scoring the xs
+     * one at a time for the Nandy rule, with a partial correlation engine, or with missing values.
+     */
+    @Override
+    public double[] localScoreDiffs(int[] xs, int y, int[] z) {
+        if (ruleType != RuleType.CHICKERING || partialCorrelationEngine != null || calculateRowSubsets) {
+            return Score.super.localScoreDiffs(xs, y, z);
+        }
+
+        int k = z.length;
+        Matrix szzInv;
+
+        try {
+            szzInv = k == 0 ? new Matrix(0, 0) : covariances.getSelection(z, z).inverse();
+        } catch (SingularMatrixException e) {
+            return Score.super.localScoreDiffs(xs, y, z);
+        }
+
+        double[] szy = new double[k];
+        for (int j = 0; j < k; j++) szy[j] = covariances.getValue(z[j], y);
+
+        double[] b = new double[k];
+
+        for (int j = 0; j < k; j++) {
+            for (int l = 0; l < k; l++) {
+                b[j] += szzInv.get(j, l) * szy[l];
+            }
+        }
+
+        double varYz = covariances.getValue(y, y);
+        for (int j = 0; j < k; j++) varYz -= szy[j] * b[j];
+
+        double n = sampleSize;
+        double c = getPenaltyDiscount();
+        double score0 = -n * log(varYz) - c * k * log(n);
+
+        double[] diffs = new double[xs.length];
+        double[] szx = new double[k];
+
+        for (int i = 0; i < xs.length; i++) {
+            int x = xs[i];
+            double covYXz = covariances.getValue(x, y);
+            double varXz = covariances.getValue(x, x);
+
+            for (int j = 0; j < k; j++) {
+                szx[j] = covariances.getValue(z[j], x);
+                covYXz -= b[j] * szx[j];
+            }
+
+            for (int j = 0; j < k; j++) {
+                double u = 0.0;
+
+                for (int l = 0; l < k; l++) {
+                    u += szzInv.get(j, l) * szx[l];
+                }
+
+                varXz -= szx[j] * u;
+            }
+
+            // x is (nearly) determined by z; let the direct calculation deal with it.
+            if (!(varXz > 1e-10 * covariances.getValue(x, x))) {
+                diffs[i] = localScoreDiff(x, y, z);
+                continue;
+            }
+
+            double varey = varYz - covYXz * covYXz / varXz;
+            diffs[i] = (-n * log(varey) - c * (k + 1) * log(n)) - score0;
+        }
+
+        return diffs;
+    }
+
     public double localScore(int i, int... parents) {
         final int k = parents.length;
 
@@ -260,7 +369,11 @@ public class SemBicScore implements Score {
 
         double varey;
 
-        varey = getVarRy(i, parents, data, covariances, calculateRowSubsets);
+        if (partialCorrelationEngine != null) {
+            varey = getVarRy(i, parents, partialCorrelationEngine);
+        } else {
+            varey = getVarRy(i, parents, data, covariances, calculateRowSubsets);
+        }
 
         double c = getPenaltyDiscount();
 
@@ -375,7 +488,9 @@ public class SemBicScore implements Score {
 
     private void setCovariances(ICovarianceMatrix covariances) {
         this.covariances = covariances;
-        this.matrix = this.covariances.getMatrix();
+
+        // Lazy covariances are only computed as scores ask for them.
+        if (covariances instanceof LazyCovarianceMatrix) return;
 
         double n = covariances.getSampleSize();
         double ess = DataUtils.getEss(covariances);
@@ -455,7 +570,7 @@ public class SemBicScore implements Score {
 
     private Matrix getCov(List<Integer> rows, int[] cols) {
         if (dataSet == null) {
-            return matrix.getSelection(cols, cols);
+            return covariances.getSelection(cols, cols);
         }
 
         Matrix cov = new Matrix(cols.length, cols.length);
@@ -511,6 +626,23 @@ public class SemBicScore implements Score {
         this.ruleType = ruleType;
     }
 
+    /**
+     * If true, residual variances and partial correlations are calculated from Cholesky factors of the parent
+     * covariance matrices, cached and extended one parent at a time, rather than by inverting a fresh submatrix for
+     * each local score. Ignored if rows with missing values must be dropped score by score.
+     */
+    public void setUsePartialCorrelationEngine(boolean usePartialCorrelationEngine) {
+        if (usePartialCorrelationEngine && covariances != null && !calculateRowSubsets) {
+            this.partialCorrelationEngine = new PartialCorrelationEngine(covariances);
+        } else {
+            this.partialCorrelationEngine = null;
+        }
+    }
+
+    public boolean isUsePartialCorrelationEngine() {
+        return partialCorrelationEngine != null;
+    }
+
     public enum RuleType {CHICKERING, NANDY}
 }
 
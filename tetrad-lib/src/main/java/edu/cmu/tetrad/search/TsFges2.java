@@ -26,7 +26,7 @@ import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.data.KnowledgeEdge;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.util.ChoiceGenerator;
-import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.TaskManager;
 import edu.cmu.tetrad.util.TetradLogger;
 
@@ -139,7 +139,7 @@ public final class TsFges2 implements GraphSearch, GraphScorer {
     private ConcurrentMap<Node, Integer> hashIndices;
 
     // The static ForkJoinPool instance.
-    private ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+    private final ComputeExecutor executor = ComputeExecutor.getInstance();
 
     // A running tally of the total BIC totalScore.
     private double totalScore;
@@ -177,7 +177,8 @@ public final class TsFges2 implements GraphSearch, GraphScorer {
     // Bounds the indegree of the graph.
     private int maxIndegree = -1;
 
-    final int maxThreads = ForkJoinPoolInstance.getInstance().getPool().getParallelism();
+    // The number of chunks into which parallel steps are split; the threads themselves come from the executor.
+    private int maxThreads = ComputeExecutor.getInstance().getParallelism();
 
     //===========================CONSTRUCTORS=============================//
 
@@ -420,10 +421,15 @@ public final class TsFges2 implements GraphSearch, GraphScorer {
     }
 
     /**
-     * Creates a new processors pool with the specified number of threads.
+     * Sets the number of chunks into which each parallel step of this search is divided. The threads themselves
+     * come from ComputeExecutor, whose size is set for the whole program there.
      */
     public void setParallelism(int numProcessors) {
-        this.pool = new ForkJoinPool(numProcessors);
+        if (numProcessors < 1) {
+            throw new IllegalArgumentException("Parallelism must be >= 1.");
+        }
+
+        this.maxThreads = numProcessors;
     }
 
     /**
@@ -635,7 +641,7 @@ public final class TsFges2 implements GraphSearch, GraphScorer {
             }
         }
 
-        pool.invoke(new InitializeFromEmptyGraphTask());
+        executor.invoke(new InitializeFromEmptyGraphTask());
 
         long stop = System.currentTimeMillis();
 
@@ -748,7 +754,7 @@ public final class TsFges2 implements GraphSearch, GraphScorer {
             }
         }
 
-        pool.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
+        executor.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
     }
 
     private void initializeForwardEdgesFromExistingGraph(final List<Node> nodes) {
@@ -844,7 +850,7 @@ public final class TsFges2 implements GraphSearch, GraphScorer {
             }
         }
 
-        pool.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
+        executor.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
     }
 
     private void fes() {
@@ -1121,7 +1127,7 @@ public final class TsFges2 implements GraphSearch, GraphScorer {
         }
 
         final AdjTask task = new AdjTask(getMinChunk(nodes.size()), new ArrayList<>(nodes), 0, nodes.size());
-        pool.invoke(task);
+        executor.invoke(task);
     }
 
     // Calculates the new arrows for an a->b edge.
@@ -1264,7 +1270,7 @@ public final class TsFges2 implements GraphSearch, GraphScorer {
         for (Node r : toProcess) {
             this.neighbors.put(r, getNeighbors(r));
             List<Node> adjacentNodes = graph.getAdjacentNodes(r);
-            pool.invoke(new BackwardTask(r, adjacentNodes, getMinChunk(adjacentNodes.size()), 0,
+            executor.invoke(new BackwardTask(r, adjacentNodes, getMinChunk(adjacentNodes.size()), 0,
                     adjacentNodes.size(), hashIndices));
         }
     }
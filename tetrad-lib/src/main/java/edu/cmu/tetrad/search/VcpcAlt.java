@@ -26,12 +26,12 @@ import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.util.ChoiceGenerator;
 import edu.cmu.tetrad.util.CombinationGenerator;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.TetradLogger;
 
 import java.util.*;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Implements a convervative version of PC, in which the Markov condition is assumed but faithfulness is tested
@@ -41,7 +41,6 @@ import java.util.concurrent.TimeUnit;
  */
 public final class VcpcAlt implements GraphSearch {
 
-    private int NTHREDS = Runtime.getRuntime().availableProcessors() * 5;
 
     /**
      * The independence test used for the PC search.
@@ -862,7 +861,7 @@ public final class VcpcAlt implements GraphSearch {
 
     private void orientUnshieldedTriplesConcurrent(final IKnowledge knowledge,
                                                    final IndependenceTest test, final int depth) {
-        ExecutorService executor = Executors.newFixedThreadPool(NTHREDS);
+        List<Callable<Object>> tasks = new ArrayList<>();
 
         TetradLogger.getInstance().log("info", "Starting Collider Orientation:");
 
@@ -923,20 +922,11 @@ public final class VcpcAlt implements GraphSearch {
                     }
                 };
 
-                executor.execute(worker);
+                tasks.add(Executors.callable(worker));
             }
         }
 
-        // This will make the executor accept no new threads
-        // and finish all existing threads in the queue
-        executor.shutdown();
-        try {
-            // Wait until all threads are finish
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-            System.out.println("Finished all threads");
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        ComputeExecutor.getInstance().invokeAll(tasks);
 
         TetradLogger.getInstance().log("info", "Finishing Collider Orientation.");
     }
@@ -58,6 +58,7 @@ public class KernelUtils {
                         keval *= gram.get(i, j);
                         gram.set(i, j, keval);
                     }
+                    gram.set(j, i, keval);
                 }
             }
         }
@@ -96,6 +97,7 @@ public class KernelUtils {
                     H.set(i, j, d);
                 } else {
                     H.set(i, j, od);
+                    H.set(j, i, od);
                 }
             }
         }
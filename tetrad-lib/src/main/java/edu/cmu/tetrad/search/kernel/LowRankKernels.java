@@ -0,0 +1,329 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search.kernel;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Low-rank factors of Gaussian Gram matrices, for kernel independence tests on samples too large for N x N
+ * matrices. The Gram matrix K of a set of columns, with K(i, j) = exp(-sum_c ((x_ci - x_cj) / s_c)^2), is
+ * approximated as G G' by pivoted incomplete Cholesky decomposition, where G is N x r for a rank r no larger than
+ * a given maximum. The pivots are the rows the residual explains least, so this is also a data-adaptive Nystrom
+ * approximation. Factors are returned with their columns centered, so G G' approximates H K H, and are cached by
+ * column set and scale, so that a search reuses the factor of each variable (and of each conditioning set) across
+ * tests. Factors are stored as arrays of columns, G[k][i] being row i of column k.
+ *
+ * @author Joseph Ramsey
+ */
+public final class LowRankKernels {
+
+    /**
+     * The default number of factor entries kept in the cache, about 256 MB.
+     */
+    public static final long DEFAULT_CACHE_LIMIT = 1L << 25;
+
+    // The data, as columns.
+    private final double[][] columns;
+
+    // The maximum rank of a factor.
+    private final int maxRank;
+
+    // Pivoting stops once no residual diagonal entry is larger than this.
+    private final double precision;
+
+    // The maximum number of factor entries kept in the cache.
+    private final long cacheLimit;
+
+    // Centered factors, by column set and scale, least recently used first.
+    private final LinkedHashMap<Key, double[][]> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    // The number of factor entries in the cache.
+    private long cached = 0;
+
+    /**
+     * Constructs factors for the given data, with the default cache limit.
+     *
+     * @param columns   The data, as columns, all of the same length.
+     * @param maxRank   The maximum rank of a factor.
+     * @param precision Pivoting stops once no residual diagonal entry of the Gram matrix exceeds this.
+     */
+    public LowRankKernels(double[][] columns, int maxRank, double precision) {
+        this(columns, maxRank, precision, DEFAULT_CACHE_LIMIT);
+    }
+
+    /**
+     * Constructs factors for the given data.
+     *
+     * @param columns    The data, as columns, all of the same length.
+     * @param maxRank    The maximum rank of a factor.
+     * @param precision  Pivoting stops once no residual diagonal entry of the Gram matrix exceeds this.
+     * @param cacheLimit The maximum number of factor entries to cache; 0 turns caching off.
+     */
+    public LowRankKernels(double[][] columns, int maxRank, double precision, long cacheLimit) {
+        if (maxRank < 1) throw new IllegalArgumentException("Max rank must be >= 1: " + maxRank);
+        if (precision < 0) throw new IllegalArgumentException("Precision must be >= 0: " + precision);
+        if (cacheLimit < 0) throw new IllegalArgumentException("Cache limit must be >= 0: " + cacheLimit);
+        this.columns = columns;
+        this.maxRank = maxRank;
+        this.precision = precision;
+        this.cacheLimit = cacheLimit;
+    }
+
+    /**
+     * @return the centered factor of the Gram matrix of the given columns, with the given scales, from the cache if
+     * it is there.
+     */
+    public double[][] getFactor(int[] cols, double[] scales) {
+        if (cols.length != scales.length) {
+            throw new IllegalArgumentException("Need one scale per column.");
+        }
+
+        Key key = new Key(cols, scales);
+
+        synchronized (cache) {
+            double[][] factor = cache.get(key);
+            if (factor != null) return factor;
+        }
+
+        double[][] factor = incompleteCholesky(columns, cols, scales, maxRank, precision);
+        center(factor);
+
+        long size = (long) factor.length * numRows();
+
+        if (size <= cacheLimit) {
+            synchronized (cache) {
+                if (cache.put(key, factor) == null) cached += size;
+
+                Iterator<double[][]> eldest = cache.values().iterator();
+
+                while (cached > cacheLimit) {
+                    cached -= (long) eldest.next().length * numRows();
+                    eldest.remove();
+                }
+            }
+        }
+
+        return factor;
+    }
+
+    /**
+     * @return the number of rows of the data.
+     */
+    public int numRows() {
+        return columns.length == 0 ? 0 : columns[0].length;
+    }
+
+    /**
+     * Factors the Gram matrix of the given columns as G G', G being N x r, by incomplete Cholesky decomposition with
+     * pivoting on the largest residual diagonal entry. Only G and one N-vector are stored. Differences involving
+     * missing values are skipped, as in a Euclidean distance over the non-missing coordinates.
+     *
+     * @param columns   The data, as columns.
+     * @param cols      The columns the kernel is over.
+     * @param scales    The scale of the kernel in each of those columns.
+     * @param maxRank   The maximum rank r.
+     * @param precision Stop once no residual diagonal entry is larger than this.
+     * @return G, as r columns of length N.
+     */
+    public static double[][] incompleteCholesky(double[][] columns, int[] cols, double[] scales, int maxRank,
+                                                double precision) {
+        int N = columns[cols[0]].length;
+        int r = Math.min(maxRank, N);
+
+        double[][] x = new double[cols.length][];
+        double[] w = new double[cols.length];
+
+        for (int c = 0; c < cols.length; c++) {
+            if (!(scales[c] > 0)) throw new IllegalArgumentException("Scales must be > 0: " + scales[c]);
+            x[c] = columns[cols[c]];
+            w[c] = 1.0 / (scales[c] * scales[c]);
+        }
+
+        // The residual diagonal; a Gaussian kernel is 1 on the diagonal.
+        double[] d = new double[N];
+        Arrays.fill(d, 1.0);
+
+        double[][] G = new double[r][];
+        int rank = 0;
+
+        for (int k = 0; k < r; k++) {
+            int pivot = 0;
+
+            for (int i = 1; i < N; i++) {
+                if (d[i] > d[pivot]) pivot = i;
+            }
+
+            if (!(d[pivot] > precision)) break;
+
+            double diag = Math.sqrt(d[pivot]);
+            double[] g = new double[N];
+
+            for (int i = 0; i < N; i++) {
+                double s = 0.0;
+
+                for (int c = 0; c < x.length; c++) {
+                    double t = x[c][i] - x[c][pivot];
+                    if (!Double.isNaN(t)) s += w[c] * t * t;
+                }
+
+                double v = Math.exp(-s);
+
+                for (int j = 0; j < k; j++) {
+                    v -= G[j][i] * G[j][pivot];
+                }
+
+                g[i] = v / diag;
+            }
+
+            g[pivot] = diag;
+
+            for (int i = 0; i < N; i++) {
+                d[i] -= g[i] * g[i];
+            }
+
+            d[pivot] = 0;
+            G[k] = g;
+            rank++;
+        }
+
+        return rank == r ? G : Arrays.copyOf(G, rank);
+    }
+
+    /**
+     * Centers the columns of the given factor in place, so that G G' becomes H G G' H, H = I - 11'/N.
+     */
+    public static void center(double[][] G) {
+        for (double[] g : G) {
+            double sum = 0.0;
+            for (double v : g) sum += v;
+            double mean = sum / g.length;
+            for (int i = 0; i < g.length; i++) g[i] -= mean;
+        }
+    }
+
+    /**
+     * @return A'B, for factors A and B stored as columns.
+     */
+    public static double[][] crossProduct(double[][] A, double[][] B) {
+        double[][] C = new double[A.length][B.length];
+
+        for (int i = 0; i < A.length; i++) {
+            for (int j = 0; j < B.length; j++) {
+                double s = 0.0;
+                double[] a = A[i];
+                double[] b = B[j];
+                for (int k = 0; k < a.length; k++) s += a[k] * b[k];
+                C[i][j] = s;
+            }
+        }
+
+        return C;
+    }
+
+    /**
+     * @return G M, for a factor G stored as columns and a small matrix M, as columns.
+     */
+    public static double[][] times(double[][] G, double[][] M) {
+        int N = G.length == 0 ? 0 : G[0].length;
+        int s = M.length == 0 ? 0 : M[0].length;
+        double[][] C = new double[s][N];
+
+        for (int j = 0; j < s; j++) {
+            double[] c = C[j];
+
+            for (int k = 0; k < G.length; k++) {
+                double m = M[k][j];
+                if (m == 0) continue;
+                double[] g = G[k];
+                for (int i = 0; i < N; i++) c[i] += g[i] * m;
+            }
+        }
+
+        return C;
+    }
+
+    /**
+     * @return A - B, for factors stored as columns.
+     */
+    public static double[][] minus(double[][] A, double[][] B) {
+        double[][] C = new double[A.length][];
+
+        for (int k = 0; k < A.length; k++) {
+            C[k] = new double[A[k].length];
+            for (int i = 0; i < A[k].length; i++) C[k][i] = A[k][i] - B[k][i];
+        }
+
+        return C;
+    }
+
+    /**
+     * @return the factor with row i taken from row perm[i] of G.
+     */
+    public static double[][] permuteRows(double[][] G, int[] perm) {
+        double[][] P = new double[G.length][perm.length];
+
+        for (int k = 0; k < G.length; k++) {
+            for (int i = 0; i < perm.length; i++) P[k][i] = G[k][perm[i]];
+        }
+
+        return P;
+    }
+
+    /**
+     * @return the squared Frobenius norm of the given matrix.
+     */
+    public static double frobeniusSquared(double[][] A) {
+        double s = 0.0;
+
+        for (double[] a : A) {
+            for (double v : a) s += v * v;
+        }
+
+        return s;
+    }
+
+    private static final class Key {
+        private final int[] cols;
+        private final double[] scales;
+        private final int hashCode;
+
+        Key(int[] cols, double[] scales) {
+            this.cols = cols.clone();
+            this.scales = scales.clone();
+            this.hashCode = 31 * Arrays.hashCode(cols) + Arrays.hashCode(scales);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Arrays.equals(cols, key.cols) && Arrays.equals(scales, key.scales);
+        }
+    }
+}
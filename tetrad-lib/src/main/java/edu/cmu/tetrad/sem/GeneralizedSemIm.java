@@ -21,6 +21,7 @@
 
 package edu.cmu.tetrad.sem;
 
+import edu.cmu.tetrad.calculator.expression.CompiledExpression;
 import edu.cmu.tetrad.calculator.expression.Context;
 import edu.cmu.tetrad.calculator.expression.Expression;
 import edu.cmu.tetrad.calculator.parser.ExpressionLexer;
@@ -40,6 +41,7 @@ import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.PowellOptimizer;
 
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 import static edu.cmu.tetrad.util.StatUtils.sd;
 
@@ -862,6 +864,13 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
      * a data point is recorded and a new shock immediately applied. The model may be
      * cyclic. If cyclic, all eigenvalues for the coefficient matrix must be less than 1,
      * though this is not checked.
+     * <p>
+     * Node and error expressions are compiled to CompiledExpression's, with parameters
+     * and variables in slots. If the model is recursive in the order of the variable
+     * nodes and no node expression is random, the first sweep after each shock is
+     * already the fixed point, so errors are drawn row by row, in the same order as
+     * always, and node expressions are then evaluated a column at a time, in parallel.
+     * The data are the same either way.
      *
      * @param sampleSize            The number of samples to be drawn.
      * @param intervalBetweenShocks External shock is applied every this many steps.
@@ -870,68 +879,99 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
      */
     public synchronized DataSet simulateDataFisher(int sampleSize, int intervalBetweenShocks,
                                                    double epsilon) {
-        boolean printedUndefined = false;
-        boolean printedInfinite = false;
-
         if (intervalBetweenShocks < 1) throw new IllegalArgumentException(
                 "Interval between shocks must be >= 1: " + intervalBetweenShocks);
         if (epsilon <= 0.0) throw new IllegalArgumentException(
                 "Epsilon must be > 0: " + epsilon);
 
-        final Map<String, Double> variableValues = new HashMap<>();
+        final List<Node> variableNodes = pm.getVariableNodes();
+        int numVars = variableNodes.size();
 
-        final Context context = new Context() {
-            public Double getValue(String term) {
-                Double value = parameterValues.get(term);
+        // Parameters are looked up before variables, so a variable with the name of a
+        // parameter is never read.
+        Map<String, Integer> slots = new HashMap<>();
 
-                if (value != null) {
-                    return value;
-                }
+        for (String parameter : parameterValues.keySet()) {
+            slots.put(parameter, slots.size());
+        }
 
-                value = variableValues.get(term);
+        int[] nodeSlots = new int[numVars];
+        int[] errorSlots = new int[numVars];
 
-                if (value != null) {
-                    return value;
-                }
+        for (int j = 0; j < numVars; j++) {
+            Node error = pm.getErrorNode(variableNodes.get(j));
 
-                throw new IllegalArgumentException("No value recorded for '" + term + "'");
+            if (error == null) {
+                throw new NullPointerException();
             }
-        };
 
-        final List<Node> variableNodes = pm.getVariableNodes();
+            nodeSlots[j] = variableSlot(slots, variableNodes.get(j).getName());
+            errorSlots[j] = variableSlot(slots, error.getName());
+        }
 
-        double[] t1 = new double[variableNodes.size()];
-        double[] t2 = new double[variableNodes.size()];
-        double[] shocks = new double[variableNodes.size()];
-        double[][] all = new double[variableNodes.size()][sampleSize];
+        CompiledExpression[] nodePrograms = new CompiledExpression[numVars];
+        CompiledExpression[] errorPrograms = new CompiledExpression[numVars];
 
-        // Do the simulation.
+        for (int j = 0; j < numVars; j++) {
+            Node node = variableNodes.get(j);
+            nodePrograms[j] = CompiledExpression.compile(pm.getNodeExpression(node), slots);
+            errorPrograms[j] = CompiledExpression.compile(pm.getNodeExpression(pm.getErrorNode(node)), slots);
+        }
 
-        for (int row = 0; row < sampleSize; row++) {
-            for (int j = 0; j < t1.length; j++) {
-                Node error = pm.getErrorNode(variableNodes.get(j));
+        double[] values = new double[slots.size()];
+        Arrays.fill(values, CompiledExpression.UNSET);
 
-                if (error == null) {
-                    throw new NullPointerException();
-                }
+        for (String parameter : parameterValues.keySet()) {
+            Double value = parameterValues.get(parameter);
+            if (value != null) values[slots.get(parameter)] = value;
+        }
 
-                Expression expression = pm.getNodeExpression(error);
-                double value = expression.evaluate(context);
+        double[][] all;
+
+        if (isRecursiveAndPure(nodePrograms, errorPrograms, nodeSlots, errorSlots, values)) {
+            all = simulateFisherColumns(sampleSize, nodePrograms, errorPrograms, errorSlots, nodeSlots, values);
+        } else {
+            all = simulateFisherRows(sampleSize, intervalBetweenShocks, epsilon, nodePrograms, errorPrograms,
+                    nodeSlots, errorSlots, values);
+        }
+
+        List<Node> continuousVars = new ArrayList<>();
+
+        for (Node node : variableNodes) {
+            final ContinuousVariable var = new ContinuousVariable(node.getName());
+            var.setNodeType(node.getNodeType());
+            continuousVars.add(var);
+        }
+
+        BoxDataSet boxDataSet = new BoxDataSet(new VerticalDoubleDataBox(all), continuousVars);
+        return DataUtils.restrictToMeasured(boxDataSet);
+    }
+
+    private double[][] simulateFisherRows(int sampleSize, int intervalBetweenShocks, double epsilon,
+                                          CompiledExpression[] nodePrograms, CompiledExpression[] errorPrograms,
+                                          int[] nodeSlots, int[] errorSlots, double[] values) {
+        boolean printedUndefined = false;
+        boolean printedInfinite = false;
+
+        double[] t1 = new double[nodePrograms.length];
+        double[] t2 = new double[nodePrograms.length];
+        double[][] all = new double[nodePrograms.length][sampleSize];
+
+        for (int row = 0; row < sampleSize; row++) {
+            for (int j = 0; j < t1.length; j++) {
+                double value = errorPrograms[j].evaluate(values);
 
                 if (Double.isNaN(value)) {
-                    throw new IllegalArgumentException("Undefined value for expression: " + expression);
+                    throw new IllegalArgumentException("Undefined value for expression: "
+                            + pm.getNodeExpression(pm.getErrorNode(pm.getVariableNodes().get(j))));
                 }
 
-                variableValues.put(error.getName(), value);
-                shocks[j] = value;
-                t2[j] += shocks[j];
+                if (errorSlots[j] != -1) values[errorSlots[j]] = value;
             }
 
             for (int i = 0; i < intervalBetweenShocks; i++) {
                 for (int j = 0; j < t1.length; j++) {
-                    Node node = variableNodes.get(j);
-                    Expression expression = pm.getNodeExpression(node);
-                    t2[j] = expression.evaluate(context);
+                    t2[j] = nodePrograms[j].evaluate(values);
 
                     if (Double.isNaN(t2[j])) {
                         if (!printedUndefined) {
@@ -947,7 +987,7 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
                         }
                     }
 
-                    variableValues.put(node.getName(), t2[j]);
+                    if (nodeSlots[j] != -1) values[nodeSlots[j]] = t2[j];
                 }
 
                 boolean converged = true;
@@ -973,16 +1013,149 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
             }
         }
 
-        List<Node> continuousVars = new ArrayList<>();
+        return all;
+    }
 
-        for (Node node : variableNodes) {
-            final ContinuousVariable var = new ContinuousVariable(node.getName());
-            var.setNodeType(node.getNodeType());
-            continuousVars.add(var);
+    /**
+     * For a model in which each node expression is pure and reads only parameters, errors,
+     * and earlier nodes. Errors are drawn for a chunk of rows, row by row, and then each
+     * node expression is evaluated over blocks of the chunk in parallel.
+     */
+    private double[][] simulateFisherColumns(int sampleSize, final CompiledExpression[] nodePrograms,
+                                             CompiledExpression[] errorPrograms, final int[] errorSlots,
+                                             final int[] nodeSlots, final double[] values) {
+        final int numVars = nodePrograms.length;
+        final int chunkSize = 16384;
+        final int blockSize = 1024;
+        double[][] all = new double[numVars][sampleSize];
+
+        for (int start = 0; start < sampleSize; start += chunkSize) {
+            int end = Math.min(start + chunkSize, sampleSize);
+            final double[][] columns = new double[values.length][];
+
+            for (int j = 0; j < numVars; j++) {
+                if (errorSlots[j] != -1) columns[errorSlots[j]] = new double[end - start];
+                if (nodeSlots[j] != -1) columns[nodeSlots[j]] = new double[end - start];
+            }
+
+            for (int row = 0; row < end - start; row++) {
+                for (int j = 0; j < numVars; j++) {
+                    double value = errorPrograms[j].evaluate(values);
+
+                    if (Double.isNaN(value)) {
+                        throw new IllegalArgumentException("Undefined value for expression: "
+                                + pm.getNodeExpression(pm.getErrorNode(pm.getVariableNodes().get(j))));
+                    }
+
+                    if (errorSlots[j] != -1) columns[errorSlots[j]][row] = value;
+                }
+            }
+
+            final double[][] chunk = new double[numVars][];
+
+            for (int j = 0; j < numVars; j++) {
+                chunk[j] = nodeSlots[j] != -1 ? columns[nodeSlots[j]] : new double[end - start];
+            }
+
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+
+            for (int from = 0; from < end - start; from += blockSize) {
+                final int _from = from;
+                final int _to = Math.min(from + blockSize, end - start);
+
+                tasks.add(new Callable<Boolean>() {
+                    public Boolean call() {
+                        for (int j = 0; j < numVars; j++) {
+                            nodePrograms[j].evaluate(values, columns, _from, _to, chunk[j]);
+                        }
+
+                        return true;
+                    }
+                });
+            }
+
+            ComputeExecutor.getInstance().invokeAll(tasks);
+
+            for (int j = 0; j < numVars; j++) {
+                System.arraycopy(chunk[j], 0, all[j], start, end - start);
+            }
         }
 
-        BoxDataSet boxDataSet = new BoxDataSet(new VerticalDoubleDataBox(all), continuousVars);
-        return DataUtils.restrictToMeasured(boxDataSet);
+        boolean printedUndefined = false;
+        boolean printedInfinite = false;
+
+        for (int j = 0; j < numVars; j++) {
+            for (int row = 0; row < sampleSize; row++) {
+                if (Double.isNaN(all[j][row]) && !printedUndefined) {
+                    System.out.println("Undefined value.");
+                    printedUndefined = true;
+                }
+
+                if (Double.isInfinite(all[j][row]) && !printedInfinite) {
+                    System.out.println("Infinite value.");
+                    printedInfinite = true;
+                }
+            }
+        }
+
+        return all;
+    }
+
+    /**
+     * True if each node expression can be evaluated over columns and reads only parameters
+     * with values, errors, and nodes earlier in the list, and each error expression reads
+     * only parameters with values. Then one sweep through the nodes reaches the fixed point.
+     */
+    private boolean isRecursiveAndPure(CompiledExpression[] nodePrograms, CompiledExpression[] errorPrograms,
+                                       int[] nodeSlots, int[] errorSlots, double[] values) {
+        Set<Integer> parameterSlots = new HashSet<>();
+
+        for (int slot = 0; slot < values.length; slot++) {
+            if (Double.doubleToRawLongBits(values[slot])
+                    != Double.doubleToRawLongBits(CompiledExpression.UNSET)) {
+                parameterSlots.add(slot);
+            }
+        }
+
+        for (CompiledExpression program : errorPrograms) {
+            for (int slot : program.getSlotsRead()) {
+                if (!parameterSlots.contains(slot)) return false;
+            }
+        }
+
+        Set<Integer> available = new HashSet<>(parameterSlots);
+
+        for (int errorSlot : errorSlots) {
+            available.add(errorSlot);
+        }
+
+        for (int j = 0; j < nodePrograms.length; j++) {
+            if (!nodePrograms[j].isVectorizable()) return false;
+
+            for (int slot : nodePrograms[j].getSlotsRead()) {
+                if (!available.contains(slot)) return false;
+            }
+
+            available.add(nodeSlots[j]);
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds a slot for the given variable, unless it is the name of a parameter, in which
+     * case -1 is returned, since the parameter is read instead.
+     */
+    private int variableSlot(Map<String, Integer> slots, String name) {
+        if (parameterValues.containsKey(name)) {
+            return -1;
+        }
+
+        if (!slots.containsKey(name)) {
+            slots.put(name, slots.size());
+        }
+
+        return slots.get(name);
     }
 
 
@@ -34,7 +34,6 @@ import static java.lang.Math.abs;
 import static java.lang.Math.sqrt;
 
 import java.util.*;
-import java.util.concurrent.RecursiveTask;
 
 import org.apache.commons.collections4.map.HashedMap;
 import org.apache.commons.math3.distribution.*;
@@ -106,84 +105,22 @@ public final class LargeScaleSimulation {
 
     /**
      * This simulates data by picking random values for the exogenous terms and
-     * percolating this information down through the SEM, assuming it is
-     * acyclic. Works, but will hang for cyclic models, and is very slow for
-     * large numbers of variables (probably due to the heavyweight lookups of
-     * various values--could be improved). The model must be acyclic, or else
-     * this will spin.
+     * percolating this information down through the SEM. The model is compiled
+     * into sparse arrays in causal order, and blocks of rows are simulated in
+     * parallel, each from its own random stream split from the seed, so the
+     * data for a given seed do not depend on the number of threads. (See
+     * SemSimulator.) If the model is cyclic, its reduced form is used instead.
      */
     public DataSet simulateDataRecursive(int sampleSize) {
-        if (tierIndices == null) {
-            List<Node> nodes = graph.getNodes();
-            tierIndices = new int[nodes.size()];
-            for (int j = 0; j < nodes.size(); j++) {
-                tierIndices[j] = j;
-            }
-        }
-
         int size = variableNodes.size();
         setupModel(size);
 
-        class SimulateTask extends RecursiveTask<Boolean> {
-
-            private final int from;
-            private final int to;
-            private double[][] all;
-            private int chunk;
-
-            public SimulateTask(int from, int to, double[][] all, int chunk) {
-                this.from = from;
-                this.to = to;
-                this.all = all;
-                this.chunk = chunk;
-            }
-
-            @Override
-            protected Boolean compute() {
-                if (from - to > chunk) {
-                    int mid = from + to / 2;
-                    SimulateTask left = new SimulateTask(from, mid, all, chunk);
-                    SimulateTask right = new SimulateTask(mid, to, all, chunk);
-                    left.fork();
-                    right.compute();
-                    left.join();
-                    return true;
-                } else {
-                    for (int i = from; i < to; i++) {
-                        NormalDistribution normal = new NormalDistribution(new Well1024a(++seed), 0, 1);//sqrt(errorVars[col]));
-                        normal.sample();
-
-                        if (verbose && (i + 1) % 50 == 0) {
-                            System.out.println("Simulating " + (i + 1));
-                        }
-
-                        for (int col : tierIndices) {
-                            double value = normal.sample() * sqrt(errorVars[col]);
-
-                            for (int j = 0; j < parents[col].length; j++) {
-                                value += all[parents[col][j]][i] * coefs[col][j];
-                            }
-
-                            value += means[col];
-
-                            all[col][i] = value;
-                        }
-                    }
-
-                    return true;
-                }
-            }
-        }
-
         if (graph instanceof TimeLagGraph) {
             sampleSize += 200;
         }
 
-        double[][] all = new double[variableNodes.size()][sampleSize];
-
-        int chunk = sampleSize / ForkJoinPoolInstance.getInstance().getPool().getParallelism() + 1;
-
-        ForkJoinPoolInstance.getInstance().getPool().invoke(new SimulateTask(0, sampleSize, all, chunk));
+        SemSimulator simulator = new SemSimulator(parents, coefs, errorVars, means);
+        double[][] all = simulator.simulate(sampleSize, ++seed);
 
         if (graph instanceof TimeLagGraph) {
             int[] rem = new int[200];
@@ -862,6 +799,19 @@ public final class LargeScaleSimulation {
 //        this.errorsPositivelySkewedIfNonNormal = errorsPositivelySkewedIfNonNormal;
 //    }
 
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the seed for the random streams used to simulate data. Each call to
+     * a simulate method advances the seed by one, so successive data sets
+     * differ, but the sequence of data sets is the same for the same seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
     public double getSelfLoopCoef() {
         return selfLoopCoef;
     }
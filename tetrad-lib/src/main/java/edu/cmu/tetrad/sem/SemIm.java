@@ -1331,6 +1331,10 @@ public final class SemIm implements IM, ISemIm, TetradSerializable {
         this.scoreType = scoreType;
     }
 
+    public ScoreType getScoreType() {
+        return scoreType;
+    }
+
     private DataSet simulateTimeSeries(int sampleSize, boolean latentDataSaved) {
         SemGraph semGraph = new SemGraph(semPm.getGraph());
         semGraph.setShowErrorTerms(true);
@@ -1411,6 +1415,40 @@ public final class SemIm implements IM, ISemIm, TetradSerializable {
         return dataSet;
     }
 
+    /**
+     * Simulates data in parallel blocks of rows from a compiled, sparse form of the model; see SemSimulator. The
+     * data depend only on the seed, not on the number of threads. Cyclic models and correlated errors are
+     * supported. Time lag models and models with connection functions or error distributions set are simulated by
+     * simulateData(sampleSize, seed, latentDataSaved) instead.
+     *
+     * @param sampleSize how many data points in sample
+     * @param seed a seed for random number generation
+     */
+    public DataSet simulateDataParallel(int sampleSize, long seed, boolean latentDataSaved) {
+        if (semPm.getGraph().isTimeLagModel() || (functions != null && !functions.isEmpty())
+                || (distributions != null && !distributions.isEmpty())) {
+            return simulateData(sampleSize, seed, latentDataSaved);
+        }
+
+        double[][] all = SemSimulator.fromSemIm(this).simulate(sampleSize, seed);
+
+        List<Node> continuousVars = new ArrayList<>();
+
+        for (Node node : getVariableNodes()) {
+            final ContinuousVariable var = new ContinuousVariable(node.getName());
+            var.setNodeType(node.getNodeType());
+            continuousVars.add(var);
+        }
+
+        DataSet fullDataSet = new BoxDataSet(new VerticalDoubleDataBox(all), continuousVars);
+
+        if (latentDataSaved) {
+            return fullDataSet;
+        } else {
+            return DataUtils.restrictToMeasured(fullDataSet);
+        }
+    }
+
     /**
      * Simulates data from this Sem using a Cholesky decomposition of the
      * implied covariance matrix. This method works even when the underlying
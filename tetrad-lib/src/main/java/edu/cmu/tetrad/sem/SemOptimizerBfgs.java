@@ -0,0 +1,809 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.sem;
+
+import edu.cmu.tetrad.data.DataUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.SemGraph;
+import edu.cmu.tetrad.util.ComputeExecutor;
+import edu.cmu.tetrad.util.Matrix;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.cmu.tetrad.util.TetradLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Optimizes a SEM by BFGS, using the closed form gradient of the fitting function (FML or FGLS) with respect to the
+ * free parameters. With A = (I - B)^-1 and Sigma = A Omega A', the gradient of either fitting function is
+ * tr(W dSigma) for a symmetric matrix W over the measured variables, so every partial derivative is an entry of
+ * A'WA (for error variances and covariances) or of Sigma W A (for coefficients). A is computed once per evaluation
+ * and shared by the value and the gradient. Optionally, the expected (Fisher) information at the starting point is
+ * used as the initial Hessian, so that the first steps are Fisher scoring steps.
+ * <p>
+ * Restarts are run in parallel on the shared ComputeExecutor. The first starts from the current values of the SEM;
+ * the rest start from random values, as in SemOptimizerPowell.
+ *
+ * @author Joseph Ramsey
+ */
+public class SemOptimizerBfgs implements SemOptimizer {
+    static final long serialVersionUID = 23L;
+
+    private int numRestarts = 0;
+
+    // The maximum number of BFGS iterations per start.
+    private int maxIterations = 1000;
+
+    // Converged once the fitting function changes by less than this, relative to its value.
+    private double tolerance = 1e-10;
+
+    // True if the Fisher information is used as the initial Hessian.
+    private boolean fisherInformationUsed = false;
+
+    //=========================CONSTRUCTORS============================//
+
+    /**
+     * Blank constructor.
+     */
+    public SemOptimizerBfgs() {
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static SemOptimizerBfgs serializableInstance() {
+        return new SemOptimizerBfgs();
+    }
+
+    //=========================PUBLIC METHODS==========================//
+
+    public void optimize(SemIm semIm) {
+        Matrix sampleCovar = semIm.getSampleCovar();
+
+        if (sampleCovar == null) {
+            throw new NullPointerException("Sample covar has not been set.");
+        }
+
+        if (DataUtils.containsMissingValue(sampleCovar)) {
+            throw new IllegalArgumentException("Please remove or impute missing values.");
+        }
+
+        final FittingFunction f = new FittingFunction(semIm);
+        List<Parameter> freeParameters = semIm.getFreeParameters();
+
+        List<double[]> starts = new ArrayList<>();
+        starts.add(semIm.getFreeParamValues());
+
+        for (int count = 0; count < numRestarts; count++) {
+            double[] p = new double[freeParameters.size()];
+
+            for (int i = 0; i < freeParameters.size(); i++) {
+                if (freeParameters.get(i).getType() == ParamType.VAR) {
+                    p[i] = RandomUtil.getInstance().nextUniform(0, 1);
+                } else {
+                    p[i] = RandomUtil.getInstance().nextUniform(-1, 1);
+                }
+            }
+
+            starts.add(p);
+        }
+
+        List<Callable<double[]>> tasks = new ArrayList<>();
+
+        for (final double[] start : starts) {
+            tasks.add(new Callable<double[]>() {
+                public double[] call() {
+                    return minimize(f, start);
+                }
+            });
+        }
+
+        double min = Double.POSITIVE_INFINITY;
+        double[] point = null;
+
+        for (double[] p : ComputeExecutor.getInstance().invokeAll(tasks)) {
+            double value = f.value(p, null);
+
+            if (value < min) {
+                min = value;
+                point = p;
+            }
+        }
+
+        if (point == null) {
+            throw new IllegalArgumentException("The fitting function could not be evaluated at any starting point.");
+        }
+
+        TetradLogger.getInstance().log("details", "BFGS fitting function = " + min);
+
+        semIm.setFreeParamValues(point);
+    }
+
+    public String toString() {
+        return "Sem Optimizer BFGS";
+    }
+
+    @Override
+    public void setNumRestarts(int numRestarts) {
+        this.numRestarts = numRestarts;
+    }
+
+    @Override
+    public int getNumRestarts() {
+        return numRestarts;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations < 1) throw new IllegalArgumentException("Max iterations must be >= 1: " + maxIterations);
+        this.maxIterations = maxIterations;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        if (tolerance < 0) throw new IllegalArgumentException("Tolerance must be >= 0: " + tolerance);
+        this.tolerance = tolerance;
+    }
+
+    public boolean isFisherInformationUsed() {
+        return fisherInformationUsed;
+    }
+
+    /**
+     * True if the expected (Fisher) information at the starting point should be used as the initial Hessian. This
+     * costs O(q p^2 + q^2 p) once per start, for q free parameters and p measured variables, and usually saves
+     * iterations on large latent variable models.
+     */
+    public void setFisherInformationUsed(boolean fisherInformationUsed) {
+        this.fisherInformationUsed = fisherInformationUsed;
+    }
+
+    //=========================PRIVATE METHODS==========================//
+
+    /**
+     * Minimizes f from the given start by BFGS with a backtracking line search.
+     *
+     * @return the minimizing point, or the start if f can't be evaluated there.
+     */
+    double[] minimize(FittingFunction f, double[] start) {
+        int q = start.length;
+        double[] x = start.clone();
+        double[] g = new double[q];
+        double fx = f.value(x, g);
+
+        if (Double.isInfinite(fx) || q == 0) return x;
+
+        // The approximate inverse Hessian.
+        double[][] H = null;
+
+        if (fisherInformationUsed) {
+            H = FittingFunction.invertPositiveDefinite(f.fisherInformation(x));
+        }
+
+        boolean scaled = H != null;
+
+        if (H == null) {
+            H = identity(q);
+        }
+
+        double[] d = new double[q];
+        double[] x1 = new double[q];
+        double[] g1 = new double[q];
+        double[] s = new double[q];
+        double[] y = new double[q];
+        double[] Hy = new double[q];
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            double slope = 0.0;
+
+            for (int i = 0; i < q; i++) {
+                double t = 0.0;
+                for (int j = 0; j < q; j++) t -= H[i][j] * g[j];
+                d[i] = t;
+                slope += t * g[i];
+            }
+
+            if (!(slope < 0)) {
+
+                // Not a descent direction; start over from steepest descent.
+                H = identity(q);
+                scaled = false;
+
+                for (int i = 0; i < q; i++) d[i] = -g[i];
+                slope = -dot(g, g);
+
+                if (slope == 0) break;
+            }
+
+            double step = 1.0;
+            double fx1;
+
+            while (true) {
+                for (int i = 0; i < q; i++) x1[i] = x[i] + step * d[i];
+                fx1 = f.value(x1, g1);
+
+                if (fx1 <= fx + 1e-4 * step * slope) break;
+
+                step *= 0.5;
+
+                if (step < 1e-20) {
+                    return x;
+                }
+            }
+
+            for (int i = 0; i < q; i++) {
+                s[i] = x1[i] - x[i];
+                y[i] = g1[i] - g[i];
+            }
+
+            boolean converged = Math.abs(fx - fx1) <= tolerance * (Math.abs(fx) + tolerance);
+
+            System.arraycopy(x1, 0, x, 0, q);
+            System.arraycopy(g1, 0, g, 0, q);
+            fx = fx1;
+
+            if (converged) break;
+
+            double sy = dot(s, y);
+
+            if (sy <= 1e-12 * Math.sqrt(dot(s, s) * dot(y, y))) continue;
+
+            if (!scaled) {
+                double gamma = sy / dot(y, y);
+                for (int i = 0; i < q; i++) H[i][i] = gamma;
+                scaled = true;
+            }
+
+            // H = (I - rho s y') H (I - rho y s') + rho s s'
+            double rho = 1.0 / sy;
+
+            for (int i = 0; i < q; i++) {
+                double t = 0.0;
+                for (int j = 0; j < q; j++) t += H[i][j] * y[j];
+                Hy[i] = t;
+            }
+
+            double yHy = dot(y, Hy);
+
+            for (int i = 0; i < q; i++) {
+                for (int j = 0; j < q; j++) {
+                    H[i][j] += rho * ((1 + rho * yHy) * s[i] * s[j] - Hy[i] * s[j] - s[i] * Hy[j]);
+                }
+            }
+        }
+
+        return x;
+    }
+
+    private static double[][] identity(int q) {
+        double[][] I = new double[q][q];
+        for (int i = 0; i < q; i++) I[i][i] = 1.0;
+        return I;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    /**
+     * The SEM fitting function, FML or FGLS, over the free parameters of a SemIm, with its gradient. The structure
+     * of the model is copied out of the SemIm once, so evaluations touch only arrays; evaluations may be made from
+     * several threads at once.
+     */
+    static class FittingFunction {
+        static final int COEF = 0;
+        static final int VAR = 1;
+        static final int COVAR = 2;
+
+        // Edge coefficients, edgeCoef[i][j] for i --> j, with the fixed values in place.
+        private final double[][] edgeCoef;
+
+        // Error covariances, with the fixed values in place.
+        private final double[][] errCovar;
+
+        // Indices of the measured variables among all variables.
+        private final int[] measured;
+
+        // The sample covariance matrix of the measured variables, its inverse, and the log of its determinant.
+        private final double[][] sampleCovar;
+        private final double[][] sampleCovarInv;
+        private final double logDetSample;
+
+        // The type of each free parameter, and the matrix entry it maps to.
+        private final int[] types;
+        private final int[] rows;
+        private final int[] cols;
+
+        // True for FGLS, false for FML.
+        private final boolean gls;
+
+        FittingFunction(SemIm semIm) {
+            this(semIm.getEdgeCoef().toArray(), semIm.getErrCovar().toArray(), measuredIndices(semIm),
+                    semIm.getSampleCovar().toArray(), parameterTypes(semIm), parameterIndices(semIm, true),
+                    parameterIndices(semIm, false), semIm.getScoreType() == ScoreType.Fgls);
+        }
+
+        FittingFunction(double[][] edgeCoef, double[][] errCovar, int[] measured, double[][] sampleCovar,
+                        int[] types, int[] rows, int[] cols, boolean gls) {
+            this.edgeCoef = edgeCoef;
+            this.errCovar = errCovar;
+            this.measured = measured;
+            this.sampleCovar = sampleCovar;
+            this.types = types;
+            this.rows = rows;
+            this.cols = cols;
+            this.gls = gls;
+
+            double[][] L = cholesky(sampleCovar);
+
+            if (L == null) {
+                throw new IllegalArgumentException("The sample covariance matrix is not positive definite.");
+            }
+
+            this.sampleCovarInv = choleskyInverse(L);
+            this.logDetSample = logDet(L);
+        }
+
+        /**
+         * @return the fitting function at the given free parameter values, or positive infinity if the implied
+         * covariance matrix can't be computed there or isn't positive definite. If gradient isn't null, the gradient
+         * is written into it.
+         */
+        double value(double[] x, double[] gradient) {
+            Model model = model(x);
+            if (model == null) return Double.POSITIVE_INFINITY;
+
+            int p = measured.length;
+            double[][] sigma = model.sigma;
+            double[][] sigmaInv = model.sigmaInv;
+
+            double value;
+
+            // Both gradients are tr(W dSigma), for W = M (Sigma - S) M with M = Sigma^-1 (FML) or S^-1 (FGLS).
+            double[][] M;
+
+            if (gls) {
+                double[][] D = times(sigma, sampleCovarInv);
+                value = 0.0;
+
+                for (int i = 0; i < p; i++) {
+                    for (int j = 0; j < p; j++) {
+                        double dij = (i == j ? 1 : 0) - D[i][j];
+                        double dji = (i == j ? 1 : 0) - D[j][i];
+                        value += 0.5 * dij * dji;
+                    }
+                }
+
+                M = sampleCovarInv;
+            } else {
+                double trace = 0.0;
+
+                for (int i = 0; i < p; i++) {
+                    for (int j = 0; j < p; j++) {
+                        trace += sampleCovar[i][j] * sigmaInv[j][i];
+                    }
+                }
+
+                value = model.logDetSigma + trace - logDetSample - p;
+                M = sigmaInv;
+            }
+
+            if (Double.isNaN(value) || Double.isInfinite(value)) return Double.POSITIVE_INFINITY;
+
+            if (gradient != null) {
+                double[][] diff = new double[p][p];
+
+                for (int i = 0; i < p; i++) {
+                    for (int j = 0; j < p; j++) {
+                        diff[i][j] = sigma[i][j] - sampleCovar[i][j];
+                    }
+                }
+
+                double[][] W = times(times(M, diff), M);
+                gradient(model, W, gradient);
+            }
+
+            return value;
+        }
+
+        /**
+         * @return the expected information at x, tr(M dSigma_k M dSigma_l), M being Sigma^-1 (FML) or S^-1 (FGLS),
+         * which is the Hessian of the fitting function where Sigma = S.
+         */
+        double[][] fisherInformation(double[] x) {
+            int q = x.length;
+            double[][] info = new double[q][q];
+            Model model = model(x);
+
+            if (model == null) return info;
+
+            double[][] M = gls ? sampleCovarInv : model.sigmaInv;
+
+            // Each dSigma_k is u v' + v u' for measured-variable vectors u and v.
+            double[][] u = new double[q][];
+            double[][] v = new double[q][];
+
+            for (int k = 0; k < q; k++) {
+                if (types[k] == COEF) {
+                    u[k] = column(model.a, cols[k]);
+                    v[k] = model.sigmaRow(rows[k]);
+                } else if (types[k] == VAR) {
+                    u[k] = column(model.a, rows[k]);
+                    v[k] = u[k].clone();
+                    for (int i = 0; i < v[k].length; i++) v[k][i] *= 0.5;
+                } else {
+                    u[k] = column(model.a, rows[k]);
+                    v[k] = column(model.a, cols[k]);
+                }
+            }
+
+            double[][] Mu = new double[q][];
+            double[][] Mv = new double[q][];
+
+            for (int k = 0; k < q; k++) {
+                Mu[k] = times(M, u[k]);
+                Mv[k] = times(M, v[k]);
+            }
+
+            for (int k = 0; k < q; k++) {
+                for (int l = k; l < q; l++) {
+                    double t = dot(v[k], Mu[l]) * dot(v[l], Mu[k])
+                            + dot(v[k], Mv[l]) * dot(u[l], Mu[k])
+                            + dot(u[k], Mu[l]) * dot(v[l], Mv[k])
+                            + dot(u[k], Mv[l]) * dot(u[l], Mv[k]);
+                    info[k][l] = t;
+                    info[l][k] = t;
+                }
+            }
+
+            return info;
+        }
+
+        // Partial derivatives tr(W dSigma): entries of 2 Sigma W A for coefficients, and of A'WA for error
+        // variances and covariances, over the measured rows of A only.
+        private void gradient(Model model, double[][] W, double[] gradient) {
+            int p = measured.length;
+            double[][] a = model.a;
+            double[][] WA = times(W, a);
+
+            for (int k = 0; k < types.length; k++) {
+                int i = rows[k];
+                int j = cols[k];
+                double g = 0.0;
+
+                if (types[k] == COEF) {
+                    double[] sigmaRow = model.sigmaRow(i);
+                    for (int m = 0; m < p; m++) g += sigmaRow[m] * WA[m][j];
+                    g *= 2;
+                } else if (types[k] == VAR) {
+                    for (int m = 0; m < p; m++) g += a[m][i] * WA[m][i];
+                } else {
+                    for (int m = 0; m < p; m++) g += a[m][i] * WA[m][j];
+                    g *= 2;
+                }
+
+                gradient[k] = g;
+            }
+        }
+
+        // Sigma restricted to measured rows and columns, with (I - B)^-1 restricted to measured rows.
+        private Model model(double[] x) {
+            int n = edgeCoef.length;
+            double[][] omega = new double[n][];
+            double[][] iMinusB = new double[n][n];
+
+            for (int i = 0; i < n; i++) {
+                omega[i] = errCovar[i].clone();
+            }
+
+            for (int i = 0; i < n; i++) {
+                iMinusB[i][i] = 1.0;
+                for (int j = 0; j < n; j++) {
+                    if (edgeCoef[j][i] != 0) iMinusB[i][j] = -edgeCoef[j][i];
+                }
+            }
+
+            for (int k = 0; k < x.length; k++) {
+                double value = x[k];
+                if (Double.isNaN(value) || Double.isInfinite(value)) return null;
+
+                if (types[k] == COEF) {
+                    iMinusB[cols[k]][rows[k]] = -value;
+                } else {
+                    if (types[k] == VAR && value <= 0) return null;
+                    omega[rows[k]][cols[k]] = value;
+                    omega[cols[k]][rows[k]] = value;
+                }
+            }
+
+            double[][] inverse = invert(iMinusB);
+            if (inverse == null) return null;
+
+            int p = measured.length;
+            double[][] a = new double[p][];
+            for (int m = 0; m < p; m++) a[m] = inverse[measured[m]];
+
+            // Sigma(all, measured) = A Omega A_m'
+            double[][] aOmega = times(a, omega);
+            double[][] sigmaAllMeasured = new double[n][p];
+
+            for (int i = 0; i < n; i++) {
+                double[] row = inverse[i];
+
+                for (int m = 0; m < p; m++) {
+                    double s = 0.0;
+                    double[] ao = aOmega[m];
+                    for (int t = 0; t < n; t++) s += row[t] * ao[t];
+                    sigmaAllMeasured[i][m] = s;
+                }
+            }
+
+            double[][] sigma = new double[p][];
+            for (int m = 0; m < p; m++) sigma[m] = sigmaAllMeasured[measured[m]];
+
+            double[][] L = cholesky(sigma);
+            if (L == null) return null;
+
+            return new Model(a, sigmaAllMeasured, sigma, choleskyInverse(L), logDet(L));
+        }
+
+        private static final class Model {
+            private final double[][] a;
+            private final double[][] sigmaAllMeasured;
+            private final double[][] sigma;
+            private final double[][] sigmaInv;
+            private final double logDetSigma;
+
+            Model(double[][] a, double[][] sigmaAllMeasured, double[][] sigma, double[][] sigmaInv,
+                  double logDetSigma) {
+                this.a = a;
+                this.sigmaAllMeasured = sigmaAllMeasured;
+                this.sigma = sigma;
+                this.sigmaInv = sigmaInv;
+                this.logDetSigma = logDetSigma;
+            }
+
+            // Row i of Sigma, over the measured variables.
+            double[] sigmaRow(int i) {
+                return sigmaAllMeasured[i];
+            }
+        }
+
+        //=========================ARRAY UTILITIES==========================//
+
+        private static int[] measuredIndices(SemIm semIm) {
+            List<Node> variables = semIm.getVariableNodes();
+            List<Node> measured = semIm.getMeasuredNodes();
+            int[] indices = new int[measured.size()];
+            for (int i = 0; i < indices.length; i++) indices[i] = variables.indexOf(measured.get(i));
+            return indices;
+        }
+
+        private static int[] parameterTypes(SemIm semIm) {
+            List<Parameter> parameters = semIm.getFreeParameters();
+            int[] types = new int[parameters.size()];
+
+            for (int k = 0; k < types.length; k++) {
+                ParamType type = parameters.get(k).getType();
+
+                if (type == ParamType.COEF) {
+                    types[k] = COEF;
+                } else if (type == ParamType.VAR) {
+                    types[k] = VAR;
+                } else if (type == ParamType.COVAR) {
+                    types[k] = COVAR;
+                } else {
+                    throw new IllegalArgumentException("Unexpected free parameter type: " + type);
+                }
+            }
+
+            return types;
+        }
+
+        // The index of node A (or B) of each free parameter, as in SemIm's mappings.
+        private static int[] parameterIndices(SemIm semIm, boolean nodeA) {
+            List<Parameter> parameters = semIm.getFreeParameters();
+            SemGraph graph = semIm.getSemPm().getGraph();
+            int[] indices = new int[parameters.size()];
+
+            for (int k = 0; k < indices.length; k++) {
+                Parameter parameter = parameters.get(k);
+                Node node = graph.getVarNode(nodeA ? parameter.getNodeA() : parameter.getNodeB());
+                indices[k] = semIm.getVariableNodes().indexOf(node);
+            }
+
+            return indices;
+        }
+
+        private static double[] column(double[][] a, int j) {
+            double[] c = new double[a.length];
+            for (int i = 0; i < a.length; i++) c[i] = a[i][j];
+            return c;
+        }
+
+        private static double[][] times(double[][] a, double[][] b) {
+            int m = b[0].length;
+            double[][] c = new double[a.length][m];
+
+            for (int i = 0; i < a.length; i++) {
+                double[] ci = c[i];
+
+                for (int k = 0; k < b.length; k++) {
+                    double aik = a[i][k];
+                    if (aik == 0) continue;
+                    double[] bk = b[k];
+                    for (int j = 0; j < m; j++) ci[j] += aik * bk[j];
+                }
+            }
+
+            return c;
+        }
+
+        private static double[] times(double[][] a, double[] v) {
+            double[] c = new double[a.length];
+            for (int i = 0; i < a.length; i++) c[i] = dot(a[i], v);
+            return c;
+        }
+
+        // Gauss-Jordan inversion with partial pivoting, or null if singular.
+        private static double[][] invert(double[][] matrix) {
+            int n = matrix.length;
+            double[][] a = new double[n][];
+            double[][] inv = new double[n][n];
+
+            for (int i = 0; i < n; i++) {
+                a[i] = matrix[i].clone();
+                inv[i][i] = 1.0;
+            }
+
+            for (int c = 0; c < n; c++) {
+                int pivot = c;
+
+                for (int r = c + 1; r < n; r++) {
+                    if (Math.abs(a[r][c]) > Math.abs(a[pivot][c])) pivot = r;
+                }
+
+                if (Math.abs(a[pivot][c]) < 1e-12) return null;
+
+                double[] t = a[c];
+                a[c] = a[pivot];
+                a[pivot] = t;
+                t = inv[c];
+                inv[c] = inv[pivot];
+                inv[pivot] = t;
+
+                double d = a[c][c];
+
+                for (int j = 0; j < n; j++) {
+                    a[c][j] /= d;
+                    inv[c][j] /= d;
+                }
+
+                for (int r = 0; r < n; r++) {
+                    if (r == c) continue;
+                    double factor = a[r][c];
+                    if (factor == 0) continue;
+
+                    for (int j = 0; j < n; j++) {
+                        a[r][j] -= factor * a[c][j];
+                        inv[r][j] -= factor * inv[c][j];
+                    }
+                }
+            }
+
+            return inv;
+        }
+
+        // The lower Cholesky factor, or null if the matrix isn't positive definite.
+        private static double[][] cholesky(double[][] a) {
+            int n = a.length;
+            double[][] L = new double[n][n];
+
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j <= i; j++) {
+                    double s = a[i][j];
+                    for (int k = 0; k < j; k++) s -= L[i][k] * L[j][k];
+
+                    if (i == j) {
+                        if (!(s > 0)) return null;
+                        L[i][i] = Math.sqrt(s);
+                    } else {
+                        L[i][j] = s / L[j][j];
+                    }
+                }
+            }
+
+            return L;
+        }
+
+        private static double[][] choleskyInverse(double[][] L) {
+            int n = L.length;
+
+            // L^-1, lower triangular.
+            double[][] Linv = new double[n][n];
+
+            for (int i = 0; i < n; i++) {
+                Linv[i][i] = 1.0 / L[i][i];
+
+                for (int j = 0; j < i; j++) {
+                    double s = 0.0;
+                    for (int k = j; k < i; k++) s -= L[i][k] * Linv[k][j];
+                    Linv[i][j] = s / L[i][i];
+                }
+            }
+
+            // (L L')^-1 = L^-T L^-1
+            double[][] inv = new double[n][n];
+
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j <= i; j++) {
+                    double s = 0.0;
+                    for (int k = i; k < n; k++) s += Linv[k][i] * Linv[k][j];
+                    inv[i][j] = s;
+                    inv[j][i] = s;
+                }
+            }
+
+            return inv;
+        }
+
+        private static double logDet(double[][] L) {
+            double sum = 0.0;
+            for (int i = 0; i < L.length; i++) sum += Math.log(L[i][i]);
+            return 2 * sum;
+        }
+
+        // The inverse of a symmetric matrix that should be positive definite, with a ridge added if it isn't.
+        static double[][] invertPositiveDefinite(double[][] a) {
+            int n = a.length;
+            double ridge = 0.0;
+            double scale = 0.0;
+            for (int i = 0; i < n; i++) scale = Math.max(scale, Math.abs(a[i][i]));
+            if (scale == 0) scale = 1;
+
+            for (int attempt = 0; attempt < 20; attempt++) {
+                double[][] b = new double[n][];
+
+                for (int i = 0; i < n; i++) {
+                    b[i] = a[i].clone();
+                    b[i][i] += ridge;
+                }
+
+                double[][] L = cholesky(b);
+                if (L != null) return choleskyInverse(L);
+
+                ridge = ridge == 0 ? 1e-8 * scale : ridge * 10;
+            }
+
+            return identity(n);
+        }
+    }
+}
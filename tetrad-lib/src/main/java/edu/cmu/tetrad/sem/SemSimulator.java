@@ -0,0 +1,580 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.sem;
+
+import edu.cmu.tetrad.util.ComputeExecutor;
+import edu.cmu.tetrad.util.Matrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+
+import static java.lang.Math.sqrt;
+
+/**
+ * Simulates data from a linear SEM with Gaussian errors, in parallel. The model is compiled once into a sparse
+ * form: for each variable, the indices and coefficients of its parents, an intercept, and the indices and loadings
+ * of the independent standard normal shocks that make up its error, which is how correlated errors are handled.
+ * Variables are computed in topological order. If the model is cyclic, it is compiled instead into its reduced
+ * form, x = (I - B)^-1 (e + c), which has no parents.
+ * <p>
+ * Data are written column by column into primitive arrays, in blocks of rows that are simulated in parallel on
+ * the shared ComputeExecutor. Each block draws from its own stream, split in block order from a SplittableRandom
+ * seeded with the given seed, so the data depend only on the seed and the block size, not on the number of
+ * threads.
+ *
+ * @author Joseph Ramsey
+ */
+public final class SemSimulator {
+
+    /**
+     * The default number of rows in a block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    private final int numVars;
+
+    // The order in which the variables are computed.
+    private final int[] order;
+
+    // parents[i] are the indices of the parents of i; coefs[i] their coefficients.
+    private final int[][] parents;
+    private final double[][] coefs;
+
+    // The error of i is the sum over k of shockLoadings[i][k] times shock shockIndices[i][k].
+    private final int[][] shockIndices;
+    private final double[][] shockLoadings;
+
+    private final double[] intercepts;
+
+    // True if the error of each variable i is a multiple of shock i alone.
+    private final boolean diagonal;
+
+    private boolean positiveDataOnly = false;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+
+    //=============================CONSTRUCTORS============================//
+
+    /**
+     * Constructs a simulator for a model with uncorrelated errors, in which variable i is the sum of its intercept,
+     * its error, and coefs[i][k] times the value of variable parents[i][k], for each k. The arrays are copied.
+     *
+     * @param parents    parents[i] are the indices of the parents of variable i.
+     * @param coefs      coefs[i][k] is the coefficient of parents[i][k] in the equation for i.
+     * @param errorVars  The variance of the error of each variable.
+     * @param intercepts The intercept of each variable.
+     */
+    public SemSimulator(int[][] parents, double[][] coefs, double[] errorVars, double[] intercepts) {
+        this(parents, coefs, diagonalShocks(errorVars), intercepts);
+    }
+
+    private SemSimulator(int[][] parents, double[][] coefs, Shocks shocks, double[] intercepts) {
+        this.numVars = parents.length;
+
+        if (coefs.length != numVars || shocks.indices.length != numVars || intercepts.length != numVars) {
+            throw new IllegalArgumentException("Expecting arrays for " + numVars + " variables.");
+        }
+
+        for (int i = 0; i < numVars; i++) {
+            if (coefs[i].length != parents[i].length) {
+                throw new IllegalArgumentException("Variable " + i + " has " + parents[i].length
+                        + " parents but " + coefs[i].length + " coefficients.");
+            }
+        }
+
+        int[] order = topologicalOrder(parents);
+
+        if (order != null) {
+            this.order = order;
+            this.parents = new int[numVars][];
+            this.coefs = new double[numVars][];
+
+            for (int i = 0; i < numVars; i++) {
+                this.parents[i] = parents[i].clone();
+                this.coefs[i] = coefs[i].clone();
+            }
+
+            this.shockIndices = shocks.indices;
+            this.shockLoadings = shocks.loadings;
+            this.intercepts = intercepts.clone();
+        } else {
+
+            // Cyclic; x = A (L z + c), with A = (I - B)^-1.
+            Matrix iMinusB = Matrix.identity(numVars);
+
+            for (int i = 0; i < numVars; i++) {
+                for (int k = 0; k < parents[i].length; k++) {
+                    iMinusB.set(i, parents[i][k], iMinusB.get(i, parents[i][k]) - coefs[i][k]);
+                }
+            }
+
+            double[][] a = iMinusB.inverse().toArray();
+
+            this.order = new int[numVars];
+            this.parents = new int[numVars][0];
+            this.coefs = new double[numVars][0];
+            this.intercepts = new double[numVars];
+            double[][] loadings = new double[numVars][numVars];
+
+            for (int i = 0; i < numVars; i++) {
+                this.order[i] = i;
+
+                for (int j = 0; j < numVars; j++) {
+                    if (a[i][j] == 0) continue;
+
+                    this.intercepts[i] += a[i][j] * intercepts[j];
+
+                    for (int k = 0; k < shocks.indices[j].length; k++) {
+                        loadings[i][shocks.indices[j][k]] += a[i][j] * shocks.loadings[j][k];
+                    }
+                }
+            }
+
+            Shocks reduced = sparse(loadings);
+            this.shockIndices = reduced.indices;
+            this.shockLoadings = reduced.loadings;
+        }
+
+        boolean diagonal = true;
+
+        for (int i = 0; i < numVars; i++) {
+            if (shockIndices[i].length != 1 || shockIndices[i][0] != i) {
+                diagonal = false;
+                break;
+            }
+        }
+
+        this.diagonal = diagonal;
+    }
+
+    /**
+     * Compiles the given linear SEM. Errors may be correlated; the error covariance matrix must then be positive
+     * definite. The means of the SEM are the means of the simulated variables. Connection functions and
+     * non-Gaussian error distributions set on the SEM are not used.
+     */
+    public static SemSimulator fromSemIm(SemIm semIm) {
+        Matrix edgeCoef = semIm.getEdgeCoef();
+        double[][] errCovar = semIm.getErrCovar().toArray();
+        double[] means = semIm.getVariableMeans();
+        int numVars = edgeCoef.rows();
+
+        int[][] parents = new int[numVars][];
+        double[][] coefs = new double[numVars][];
+        double[] intercepts = new double[numVars];
+
+        for (int i = 0; i < numVars; i++) {
+            int count = 0;
+
+            for (int j = 0; j < numVars; j++) {
+                if (edgeCoef.get(j, i) != 0) count++;
+            }
+
+            parents[i] = new int[count];
+            coefs[i] = new double[count];
+            intercepts[i] = means[i];
+            count = 0;
+
+            // The means are means of the variables, so the intercepts are mu - B mu.
+            for (int j = 0; j < numVars; j++) {
+                double coef = edgeCoef.get(j, i);
+
+                if (coef != 0) {
+                    parents[i][count] = j;
+                    coefs[i][count++] = coef;
+                    intercepts[i] -= coef * means[j];
+                }
+            }
+        }
+
+        boolean diagonal = true;
+
+        for (int i = 0; i < numVars && diagonal; i++) {
+            for (int j = 0; j < i; j++) {
+                if (errCovar[i][j] != 0) {
+                    diagonal = false;
+                    break;
+                }
+            }
+        }
+
+        Shocks shocks;
+
+        if (diagonal) {
+            double[] errorVars = new double[numVars];
+
+            for (int i = 0; i < numVars; i++) {
+                errorVars[i] = errCovar[i][i];
+            }
+
+            shocks = diagonalShocks(errorVars);
+        } else {
+            shocks = sparse(cholesky(errCovar));
+        }
+
+        SemSimulator simulator = new SemSimulator(parents, coefs, shocks, intercepts);
+        simulator.setPositiveDataOnly(semIm.isSimulatedPositiveDataOnly());
+        return simulator;
+    }
+
+    //==============================PUBLIC METHODS=========================//
+
+    /**
+     * Simulates sampleSize rows.
+     *
+     * @param sampleSize The number of rows.
+     * @param seed       The seed; the same seed always gives the same data.
+     * @return the data, as data[variable][row].
+     */
+    public double[][] simulate(final int sampleSize, long seed) {
+        if (sampleSize < 1) {
+            throw new IllegalArgumentException("Sample size must be >= 1: " + sampleSize);
+        }
+
+        final double[][] data = new double[numVars][sampleSize];
+        int numBlocks = (sampleSize + blockSize - 1) / blockSize;
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Callable<Boolean>> tasks = new ArrayList<>(numBlocks);
+
+        for (int b = 0; b < numBlocks; b++) {
+            final int from = b * blockSize;
+            final int to = Math.min(from + blockSize, sampleSize);
+            final SplittableRandom stream = random.split();
+
+            tasks.add(new Callable<Boolean>() {
+                public Boolean call() {
+                    simulateBlock(data, from, to, stream);
+                    return true;
+                }
+            });
+        }
+
+        ComputeExecutor.getInstance().invokeAll(tasks);
+
+        return data;
+    }
+
+    public int getNumVariables() {
+        return numVars;
+    }
+
+    public boolean isPositiveDataOnly() {
+        return positiveDataOnly;
+    }
+
+    /**
+     * If true, rows with any negative value are discarded and drawn again.
+     */
+    public void setPositiveDataOnly(boolean positiveDataOnly) {
+        this.positiveDataOnly = positiveDataOnly;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Sets the number of rows simulated together by one task. Data for a given seed depend on the block size.
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be >= 1: " + blockSize);
+        }
+
+        this.blockSize = blockSize;
+    }
+
+    //==============================PRIVATE METHODS=========================//
+
+    /**
+     * Fills rows from (inclusive) to to (exclusive) of the data, a column at a time.
+     */
+    private void simulateBlock(double[][] data, int from, int to, SplittableRandom random) {
+        Gaussian gaussian = new Gaussian(random);
+
+        if (positiveDataOnly) {
+            simulateRows(data, from, to, gaussian);
+            return;
+        }
+
+        // If each variable has a shock of its own, the shocks are drawn into the data and replaced in place, in
+        // causal order; otherwise they are drawn into a buffer for the block.
+        double[][] shocks = diagonal ? data : new double[numVars][];
+        int offset = diagonal ? 0 : -from;
+
+        for (int k = 0; k < numVars; k++) {
+            if (!diagonal) shocks[k] = new double[to - from];
+            double[] _shocks = shocks[k];
+
+            for (int r = from; r < to; r++) {
+                _shocks[r + offset] = gaussian.next();
+            }
+        }
+
+        for (int i : order) {
+            double[] column = data[i];
+            double intercept = intercepts[i];
+            int[] _shocks = shockIndices[i];
+            double[] _loadings = shockLoadings[i];
+
+            if (diagonal) {
+                double loading = _loadings[0];
+
+                for (int r = from; r < to; r++) {
+                    column[r] = intercept + loading * column[r];
+                }
+            } else {
+                for (int r = from; r < to; r++) {
+                    column[r] = intercept;
+                }
+
+                for (int k = 0; k < _shocks.length; k++) {
+                    double[] shock = shocks[_shocks[k]];
+                    double loading = _loadings[k];
+
+                    for (int r = from; r < to; r++) {
+                        column[r] += loading * shock[r + offset];
+                    }
+                }
+            }
+
+            int[] _parents = parents[i];
+            double[] _coefs = coefs[i];
+
+            for (int k = 0; k < _parents.length; k++) {
+                double[] parent = data[_parents[k]];
+                double coef = _coefs[k];
+
+                for (int r = from; r < to; r++) {
+                    column[r] += coef * parent[r];
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills rows from (inclusive) to to (exclusive) of the data a row at a time, drawing any row with a negative
+     * value again.
+     */
+    private void simulateRows(double[][] data, int from, int to, Gaussian gaussian) {
+        double[] shocks = new double[numVars];
+        double[] row = new double[numVars];
+
+        ROW:
+        for (int r = from; r < to; r++) {
+            for (int k = 0; k < numVars; k++) {
+                shocks[k] = gaussian.next();
+            }
+
+            for (int i : order) {
+                double value = intercepts[i];
+                int[] _shocks = shockIndices[i];
+                double[] _loadings = shockLoadings[i];
+
+                for (int k = 0; k < _shocks.length; k++) {
+                    value += _loadings[k] * shocks[_shocks[k]];
+                }
+
+                int[] _parents = parents[i];
+                double[] _coefs = coefs[i];
+
+                for (int k = 0; k < _parents.length; k++) {
+                    value += _coefs[k] * row[_parents[k]];
+                }
+
+                if (value < 0) {
+                    r--;
+                    continue ROW;
+                }
+
+                row[i] = value;
+            }
+
+            for (int i = 0; i < numVars; i++) {
+                data[i][r] = row[i];
+            }
+        }
+    }
+
+    /**
+     * @return the variables in an order in which every parent comes before its children, or null if there is a
+     * cycle.
+     */
+    private static int[] topologicalOrder(int[][] parents) {
+        int n = parents.length;
+        int[] numChildren = new int[n];
+        int[] inDegree = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            inDegree[i] = parents[i].length;
+
+            for (int p : parents[i]) {
+                if (p < 0 || p >= n) {
+                    throw new IllegalArgumentException("Parent index out of range: " + p);
+                }
+
+                numChildren[p]++;
+            }
+        }
+
+        int[][] children = new int[n][];
+
+        for (int i = 0; i < n; i++) {
+            children[i] = new int[numChildren[i]];
+            numChildren[i] = 0;
+        }
+
+        for (int i = 0; i < n; i++) {
+            for (int p : parents[i]) {
+                children[p][numChildren[p]++] = i;
+            }
+        }
+
+        int[] order = new int[n];
+        int head = 0;
+        int tail = 0;
+
+        for (int i = 0; i < n; i++) {
+            if (inDegree[i] == 0) order[tail++] = i;
+        }
+
+        while (head < tail) {
+            int i = order[head++];
+
+            for (int c : children[i]) {
+                if (--inDegree[c] == 0) order[tail++] = c;
+            }
+        }
+
+        return tail == n ? order : null;
+    }
+
+    private static Shocks diagonalShocks(double[] errorVars) {
+        Shocks shocks = new Shocks(errorVars.length);
+
+        for (int i = 0; i < errorVars.length; i++) {
+            if (errorVars[i] < 0) {
+                throw new IllegalArgumentException("Negative error variance for variable " + i + ": " + errorVars[i]);
+            }
+
+            shocks.indices[i] = new int[]{i};
+            shocks.loadings[i] = new double[]{sqrt(errorVars[i])};
+        }
+
+        return shocks;
+    }
+
+    private static Shocks sparse(double[][] loadings) {
+        Shocks shocks = new Shocks(loadings.length);
+
+        for (int i = 0; i < loadings.length; i++) {
+            int count = 0;
+
+            for (double l : loadings[i]) {
+                if (l != 0) count++;
+            }
+
+            shocks.indices[i] = new int[count];
+            shocks.loadings[i] = new double[count];
+            count = 0;
+
+            for (int k = 0; k < loadings[i].length; k++) {
+                if (loadings[i][k] != 0) {
+                    shocks.indices[i][count] = k;
+                    shocks.loadings[i][count++] = loadings[i][k];
+                }
+            }
+        }
+
+        return shocks;
+    }
+
+    private static double[][] cholesky(double[][] a) {
+        int n = a.length;
+        double[][] l = new double[n][n];
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = a[i][j];
+
+                for (int k = 0; k < j; k++) {
+                    sum -= l[i][k] * l[j][k];
+                }
+
+                if (i == j) {
+                    if (sum <= 0) {
+                        throw new IllegalArgumentException("Error covariance matrix is not positive definite.");
+                    }
+
+                    l[i][i] = sqrt(sum);
+                } else {
+                    l[i][j] = sum / l[j][j];
+                }
+            }
+        }
+
+        return l;
+    }
+
+    private static class Shocks {
+        final int[][] indices;
+        final double[][] loadings;
+
+        Shocks(int n) {
+            indices = new int[n][];
+            loadings = new double[n][];
+        }
+    }
+
+    /**
+     * Standard normal draws by the polar method, which uses two uniforms for two draws.
+     */
+    private static class Gaussian {
+        private final SplittableRandom random;
+        private double spare;
+        private boolean hasSpare = false;
+
+        Gaussian(SplittableRandom random) {
+            this.random = random;
+        }
+
+        double next() {
+            if (hasSpare) {
+                hasSpare = false;
+                return spare;
+            }
+
+            double u, v, s;
+
+            do {
+                u = 2 * random.nextDouble() - 1;
+                v = 2 * random.nextDouble() - 1;
+                s = u * u + v * v;
+            } while (s >= 1 || s == 0);
+
+            double m = sqrt(-2 * Math.log(s) / s);
+            spare = v * m;
+            hasSpare = true;
+            return u * m;
+        }
+    }
+}
@@ -18,7 +18,7 @@
  */
 package edu.cmu.tetrad.stat;
 
-import java.util.concurrent.ForkJoinPool;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import static java.util.concurrent.ForkJoinTask.invokeAll;
 import java.util.concurrent.RecursiveAction;
 
@@ -49,10 +49,9 @@ public class VarianceVectorForkJoin implements Variance {
     public float[] compute(boolean biasCorrected) {
         float[] means = new float[numOfCols];
 
-        ForkJoinPool pool = new ForkJoinPool(numOfThreads);
-        pool.invoke(new MeanAction(data, means, 0, numOfCols - 1));
-        pool.invoke(new VarianceAction(data, means, biasCorrected, 0, numOfCols - 1));
-        pool.shutdown();
+        ComputeExecutor executor = ComputeExecutor.getInstance();
+        executor.invoke(new MeanAction(data, means, 0, numOfCols - 1));
+        executor.invoke(new VarianceAction(data, means, biasCorrected, 0, numOfCols - 1));
 
         return means;
     }
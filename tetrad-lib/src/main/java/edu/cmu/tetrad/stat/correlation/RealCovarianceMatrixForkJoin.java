@@ -18,9 +18,9 @@
  */
 package edu.cmu.tetrad.stat.correlation;
 
+import edu.cmu.tetrad.util.ComputeExecutor;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ForkJoinPool;
 import static java.util.concurrent.ForkJoinTask.invokeAll;
 import java.util.concurrent.RecursiveAction;
 
@@ -53,10 +53,9 @@ public class RealCovarianceMatrixForkJoin implements RealCovariance {
         double[] covarianceMatrix = new double[(numOfCols * (numOfCols + 1)) / 2];
         double[] means = new double[numOfCols];
 
-        final ForkJoinPool pool = new ForkJoinPool(this.numOfThreads);
-        pool.invoke(new MeanAction(means, data, 0, numOfCols - 1));
-        pool.invoke(new CovarianceLowerTriangleAction(covarianceMatrix, means, 0, numOfCols - 1, biasCorrected));
-        pool.shutdown();
+        ComputeExecutor executor = ComputeExecutor.getInstance();
+        executor.invoke(new MeanAction(means, data, 0, numOfCols - 1));
+        executor.invoke(new CovarianceLowerTriangleAction(covarianceMatrix, means, 0, numOfCols - 1, biasCorrected));
 
         return covarianceMatrix;
     }
@@ -66,10 +65,9 @@ public class RealCovarianceMatrixForkJoin implements RealCovariance {
         double[][] covarianceMatrix = new double[numOfCols][numOfCols];
         double[] means = new double[numOfCols];
 
-        final ForkJoinPool pool = new ForkJoinPool(this.numOfThreads);
-        pool.invoke(new MeanAction(means, data, 0, numOfCols - 1));
-        pool.invoke(new CovarianceAction(covarianceMatrix, means, 0, numOfCols - 1, biasCorrected));
-        pool.shutdown();
+        ComputeExecutor executor = ComputeExecutor.getInstance();
+        executor.invoke(new MeanAction(means, data, 0, numOfCols - 1));
+        executor.invoke(new CovarianceAction(covarianceMatrix, means, 0, numOfCols - 1, biasCorrected));
 
         return covarianceMatrix;
     }
@@ -0,0 +1,168 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Saves the results of the finished units of work of a long run--the graphs
+ * of resampling replicates, the statistics of comparison runs--to a directory
+ * as each unit finishes, so that a run that is stopped can be resumed without
+ * redoing them. Each result is a piece of text saved under a key in its own
+ * file ending in .ckpt. Files are written under a temporary name ending in
+ * .ckpt.tmp and then renamed, so a result is either saved whole or not at all.
+ * Other files in the directory are never read or deleted.
+ *
+ * @author Joseph Ramsey
+ */
+public class Checkpoint {
+
+    private static final String SUFFIX = ".ckpt";
+    private static final String TEMP_SUFFIX = SUFFIX + ".tmp";
+
+    /**
+     * The directory the results are saved in.
+     */
+    private final File dir;
+
+    /**
+     * Opens the checkpoint in the given directory, creating the directory if
+     * it does not exist.
+     */
+    public Checkpoint(File dir) {
+        if (dir == null) {
+            throw new NullPointerException("Checkpoint directory not provided.");
+        }
+
+        dir.mkdirs();
+
+        if (!dir.isDirectory()) {
+            throw new IllegalArgumentException("Not a directory: " + dir);
+        }
+
+        this.dir = dir;
+    }
+
+    /**
+     * Saves the given result under the given key, replacing any result saved
+     * under it before.
+     */
+    public void save(String key, String result) {
+        Path file = file(key).toPath();
+
+        try {
+            Path temp = Files.createTempFile(dir.toPath(), key, TEMP_SUFFIX);
+            Files.write(temp, result.getBytes(StandardCharsets.UTF_8));
+
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not save " + key + " to " + dir, e);
+        }
+    }
+
+    /**
+     * @return the result saved under the given key, or null if none was.
+     */
+    public String load(String key) {
+        File file = file(key);
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not load " + key + " from " + dir, e);
+        }
+    }
+
+    /**
+     * @return true if a result is saved under the given key.
+     */
+    public boolean contains(String key) {
+        return file(key).exists();
+    }
+
+    /**
+     * @return the keys of the saved results that start with the given prefix,
+     * in alphabetical order.
+     */
+    public List<String> getKeys(String prefix) {
+        List<String> keys = new ArrayList<>();
+        File[] files = dir.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+
+                if (name.startsWith(prefix) && name.endsWith(SUFFIX)) {
+                    keys.add(name.substring(0, name.length() - SUFFIX.length()));
+                }
+            }
+        }
+
+        Collections.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Deletes all saved results, along with any temporary files left by a run
+     * that was stopped while saving. Only files with the checkpoint suffixes
+     * are deleted.
+     */
+    public void clear() {
+        File[] files = dir.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(SUFFIX) || file.getName().endsWith(TEMP_SUFFIX)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the directory the results are saved in.
+     */
+    public File getDirectory() {
+        return dir;
+    }
+
+    private File file(String key) {
+        return new File(dir, key + SUFFIX);
+    }
+}
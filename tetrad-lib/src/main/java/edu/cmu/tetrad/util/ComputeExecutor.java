@@ -0,0 +1,178 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * The single execution service for parallel work in Tetrad. All searches, resampling and simulation code should
+ * submit their tasks here rather than creating pools of their own, so that the number of worker threads stays
+ * within one global parallelism budget however deeply the work is nested--for instance, a parallel FGES run
+ * inside a bootstrap inside an algorithm comparison.
+ * <p>
+ * The budget defaults to the number of available processors and may be set with the system property
+ * "tetrad.parallelism" or with setParallelism(). When invokeAll() or invoke() is called from a thread that is
+ * already one of this executor's workers, the tasks are forked into the same pool and the calling worker helps
+ * run them while it waits, so nesting neither adds threads nor blocks workers.
+ * <p>
+ * Tasks submitted through invokeAll() check TaskManager.getInstance().isCanceled() before they start, so that
+ * canceling from the interface stops a parallel run after the tasks already in progress.
+ *
+ * @author Joseph Ramsey
+ */
+public final class ComputeExecutor {
+    private static final ComputeExecutor INSTANCE = new ComputeExecutor();
+
+    /**
+     * The system property from which the initial parallelism is read.
+     */
+    public static final String PARALLELISM_PROPERTY = "tetrad.parallelism";
+
+    private volatile ForkJoinPool pool;
+
+    private ComputeExecutor() {
+        this.pool = new ForkJoinPool(defaultParallelism());
+    }
+
+    public static ComputeExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the maximum number of worker threads used for parallel work.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Sets the maximum number of worker threads used for parallel work. Tasks already running in the old pool are
+     * allowed to finish; new tasks go to a pool of the new size.
+     *
+     * @param parallelism The number of threads, at least 1.
+     */
+    public synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+
+        if (parallelism == pool.getParallelism()) {
+            return;
+        }
+
+        ForkJoinPool old = pool;
+        pool = new ForkJoinPool(parallelism);
+        old.shutdown();
+    }
+
+    /**
+     * @return the underlying pool, for code that needs to submit ForkJoinTasks itself. Prefer invoke() and
+     * invokeAll().
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @return true if the current thread is one of this executor's workers--that is, if work submitted now is
+     * nested inside other work.
+     */
+    public boolean inPool() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool;
+    }
+
+    /**
+     * Runs the given task and returns its result, running it directly if called from a worker of this executor.
+     */
+    public <T> T invoke(ForkJoinTask<T> task) {
+        if (inPool()) {
+            return task.invoke();
+        }
+
+        return pool.invoke(task);
+    }
+
+    /**
+     * Runs the given tasks in parallel and returns their results in the order of the tasks. If any task throws an
+     * exception, it is rethrown here (checked exceptions wrapped in a RuntimeException); if the TaskManager is
+     * canceled, a CancellationException is thrown.
+     */
+    public <T> List<T> invokeAll(Collection<? extends Callable<T>> tasks) {
+        final List<ForkJoinTask<T>> forked = new ArrayList<>(tasks.size());
+
+        for (final Callable<T> task : tasks) {
+            forked.add(ForkJoinTask.adapt(new Callable<T>() {
+                public T call() throws Exception {
+                    if (TaskManager.getInstance().isCanceled()) {
+                        throw new CancellationException("Canceled.");
+                    }
+
+                    return task.call();
+                }
+            }));
+        }
+
+        if (inPool()) {
+            ForkJoinTask.invokeAll(forked);
+        } else {
+            pool.invoke(ForkJoinTask.adapt(new Runnable() {
+                public void run() {
+                    ForkJoinTask.invokeAll(forked);
+                }
+            }));
+        }
+
+        List<T> results = new ArrayList<>(forked.size());
+
+        for (ForkJoinTask<T> task : forked) {
+            results.add(task.join());
+        }
+
+        return results;
+    }
+
+    private static int defaultParallelism() {
+        String property = System.getProperty(PARALLELISM_PROPERTY);
+
+        if (property != null) {
+            try {
+                int parallelism = Integer.parseInt(property.trim());
+
+                if (parallelism > 0) {
+                    return parallelism;
+                }
+            } catch (NumberFormatException e) {
+                // Fall through to the default.
+            }
+        }
+
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -23,8 +23,11 @@ import edu.cmu.tetrad.data.ContinuousVariable;
 import edu.cmu.tetrad.data.CovarianceMatrix;
 import edu.cmu.tetrad.data.DataBox;
 import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.data.DataReader;
+import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.data.DoubleDataBox;
+import edu.cmu.tetrad.data.MemoryMappedDataBox;
 import edu.cmu.tetrad.data.MixedDataBox;
 import edu.cmu.tetrad.data.VerticalIntDataBox;
 import edu.cmu.tetrad.graph.Node;
@@ -33,11 +36,14 @@ import edu.pitt.dbmi.data.reader.ContinuousData;
 import edu.pitt.dbmi.data.reader.Data;
 import edu.pitt.dbmi.data.reader.DataColumn;
 import edu.pitt.dbmi.data.reader.DiscreteDataColumn;
+import edu.pitt.dbmi.data.reader.binary.ColumnarBinaryFile;
 import edu.pitt.dbmi.data.reader.covariance.CovarianceData;
 import edu.pitt.dbmi.data.reader.metadata.ColumnMetadata;
 import edu.pitt.dbmi.data.reader.metadata.Metadata;
 import edu.pitt.dbmi.data.reader.tabular.MixedTabularData;
 import edu.pitt.dbmi.data.reader.tabular.VerticalDiscreteTabularData;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -182,6 +188,48 @@ public class DataConvertUtils {
         return new BoxDataSet(dataBox, variables);
     }
 
+    /**
+     * Maps a columnar binary file (see ColumnarBinaryFile) as a data set
+     * without reading it onto the heap. The variables, their types and any
+     * knowledge saved with the file are restored.
+     */
+    public static DataSet toMemoryMappedDataModel(Path binaryFile) throws IOException {
+        MemoryMappedDataBox dataBox = new MemoryMappedDataBox(binaryFile);
+        DataSet dataSet = new BoxDataSet(dataBox, dataBox.getVariables());
+
+        if (dataBox.getKnowledge() != null) {
+            dataSet.setKnowledge(new DataReader().parseKnowledge(dataBox.getKnowledge().toCharArray()));
+        }
+
+        return dataSet;
+    }
+
+    /**
+     * Loads the covariance matrix saved in a columnar binary file (see
+     * ColumnarBinaryFile), with any knowledge saved with it.
+     */
+    public static CovarianceMatrix toCovarianceMatrix(Path binaryFile) throws IOException {
+        try (ColumnarBinaryFile file = ColumnarBinaryFile.open(binaryFile)) {
+            if (!file.hasCovariances()) {
+                throw new IllegalArgumentException("No covariance matrix is saved in " + binaryFile + ".");
+            }
+
+            int numOfCols = file.getNumberOfColumns();
+            double[][] matrix = new double[numOfCols][numOfCols];
+            for (int i = 0; i < numOfCols; i++) {
+                file.readCovariances(i, matrix[i]);
+            }
+
+            CovarianceMatrix covMatrix = new CovarianceMatrix(toNodes(file.getColumnNames()), matrix, file.getCovarianceSampleSize());
+
+            if (file.getKnowledge() != null) {
+                covMatrix.setKnowledge(new DataReader().parseKnowledge(file.getKnowledge().toCharArray()));
+            }
+
+            return covMatrix;
+        }
+    }
+
     public static List<Node> toNodes(List<String> variables) {
         return variables.stream()
                 .map(ContinuousVariable::new)
@@ -24,12 +24,12 @@ package edu.cmu.tetrad.util;
 import java.util.concurrent.ForkJoinPool;
 
 /**
- * Static instance of a ForkJoinPool. Not sure this is necessary.
+ * Static instance of a ForkJoinPool. The pool is now the one held by ComputeExecutor, so that legacy callers
+ * share its parallelism budget; new code should use ComputeExecutor directly.
  * Created by josephramsey on 2/7/15.
  */
 public class ForkJoinPoolInstance {
     private static final ForkJoinPoolInstance INSTANCE = new ForkJoinPoolInstance();
-    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
     private ForkJoinPoolInstance() {
 
@@ -40,7 +40,7 @@ public class ForkJoinPoolInstance {
     }
 
     public ForkJoinPool getPool() {
-        return pool;
+        return ComputeExecutor.getInstance().getPool();
     }
 }
 
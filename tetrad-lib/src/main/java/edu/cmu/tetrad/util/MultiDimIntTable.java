@@ -133,7 +133,6 @@ public class MultiDimIntTable {
      *               should be incremented (an integer).
      * @return the new value at that table cell.
      */
-    @SuppressWarnings({"UnusedDeclaration"})
     public synchronized long setValue(int[] coords, int value) {
         int cellIndex = getCellIndex(coords);
         cells.put(cellIndex, (long) value);
@@ -41,6 +41,8 @@ public final class Params {
     public static final String APPLY_R1 = "applyR1";
     public static final String AVG_DEGREE = "avgDegree";
     public static final String BASIS_TYPE = "basisType";
+    public static final String CACHE_DISCRETE_COUNTS = "cacheDiscreteCounts";
+    public static final String CACHE_SCORES = "cacheScores";
     public static final String CCI_SCORE_ALPHA = "cciScoreAlpha";
     public static final String CG_EXACT = "cgExact";
     public static final String COEF_HIGH = "coefHigh";
@@ -61,6 +63,7 @@ public final class Params {
     public static final String DEPTH = "depth";
     public static final String DETERMINISM_THRESHOLD = "determinismThreshold";
     public static final String DIFFERENT_GRAPHS = "differentGraphs";
+    public static final String DISCRETE_COUNTS_BACKEND = "discreteCountsBackend";
     public static final String DISCRETIZE = "discretize";
     public static final String DO_COLLIDER_ORIENTATION = "doColliderOrientation";
     public static final String ERRORS_NORMAL = "errorsNormal";
@@ -101,6 +104,7 @@ public final class Params {
     public static final String KCI_CUTOFF = "kciCutoff";
     public static final String KCI_EPSILON = "kciEpsilon";
     public static final String KCI_NUM_BOOTSTRAPS = "kciNumBootstraps";
+    public static final String KCI_RANK = "kciRank";
     public static final String KCI_USE_APPROMATION = "kciUseAppromation";
     public static final String KERNEL_MULTIPLIER = "kernelMultiplier";
     public static final String KERNEL_REGRESSION_SAMPLE_SIZE = "kernelRegressionSampleSize";
@@ -143,6 +147,7 @@ public final class Params {
     public static final String ORIENT_TOWARD_DCONNECTIONS = "orientTowardDConnections";
     public static final String ORIENT_VISIBLE_FEEDBACK_LOOPS = "orientVisibleFeedbackLoops";
     public static final String OUTPUT_RBD = "outputRBD";
+    public static final String PARALLEL_SIMULATION = "parallelSimulation";
     public static final String PARALLELISM = "parallelism";
     public static final String PENALTY_DISCOUNT = "penaltyDiscount";
     public static final String EBIC_GAMMA = "ebicGamma";
@@ -163,7 +168,9 @@ public final class Params {
     public static final String SCALE_FREE_BETA = "scaleFreeBeta";
     public static final String SCALE_FREE_DELTA_IN = "scaleFreeDeltaIn";
     public static final String SCALE_FREE_DELTA_OUT = "scaleFreeDeltaOut";
+    public static final String SCORE_CACHE_SIZE = "scoreCacheSize";
     public static final String SELF_LOOP_COEF = "selfLoopCoef";
+    public static final String SIMULATION_SEED = "simulationSeed";
     public static final String SKIP_NUM_RECORDS = "skipNumRecords";
     public static final String STABLE_FAS = "stableFAS";
     public static final String STANDARDIZE = "standardize";
@@ -200,12 +207,12 @@ public final class Params {
 
     // All parameters that are found in HTML manual documentation
     private static final Set<String> ALL_PARAMS_IN_HTML_MANUAL = new HashSet<>(Arrays.asList(
-            ADD_ORIGINAL_DATASET, ALPHA, APPLY_R1, AVG_DEGREE, BASIS_TYPE,
+            ADD_ORIGINAL_DATASET, ALPHA, APPLY_R1, AVG_DEGREE, BASIS_TYPE, CACHE_DISCRETE_COUNTS, CACHE_SCORES,
             CCI_SCORE_ALPHA, CG_EXACT, COEF_HIGH, COEF_LOW, COEF_SYMMETRIC,
             COLLIDER_DISCOVERY_RULE, COMPLETE_RULE_SET_USED, CONCURRENT_FAS,
             CONFLICT_RULE, CONNECTED, COV_HIGH, COV_LOW, COV_SYMMETRIC,
             CUTOFF_CONSTRAIN_SEARCH, CUTOFF_DATA_SEARCH, CUTOFF_IND_TEST,
-            DATA_TYPE, DEPTH, DETERMINISM_THRESHOLD, DIFFERENT_GRAPHS, DISCRETIZE,
+            DATA_TYPE, DEPTH, DETERMINISM_THRESHOLD, DIFFERENT_GRAPHS, DISCRETE_COUNTS_BACKEND, DISCRETIZE,
             DO_COLLIDER_ORIENTATION, ERRORS_NORMAL, SKEW_EDGE_THRESHOLD,
             FAITHFULNESS_ASSUMED, FAS_RULE, FISHER_EPSILON, GENERAL_SEM_ERROR_TEMPLATE,
             GENERAL_SEM_FUNCTION_TEMPLATE_LATENT, GENERAL_SEM_FUNCTION_TEMPLATE_MEASURED,
@@ -213,7 +220,7 @@ public final class Params {
             INCLUDE_NEGATIVE_SKEWS_FOR_BETA, INCLUDE_POSITIVE_COEFS,
             INCLUDE_POSITIVE_SKEWS_FOR_BETA, INCLUDE_STRUCTURE_MODEL,
             INTERVAL_BETWEEN_RECORDINGS, INTERVAL_BETWEEN_SHOCKS, IPEN, IS, ITR,
-            KCI_ALPHA, KCI_CUTOFF, KCI_EPSILON, KCI_NUM_BOOTSTRAPS, KCI_USE_APPROMATION,
+            KCI_ALPHA, KCI_CUTOFF, KCI_EPSILON, KCI_NUM_BOOTSTRAPS, KCI_RANK, KCI_USE_APPROMATION,
             KERNEL_MULTIPLIER, KERNEL_REGRESSION_SAMPLE_SIZE, KERNEL_TYPE, KERNEL_WIDTH,
             LATENT_MEASURED_IMPURE_PARENTS, LOWER_BOUND, MAX_CATEGORIES, MAX_DEGREE,
             MAX_DISTINCT_VALUES_DISCRETE, MAX_INDEGREE, MAX_ITERATIONS, MAX_OUTDEGREE,
@@ -224,13 +231,13 @@ public final class Params {
             NUM_BSC_BOOTSTRAP_SAMPLES, NUM_CATEGORIES, NUM_CATEGORIES_TO_DISCRETIZE, NUM_LAGS,
             NUM_LATENTS, NUM_MEASURES, NUM_RANDOMIZED_SEARCH_MODELS, NUM_RUNS,
             NUM_STRUCTURAL_EDGES, NUM_STRUCTURAL_NODES, NUMBER_RESAMPLING,
-            ORIENT_TOWARD_DCONNECTIONS, ORIENT_VISIBLE_FEEDBACK_LOOPS, OUTPUT_RBD,
+            ORIENT_TOWARD_DCONNECTIONS, ORIENT_VISIBLE_FEEDBACK_LOOPS, OUTPUT_RBD, PARALLEL_SIMULATION,
             PENALTY_DISCOUNT, PERCENT_DISCRETE, PERCENT_RESAMPLE_SIZE, POSSIBLE_DSEP_DONE,
             PROB_CYCLE, PROB_TWO_CYCLE, RANDOM_SELECTION_SIZE, RANDOMIZE_COLUMNS,
             RCIT_NUM_FEATURES, RESAMPLING_ENSEMBLE, RESAMPLING_WITH_REPLACEMENT, PRIOR_EQUIVALENT_SAMPLE_SIZE,
             SAMPLE_SIZE, SAVE_LATENT_VARS, SCALE_FREE_ALPHA, SCALE_FREE_BETA, SCALE_FREE_DELTA_IN,
-            SCALE_FREE_DELTA_OUT, SELF_LOOP_COEF, SKIP_NUM_RECORDS, STABLE_FAS, STANDARDIZE,
-            STRUCTURE_PRIOR, SYMMETRIC_FIRST_STEP, TARGET_NAME, THR, THRESHOLD_FOR_NUM_EIGENVALUES,
+            SCALE_FREE_DELTA_OUT, SCORE_CACHE_SIZE, SELF_LOOP_COEF, SIMULATION_SEED, SKIP_NUM_RECORDS, STABLE_FAS,
+            STANDARDIZE, STRUCTURE_PRIOR, SYMMETRIC_FIRST_STEP, TARGET_NAME, THR, THRESHOLD_FOR_NUM_EIGENVALUES,
             THRESHOLD_NO_RANDOM_CONSTRAIN_SEARCH, THRESHOLD_NO_RANDOM_DATA_SEARCH, TWO_CYCLE_ALPHA,
             UPPER_BOUND, USE_CORR_DIFF_ADJACENCIES, USE_FAS_ADJACENCIES, USE_GAP,
             USE_MAX_P_ORIENTATION_HEURISTIC, USE_SKEW_ADJACENCIES, USE_WISHART, VAR_HIGH,
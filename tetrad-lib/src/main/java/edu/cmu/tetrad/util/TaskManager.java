@@ -9,7 +9,7 @@ package edu.cmu.tetrad.util;
 public class TaskManager {
     private static TaskManager instance = new TaskManager();
 
-    private boolean canceled;
+    private volatile boolean canceled;
 
     public static TaskManager getInstance() {
         return instance;
@@ -29,7 +29,7 @@ import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
-import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.pitt.csb.mgm.MGM;
 import edu.pitt.csb.mgm.MixedUtils;
 
@@ -38,7 +38,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
 
 /**
@@ -78,7 +77,7 @@ public class StabilityUtils {
 
         final int[][] samps = subSampleNoReplacement(data.getNumRows(), b, N);
 
-        final ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+        final ComputeExecutor executor = ComputeExecutor.getInstance();
 
         class StabilityAction extends RecursiveAction{
             private int chunk;
@@ -128,7 +127,7 @@ public class StabilityUtils {
 
         final int chunk = 2;
 
-        pool.invoke(new StabilityAction(chunk, 0, N));
+        executor.invoke(new StabilityAction(chunk, 0, N));
 
         thetaMat.assign(Functions.mult(1.0 / N));
 
@@ -16,9 +16,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import edu.cmu.tetrad.bayes.BayesIm;
@@ -47,6 +44,7 @@ import edu.cmu.tetrad.search.GraphSearch;
 import edu.cmu.tetrad.search.IndTestProbabilistic;
 import edu.cmu.tetrad.search.Rfci;
 import edu.cmu.tetrad.search.SearchGraphUtils;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.TetradLogger;
 import edu.pitt.dbmi.algo.bayesian.constraint.inference.BCInference;
 
@@ -195,19 +193,8 @@ public class RfciBsc implements GraphSearch {
 				tasks.add(new SearchPagTask());
 			}
 
-			ExecutorService pool = Executors.newWorkStealingPool(Runtime.getRuntime().availableProcessors());
-
-	        try {
-	            pool.invokeAll(tasks);
-	        } catch (InterruptedException exception) {
-	        	if(verbose) {
-	                logger.log("error","Task has been interrupted");
-	        	}
-	            Thread.currentThread().interrupt();
-	        }
-
-	        shutdownAndAwaitTermination(pool);
-	        trial++;
+			ComputeExecutor.getInstance().invokeAll(tasks);
+			trial++;
 		}
 		
 		// Failed to generate a list of qualified constraints
@@ -262,18 +249,7 @@ public class RfciBsc implements GraphSearch {
 			tasks.add(new BootstrapDepDataTask(b,rows));
 		}
 
-		ExecutorService pool = Executors.newWorkStealingPool(Runtime.getRuntime().availableProcessors());
-
-        try {
-            pool.invokeAll(tasks);
-        } catch (InterruptedException exception) {
-        	if(verbose) {
-                logger.log("error","Task has been interrupted");
-        	}
-            Thread.currentThread().interrupt();
-        }
-
-        shutdownAndAwaitTermination(pool);
+		ComputeExecutor.getInstance().invokeAll(tasks);
 
 		// learn structure of constraints using empirical data => constraint data
 		BDeuScore sd = new BDeuScore(depData);
@@ -336,18 +312,7 @@ public class RfciBsc implements GraphSearch {
 			tasks.add(new CalculateBscScoreTask(pagOrig));
 		}
 		
-		pool = Executors.newWorkStealingPool(Runtime.getRuntime().availableProcessors());
-
-        try {
-            pool.invokeAll(tasks);
-        } catch (InterruptedException exception) {
-        	if(verbose) {
-                logger.log("error","Task has been interrupted");
-        	}
-            Thread.currentThread().interrupt();
-        }
-
-        shutdownAndAwaitTermination(pool);
+		ComputeExecutor.getInstance().invokeAll(tasks);
 		
 		for (int i = 0; i < pAGs.size(); i++) {
 			Graph pagOrig = pAGs.get(i);
@@ -738,25 +703,6 @@ public class RfciBsc implements GraphSearch {
 		return bscI;
 	}
 
-    private void shutdownAndAwaitTermination(ExecutorService pool) {
-        pool.shutdown(); // Disable new tasks from being submitted
-        try {
-            // Wait a while for existing tasks to terminate
-            if (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
-                pool.shutdownNow(); // Cancel currently executing tasks
-                // Wait a while for tasks to respond to being cancelled
-                if (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
-                    System.err.println("Pool did not terminate");
-                }
-            }
-        } catch (InterruptedException ie) {
-            // (Re-)Cancel if current thread also interrupted
-            pool.shutdownNow();
-            // Preserve interrupt status
-            Thread.currentThread().interrupt();
-        }
-    }
-
     /**
      * Sets whether verbose output should be produced.
      */
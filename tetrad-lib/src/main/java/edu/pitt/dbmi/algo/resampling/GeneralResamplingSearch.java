@@ -3,12 +3,15 @@
  */
 package edu.pitt.dbmi.algo.resampling;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import edu.cmu.tetrad.algcomparison.algorithm.Algorithm;
 import edu.cmu.tetrad.algcomparison.algorithm.MultiDataSetAlgorithm;
@@ -18,6 +21,10 @@ import edu.cmu.tetrad.data.DataUtils;
 import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.Checkpoint;
+import edu.cmu.tetrad.util.ComputeExecutor;
 import edu.cmu.tetrad.util.Parameters;
 import edu.pitt.dbmi.algo.resampling.task.GeneralResamplingSearchRunnable;
 
@@ -43,13 +50,21 @@ public class GeneralResamplingSearch {
 	
 	private boolean addOriginalDataset = false;
 
-	private boolean verbose = false;
+	private boolean resamplingViews = true;
 
-	private List<Graph> PAGs = Collections.synchronizedList(new ArrayList<>());
+	/**
+	 * Where the graph of each resampling is saved as it finishes, or null if
+	 * graphs are not saved.
+	 */
+	private Checkpoint checkpoint = null;
+
+	private boolean resume = false;
 
-	// private ForkJoinPool pool = null;
+	private final AtomicInteger numSaved = new AtomicInteger();
 
-	private final ExecutorService pool;
+	private boolean verbose = false;
+
+	private List<Graph> PAGs = Collections.synchronizedList(new ArrayList<>());
 
 	private DataSet data = null;
 
@@ -71,18 +86,27 @@ public class GeneralResamplingSearch {
 
 	public GeneralResamplingSearch(DataSet data) {
 		this.data = data;
-		// pool = ForkJoinPoolInstance.getInstance().getPool();
-		pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 	}
 
 	public GeneralResamplingSearch(List<DataSet> dataSets) {
 		this.dataSets = dataSets;
-		// pool = ForkJoinPoolInstance.getInstance().getPool();
-		pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 	}
 
 	public void addPAG(Graph pag) {
+		addPAG(pag, false);
+	}
+
+	/**
+	 * Adds the graph of a resampling, or of the search on the original data
+	 * set, saving it to the checkpoint directory if there is one.
+	 */
+	public void addPAG(Graph pag, boolean originalDataset) {
 		PAGs.add(pag);
+
+		if (checkpoint != null) {
+			String key = originalDataset ? "original" : "resampling." + numSaved.incrementAndGet();
+			checkpoint.save(key, GraphUtils.graphToText(pag));
+		}
 	}
 
 	public void setAlgorithm(Algorithm algorithm) {
@@ -115,6 +139,40 @@ public class GeneralResamplingSearch {
 		this.addOriginalDataset = addOriginalDataset;
 	}
 
+	/**
+	 * If true (the default), each resample is a view onto the rows of the
+	 * data, drawn as for a copied resample, rather than a copy of them.
+	 * Covariances of a view are computed from the distinct rows drawn, weighted
+	 * by the number of times each was drawn.
+	 * 
+	 * @see edu.cmu.tetrad.data.ResampledDataBox
+	 */
+	public void setResamplingViews(boolean resamplingViews) {
+		this.resamplingViews = resamplingViews;
+	}
+
+	/**
+	 * Saves the graph of each resampling to the given directory as it
+	 * finishes, so that a search that is stopped can be resumed. Null (the
+	 * default) if graphs are not to be saved.
+	 * 
+	 * @see #setResume(boolean)
+	 */
+	public void setCheckpointDirectory(File checkpointDirectory) {
+		this.checkpoint = checkpointDirectory == null ? null : new Checkpoint(checkpointDirectory);
+	}
+
+	/**
+	 * If true, graphs saved to the checkpoint directory by an earlier search,
+	 * with the same data, algorithm and parameters, are counted toward the
+	 * number of resamplings, and only the remaining resamplings are run. If
+	 * false (the default), graphs saved earlier are deleted when the search
+	 * starts.
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+
 	public void setVerbose(boolean verbose) {
 		this.verbose = verbose;
 	}
@@ -168,43 +226,28 @@ public class GeneralResamplingSearch {
 		PAGs.clear();
 		parameters.set("numberResampling", 0); // This needs to be set to zero to not loop indefinitely
 
+		int numberResampling = this.numberResampling;
+		boolean searchOriginalDataset = resamplingWithReplacement && addOriginalDataset;
+
+		if (checkpoint != null) {
+			numberResampling -= restoreResamplings();
+
+			if (searchOriginalDataset && restoreOriginalDataset()) {
+				searchOriginalDataset = false;
+			}
+
+			if (verbose && resume) {
+				out.println("Restored " + PAGs.size() + " graphs from " + checkpoint.getDirectory());
+			}
+		}
+
 		if (!this.runParallel) {
 			// Running in the sequential form
 			if (verbose) {
 				out.println("Running Resamplings in Sequential Mode, numberResampling = " + numberResampling);
 			}
-			for (int i1 = 0; i1 < this.numberResampling; i1++) {
-				GeneralResamplingSearchRunnable task = null;
-
-				// Bootstrapping
-				if (resamplingWithReplacement) {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getBootstrapSample(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getBootstrapSample(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				// Sub-sampling
-				} else {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getResamplingDataset(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getResamplingDataset(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				}
+			for (int i1 = 0; i1 < numberResampling; i1++) {
+				GeneralResamplingSearchRunnable task = resamplingTask();
 
 				if (initialGraph != null) {
 					task.setInitialGraph(initialGraph);
@@ -214,19 +257,8 @@ public class GeneralResamplingSearch {
 			}
 			
 			// Search again with original dataset
-			if (resamplingWithReplacement && addOriginalDataset) {
-				GeneralResamplingSearchRunnable task = null;
-				
-				if (data != null) {
-					task = new GeneralResamplingSearchRunnable(data, algorithm, parameters, this, verbose);
-				} else {
-					List<DataModel> dataModels = new ArrayList<>();
-					for (DataSet data : dataSets) {
-						dataModels.add(data);
-					}
-					task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-							verbose);
-				}
+			if (searchOriginalDataset) {
+				GeneralResamplingSearchRunnable task = originalDatasetTask();
 				
 				if (initialGraph != null) {
 					task.setInitialGraph(initialGraph);
@@ -241,117 +273,37 @@ public class GeneralResamplingSearch {
 				out.println("Running Resamplings in Parallel Mode, numberResampling = " + numberResampling);
 			}
 
-			for (int i1 = 0; i1 < this.numberResampling; i1++) {
-
-				GeneralResamplingSearchRunnable task = null;
-
-				// Bootstrapping
-				if (resamplingWithReplacement) {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getBootstrapSample(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getBootstrapSample(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				// Sub-sampling
-				} else {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getResamplingDataset(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getResamplingDataset(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				}
+			List<Callable<Object>> tasks = new ArrayList<>();
+
+			for (int i1 = 0; i1 < numberResampling; i1++) {
+
+				GeneralResamplingSearchRunnable task = resamplingTask();
 
 				if (initialGraph != null) {
 					task.setInitialGraph(initialGraph);
 				}
 				task.setKnowledge(knowledge);
-				pool.submit(task);
+				tasks.add(Executors.callable(task));
 			}
 			
 			// Search again with original dataset
-			if (resamplingWithReplacement && addOriginalDataset) {
-				GeneralResamplingSearchRunnable task = null;
-				
-				if (data != null) {
-					task = new GeneralResamplingSearchRunnable(data, algorithm, parameters, this, verbose);
-				} else {
-					List<DataModel> dataModels = new ArrayList<>();
-					for (DataSet data : dataSets) {
-						dataModels.add(data);
-					}
-					task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-							verbose);
-				}
+			if (searchOriginalDataset) {
+				GeneralResamplingSearchRunnable task = originalDatasetTask();
 				
 				if (initialGraph != null) {
 					task.setInitialGraph(initialGraph);
 				}
 				task.setKnowledge(knowledge);
-				pool.submit(task);
+				tasks.add(Executors.callable(task));
 			}
 
-			pool.shutdown();
-
-			while (!pool.isTerminated()) {
-				try {
-					Thread.sleep(1000);
-					// out.println("Waiting...");
-				} catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
-			}
-			// out.println("Is terminated: " + pool.isTerminated());
+			ComputeExecutor.getInstance().invokeAll(tasks);
 		}
 
 		// If the pool is prematurely terminated, do sequentially
 		if (PAGs == null || PAGs.size() == 0) {
-			for (int i1 = 0; i1 < this.numberResampling; i1++) {
-				GeneralResamplingSearchRunnable task = null;
-
-				// Bootstrapping
-				if (resamplingWithReplacement) {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getBootstrapSample(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getBootstrapSample(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				// Sub-sampling
-				} else {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getResamplingDataset(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getResamplingDataset(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				}
+			for (int i1 = 0; i1 < numberResampling; i1++) {
+				GeneralResamplingSearchRunnable task = resamplingTask();
 
 				if (initialGraph != null) {
 					task.setInitialGraph(initialGraph);
@@ -361,19 +313,8 @@ public class GeneralResamplingSearch {
 			}
 			
 			// Search again with original dataset
-			if (resamplingWithReplacement && addOriginalDataset) {
-				GeneralResamplingSearchRunnable task = null;
-				
-				if (data != null) {
-					task = new GeneralResamplingSearchRunnable(data, algorithm, parameters, this, verbose);
-				} else {
-					List<DataModel> dataModels = new ArrayList<>();
-					for (DataSet data : dataSets) {
-						dataModels.add(data);
-					}
-					task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-							verbose);
-				}
+			if (searchOriginalDataset) {
+				GeneralResamplingSearchRunnable task = originalDatasetTask();
 				
 				if (initialGraph != null) {
 					task.setInitialGraph(initialGraph);
@@ -389,4 +330,96 @@ public class GeneralResamplingSearch {
 		return PAGs;
 	}
 
+	private GeneralResamplingSearchRunnable resamplingTask() {
+		if (data != null) {
+			return new GeneralResamplingSearchRunnable(resample(data), algorithm, parameters, this, verbose);
+		} else {
+			List<DataModel> dataModels = new ArrayList<>();
+			for (DataSet data : dataSets) {
+				dataModels.add(resample(data));
+			}
+			return new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this, verbose);
+		}
+	}
+
+	private GeneralResamplingSearchRunnable originalDatasetTask() {
+		GeneralResamplingSearchRunnable task;
+
+		if (data != null) {
+			task = new GeneralResamplingSearchRunnable(data, algorithm, parameters, this, verbose);
+		} else {
+			List<DataModel> dataModels = new ArrayList<>();
+			for (DataSet data : dataSets) {
+				dataModels.add(data);
+			}
+			task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this, verbose);
+		}
+
+		task.setOriginalDataset(true);
+		return task;
+	}
+
+	/**
+	 * Adds the graphs of resamplings saved by an earlier search, if resuming,
+	 * or deletes them otherwise.
+	 * 
+	 * @return the number of graphs added.
+	 */
+	private int restoreResamplings() {
+		if (!resume) {
+			checkpoint.clear();
+			numSaved.set(0);
+			return 0;
+		}
+
+		List<String> keys = checkpoint.getKeys("resampling.");
+		int numRestored = Math.min(keys.size(), this.numberResampling);
+
+		for (int i = 0; i < numRestored; i++) {
+			PAGs.add(loadGraph(keys.get(i)));
+		}
+
+		numSaved.set(keys.size());
+		return numRestored;
+	}
+
+	/**
+	 * Adds the graph of the search on the original data set, if resuming and
+	 * it was saved by an earlier search.
+	 * 
+	 * @return true if the graph was added.
+	 */
+	private boolean restoreOriginalDataset() {
+		if (!resume || !checkpoint.contains("original")) {
+			return false;
+		}
+
+		PAGs.add(loadGraph("original"));
+		return true;
+	}
+
+	private Graph loadGraph(String key) {
+		List<Node> variables = data != null ? data.getVariables() : dataSets.get(0).getVariables();
+
+		try {
+			return GraphUtils.replaceNodes(GraphUtils.readerToGraphTxt(checkpoint.load(key)), variables);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not read the saved graph " + key, e);
+		}
+	}
+
+	private DataSet resample(DataSet data) {
+		int sampleSize = (int) (data.getNumRows() * percentResampleSize / 100.0);
+
+		// Bootstrapping
+		if (resamplingWithReplacement) {
+			return resamplingViews ? DataUtils.getBootstrapSampleView(data, sampleSize)
+					: DataUtils.getBootstrapSample(data, sampleSize);
+		// Sub-sampling
+		} else {
+			return resamplingViews ? DataUtils.getResamplingDatasetView(data, sampleSize)
+					: DataUtils.getResamplingDataset(data, sampleSize);
+		}
+	}
+
 }
@@ -11,6 +11,7 @@ import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
 import edu.cmu.tetrad.util.RandomUtil;
+import java.io.File;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -103,6 +104,30 @@ public class GeneralResamplingTest {
 		this.resamplingSearch.setNumberResampling(numberResampling);
 	}
 
+	/**
+	 * Saves the graph of each resampling to the given directory as it
+	 * finishes; null (the default) to not save them.
+	 */
+	public void setCheckpointDirectory(File checkpointDirectory) {
+		this.resamplingSearch.setCheckpointDirectory(checkpointDirectory);
+	}
+
+	/**
+	 * If true, resamplings saved to the checkpoint directory by an earlier
+	 * search are reused, and only the remaining ones are run.
+	 */
+	public void setResume(boolean resume) {
+		this.resamplingSearch.setResume(resume);
+	}
+
+	/**
+	 * If true (the default), resamples are views onto the rows of the data
+	 * rather than copies.
+	 */
+	public void setResamplingViews(boolean resamplingViews) {
+		this.resamplingSearch.setResamplingViews(resamplingViews);
+	}
+
 	/**
 	 * Sets the background knowledge.
 	 *
@@ -37,6 +37,8 @@ public class GeneralResamplingSearchRunnable implements Runnable {
 
 	private boolean verbose;
 
+	private boolean originalDataset = false;
+
 	/**
 	 * An initial graph to start from.
 	 */
@@ -87,6 +89,14 @@ public class GeneralResamplingSearchRunnable implements Runnable {
 		this.knowledge = knowledge;
 	}
 
+	/**
+	 * Sets whether the search is on the original data set rather than on a
+	 * resampling of it.
+	 */
+	public void setOriginalDataset(boolean originalDataset) {
+		this.originalDataset = originalDataset;
+	}
+
 	public Graph getInitialGraph() {
 		return initialGraph;
 	}
@@ -148,7 +158,7 @@ public class GeneralResamplingSearchRunnable implements Runnable {
 			out.println("processing time of resampling for a thread was: "
 					+ (stop - start) / 1000.0 + " sec");
 		}
-		resamplingAlgorithmSearch.addPAG(graph);
+		resamplingAlgorithmSearch.addPAG(graph, originalDataset);
 	}
 
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2019 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.cmu.tetrad.bayes;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.util.RandomUtil;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the compiled junction tree against brute-force enumeration of the
+ * joint distribution.
+ *
+ * @author Joseph Ramsey
+ */
+public class CompiledJunctionTreeTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testMarginalsAgainstEnumeration() {
+        RandomUtil.getInstance().setSeed(38472934L);
+
+        for (int trial = 0; trial < 5; trial++) {
+            Graph graph = new Dag(GraphUtils.randomGraph(8, 0, 10, 4, 3, 3, false));
+            BayesIm bayesIm = new MlBayesIm(new BayesPm(graph, 2, 3), MlBayesIm.RANDOM);
+            CompiledJunctionTree tree = new CompiledJunctionTree(bayesIm);
+
+            int[][] evidence = randomEvidence(bayesIm, 50);
+            double[][][] marginals = tree.getMarginals(evidence);
+            double[] logProbs = tree.getLogProbabilitiesOfEvidence(evidence);
+
+            for (int row = 0; row < evidence.length; row++) {
+                double[][] expected = enumerate(bayesIm, evidence[row]);
+                double probOfEvidence = Arrays.stream(expected[0]).sum();
+
+                Assert.assertEquals(Math.log(probOfEvidence), logProbs[row], TOLERANCE);
+
+                for (int iNode = 0; iNode < bayesIm.getNumNodes(); iNode++) {
+                    for (int value = 0; value < expected[iNode].length; value++) {
+                        Assert.assertEquals(expected[iNode][value] / probOfEvidence,
+                                marginals[row][iNode][value], TOLERANCE);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalEvidence() {
+        RandomUtil.getInstance().setSeed(2938472L);
+
+        Graph graph = new Dag(GraphUtils.randomGraph(10, 0, 14, 4, 3, 3, true));
+        BayesIm bayesIm = new MlBayesIm(new BayesPm(graph, 2, 2), MlBayesIm.RANDOM);
+        CompiledJunctionTree tree = new CompiledJunctionTree(bayesIm);
+
+        // one query carried through a sequence of small evidence changes should
+        // agree with a fresh query for each evidence vector
+        CompiledJunctionTree.Query query = tree.newQuery();
+        int[] evidence = new int[bayesIm.getNumNodes()];
+        Arrays.fill(evidence, -1);
+
+        for (int step = 0; step < 100; step++) {
+            int iNode = RandomUtil.getInstance().nextInt(evidence.length);
+            evidence[iNode] = RandomUtil.getInstance().nextInt(3) - 1;
+            query.setEvidence(iNode, evidence[iNode]);
+
+            CompiledJunctionTree.Query fresh = tree.newQuery();
+            fresh.setEvidence(evidence);
+
+            int target = RandomUtil.getInstance().nextInt(evidence.length);
+            Assert.assertArrayEquals(fresh.getMarginal(target), query.getMarginal(target), TOLERANCE);
+            Assert.assertEquals(fresh.getLogProbabilityOfEvidence(), query.getLogProbabilityOfEvidence(), TOLERANCE);
+        }
+    }
+
+    private int[][] randomEvidence(BayesIm bayesIm, int numRows) {
+        int numNodes = bayesIm.getNumNodes();
+        int[][] evidence = new int[numRows][numNodes];
+
+        for (int row = 0; row < numRows; row++) {
+            for (int iNode = 0; iNode < numNodes; iNode++) {
+                evidence[row][iNode] = RandomUtil.getInstance().nextDouble() < 0.3
+                        ? RandomUtil.getInstance().nextInt(bayesIm.getNumColumns(iNode))
+                        : -1;
+            }
+        }
+
+        return evidence;
+    }
+
+    /**
+     * @return unnormalized[node][value], the probability of the node taking the
+     * value together with the evidence
+     */
+    private double[][] enumerate(BayesIm bayesIm, int[] evidence) {
+        int numNodes = bayesIm.getNumNodes();
+        double[][] joint = new double[numNodes][];
+        for (int iNode = 0; iNode < numNodes; iNode++) {
+            joint[iNode] = new double[bayesIm.getNumColumns(iNode)];
+        }
+
+        int[] values = new int[numNodes];
+        while (true) {
+            boolean consistent = true;
+            for (int iNode = 0; iNode < numNodes; iNode++) {
+                if (evidence[iNode] >= 0 && evidence[iNode] != values[iNode]) {
+                    consistent = false;
+                    break;
+                }
+            }
+
+            if (consistent) {
+                double prob = 1;
+                for (int iNode = 0; iNode < numNodes; iNode++) {
+                    int[] parents = bayesIm.getParents(iNode);
+                    int[] parentValues = new int[parents.length];
+                    for (int j = 0; j < parents.length; j++) {
+                        parentValues[j] = values[parents[j]];
+                    }
+                    prob *= bayesIm.getProbability(iNode, bayesIm.getRowIndex(iNode, parentValues), values[iNode]);
+                }
+
+                for (int iNode = 0; iNode < numNodes; iNode++) {
+                    joint[iNode][values[iNode]] += prob;
+                }
+            }
+
+            int j = numNodes - 1;
+            while (j >= 0 && ++values[j] == bayesIm.getNumColumns(j)) {
+                values[j] = 0;
+                j--;
+            }
+
+            if (j < 0) {
+                return joint;
+            }
+        }
+    }
+
+}
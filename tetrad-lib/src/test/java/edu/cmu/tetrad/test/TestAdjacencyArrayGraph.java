@@ -0,0 +1,149 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.search.Fges;
+import edu.cmu.tetrad.search.SearchGraphUtils;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests AdjacencyArrayGraph by comparison to EdgeListGraph. The tests of the Graph interface in
+ * TestEdgeListGraph are run over both implementations.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestAdjacencyArrayGraph {
+
+    @Test
+    public void testOneEdgePerPair() {
+        Node x1 = new GraphNode("x1");
+        Node x2 = new GraphNode("x2");
+        Graph graph = new AdjacencyArrayGraph(Arrays.asList(x1, x2));
+
+        // Unlike EdgeListGraph, a second edge between the same nodes is refused.
+        assertTrue(graph.addDirectedEdge(x1, x2));
+        assertFalse(graph.addDirectedEdge(x2, x1));
+        assertEquals(1, graph.getNumEdges());
+    }
+
+    // EdgeListGraph.existsDirectedPathFromTo(node, node) does not follow a path back to its start, so this is
+    // not among the tests shared with EdgeListGraph.
+    @Test
+    public void testDirectedCycle() {
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            nodes.add(new GraphNode("x" + (i + 1)));
+        }
+
+        Graph graph = new AdjacencyArrayGraph(nodes);
+        graph.addDirectedEdge(nodes.get(0), nodes.get(2));
+        graph.addDirectedEdge(nodes.get(2), nodes.get(4));
+        assertFalse(graph.existsDirectedCycle());
+        assertTrue(graph.findCycle().isEmpty());
+
+        graph.addDirectedEdge(nodes.get(4), nodes.get(0));
+        assertTrue(graph.existsDirectedCycle());
+        assertFalse(graph.findCycle().isEmpty());
+    }
+
+    @Test
+    public void testCompareToEdgeListGraph() {
+        RandomUtil.getInstance().setSeed(2938475L);
+
+        for (int run = 0; run < 10; run++) {
+            Graph dag = GraphUtils.randomGraph(20, 0, 30, 10, 10, 10, false);
+            Graph pattern = SearchGraphUtils.patternForDag(dag);
+
+            for (Graph expected : new Graph[]{dag, pattern}) {
+                Graph expected2 = new EdgeListGraph(expected);
+                Graph actual = new AdjacencyArrayGraph(expected);
+
+                List<Node> nodes = expected.getNodes();
+                Node removed = nodes.get(run);
+                expected2.removeNode(removed);
+                actual.removeNode(removed);
+                nodes.remove(removed);
+
+                assertEquals(expected2, actual);
+                assertEquals(expected2.getNumEdges(), actual.getNumEdges());
+
+                for (Node x : nodes) {
+                    assertEquals(expected2.getParents(x), actual.getParents(x));
+                    assertEquals(expected2.getChildren(x), actual.getChildren(x));
+                    assertEquals(expected2.getAdjacentNodes(x), actual.getAdjacentNodes(x));
+                    assertEquals(expected2.getIndegree(x), actual.getIndegree(x));
+                    assertEquals(expected2.getOutdegree(x), actual.getOutdegree(x));
+                    assertEquals(expected2.getAncestors(Collections.singletonList(x)),
+                            actual.getAncestors(Collections.singletonList(x)));
+                    assertEquals(expected2.getDescendants(Collections.singletonList(x)),
+                            actual.getDescendants(Collections.singletonList(x)));
+
+                    for (Node y : nodes) {
+                        if (x == y) continue;
+                        assertEquals(expected2.getEdge(x, y), actual.getEdge(x, y));
+                        assertEquals(expected2.getEndpoint(x, y), actual.getEndpoint(x, y));
+                        assertEquals(expected2.isAncestorOf(x, y), actual.isAncestorOf(x, y));
+                        assertEquals(expected2.existsDirectedPathFromTo(x, y), actual.existsDirectedPathFromTo(x, y));
+                        assertEquals(expected2.possibleAncestor(x, y), actual.possibleAncestor(x, y));
+                        assertEquals(expected2.existsTrek(x, y), actual.existsTrek(x, y));
+                        assertEquals(expected2.isDConnectedTo(x, y, Collections.<Node>emptyList()),
+                                actual.isDConnectedTo(x, y, Collections.<Node>emptyList()));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFges() {
+        RandomUtil.getInstance().setSeed(3829483L);
+
+        Graph dag = GraphUtils.randomGraph(20, 0, 30, 10, 10, 10, false);
+        DataSet data = new SemIm(new SemPm(dag)).simulateData(1000, false);
+        SemBicScore score = new SemBicScore(new CovarianceMatrix(data));
+
+        Fges fges1 = new Fges(score);
+        Graph pattern1 = fges1.search();
+
+        Fges fges2 = new Fges(score);
+        fges2.setUseAdjacencyArrayGraph(true);
+        Graph pattern2 = fges2.search();
+
+        assertTrue(pattern2 instanceof EdgeListGraph);
+        assertEquals(pattern1, pattern2);
+    }
+}
@@ -0,0 +1,210 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.algcomparison.Comparison;
+import edu.cmu.tetrad.algcomparison.algorithm.Algorithms;
+import edu.cmu.tetrad.algcomparison.algorithm.oracle.pattern.Fges;
+import edu.cmu.tetrad.algcomparison.graph.RandomForward;
+import edu.cmu.tetrad.algcomparison.score.SemBicScore;
+import edu.cmu.tetrad.algcomparison.simulation.SemSimulation;
+import edu.cmu.tetrad.algcomparison.simulation.Simulations;
+import edu.cmu.tetrad.algcomparison.statistic.AdjacencyPrecision;
+import edu.cmu.tetrad.algcomparison.statistic.ArrowheadRecall;
+import edu.cmu.tetrad.algcomparison.statistic.Statistic;
+import edu.cmu.tetrad.algcomparison.statistic.Statistics;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.Checkpoint;
+import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.Params;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.pitt.dbmi.algo.resampling.GeneralResamplingTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests saving results as they finish and resuming from them.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestCheckpoint {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Checkpoint checkpoint = new Checkpoint(tmpDir.newFolder("checkpoint"));
+
+        checkpoint.save("run.2", "b");
+        checkpoint.save("run.1", "a");
+        checkpoint.save("other", "c");
+        checkpoint.save("run.2", "d");
+
+        assertEquals("a", checkpoint.load("run.1"));
+        assertEquals("d", checkpoint.load("run.2"));
+        assertNull(checkpoint.load("run.3"));
+        assertTrue(checkpoint.contains("other"));
+        assertEquals(Arrays.asList("run.1", "run.2"), checkpoint.getKeys("run."));
+
+        checkpoint.clear();
+        assertTrue(checkpoint.getKeys("").isEmpty());
+    }
+
+    @Test
+    public void testClearKeepsOtherFiles() throws IOException {
+        File dir = tmpDir.newFolder("shared");
+        File notes = new File(dir, "notes.txt");
+        File scratch = new File(dir, "scratch.tmp");
+        Files.write(notes.toPath(), "keep".getBytes());
+        Files.write(scratch.toPath(), "keep".getBytes());
+
+        Checkpoint checkpoint = new Checkpoint(dir);
+        checkpoint.save("run.1", "a");
+        checkpoint.clear();
+
+        assertFalse(checkpoint.contains("run.1"));
+        assertTrue(notes.exists());
+        assertTrue(scratch.exists());
+    }
+
+    @Test
+    public void testResumeResampling() throws IOException {
+        File dir = tmpDir.newFolder("resampling");
+        Checkpoint checkpoint = new Checkpoint(dir);
+        DataSet dataSet = simulate();
+
+        resample(dataSet, dir, 4, false);
+        assertEquals(4, checkpoint.getKeys("resampling.").size());
+
+        // Only the two missing resamplings are run.
+        resample(dataSet, dir, 6, true);
+        assertEquals(6, checkpoint.getKeys("resampling.").size());
+
+        resample(dataSet, dir, 3, false);
+        assertEquals(3, checkpoint.getKeys("resampling.").size());
+    }
+
+    @Test
+    public void testResumeComparison() throws IOException {
+        File results1 = tmpDir.newFolder("comparison1");
+        File results2 = tmpDir.newFolder("comparison2");
+        String checkpointPath = new File(results1, "checkpoint").getPath();
+
+        compare(results1, checkpointPath, false, new AdjacencyPrecision(), new ArrowheadRecall());
+        assertEquals(2, new Checkpoint(new File(checkpointPath)).getKeys("run.").size());
+
+        // Every run is restored, so the tables are the same.
+        compare(results2, checkpointPath, true, new AdjacencyPrecision(), new ArrowheadRecall());
+
+        // The tasks table at the end gives the time each run took, which differs.
+        List<String> lines1 = Files.readAllLines(new File(results1, "Comparison.txt").toPath());
+        List<String> lines2 = Files.readAllLines(new File(results2, "Comparison.txt").toPath());
+        assertEquals(lines1.subList(1, lines1.indexOf("Tasks:")), lines2.subList(1, lines2.indexOf("Tasks:")));
+    }
+
+    @Test
+    public void testResumeComparisonWithOtherStatistics() throws IOException {
+        File results1 = tmpDir.newFolder("comparison1");
+        File results2 = tmpDir.newFolder("comparison2");
+        String checkpointPath = new File(results1, "checkpoint").getPath();
+
+        compare(results1, checkpointPath, false, new AdjacencyPrecision(), new ArrowheadRecall());
+
+        // The saved runs have a statistic this comparison doesn't, so they are run again.
+        compare(results2, checkpointPath, true, new ArrowheadRecall());
+
+        Checkpoint checkpoint = new Checkpoint(new File(checkpointPath));
+        assertEquals(2, checkpoint.getKeys("run.").size());
+
+        for (String key : checkpoint.getKeys("run.")) {
+            assertTrue(checkpoint.load(key).contains("# Statistics:\tAHR\n"));
+        }
+    }
+
+    private void resample(DataSet dataSet, File dir, int numberResampling, boolean resume) {
+        Parameters parameters = new Parameters();
+        parameters.set(Params.PENALTY_DISCOUNT, 2);
+
+        GeneralResamplingTest test = new GeneralResamplingTest(dataSet, new Fges(new SemBicScore()), numberResampling);
+        test.setParameters(parameters);
+        test.setCheckpointDirectory(dir);
+        test.setResume(resume);
+        Graph graph = test.search();
+
+        assertEquals(dataSet.getNumColumns(), graph.getNumNodes());
+    }
+
+    private void compare(File resultsDir, String checkpointPath, boolean resume, Statistic... statisticList) {
+        Parameters parameters = new Parameters();
+        parameters.set(Params.NUM_RUNS, 2);
+        parameters.set(Params.NUM_MEASURES, 6);
+        parameters.set(Params.AVG_DEGREE, 2);
+        parameters.set(Params.SAMPLE_SIZE, 200);
+        parameters.set(Params.DIFFERENT_GRAPHS, true);
+
+        Simulations simulations = new Simulations();
+        simulations.add(new SemSimulation(new RandomForward()));
+
+        Algorithms algorithms = new Algorithms();
+        algorithms.add(new Fges(new SemBicScore()));
+
+        Statistics statistics = new Statistics();
+        for (Statistic statistic : statisticList) {
+            statistics.add(statistic);
+        }
+
+        Comparison comparison = new Comparison();
+        comparison.setCheckpointPath(checkpointPath);
+        comparison.setResume(resume);
+        comparison.compareFromSimulations(resultsDir.getPath(), simulations, algorithms, statistics, parameters);
+    }
+
+    private DataSet simulate() {
+        RandomUtil.getInstance().setSeed(3928410L);
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < 6; i++) {
+            nodes.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph graph = new Dag(GraphUtils.randomGraph(nodes, 0, 6, 30, 15, 15, false));
+        return new SemIm(new SemPm(graph)).simulateData(300, false);
+    }
+}
@@ -0,0 +1,125 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.algcomparison.ComparisonScheduler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * Tests the scheduler that runs comparison tasks.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestComparisonScheduler {
+
+    @Test
+    public void testCostOrder() {
+        ComparisonScheduler scheduler = new ComparisonScheduler(1, 0, TimeUnit.SECONDS);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        scheduler.add("a", 1, () -> order.add("a"));
+        scheduler.add("b", 3, () -> order.add("b"));
+        scheduler.add("c", 2, () -> order.add("c"));
+
+        List<ComparisonScheduler.Result> results = scheduler.runAll();
+
+        assertEquals("[b, c, a]", order.toString());
+        assertEquals("a", results.get(0).getName());
+
+        for (ComparisonScheduler.Result result : results) {
+            assertEquals(ComparisonScheduler.Status.COMPLETED, result.getStatus());
+            assertTrue(result.getWallSeconds() >= 0);
+            assertFalse(result.getCpuSeconds() < 0);
+            assertFalse(result.getAllocatedMegabytes() < 0);
+        }
+    }
+
+    @Test
+    public void testProcessWideMeter() throws InterruptedException {
+        ComparisonScheduler.Meter threadMeter = new ComparisonScheduler.Meter(false);
+        ComparisonScheduler.Meter processMeter = new ComparisonScheduler.Meter(true);
+
+        // The process meter starts first, so that the thread meter doesn't count its setup.
+        processMeter.start();
+        threadMeter.start();
+
+        // The work is done on another thread, as a search hands work to ComputeExecutor.
+        Thread worker = new Thread(() -> {
+            long end = System.nanoTime() + 300000000L;
+            double x = 0;
+
+            while (System.nanoTime() < end) {
+                x += Math.sqrt(x + 1);
+            }
+
+            assertTrue(x > 0);
+        });
+
+        worker.start();
+        worker.join();
+
+        threadMeter.stop();
+        processMeter.stop();
+
+        assumeFalse(Double.isNaN(threadMeter.getCpuSeconds()) || Double.isNaN(processMeter.getCpuSeconds()));
+        assertTrue(threadMeter.getCpuSeconds() < 0.1);
+        assertTrue(processMeter.getCpuSeconds() > 0.15);
+    }
+
+    @Test
+    public void testTimeoutAndFailure() {
+        ComparisonScheduler scheduler = new ComparisonScheduler(2, 200, TimeUnit.MILLISECONDS);
+        boolean[] sawTimeOut = new boolean[1];
+
+        scheduler.add("slow", 1, () -> {
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException e) {
+                sawTimeOut[0] = ComparisonScheduler.isCurrentTaskTimedOut();
+            }
+        });
+        scheduler.add("failing", 1, () -> {
+            throw new IllegalStateException("Failed on purpose.");
+        });
+        scheduler.add("fast", 1, () -> {
+        });
+
+        long start = System.currentTimeMillis();
+        List<ComparisonScheduler.Result> results = scheduler.runAll();
+
+        assertTrue(System.currentTimeMillis() - start < 30000);
+        assertEquals(ComparisonScheduler.Status.TIMED_OUT, results.get(0).getStatus());
+        assertEquals(ComparisonScheduler.Status.FAILED, results.get(1).getStatus());
+        assertEquals(ComparisonScheduler.Status.COMPLETED, results.get(2).getStatus());
+        assertTrue(sawTimeOut[0]);
+    }
+}
@@ -0,0 +1,138 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.search.IndTestDSep;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Joseph Ramsey
+ */
+public final class TestCompiledDSeparation {
+
+    @Test
+    public void testMatchesGraphUtils() {
+        RandomUtil.getInstance().setSeed(29384729L);
+        Endpoint[] endpoints = {Endpoint.TAIL, Endpoint.ARROW, Endpoint.CIRCLE};
+
+        for (int trial = 0; trial < 40; trial++) {
+            Graph graph = GraphUtils.randomGraph(12, 0, 18, 30, 15, 15, false);
+
+            // Every other graph gets arbitrary endpoints, so bidirected edges and circles are covered too.
+            if (trial % 2 == 1) {
+                for (Edge edge : graph.getEdges()) {
+                    graph.removeEdge(edge);
+                    graph.addEdge(new Edge(edge.getNode1(), edge.getNode2(),
+                            endpoints[RandomUtil.getInstance().nextInt(3)],
+                            endpoints[RandomUtil.getInstance().nextInt(3)]));
+                }
+            }
+
+            CompiledDSeparation dSeparation = new CompiledDSeparation(graph);
+            List<Node> nodes = graph.getNodes();
+
+            for (int q = 0; q < 100; q++) {
+                Node x = nodes.get(RandomUtil.getInstance().nextInt(nodes.size()));
+                Node y = nodes.get(RandomUtil.getInstance().nextInt(nodes.size()));
+                List<Node> z = new ArrayList<>();
+
+                for (Node node : nodes) {
+                    if (node != x && node != y && RandomUtil.getInstance().nextDouble() < 0.2) {
+                        z.add(node);
+                    }
+                }
+
+                boolean expected = GraphUtils.isDConnectedTo(x, y, z, graph);
+                assertEquals(expected, dSeparation.isDConnectedTo(x, y, z));
+                assertEquals(expected, graph.isDConnectedTo(x, y, z));
+            }
+        }
+    }
+
+    @Test
+    public void testGraphFollowsChanges() {
+        Node x = new GraphNode("X");
+        Node y = new GraphNode("Y");
+        Node w = new GraphNode("W");
+
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(x);
+        nodes.add(y);
+        nodes.add(w);
+
+        Graph graph = new EdgeListGraph(nodes);
+        graph.addDirectedEdge(x, w);
+        graph.addDirectedEdge(y, w);
+
+        assertTrue(graph.isDSeparatedFrom(x, y, Collections.<Node>emptyList()));
+        assertTrue(graph.isDConnectedTo(x, y, Collections.singletonList(w)));
+
+        graph.removeEdge(y, w);
+        graph.addDirectedEdge(w, y);
+
+        assertTrue(graph.isDConnectedTo(x, y, Collections.<Node>emptyList()));
+        assertTrue(graph.isDSeparatedFrom(x, y, Collections.singletonList(w)));
+
+        Node v = new GraphNode("V");
+        graph.addNode(v);
+        assertTrue(graph.isDSeparatedFrom(x, v, Collections.<Node>emptyList()));
+
+        // An endpoint changed on the edge itself, as searches do, makes W a collider. The graph sees the
+        // change; a snapshot taken before it does not.
+        CompiledDSeparation dSeparation = new CompiledDSeparation(graph);
+        graph.getEdge(w, y).setEndpoint1(Endpoint.ARROW);
+
+        assertTrue(graph.isDSeparatedFrom(x, y, Collections.<Node>emptyList()));
+        assertTrue(dSeparation.isDConnectedTo(x, y, Collections.<Node>emptyList()));
+    }
+
+    @Test
+    public void testIndTestDSepCheckIndependence() {
+        RandomUtil.getInstance().setSeed(4838472L);
+        Graph graph = GraphUtils.randomGraph(20, 0, 30, 30, 15, 15, false);
+        IndTestDSep test = new IndTestDSep(graph);
+        List<Node> nodes = test.getVariables();
+
+        nodes.parallelStream().forEach(x -> {
+            for (Node y : nodes) {
+                if (x == y) continue;
+                List<Node> z = new ArrayList<>(graph.getParents(x));
+                z.remove(y);
+
+                boolean dSeparated = graph.isDSeparatedFrom(x, y, z);
+                assertEquals(dSeparated, test.checkIndependence(x, y, z).isIndependent());
+            }
+        });
+
+        assertFalse(test.isIndependent(nodes.get(0), nodes.get(0), Collections.<Node>emptyList()));
+    }
+}
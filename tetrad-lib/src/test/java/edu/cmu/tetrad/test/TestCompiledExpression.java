@@ -0,0 +1,388 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.calculator.expression.*;
+import edu.cmu.tetrad.calculator.parser.ExpressionParser;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.SemGraph;
+import edu.cmu.tetrad.sem.GeneralizedSemIm;
+import edu.cmu.tetrad.sem.GeneralizedSemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that compiled expressions give the same values as the interpreter, bit for bit, for every function in
+ * ExpressionManager.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestCompiledExpression {
+
+    private static final String[] VARIABLES = {"X", "Y", "Z"};
+
+    // Values chosen so that comparisons, IF, Switch, and the domains of the functions are each exercised both ways.
+    private static final double[] SPECIAL_VALUES = {0, 1, 2, -1, 0.5, 0.25, 0.75, 3, -2.5, 1e-3};
+
+    /**
+     * Formulas for each function token, in terms of X, Y and Z.
+     */
+    private static final Map<String, String[]> FORMULAS = new HashMap<>();
+
+    static {
+        put("+", "X + Y", "X + Y + Z + 1", "X + W", "W + W", "X + Switch(Y, 1, 2)", "X + (W * 2)");
+        put("-", "X - Y", "-X", "-(X - Y) - Z");
+        put("*", "X * Y", "X * Y * Z * 3");
+        put("/", "X / Y", "1 / (X - Y)");
+        put("^", "X ^ Y", "abs(X) ^ 0.5");
+        put("pow", "pow(X, Y)", "pow(Z, 3)");
+        put("exp", "exp(X)");
+        put("sqrt", "sqrt(X)");
+        put("cosh", "cosh(X)");
+        put("sinh", "sinh(X)");
+        put("tanh", "tanh(X)");
+        put("cos", "cos(X)");
+        put("sin", "sin(X)");
+        put("tan", "tan(X)");
+        put("acos", "acos(X)");
+        put("asin", "asin(X)");
+        put("atan", "atan(X)");
+        put("logistic", "logistic(X)");
+        put("ln", "ln(X)");
+        put("log10", "log10(X)");
+        put("round", "round(X)");
+        put("ceil", "ceil(X)");
+        put("floor", "floor(X)");
+        put("abs", "abs(X)");
+        put("signum", "signum(X)");
+        put("max", "max(X, Y)", "max(X, Y, Z, 0)");
+        put("min", "min(X, Y)", "min(X, Y, Z, 0)");
+        put("random", "random()");
+        put("ChiSquare", "ChiSquare(abs(X) + 1)");
+        put("Gamma", "Gamma(abs(X) + 1, abs(Y) + 1)");
+        put("Beta", "Beta(abs(X) + 1, abs(Y) + 1)");
+        put("Cauchy", "Cauchy(X, abs(Y) + 1)");
+        put("FDist", "FDist(abs(X) + 1, abs(Y) + 1)");
+        put("Gumbel", "Gumbel(X, abs(Y) + 1)");
+        put("Laplace", "Laplace(X, abs(Y) + 1)");
+        put("Levy", "Levy(X, abs(Y) + 1)");
+        put("Nakagami", "Nakagami(abs(X) + 1, abs(Y) + 1)");
+        put("Pareto", "Pareto(abs(X) + 1, abs(Y) + 1)");
+        put("Triangular", "Triangular(X - 2, X, X + 1)");
+        put("Uniform", "Uniform(X, X + abs(Y) + 1)");
+        put("U", "U(X, X + abs(Y) + 1)");
+        put("Weibull", "Weibull(abs(X) + 1, abs(Y) + 1)");
+        put("Poisson", "Poisson(abs(X) + 1)");
+        put("Indicator", "Indicator(abs(X) / 3)", "Indicator(X)");
+        put("ExponentialDist", "ExponentialDist(abs(X) + 1)");
+        put("LogNormal", "LogNormal(X, abs(Y) + 1)");
+        put("Normal", "Normal(X, abs(Y) + 1)");
+        put("N", "N(X, abs(Y) + 1) + N(Y, 1)");
+        put("TruncNormal", "TruncNormal(X, abs(Y) + 1, X - 1, X + 1)", "TruncNormal(0, 1, -1, Y)",
+                "TruncNormal(0, X, -1, 1)");
+        put("StudentT", "StudentT(abs(X) + 1)");
+        put("Discrete", "Discrete(abs(X), abs(Y), 1)", "Discrete(X, Y, Z)");
+        put("Mixture", "Mixture(0.3, N(X, 1), 0.7, Y * Z)", "Mixture(abs(X), Y, 0.5, Z)");
+        put("Split", "Split(X, X + 1, Y, Y + 2)", "Split(X, Y)");
+        put("AND", "AND(X < Y, Y < Z)", "AND(X, Y, Z)");
+        put("OR", "OR(X < Y, Y < Z)", "OR(X, W)", "OR(Y, N(0, 1))");
+        put("XOR", "XOR(X < Y, Y < Z)", "XOR(X, Y)");
+        put("<", "X < Y");
+        put("<=", "X <= Y");
+        put("=", "X = Y");
+        put(">", "X > Y");
+        put(">=", "X >= Y");
+        put("IF", "IF(X < Y, Z, -Z)", "IF(X, N(0, 1), Y)");
+        put("NEW", "NEW(X)");
+        put("new", "new(X)");
+        put("TSUM", "TSUM(NEW(X))");
+        put("tsum", "tsum(new(X))");
+        put("TPROD", "TPROD(NEW(X))");
+        put("tprod", "tprod(new(X))");
+        put("DiscError", "DiscError(ChiSquare(1) / 10, X, Y, Z)", "DiscError(X, Y, Z)");
+        put("Switch", "Switch(X, Y, Z, N(0, 1))", "Switch(abs(Y), 1, Z)");
+    }
+
+    private static void put(String token, String... formulas) {
+        FORMULAS.put(token, formulas);
+    }
+
+    @Test
+    public void testEveryFunctionHasFormulas() {
+        for (ExpressionDescriptor descriptor : ExpressionManager.getInstance().getDescriptors()) {
+            assertTrue("No formulas for " + descriptor.getToken(), FORMULAS.containsKey(descriptor.getToken()));
+        }
+    }
+
+    @Test
+    public void testScalarMatchesInterpreter() throws ParseException {
+        Random random = new Random(42);
+
+        for (String token : FORMULAS.keySet()) {
+            for (String formula : FORMULAS.get(token)) {
+                Expression expression = new ExpressionParser().parseExpression(formula);
+                Map<String, Integer> slots = new HashMap<>();
+                CompiledExpression compiled = CompiledExpression.compile(expression, slots);
+
+                for (int trial = 0; trial < 200; trial++) {
+                    final Map<String, Double> values = randomValues(random);
+                    double[] slotValues = toSlots(values, slots);
+
+                    Context context = new Context() {
+                        public Double getValue(String var) {
+                            return values.get(var);
+                        }
+                    };
+
+                    long seed = random.nextLong();
+
+                    RandomUtil.getInstance().setSeed(seed);
+                    Object expected = evaluate(expression, context);
+
+                    RandomUtil.getInstance().setSeed(seed);
+                    Object actual = evaluate(compiled, slotValues);
+
+                    if ("random".equals(token)) {
+                        double r = Double.longBitsToDouble((Long) actual);
+                        assertTrue(r >= 0 && r < 1);
+                    } else {
+                        assertEquals(formula + " " + values, expected, actual);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testColumnsMatchScalar() throws ParseException {
+        Random random = new Random(43);
+        int n = 500;
+
+        for (String token : FORMULAS.keySet()) {
+            for (String formula : FORMULAS.get(token)) {
+                if (formula.contains("W")) continue;
+
+                Map<String, Integer> slots = new HashMap<>();
+                CompiledExpression compiled = CompiledExpression.compile(
+                        new ExpressionParser().parseExpression(formula), slots);
+
+                if (!compiled.isVectorizable()) continue;
+
+                // X and Y vary by row; Z is the same for every row.
+                double[] values = new double[slots.size()];
+                double[][] columns = new double[slots.size()][];
+                Arrays.fill(values, CompiledExpression.UNSET);
+
+                if (slots.containsKey("X")) columns[slots.get("X")] = randomColumn(random, n);
+                if (slots.containsKey("Y")) columns[slots.get("Y")] = randomColumn(random, n);
+                if (slots.containsKey("Z")) values[slots.get("Z")] = randomColumn(random, 1)[0];
+
+                double[] out = new double[n];
+                compiled.evaluate(values, columns, 10, n, out);
+
+                for (int row = 10; row < n; row++) {
+                    double[] rowValues = values.clone();
+
+                    for (int slot = 0; slot < columns.length; slot++) {
+                        if (columns[slot] != null) rowValues[slot] = columns[slot][row];
+                    }
+
+                    assertEquals(formula, Double.doubleToLongBits(compiled.evaluate(rowValues)),
+                            Double.doubleToLongBits(out[row]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEval() {
+        final Map<String, Double> values = new HashMap<>();
+        Expression expression = new EvaluationExpression(new VariableExpression("X"), "1.0");
+        Map<String, Integer> slots = new HashMap<>();
+        CompiledExpression compiled = CompiledExpression.compile(expression, slots);
+
+        Context context = new Context() {
+            public Double getValue(String var) {
+                return values.get(var);
+            }
+        };
+
+        double[] slotValues = toSlots(values, slots);
+        assertEquals(expression.evaluate(context), compiled.evaluate(slotValues), 0.0);
+
+        for (double x : new double[]{1.0, 2.0}) {
+            values.put("X", x);
+            slotValues = toSlots(values, slots);
+            assertEquals(expression.evaluate(context), compiled.evaluate(slotValues), 0.0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnassignedVariable() throws ParseException {
+        Map<String, Integer> slots = new HashMap<>();
+        CompiledExpression compiled = CompiledExpression.compile(
+                new ExpressionParser().parseExpression("X * Y"), slots);
+        double[] values = new double[slots.size()];
+        Arrays.fill(values, CompiledExpression.UNSET);
+        values[slots.get("X")] = 1.0;
+        compiled.evaluate(values);
+    }
+
+    @Test
+    public void testCompiledSimulation() {
+        GeneralizedSemPm pm = makeGeneralizedSemPm();
+        List<Node> variableNodes = pm.getVariableNodes();
+
+        try {
+            pm.setNodeExpression(variableNodes.get(2), "tanh(a1 * X1) + pow(X2, 2) + E_X3");
+            pm.setNodeExpression(variableNodes.get(3), "IF(X3 > 0, a2 * X3, 0.5 * X2) + E_X4");
+            pm.setNodeExpression(variableNodes.get(4), "max(X4, X2) * logistic(a3) + E_X5");
+
+            for (Node node : variableNodes) {
+                pm.setNodeExpression(pm.getErrorNode(node), "Uniform(-1, 1)");
+            }
+        } catch (ParseException e) {
+            throw new RuntimeException(e);
+        }
+
+        GeneralizedSemIm im = new GeneralizedSemIm(pm);
+        im.setParameterValue("a1", 0.8);
+        im.setParameterValue("a2", -1.2);
+        im.setParameterValue("a3", 0.3);
+
+        RandomUtil.getInstance().setSeed(3928472L);
+        DataSet data = im.simulateDataFisher(1000);
+
+        // The model is recursive in the order of the nodes, so the interpreter, one pass per row, gives the same data.
+        RandomUtil.getInstance().setSeed(3928472L);
+        final Map<String, Double> values = new HashMap<>();
+
+        for (String parameter : pm.getParameters()) {
+            values.put(parameter, im.getParameterValue(parameter));
+        }
+
+        Context context = new Context() {
+            public Double getValue(String term) {
+                return values.get(term);
+            }
+        };
+
+        for (int row = 0; row < 1000; row++) {
+            for (Node node : variableNodes) {
+                Node error = pm.getErrorNode(node);
+                values.put(error.getName(), pm.getNodeExpression(error).evaluate(context));
+            }
+
+            for (Node node : variableNodes) {
+                double value = pm.getNodeExpression(node).evaluate(context);
+                values.put(node.getName(), value);
+                assertEquals(value, data.getDouble(row, data.getColumn(data.getVariable(node.getName()))), 0.0);
+            }
+        }
+    }
+
+    // X1 -> X3, X2 -> X3, X3 -> X4, X2 -> X4, X4 -> X5, X2 -> X5.
+    private GeneralizedSemPm makeGeneralizedSemPm() {
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            nodes.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph graph = new EdgeListGraph(nodes);
+        graph.addDirectedEdge(nodes.get(0), nodes.get(2));
+        graph.addDirectedEdge(nodes.get(1), nodes.get(2));
+        graph.addDirectedEdge(nodes.get(2), nodes.get(3));
+        graph.addDirectedEdge(nodes.get(1), nodes.get(3));
+        graph.addDirectedEdge(nodes.get(3), nodes.get(4));
+        graph.addDirectedEdge(nodes.get(1), nodes.get(4));
+
+        return new GeneralizedSemPm(new SemGraph(graph));
+    }
+
+    private static Map<String, Double> randomValues(Random random) {
+        Map<String, Double> values = new HashMap<>();
+
+        for (String variable : VARIABLES) {
+            values.put(variable, randomValue(random));
+        }
+
+        return values;
+    }
+
+    private static double[] randomColumn(Random random, int n) {
+        double[] column = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            column[i] = randomValue(random);
+        }
+
+        return column;
+    }
+
+    private static double randomValue(Random random) {
+        if (random.nextBoolean()) {
+            return SPECIAL_VALUES[random.nextInt(SPECIAL_VALUES.length)];
+        } else {
+            return 3 * random.nextGaussian();
+        }
+    }
+
+    private static double[] toSlots(Map<String, Double> values, Map<String, Integer> slots) {
+        double[] slotValues = new double[slots.size()];
+        Arrays.fill(slotValues, CompiledExpression.UNSET);
+
+        for (String name : slots.keySet()) {
+            Double value = values.get(name);
+            if (value != null) slotValues[slots.get(name)] = value;
+        }
+
+        return slotValues;
+    }
+
+    // The bits of the value, or the class of the exception thrown.
+    private static Object evaluate(Expression expression, Context context) {
+        try {
+            return Double.doubleToLongBits(expression.evaluate(context));
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static Object evaluate(CompiledExpression compiled, double[] slotValues) {
+        try {
+            return Double.doubleToLongBits(compiled.evaluate(slotValues));
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+}
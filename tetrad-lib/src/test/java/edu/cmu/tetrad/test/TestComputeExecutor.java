@@ -0,0 +1,130 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.util.ComputeExecutor;
+import edu.cmu.tetrad.util.TaskManager;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the shared executor for parallel work.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestComputeExecutor {
+
+    @Test
+    public void testResultsInOrder() {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            final int _i = i;
+            tasks.add(() -> _i * _i);
+        }
+
+        List<Integer> results = ComputeExecutor.getInstance().invokeAll(tasks);
+
+        assertEquals(100, results.size());
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * i, (int) results.get(i));
+        }
+    }
+
+    @Test
+    public void testNested() {
+        final ComputeExecutor executor = ComputeExecutor.getInstance();
+        assertFalse(executor.inPool());
+
+        List<Callable<Integer>> outer = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            outer.add(() -> {
+                assertTrue(executor.inPool());
+
+                List<Callable<Integer>> inner = new ArrayList<>();
+
+                for (int j = 0; j < 20; j++) {
+                    final int _j = j;
+                    inner.add(() -> {
+                        assertTrue(executor.inPool());
+                        return _j;
+                    });
+                }
+
+                int sum = 0;
+                for (int k : executor.invokeAll(inner)) sum += k;
+                return sum;
+            });
+        }
+
+        for (int sum : executor.invokeAll(outer)) {
+            assertEquals(190, sum);
+        }
+    }
+
+    @Test
+    public void testCanceled() {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            tasks.add(() -> 1);
+        }
+
+        TaskManager.getInstance().setCanceled(true);
+
+        try {
+            ComputeExecutor.getInstance().invokeAll(tasks);
+            fail("Expected a CancellationException.");
+        } catch (CancellationException e) {
+            // Expected.
+        } finally {
+            TaskManager.getInstance().setCanceled(false);
+        }
+    }
+
+    @Test
+    public void testExceptionRethrown() {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(() -> 1);
+        tasks.add(() -> {
+            throw new IllegalStateException("Task failed.");
+        });
+
+        try {
+            ComputeExecutor.getInstance().invokeAll(tasks);
+            fail("Expected an IllegalStateException.");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+    }
+}
@@ -28,16 +28,22 @@ import edu.cmu.tetrad.graph.Dag;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.NodeVariableType;
 import edu.cmu.tetrad.sem.SemIm;
 import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.DataConvertUtils;
 import edu.cmu.tetrad.util.RandomUtil;
 import org.junit.Test;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static junit.framework.TestCase.fail;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -134,9 +140,123 @@ public class TestDataLoadersRoundtrip {
             fail(e.getMessage());
         }
     }
-}
 
+    @Test
+    public void testBinaryRoundtrip() {
+        setUp();
+
+        try {
+            List<Node> nodes = new ArrayList<>();
+
+            for (int i = 0; i < 5; i++) {
+                nodes.add(new ContinuousVariable("X" + (i + 1)));
+            }
 
+            Graph randomGraph = new Dag(GraphUtils.randomGraph(nodes, 0, 5,
+                    30, 15, 15, false));
+            DataSet continuous = new SemIm(new SemPm(randomGraph)).simulateData(50, false);
+            DataSet discrete = new MlBayesIm(new BayesPm(new Dag(randomGraph)), MlBayesIm.RANDOM).simulateData(50, false);
+            continuous.setKnowledge(knowledge());
 
+            // X1 and X2 continuous, X3 to X5 discrete, with some missing values.
+            double[][] continuousData = new double[5][];
+            int[][] discreteData = new int[5][];
+            List<Node> variables = new ArrayList<>();
 
+            for (int j = 0; j < 5; j++) {
+                if (j < 2) {
+                    continuousData[j] = continuous.getDoubleData().getColumn(j).toArray();
+                    continuousData[j][j] = Double.NaN;
+                    variables.add(continuous.getVariable(j));
+                } else {
+                    discreteData[j] = new int[50];
+                    for (int i = 0; i < 50; i++) discreteData[j][i] = discrete.getInt(i, j);
+                    discreteData[j][j] = -99;
+                    variables.add(discrete.getVariable(j));
+                }
+            }
 
+            DataSet mixed = new BoxDataSet(new MixedDataBox(variables, 50, continuousData, discreteData), variables);
+            mixed.getVariable(4).setNodeVariableType(NodeVariableType.INTERVENTION_STATUS);
+
+            List<DataSet> dataSets = Arrays.asList(continuous, discrete, mixed);
+
+            for (int k = 0; k < dataSets.size(); k++) {
+                DataSet dataSet = dataSets.get(k);
+                Path file = Paths.get("target/test_data/roundtrip" + k + ".bin");
+                DataWriter.writeBinaryData(dataSet, file, false, dataSet == continuous);
+
+                DataSet _dataSet = DataConvertUtils.toMemoryMappedDataModel(file);
+
+                assertTrue(dataSet.equals(_dataSet));
+                assertTrue(dataSet.equals(_dataSet.copy()));
+
+                for (int j = 0; j < 5; j++) {
+                    assertEquals(dataSet.getVariable(j).getNodeVariableType(), _dataSet.getVariable(j).getNodeVariableType());
+                }
+            }
+
+            DataSet _continuous = DataConvertUtils.toMemoryMappedDataModel(Paths.get("target/test_data/roundtrip0.bin"));
+            assertTrue(continuous.getCovarianceMatrix().equals(_continuous.getCovarianceMatrix(), 1e-10));
+            assertKnowledge(_continuous.getKnowledge());
+        } catch (IOException e) {
+            e.printStackTrace();
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testBinaryCovMatrixRoundtrip() {
+        setUp();
+
+        try {
+            List<Node> nodes = new ArrayList<>();
+
+            for (int i = 0; i < 5; i++) {
+                nodes.add(new ContinuousVariable("X" + (i + 1)));
+            }
+
+            Graph randomGraph = new Dag(GraphUtils.randomGraph(nodes, 0, 5,
+                    30, 15, 15, false));
+            DataSet dataSet = new SemIm(new SemPm(randomGraph)).simulateData(50, false);
+            ICovarianceMatrix covMatrix = new CovarianceMatrix(dataSet);
+            covMatrix.setKnowledge(knowledge());
+
+            Path file = Paths.get("target/test_data/roundtripcov.bin");
+            DataWriter.writeBinaryCovMatrix(covMatrix, file);
+
+            ICovarianceMatrix _covMatrix = DataConvertUtils.toCovarianceMatrix(file);
+
+            assertEquals(covMatrix.getVariableNames(), _covMatrix.getVariableNames());
+            assertEquals(covMatrix.getSampleSize(), _covMatrix.getSampleSize());
+            assertTrue(covMatrix.getMatrix().equals(_covMatrix.getMatrix(), 0));
+            assertKnowledge(_covMatrix.getKnowledge());
+        } catch (IOException e) {
+            e.printStackTrace();
+            fail(e.getMessage());
+        }
+    }
+
+    private IKnowledge knowledge() {
+        IKnowledge knowledge = new Knowledge2();
+        knowledge.addToTier(0, "X1");
+        knowledge.addToTier(0, "X2");
+        knowledge.addToTier(1, "X3");
+        knowledge.addToTier(1, "X4");
+        knowledge.addToTier(2, "X5");
+        knowledge.setTierForbiddenWithin(1, true);
+        knowledge.setOnlyCanCauseNextTier(0, true);
+        knowledge.setRequired("X1", "X2");
+        return knowledge;
+    }
+
+    private void assertKnowledge(IKnowledge knowledge) {
+        assertEquals(3, knowledge.getNumTiers());
+        assertEquals(Arrays.asList("X3", "X4"), knowledge.getTier(1));
+        assertTrue(knowledge.isTierForbiddenWithin(1));
+        assertTrue(knowledge.isOnlyCanCauseNextTier(0));
+        assertTrue(knowledge.isRequired("X1", "X2"));
+        assertTrue(knowledge.isForbidden("X3", "X4"));
+        assertTrue(knowledge.isForbidden("X1", "X5"));
+    }
+}
@@ -0,0 +1,196 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.bayes.BayesIm;
+import edu.cmu.tetrad.bayes.BayesPm;
+import edu.cmu.tetrad.bayes.MlBayesIm;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.search.AdTreeCounter;
+import edu.cmu.tetrad.search.BDeuScore;
+import edu.cmu.tetrad.search.BicScore;
+import edu.cmu.tetrad.search.DiscreteCounter;
+import edu.cmu.tetrad.search.DiscreteSufficientStatistics;
+import edu.cmu.tetrad.search.DistinctRowCounter;
+import edu.cmu.tetrad.search.IndTestChiSquare;
+import edu.cmu.tetrad.search.IndTestGSquare;
+import edu.cmu.tetrad.search.RowScanCounter;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that scores and tests backed by cached counts agree with those that scan the data.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestDiscreteSufficientStatistics {
+
+    @Test
+    public void testJointCounts() {
+        DataSet data = simulate(8, 500);
+        DiscreteSufficientStatistics stats = new DiscreteSufficientStatistics(data);
+
+        int[] vars = {5, 1, 3};
+        int[] counts = stats.getJointCounts(vars);
+        int[] expected = new int[counts.length];
+
+        for (int i = 0; i < data.getNumRows(); i++) {
+            int index = 0;
+
+            for (int v : vars) {
+                index = index * stats.getNumCategories(v) + data.getInt(i, v);
+            }
+
+            expected[index]++;
+        }
+
+        for (int i = 0; i < counts.length; i++) {
+            assertEquals(expected[i], counts[i]);
+        }
+
+        // Summed out from the cached table over {1, 3, 5}.
+        int[] marginal = stats.getJointCounts(3, 1);
+        assertEquals(1, stats.getMarginalizations());
+
+        int d1 = stats.getNumCategories(1);
+        int d5 = stats.getNumCategories(5);
+
+        for (int c3 = 0; c3 < stats.getNumCategories(3); c3++) {
+            for (int c1 = 0; c1 < d1; c1++) {
+                int sum = 0;
+
+                for (int c5 = 0; c5 < d5; c5++) {
+                    sum += expected[(c5 * d1 + c1) * stats.getNumCategories(3) + c3];
+                }
+
+                assertEquals(sum, marginal[c3 * d1 + c1]);
+            }
+        }
+    }
+
+    @Test
+    public void testScores() {
+        DataSet data = simulate(10, 1000);
+        DiscreteSufficientStatistics stats = new DiscreteSufficientStatistics(data);
+
+        BDeuScore bdeu = new BDeuScore(data);
+        BDeuScore cachedBdeu = new BDeuScore(data);
+        cachedBdeu.setSufficientStatistics(stats);
+
+        BicScore bic = new BicScore(data);
+        BicScore cachedBic = new BicScore(data);
+        cachedBic.setSufficientStatistics(stats);
+
+        for (int y = 0; y < 10; y++) {
+            int[] z = {(y + 3) % 10, (y + 7) % 10};
+
+            for (int x = 0; x < 10; x++) {
+                if (x == y || x == z[0] || x == z[1]) continue;
+
+                assertEquals(bdeu.localScoreDiff(x, y, z), cachedBdeu.localScoreDiff(x, y, z), 1e-9);
+                assertEquals(bic.localScoreDiff(x, y, z), cachedBic.localScoreDiff(x, y, z), 1e-9);
+            }
+        }
+
+        assertTrue(stats.getHits() + stats.getMarginalizations() > 0);
+    }
+
+    @Test
+    public void testIndependenceTests() {
+        DataSet data = simulate(8, 1000);
+        DiscreteSufficientStatistics stats = new DiscreteSufficientStatistics(data);
+
+        IndTestChiSquare chiSquare = new IndTestChiSquare(data, 0.05);
+        IndTestChiSquare cachedChiSquare = new IndTestChiSquare(data, 0.05);
+        cachedChiSquare.setSufficientStatistics(stats);
+
+        IndTestGSquare gSquare = new IndTestGSquare(data, 0.05);
+        IndTestGSquare cachedGSquare = new IndTestGSquare(data, 0.05);
+        cachedGSquare.setSufficientStatistics(stats);
+
+        List<Node> nodes = data.getVariables();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int j = i + 1; j < nodes.size(); j++) {
+                List<Node> z = Collections.singletonList(nodes.get((j + 1) % nodes.size()));
+                if (z.contains(nodes.get(i))) continue;
+
+                chiSquare.isIndependent(nodes.get(i), nodes.get(j), z);
+                cachedChiSquare.isIndependent(nodes.get(i), nodes.get(j), z);
+                assertEquals(chiSquare.getPValue(), cachedChiSquare.getPValue(), 1e-12);
+
+                gSquare.isIndependent(nodes.get(i), nodes.get(j), z);
+                cachedGSquare.isIndependent(nodes.get(i), nodes.get(j), z);
+                assertEquals(gSquare.getPValue(), cachedGSquare.getPValue(), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testBackends() {
+        DataSet data = simulate(8, 500);
+
+        for (int i = 0; i < data.getNumRows(); i += 7) {
+            data.setInt(i, i % data.getNumColumns(), DiscreteVariable.MISSING_VALUE);
+        }
+
+        DiscreteCounter scan = new RowScanCounter(data);
+        DiscreteCounter[] counters = {new AdTreeCounter(data), new AdTreeCounter(data, 100),
+                new DistinctRowCounter(data)};
+
+        int[][] sets = {{}, {2}, {0, 3}, {1, 4, 6}, {0, 2, 5, 7}, {0, 3}, {1, 4, 6, 7}};
+
+        for (DiscreteCounter counter : counters) {
+            assertTrue(counter.hasMissingValues());
+
+            for (int[] vars : sets) {
+                assertArrayEquals(scan.count(vars), counter.count(vars));
+            }
+        }
+
+        BDeuScore score = new BDeuScore(data);
+        BDeuScore treeScore = new BDeuScore(data);
+        treeScore.setSufficientStatistics(new DiscreteSufficientStatistics(data,
+                DiscreteSufficientStatistics.Backend.AD_TREE, 0));
+
+        assertEquals(score.localScore(3, new int[]{0, 5}), treeScore.localScore(3, new int[]{0, 5}), 1e-9);
+    }
+
+    private DataSet simulate(int numNodes, int sampleSize) {
+        RandomUtil.getInstance().setSeed(29349823L);
+        Graph graph = GraphUtils.randomGraph(numNodes, 0, numNodes, 30, 15, 15, false);
+        BayesPm pm = new BayesPm(graph, 2, 4);
+        BayesIm im = new MlBayesIm(pm, MlBayesIm.RANDOM);
+        return im.simulateData(sampleSize, false);
+    }
+}
@@ -0,0 +1,131 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.*;
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.IndTestFisherZ;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.Matrix;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests IncrementalCovarianceMatrix against CovarianceMatrix.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestIncrementalCovarianceMatrix {
+
+    @Test
+    public void testAppendedRowsMatchFullData() {
+        RandomUtil.getInstance().setSeed(2938402L);
+        DataSet dataSet = simulate(1000);
+
+        for (boolean biasCorrected : new boolean[]{true, false}) {
+            IncrementalCovarianceMatrix cov = new IncrementalCovarianceMatrix(dataSet.getVariables(), biasCorrected);
+
+            // A batch, single rows and another batch.
+            cov.addRows(dataSet.subsetRows(range(0, 400)));
+
+            for (int i = 400; i < 410; i++) {
+                double[] row = new double[dataSet.getNumColumns()];
+                for (int j = 0; j < row.length; j++) row[j] = dataSet.getDouble(i, j);
+                cov.addRow(row);
+            }
+
+            cov.addRows(dataSet.subsetRows(range(410, 1000)));
+
+            assertEquals(1000, cov.getSampleSize());
+            assertTrue(cov.getMatrix().equals(new CovarianceMatrix(dataSet, biasCorrected).getMatrix(), 1e-10));
+        }
+    }
+
+    @Test
+    public void testMergedPartsMatchFullData() {
+        RandomUtil.getInstance().setSeed(2938403L);
+        DataSet dataSet = simulate(1000);
+
+        IncrementalCovarianceMatrix part1 = new IncrementalCovarianceMatrix(dataSet.subsetRows(range(0, 300)));
+        IncrementalCovarianceMatrix part2 = new IncrementalCovarianceMatrix(dataSet.subsetRows(range(300, 1000)));
+        IncrementalCovarianceMatrix empty = new IncrementalCovarianceMatrix(dataSet.getVariables());
+
+        part1.merge(part2);
+        part1.merge(empty);
+        empty.merge(part1);
+
+        Matrix expected = new CovarianceMatrix(dataSet).getMatrix();
+        assertTrue(part1.getMatrix().equals(expected, 1e-10));
+        assertTrue(empty.getMatrix().equals(expected, 1e-10));
+        assertEquals(1000, empty.getSampleSize());
+    }
+
+    @Test
+    public void testSearchOnUpdatedData() {
+        RandomUtil.getInstance().setSeed(2938404L);
+        DataSet dataSet = simulate(1000);
+        DataSet first = dataSet.subsetRows(range(0, 500));
+
+        IncrementalCovarianceMatrix cov = new IncrementalCovarianceMatrix(first, false);
+        SemBicScore before = new SemBicScore(cov);
+        cov.addRows(dataSet.subsetRows(range(500, 1000)));
+
+        // Scores constructed earlier keep the covariances they were constructed with.
+        assertEquals(new SemBicScore(first).localScore(2, 0, 1), before.localScore(2, 0, 1), 1e-8);
+        assertEquals(new SemBicScore(dataSet).localScore(2, 0, 1), new SemBicScore(cov).localScore(2, 0, 1), 1e-8);
+
+        List<Node> variables = dataSet.getVariables();
+        IndTestFisherZ test = new IndTestFisherZ(cov, 0.01);
+        test.isIndependent(variables.get(0), variables.get(3), variables.get(1), variables.get(2));
+        IndTestFisherZ expected = new IndTestFisherZ(dataSet, 0.01);
+        expected.isIndependent(variables.get(0), variables.get(3), variables.get(1), variables.get(2));
+        assertEquals(expected.getPValue(), test.getPValue(), 1e-8);
+    }
+
+    private DataSet simulate(int sampleSize) {
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < 6; i++) {
+            nodes.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph graph = new Dag(GraphUtils.randomGraph(nodes, 0, 8, 30, 15, 15, false));
+        return new SemIm(new SemPm(graph)).simulateData(sampleSize, false);
+    }
+
+    private int[] range(int from, int to) {
+        int[] rows = new int[to - from];
+        for (int i = 0; i < rows.length; i++) rows[i] = from + i;
+        return rows;
+    }
+}
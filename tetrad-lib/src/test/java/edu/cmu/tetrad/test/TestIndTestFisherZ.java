@@ -24,6 +24,9 @@ package edu.cmu.tetrad.test;
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.search.IndTestFisherZ;
+import edu.cmu.tetrad.search.IndTestFisherZGeneralizedInverse;
+import edu.cmu.tetrad.search.IndTestPartialCorrelation;
+import edu.cmu.tetrad.search.IndependenceResult;
 import edu.cmu.tetrad.search.IndependenceTest;
 import edu.cmu.tetrad.sem.SemIm;
 import edu.cmu.tetrad.sem.SemPm;
@@ -33,7 +36,12 @@ import edu.cmu.tetrad.util.StatUtils;
 import edu.cmu.tetrad.util.Matrix;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.Math.*;
 import static org.junit.Assert.assertEquals;
@@ -181,6 +189,57 @@ public class TestIndTestFisherZ {
             System.out.println(abs(f1) > abs(f2));
         }
     }
-}
-
 
+    @Test
+    public void testConcurrentMatchesSerial() throws Exception {
+        RandomUtil.getInstance().setSeed(3948573L);
+
+        Graph graph = GraphUtils.randomGraph(15, 0, 20, 30, 15, 15, false);
+        SemIm im = new SemIm(new SemPm(graph));
+        DataSet data = im.simulateData(500, false);
+
+        List<IndependenceTest> tests = new ArrayList<>();
+        tests.add(new IndTestFisherZ(data, 0.01));
+        tests.add(new IndTestPartialCorrelation(data, 0.01));
+        tests.add(new IndTestFisherZGeneralizedInverse(data, 0.01));
+
+        for (final IndependenceTest test : tests) {
+            final List<Node> nodes = test.getVariables();
+            final List<IndependenceFact> facts = new ArrayList<>();
+
+            for (int i = 0; i < nodes.size(); i++) {
+                for (int j = i + 1; j < nodes.size(); j++) {
+                    List<Node> z = new ArrayList<>();
+                    for (int k = 0; k < 2; k++) z.add(nodes.get((i + j + k + 1) % nodes.size()));
+                    z.remove(nodes.get(i));
+                    z.remove(nodes.get(j));
+                    facts.add(new IndependenceFact(nodes.get(i), nodes.get(j), z));
+                }
+            }
+
+            final double[] serial = new double[facts.size()];
+
+            for (int f = 0; f < facts.size(); f++) {
+                IndependenceFact fact = facts.get(f);
+                test.isIndependent(fact.getX(), fact.getY(), fact.getZ());
+                serial[f] = test.getPValue();
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<IndependenceResult>> futures = new ArrayList<>();
+
+            for (final IndependenceFact fact : facts) {
+                futures.add(executor.submit(() -> test.checkIndependence(fact.getX(), fact.getY(), fact.getZ())));
+            }
+
+            for (int f = 0; f < facts.size(); f++) {
+                IndependenceResult result = futures.get(f).get();
+                assertEquals(serial[f], result.getPValue(), 0.0);
+                assertEquals(serial[f] > test.getAlpha(), result.isIndependent());
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
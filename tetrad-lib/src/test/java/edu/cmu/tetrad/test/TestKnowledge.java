@@ -21,11 +21,13 @@
 
 package edu.cmu.tetrad.test;
 
+import edu.cmu.tetrad.data.CompiledKnowledge;
 import edu.cmu.tetrad.data.ContinuousVariable;
 import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.data.KnowledgeEdge;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphNode;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
 import org.junit.Test;
@@ -34,6 +36,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -164,9 +167,112 @@ public final class TestKnowledge {
             assertTrue(knowledge.isForbidden("X11", "X22"));
         }
     }
-}
 
+    @Test
+    public final void testCompiled() {
+        List<String> vars = new ArrayList<>();
+
+        for (int i = 0; i < 30; i++) {
+            vars.add("X" + i);
+        }
+
+        IKnowledge knowledge = new Knowledge2(vars);
+
+        knowledge.addToTier(0, "X1*");
+        knowledge.addToTier(1, "X2*");
+        knowledge.addToTier(2, "X3,X4");
+        knowledge.setTierForbiddenWithin(1, true);
+        knowledge.setForbidden("X5", "X6");
+        knowledge.setRequired("X20", "X10");
+
+        CompiledKnowledge compiled = new CompiledKnowledge(knowledge, vars);
+
+        for (int i = 0; i < vars.size(); i++) {
+            for (int j = 0; j < vars.size(); j++) {
+                assertEquals(knowledge.isForbidden(vars.get(i), vars.get(j)), compiled.isForbidden(i, j));
+                assertEquals(knowledge.isRequired(vars.get(i), vars.get(j)), compiled.isRequired(i, j));
+            }
+
+            assertEquals(knowledge.isInWhichTier(new GraphNode(vars.get(i))), compiled.getTier(i));
+        }
+
+        assertTrue(compiled.isForbidden(compiled.getIndex("X5"), compiled.getIndex("X6")));
+        assertFalse(compiled.isForbidden(compiled.getIndex("X20"), compiled.getIndex("X10")));
+        assertEquals(-1, compiled.getIndex("Y"));
+    }
+
+    @Test
+    public final void testCompiledManyVariables() {
+        List<String> vars = new ArrayList<>();
+
+        for (int i = 0; i < 50000; i++) {
+            vars.add("X" + i);
+        }
+
+        IKnowledge knowledge = new Knowledge2(vars);
+
+        for (int i = 0; i < 30000; i++) {
+            knowledge.addToTier(i % 3, vars.get(i));
+        }
+
+        knowledge.setTierForbiddenWithin(2, true);
+        knowledge.setForbidden("X40000", "X40001");
+        knowledge.setRequired("X4", "X0");
+
+        CompiledKnowledge compiled = new CompiledKnowledge(knowledge, vars);
+
+        assertTrue(compiled.isForbidden(compiled.getIndex("X1"), compiled.getIndex("X0")));
+        assertFalse(compiled.isForbidden(compiled.getIndex("X0"), compiled.getIndex("X1")));
+        assertTrue(compiled.isForbidden(compiled.getIndex("X29999"), compiled.getIndex("X3")));
+        assertFalse(compiled.isForbidden(compiled.getIndex("X3"), compiled.getIndex("X6")));
+        assertTrue(compiled.isForbidden(compiled.getIndex("X2"), compiled.getIndex("X5")));
+        assertTrue(compiled.isForbidden(compiled.getIndex("X2"), compiled.getIndex("X2")));
+        assertFalse(compiled.isForbidden(compiled.getIndex("X1"), compiled.getIndex("X1")));
+
+        // A required edge is never forbidden.
+        assertTrue(compiled.isRequired(compiled.getIndex("X4"), compiled.getIndex("X0")));
+        assertFalse(compiled.isForbidden(compiled.getIndex("X4"), compiled.getIndex("X0")));
+
+        assertTrue(compiled.isForbidden(compiled.getIndex("X40000"), compiled.getIndex("X40001")));
+        assertFalse(compiled.isForbidden(compiled.getIndex("X40001"), compiled.getIndex("X40000")));
+        assertFalse(compiled.isForbidden(compiled.getIndex("X40002"), compiled.getIndex("X0")));
+        assertFalse(compiled.isForbidden(compiled.getIndex("X0"), compiled.getIndex("X40002")));
+
+        assertEquals(2, compiled.getTier(compiled.getIndex("X29999")));
+        assertEquals(-1, compiled.getTier(compiled.getIndex("X40000")));
+
+        assertEquals(compiled.isForbidden("X29999", "X3"), knowledge.isForbidden("X29999", "X3"));
+        assertFalse(knowledge.isForbidden("X40002", "X0"));
+    }
+
+    @Test
+    public final void testModifiedAfterLookup() {
+        List<String> vars = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            vars.add("X" + i);
+        }
+
+        IKnowledge knowledge = new Knowledge2(vars);
+        knowledge.addToTier(0, "X1");
+        knowledge.addToTier(1, "X2");
+
+        assertFalse(knowledge.isForbidden("X1", "X3"));
 
+        knowledge.setForbidden("X1", "X3");
+        assertTrue(knowledge.isForbidden("X1", "X3"));
 
+        knowledge.setRequired("X1", "X3");
+        assertFalse(knowledge.isForbidden("X1", "X3"));
+        assertTrue(knowledge.isRequired("X1", "X3"));
 
+        knowledge.removeRequired("X1", "X3");
+        assertTrue(knowledge.isForbidden("X1", "X3"));
 
+        // A shallow copy shares its tiers with the original.
+        IKnowledge copy = knowledge.copy();
+        assertFalse(knowledge.isForbidden("X4", "X1"));
+        copy.addToTier(1, "X4");
+        assertTrue(knowledge.isForbidden("X4", "X1"));
+    }
+}
@@ -0,0 +1,127 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.*;
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.IndTestFisherZ;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests LazyCovarianceMatrix against CovarianceMatrix.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestLazyCovarianceMatrix {
+
+    @Test
+    public void testValuesMatchCovarianceMatrix() {
+        RandomUtil.getInstance().setSeed(3948201L);
+        DataSet dataSet = simulate(150, 200);
+
+        for (boolean biasCorrected : new boolean[]{true, false}) {
+
+            // Room for only two blocks, so most blocks are dropped and computed again.
+            LazyCovarianceMatrix lazy = new LazyCovarianceMatrix(dataSet, biasCorrected, 2);
+            CovarianceMatrix cov = new CovarianceMatrix(dataSet, biasCorrected);
+
+            for (int i = 0; i < dataSet.getNumColumns(); i++) {
+                for (int j = 0; j < dataSet.getNumColumns(); j++) {
+                    assertEquals(cov.getValue(i, j), lazy.getValue(i, j), 1e-10);
+                }
+            }
+
+            int[] cols = {149, 3, 70, 128};
+            assertTrue(lazy.getSelection(cols, cols).equals(cov.getSelection(cols, cols), 1e-10));
+        }
+    }
+
+    @Test
+    public void testSearchComputesFewBlocks() {
+        RandomUtil.getInstance().setSeed(3948202L);
+        DataSet dataSet = simulate(300, 500);
+        LazyCovarianceMatrix lazy = new LazyCovarianceMatrix(dataSet);
+
+        SemBicScore score = new SemBicScore(lazy);
+        SemBicScore expectedScore = new SemBicScore(new CovarianceMatrix(dataSet));
+        assertEquals(expectedScore.localScore(2, 0, 1), score.localScore(2, 0, 1), 1e-8);
+        assertEquals(expectedScore.localScore(10, 5), score.localScore(10, 5), 1e-8);
+
+        List<Node> variables = dataSet.getVariables();
+        IndTestFisherZ test = new IndTestFisherZ(lazy, 0.01);
+        test.isIndependent(variables.get(0), variables.get(3), variables.get(1), variables.get(2));
+        IndTestFisherZ expectedTest = new IndTestFisherZ(dataSet, 0.01);
+        expectedTest.isIndependent(variables.get(0), variables.get(3), variables.get(1), variables.get(2));
+        assertEquals(expectedTest.getPValue(), test.getPValue(), 1e-8);
+
+        // Only the block for the first 64 variables was needed, out of 15.
+        assertEquals(1, lazy.getNumBlocksComputed());
+    }
+
+    @Test
+    public void testPrefetch() {
+        RandomUtil.getInstance().setSeed(3948203L);
+        DataSet dataSet = simulate(150, 200);
+        LazyCovarianceMatrix lazy = new LazyCovarianceMatrix(dataSet);
+        CovarianceMatrix cov = new CovarianceMatrix(dataSet);
+
+        lazy.prefetch(variablesAt(dataSet, 0, 100));
+
+        for (int j = 0; j < dataSet.getNumColumns(); j++) {
+            assertEquals(cov.getValue(100, j), lazy.getValue(100, j), 1e-10);
+        }
+
+        for (int j = 0; j < dataSet.getNumColumns(); j++) {
+            assertEquals(cov.getValue(0, j), lazy.getValue(0, j), 1e-10);
+        }
+    }
+
+    private List<Node> variablesAt(DataSet dataSet, int... indices) {
+        List<Node> variables = new ArrayList<>();
+        for (int i : indices) variables.add(dataSet.getVariable(i));
+        return variables;
+    }
+
+    private DataSet simulate(int numVars, int sampleSize) {
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < numVars; i++) {
+            nodes.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph graph = new Dag(GraphUtils.randomGraph(nodes, 0, numVars, 30, 15, 15, false));
+        return new SemIm(new SemPm(graph)).simulateData(sampleSize, false);
+    }
+}
@@ -0,0 +1,184 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.search.CachingScore;
+import edu.cmu.tetrad.search.Fges;
+import edu.cmu.tetrad.search.LocalScoreCache;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Joseph Ramsey
+ */
+public class TestLocalScoreCache {
+
+    @Test
+    public void testParentOrderIgnored() {
+        LocalScoreCache cache = new LocalScoreCache(100);
+
+        cache.add(3, new int[]{5, 1, 2}, 7.0);
+
+        assertEquals(7.0, cache.get(3, new int[]{1, 2, 5}), 0.0);
+        assertEquals(7.0, cache.get(3, new int[]{2, 5, 1}), 0.0);
+        assertTrue(Double.isNaN(cache.get(3, new int[]{1, 2})));
+        assertTrue(Double.isNaN(cache.get(5, new int[]{1, 2, 3})));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void testEviction() {
+        LocalScoreCache cache = new LocalScoreCache(10);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.add(i, new int[]{i + 1}, i);
+        }
+
+        assertTrue(cache.size() <= 10);
+        assertEquals(1000 - cache.size(), cache.getEvictions());
+
+        // The most recent entry survives.
+        assertEquals(999.0, cache.get(999, new int[]{1000}), 0.0);
+    }
+
+    @Test
+    public void testAddedVariableKeptApart() {
+        LocalScoreCache cache = new LocalScoreCache(100);
+
+        cache.add(3, 1, new int[]{2}, 7.0);
+
+        assertEquals(7.0, cache.get(3, 1, new int[]{2}), 0.0);
+        assertTrue(Double.isNaN(cache.get(3, 2, new int[]{1})));
+        assertTrue(Double.isNaN(cache.get(3, new int[]{1, 2})));
+    }
+
+    @Test
+    public void testCachingScoreDiffs() {
+        RandomUtil.getInstance().setSeed(492839483L);
+
+        Graph dag = GraphUtils.randomGraph(10, 0, 15, 30, 15, 15, false);
+        SemIm im = new SemIm(new SemPm(dag));
+        DataSet data = im.simulateData(1000, false);
+
+        SemBicScore score = new SemBicScore(new CovarianceMatrix(data));
+        CachingScore cachingScore = new CachingScore(score, 1000);
+
+        for (int y = 0; y < 10; y++) {
+            for (int a = 0; a < 10; a++) {
+                for (int b = a + 1; b < 10; b++) {
+                    if (a == y || b == y) continue;
+
+                    double ab = cachingScore.localScoreDiff(a, y, new int[]{b});
+                    double ba = cachingScore.localScoreDiff(b, y, new int[]{a});
+
+                    assertEquals(score.localScoreDiff(a, y, new int[]{b}), ab, 0.0);
+                    assertEquals(score.localScoreDiff(b, y, new int[]{a}), ba, 0.0);
+                    assertNotEquals(ab, ba, 0.0);
+
+                    // Looked up again, now from the cache.
+                    assertEquals(ab, cachingScore.localScoreDiff(a, y, new int[]{b}), 0.0);
+                    assertEquals(ba, cachingScore.localScoreDiff(b, y, new int[]{a}), 0.0);
+                }
+            }
+        }
+
+        assertTrue(cachingScore.getDiffCache().getHits() > 0);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final LocalScoreCache cache = new LocalScoreCache(500);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> futures = new ArrayList<>();
+
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    int node = i % 1000;
+                    int[] parents = {node + 1, node + 2};
+                    double s = cache.get(node, parents);
+
+                    if (Double.isNaN(s)) {
+                        cache.add(node, parents, node);
+                    } else if (s != node) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }));
+        }
+
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get());
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertTrue(cache.size() <= 500);
+        assertEquals(40000, cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    public void testCachingScoreSameSearch() {
+        RandomUtil.getInstance().setSeed(492839483L);
+
+        Graph dag = GraphUtils.randomGraph(20, 0, 20, 30, 15, 15, false);
+        SemIm im = new SemIm(new SemPm(dag));
+        DataSet data = im.simulateData(1000, false);
+
+        SemBicScore score = new SemBicScore(new CovarianceMatrix(data));
+        score.setPenaltyDiscount(2);
+
+        Graph expected = new Fges(score).search();
+
+        CachingScore cachingScore = new CachingScore(score, 1000);
+        Graph actual = new Fges(cachingScore).search();
+
+        assertEquals(expected, actual);
+        assertTrue(cachingScore.getDiffCache().getHits() > 0);
+        assertTrue(cachingScore.getDiffCache().size() <= 1000);
+    }
+}
+
+
+
@@ -0,0 +1,111 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.bayes.BayesIm;
+import edu.cmu.tetrad.bayes.BayesPm;
+import edu.cmu.tetrad.bayes.MlBayesIm;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.*;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the batched localScoreDiffs of each score that overrides it agrees with localScoreDiff, one x at a time.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestLocalScoreDiffs {
+
+    private static final int[] XS = {0, 1, 3, 5, 6, 7, 8, 9};
+    private static final int Y = 4;
+
+    @Test
+    public void testSemBicScore() {
+        DataSet data = continuousData();
+
+        // The batch uses partial covariances rather than a regression for each x, so agreement is to rounding.
+        check(new SemBicScore(data), 1e-6);
+    }
+
+    @Test
+    public void testBDeuScore() {
+        check(new BDeuScore(discreteData()), 1e-9);
+    }
+
+    @Test
+    public void testConditionalGaussianScore() {
+        check(new ConditionalGaussianScore(continuousData(), 1, 0, false), 1e-9);
+        check(new ConditionalGaussianScore(discreteData(), 1, 0, false), 1e-9);
+    }
+
+    @Test
+    public void testDegenerateGaussianScore() {
+        check(new DegenerateGaussianScore(continuousData()), 1e-9);
+        check(new DegenerateGaussianScore(discreteData()), 1e-9);
+    }
+
+    private void check(Score score, double tolerance) {
+        for (int[] z : new int[][]{{}, {2}, {2, 10}, {2, 10, 11}}) {
+            double[] diffs = score.localScoreDiffs(XS, Y, z);
+
+            for (int i = 0; i < XS.length; i++) {
+                double diff = z.length == 0 ? score.localScoreDiff(XS[i], Y) : score.localScoreDiff(XS[i], Y, z);
+                assertEquals(diff, diffs[i], tolerance * Math.max(1, Math.abs(diff)));
+            }
+        }
+    }
+
+    private Graph graph() {
+        RandomUtil.getInstance().setSeed(3827492L);
+
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < 12; i++) {
+            vars.add(new ContinuousVariable("X" + i));
+        }
+
+        return GraphUtils.randomGraphRandomForwardEdges(vars, 0, 15, 30, 15, 15, false, true);
+    }
+
+    private DataSet continuousData() {
+        SemIm im = new SemIm(new SemPm(graph()));
+        return im.simulateData(500, false);
+    }
+
+    private DataSet discreteData() {
+        BayesIm im = new MlBayesIm(new BayesPm(graph(), 2, 3), MlBayesIm.RANDOM);
+        return im.simulateData(500, false);
+    }
+}
@@ -0,0 +1,162 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.VerticalDoubleDataBox;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.IndTestHsic;
+import edu.cmu.tetrad.search.Kci;
+import edu.cmu.tetrad.search.kernel.LowRankKernels;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the low-rank kernel approximation against the exact KCI and HSIC tests on small samples.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestLowRankKernels {
+
+    @Test
+    public void testFactor() {
+        DataSet data = getData(60);
+        double[][] columns = data.getDoubleData().transpose().toArray();
+        int N = data.getNumRows();
+
+        int[] cols = {0, 2};
+        double[] scales = {1.5, 2.0};
+
+        LowRankKernels kernels = new LowRankKernels(columns, N, 1e-12);
+        double[][] G = kernels.getFactor(cols, scales);
+
+        double[][] K = new double[N][N];
+        double[] means = new double[N];
+        double mean = 0.0;
+
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                double s = 0.0;
+
+                for (int c = 0; c < cols.length; c++) {
+                    double d = (columns[cols[c]][i] - columns[cols[c]][j]) / scales[c];
+                    s += d * d;
+                }
+
+                K[i][j] = Math.exp(-s);
+                means[i] += K[i][j] / N;
+                mean += K[i][j] / (N * N);
+            }
+        }
+
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                double g = 0.0;
+                for (double[] column : G) g += column[i] * column[j];
+                assertEquals(K[i][j] - means[i] - means[j] + mean, g, 1e-8);
+            }
+        }
+
+        assertSame(G, kernels.getFactor(cols, scales));
+
+        LowRankKernels small = new LowRankKernels(columns, 5, 0);
+        assertEquals(5, small.getFactor(cols, scales).length);
+    }
+
+    @Test
+    public void testKci() {
+        DataSet data = getData(100);
+        List<Node> nodes = data.getVariables();
+
+        for (List<Node> z : conditioningSets(nodes)) {
+            Kci exact = new Kci(data, 0.05);
+            exact.setApproximate(true);
+            exact.isIndependent(nodes.get(0), nodes.get(1), z);
+
+            Kci lowRank = new Kci(data, 0.05);
+            lowRank.setApproximate(true);
+            lowRank.setRank(data.getNumRows());
+            lowRank.isIndependent(nodes.get(0), nodes.get(1), z);
+
+            assertEquals(exact.getPValue(), lowRank.getPValue(), 0.01);
+        }
+    }
+
+    @Test
+    public void testHsic() {
+        DataSet data = getData(100);
+        List<Node> nodes = data.getVariables();
+
+        for (List<Node> z : conditioningSets(nodes)) {
+            IndTestHsic exact = new IndTestHsic(data, 0.05);
+            exact.setIncompleteCholesky(0);
+            exact.setPerms(10);
+            exact.isIndependent(nodes.get(0), nodes.get(1), z);
+
+            IndTestHsic lowRank = new IndTestHsic(data, 0.05);
+            lowRank.setRank(data.getNumRows());
+            lowRank.setPerms(10);
+            lowRank.isIndependent(nodes.get(0), nodes.get(1), z);
+
+            assertTrue(exact.getHsic() > 0);
+            assertEquals(1.0, lowRank.getHsic() / exact.getHsic(), 1e-3);
+        }
+    }
+
+    // X <- Z -> Y, nonlinearly.
+    private DataSet getData(int N) {
+        Random random = new Random(4823L);
+
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(new ContinuousVariable("X"));
+        nodes.add(new ContinuousVariable("Y"));
+        nodes.add(new ContinuousVariable("Z"));
+
+        DataSet data = new BoxDataSet(new VerticalDoubleDataBox(N, 3), nodes);
+
+        for (int i = 0; i < N; i++) {
+            double z = random.nextGaussian();
+            data.setDouble(i, 0, Math.sin(z) + 0.3 * random.nextGaussian());
+            data.setDouble(i, 1, z * z + 0.3 * random.nextGaussian());
+            data.setDouble(i, 2, z);
+        }
+
+        return data;
+    }
+
+    private List<List<Node>> conditioningSets(List<Node> nodes) {
+        List<List<Node>> sets = new ArrayList<>();
+        sets.add(Collections.<Node>emptyList());
+        sets.add(Collections.singletonList(nodes.get(2)));
+        return sets;
+    }
+}
@@ -0,0 +1,140 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.*;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.IndTestFisherZ;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.DataConvertUtils;
+import edu.cmu.tetrad.util.Matrix;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.pitt.dbmi.data.reader.binary.ColumnarBinaryFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Joseph Ramsey
+ */
+public class TestMemoryMappedDataBox {
+
+    @Test
+    public void testMatchesHeapData() throws IOException {
+        RandomUtil.getInstance().setSeed(38482934L);
+
+        Graph graph = GraphUtils.randomGraph(10, 0, 15, 30, 15, 15, false);
+        DataSet heap = new SemIm(new SemPm(graph)).simulateData(300, false);
+
+        Path path = Files.createTempFile("mapped", ".bin");
+
+        try {
+            write(heap, path);
+            DataSet mapped = DataConvertUtils.toMemoryMappedDataModel(path);
+
+            assertEquals(heap.getNumRows(), mapped.getNumRows());
+            assertEquals(heap.getVariableNames(), mapped.getVariableNames());
+
+            for (int i = 0; i < heap.getNumRows(); i++) {
+                for (int j = 0; j < heap.getNumColumns(); j++) {
+                    assertEquals(heap.getDouble(i, j), mapped.getDouble(i, j), 0.0);
+                }
+            }
+
+            Matrix expected = new CovarianceMatrix(heap).getMatrix();
+            Matrix actual = new CovarianceMatrix(mapped).getMatrix();
+
+            for (int i = 0; i < expected.rows(); i++) {
+                for (int j = 0; j < expected.columns(); j++) {
+                    assertEquals(expected.get(i, j), actual.get(i, j), 1e-10);
+                }
+            }
+
+            List<Node> z = new ArrayList<>();
+            z.add(heap.getVariable(2));
+            double expectedP = new IndTestFisherZ(heap, 0.05)
+                    .checkIndependence(heap.getVariable(0), heap.getVariable(1), z).getPValue();
+
+            z.set(0, mapped.getVariable(2));
+            double actualP = new IndTestFisherZ(mapped, 0.05)
+                    .checkIndependence(mapped.getVariable(0), mapped.getVariable(1), z).getPValue();
+
+            assertEquals(expectedP, actualP, 1e-8);
+
+            assertEquals(new SemBicScore(heap).localScore(0, 1, 2),
+                    new SemBicScore(mapped).localScore(0, 1, 2), 1e-6);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testSelectionsAreViews() throws IOException {
+        RandomUtil.getInstance().setSeed(2938483L);
+
+        Graph graph = GraphUtils.randomGraph(6, 0, 6, 30, 15, 15, false);
+        DataSet heap = new SemIm(new SemPm(graph)).simulateData(50, false);
+
+        Path path = Files.createTempFile("mapped", ".bin");
+
+        try {
+            write(heap, path);
+            MemoryMappedDataBox box = new MemoryMappedDataBox(path);
+
+            int[] rows = {4, 0, 17};
+            int[] cols = {5, 2};
+            DataBox view = box.viewSelection(rows, cols);
+            assertTrue(view instanceof MemoryMappedDataBox);
+
+            DataBox subview = view.viewSelection(new int[]{2}, new int[]{1});
+            assertEquals(heap.getDouble(17, 2), subview.get(0, 0).doubleValue(), 0.0);
+
+            DataBox copy = view.copy();
+            copy.set(0, 0, 1.0);
+            assertEquals(1.0, copy.get(0, 0).doubleValue(), 0.0);
+            assertEquals(heap.getDouble(4, 5), view.get(0, 0).doubleValue(), 0.0);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static void write(DataSet data, Path path) throws IOException {
+        try (ColumnarBinaryFile file = ColumnarBinaryFile.create(path, data.getVariableNames(), data.getNumRows(), false)) {
+            for (int j = 0; j < data.getNumColumns(); j++) {
+                for (int i = 0; i < data.getNumRows(); i++) {
+                    file.setDouble(i, j, data.getDouble(i, j));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.IndTestFisherZ;
+import edu.cmu.tetrad.search.PartialCorrelationEngine;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.ChoiceGenerator;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.cmu.tetrad.util.StatUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Joseph Ramsey
+ */
+public class TestPartialCorrelationEngine {
+
+    @Test
+    public void testAgainstInversion() {
+        ICovarianceMatrix cov = getCov();
+        PartialCorrelationEngine engine = new PartialCorrelationEngine(cov);
+        int p = cov.getDimension();
+
+        for (int depth = 0; depth <= 3; depth++) {
+            ChoiceGenerator gen = new ChoiceGenerator(p - 2, depth);
+            int[] choice;
+
+            while ((choice = gen.next()) != null) {
+                int[] z = new int[depth];
+                for (int k = 0; k < depth; k++) z[k] = choice[k] + 2;
+
+                double expected = StatUtils.partialCorrelation(cov.getMatrix(), 0, 1, z);
+                assertEquals(expected, engine.partialCorrelation(0, 1, z), 1e-10);
+
+                double expectedVar = SemBicScore.getVarRy(0, z, null, cov, false);
+                assertEquals(expectedVar, engine.residualVariance(0, z), 1e-10);
+            }
+        }
+
+        assertTrue(engine.getNumFactors() > 0);
+    }
+
+    @Test
+    public void testFisherZAndSemBic() {
+        ICovarianceMatrix cov = getCov();
+
+        IndTestFisherZ test1 = new IndTestFisherZ(cov, 0.05);
+        IndTestFisherZ test2 = new IndTestFisherZ(cov, 0.05);
+        test2.setUsePartialCorrelationEngine(true);
+
+        SemBicScore score1 = new SemBicScore(cov);
+        SemBicScore score2 = new SemBicScore(cov);
+        score2.setUsePartialCorrelationEngine(true);
+
+        List<Node> nodes = cov.getVariables();
+
+        for (int i = 2; i < nodes.size(); i++) {
+            List<Node> z = new ArrayList<>(nodes.subList(2, i));
+            assertEquals(test1.getPValue(nodes.get(0), nodes.get(1), z),
+                    test2.getPValue(nodes.get(0), nodes.get(1), z), 1e-8);
+
+            int[] parents = new int[i - 1];
+            for (int k = 0; k < parents.length; k++) parents[k] = k + 1;
+            assertEquals(score1.localScore(0, parents), score2.localScore(0, parents), 1e-6);
+        }
+    }
+
+    private ICovarianceMatrix getCov() {
+        RandomUtil.getInstance().setSeed(29384723L);
+        Graph graph = GraphUtils.randomGraph(10, 0, 15, 30, 15, 15, false);
+        SemIm im = new SemIm(new SemPm(graph));
+        DataSet data = im.simulateData(1000, false);
+        return new CovarianceMatrix(data);
+    }
+}
+
+
+
@@ -0,0 +1,169 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.algcomparison.algorithm.oracle.pattern.Fges;
+import edu.cmu.tetrad.algcomparison.score.SemBicScore;
+import edu.cmu.tetrad.data.*;
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.Params;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.pitt.dbmi.algo.resampling.GeneralResamplingTest;
+import edu.pitt.dbmi.algo.resampling.ResamplingEdgeEnsemble;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that resampled views behave as copied resamples do.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestResampledDataBox {
+
+    @Test
+    public void testViewsMatchCopies() {
+        DataSet dataSet = simulate(8, 1000);
+
+        RandomUtil.getInstance().setSeed(3928401L);
+        DataSet copy = DataUtils.getBootstrapSample(dataSet, 800);
+        RandomUtil.getInstance().setSeed(3928401L);
+        DataSet view = DataUtils.getBootstrapSampleView(dataSet, 800);
+
+        assertEquals(copy.getNumRows(), view.getNumRows());
+
+        for (int i = 0; i < copy.getNumRows(); i++) {
+            for (int j = 0; j < copy.getNumColumns(); j++) {
+                assertEquals(copy.getDouble(i, j), view.getDouble(i, j), 0.0);
+            }
+        }
+
+        for (boolean biasCorrected : new boolean[]{true, false}) {
+            assertTrue(new CovarianceMatrix(view, biasCorrected).getMatrix()
+                    .equals(new CovarianceMatrix(copy, biasCorrected).getMatrix(), 1e-10));
+        }
+
+        int[] cols = {5, 1, 3};
+        assertTrue(new CovarianceMatrix(view.subsetColumns(cols)).getMatrix()
+                .equals(new CovarianceMatrix(copy.subsetColumns(cols)).getMatrix(), 1e-10));
+    }
+
+    @Test
+    public void testRowMajorBoxes() {
+        DataSet dataSet = simulate(5, 300);
+        int n = dataSet.getNumRows();
+        int p = dataSet.getNumColumns();
+
+        RandomUtil.getInstance().setSeed(3928404L);
+        int[] rows = new int[250];
+        for (int i = 0; i < rows.length; i++) rows[i] = RandomUtil.getInstance().nextInt(n);
+
+        double[][] all = new double[n][p];
+        double[][] drawn = new double[rows.length][p];
+        MixedDataBox mixed = new MixedDataBox(dataSet.getVariables(), n);
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < p; j++) {
+                all[i][j] = dataSet.getDouble(i, j);
+                mixed.set(i, j, all[i][j]);
+            }
+        }
+
+        for (int i = 0; i < rows.length; i++) drawn[i] = all[rows[i]].clone();
+
+        DataSet copy = new BoxDataSet(new DoubleDataBox(drawn), dataSet.getVariables());
+
+        for (DataBox box : new DataBox[]{new DoubleDataBox(all), mixed}) {
+            ResampledDataBox view = new ResampledDataBox(box, rows);
+
+            for (boolean biasCorrected : new boolean[]{true, false}) {
+                double[][] expected = new CovarianceMatrix(copy, biasCorrected).getMatrix().toArray();
+                double[][] actual = view.covariances(biasCorrected);
+
+                for (int i = 0; i < p; i++) {
+                    for (int j = 0; j < p; j++) {
+                        assertEquals(expected[i][j], actual[i][j], 1e-10);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEditsLeaveDataUnchanged() {
+        DataSet dataSet = simulate(4, 100);
+        RandomUtil.getInstance().setSeed(3928402L);
+        DataSet view = DataUtils.getBootstrapSampleView(dataSet, 100);
+        DataSet copy = view.copy();
+
+        double value = dataSet.getDouble(0, 0);
+        view.setDouble(0, 0, value + 1.0);
+        copy.setDouble(0, 0, value + 1.0);
+
+        assertEquals(value, dataSet.getDouble(0, 0), 0.0);
+        assertEquals(value + 1.0, view.getDouble(0, 0), 0.0);
+        assertTrue(new CovarianceMatrix(view).getMatrix().equals(new CovarianceMatrix(copy).getMatrix(), 1e-10));
+    }
+
+    @Test
+    public void testResamplingSearchWithViews() {
+        DataSet dataSet = simulate(10, 500);
+        List<Graph> graphs = new ArrayList<>();
+
+        for (boolean resamplingViews : new boolean[]{true, false}) {
+            Parameters parameters = new Parameters();
+            parameters.set(Params.PENALTY_DISCOUNT, 2);
+
+            GeneralResamplingTest test = new GeneralResamplingTest(dataSet, new Fges(new SemBicScore()), 10);
+            test.setResamplingViews(resamplingViews);
+            test.setParallelMode(false);
+            test.setParameters(parameters);
+            test.setEdgeEnsemble(ResamplingEdgeEnsemble.Majority);
+            test.setSeed(3928403L);
+            graphs.add(test.search());
+        }
+
+        assertEquals(graphs.get(1).getEdges(), graphs.get(0).getEdges());
+    }
+
+    private DataSet simulate(int numVars, int sampleSize) {
+        RandomUtil.getInstance().setSeed(3928400L);
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < numVars; i++) {
+            nodes.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph graph = new Dag(GraphUtils.randomGraph(nodes, 0, numVars, 30, 15, 15, false));
+        return new SemIm(new SemPm(graph)).simulateData(sampleSize, false);
+    }
+}
@@ -0,0 +1,123 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.bayes.*;
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the sampling updater against the exact row summing updater.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestSamplingUpdater {
+
+    @Test
+    public void testMethodsAgreeWithExact() {
+        RandomUtil.getInstance().setSeed(4829384L);
+
+        Dag dag = new Dag(GraphUtils.randomGraph(8, 0, 10, 4, 3, 3, true));
+        BayesIm bayesIm = new MlBayesIm(new BayesPm(dag, 2, 3), MlBayesIm.RANDOM);
+
+        Evidence evidence = Evidence.tautology(bayesIm);
+        evidence.getProposition().setCategory(0, 1);
+        evidence.getProposition().setCategory(5, 0);
+
+        ManipulatingBayesUpdater exact = new RowSummingExactUpdater(bayesIm);
+        exact.setEvidence(evidence);
+
+        for (SamplingUpdater.Method method : SamplingUpdater.Method.values()) {
+            SamplingUpdater updater = new SamplingUpdater(bayesIm, evidence);
+            updater.setMethod(method);
+            updater.setNumSamples(200000);
+            updater.setSeed(123L);
+
+            for (int i = 0; i < bayesIm.getNumNodes(); i++) {
+                for (int k = 0; k < bayesIm.getNumColumns(i); k++) {
+                    assertEquals(method + " node " + i, exact.getMarginal(i, k), updater.getMarginal(i, k), 0.02);
+                }
+            }
+
+            assertTrue(updater.getEffectiveSampleSize() > 0);
+            assertTrue(updater.getMaxStandardError() < 0.02);
+
+            if (method == SamplingUpdater.Method.GIBBS) {
+                assertTrue(updater.getMaxRHat() < 1.1);
+            }
+        }
+    }
+
+    @Test
+    public void testManipulatedVariable() {
+        RandomUtil.getInstance().setSeed(5938472L);
+
+        Dag dag = new Dag(GraphUtils.randomGraph(8, 0, 10, 4, 3, 3, true));
+        BayesIm bayesIm = new MlBayesIm(new BayesPm(dag, 2, 3), MlBayesIm.RANDOM);
+
+        // Manipulate a node with parents, so that its table can't be copied.
+        int manipulated = 0;
+        while (bayesIm.getParents(manipulated).length == 0) manipulated++;
+
+        Evidence evidence = Evidence.tautology(bayesIm);
+        evidence.setManipulated(manipulated, true);
+        evidence.getProposition().setCategory(manipulated, 1);
+
+        ManipulatingBayesUpdater exact = new RowSummingExactUpdater(bayesIm);
+        exact.setEvidence(evidence);
+
+        for (SamplingUpdater.Method method : SamplingUpdater.Method.values()) {
+            SamplingUpdater updater = new SamplingUpdater(bayesIm, evidence);
+            updater.setMethod(method);
+            updater.setNumSamples(200000);
+            updater.setSeed(123L);
+
+            for (int i = 0; i < bayesIm.getNumNodes(); i++) {
+                for (int k = 0; k < bayesIm.getNumColumns(i); k++) {
+                    assertEquals(method + " node " + i, exact.getMarginal(i, k), updater.getMarginal(i, k), 0.02);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSeedMakesUpdatesRepeatable() {
+        RandomUtil.getInstance().setSeed(9384752L);
+
+        Dag dag = new Dag(GraphUtils.randomGraph(6, 0, 6, 3, 2, 2, true));
+        BayesIm bayesIm = new MlBayesIm(new BayesPm(dag, 2, 2), MlBayesIm.RANDOM);
+
+        SamplingUpdater updater1 = new SamplingUpdater(bayesIm);
+        updater1.setSeed(42L);
+        SamplingUpdater updater2 = new SamplingUpdater(bayesIm);
+        updater2.setSeed(42L);
+
+        for (int i = 0; i < bayesIm.getNumNodes(); i++) {
+            assertEquals(updater1.getMarginal(i, 0), updater2.getMarginal(i, 0), 0.0);
+        }
+    }
+}
@@ -31,6 +31,9 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 /**
  * Tests the MeasurementSimulator class using diagnostics devised by Richard
  * Scheines. The diagnostics are described in the Javadocs, below.
@@ -76,6 +79,52 @@ public class TestSemEstimator {
         new SemEstimator(data, pm, new SemOptimizerPowell()).estimate();
     }
 
+    @Test
+    public void testBfgsAgainstRegression() {
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            nodes.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph graph = new Dag(GraphUtils.randomGraph(nodes, 0, 10,
+                30, 15, 15, false));
+        SemPm pm = new SemPm(graph);
+        DataSet data = new SemIm(pm).simulateData(1000, false);
+
+        SemIm im1 = new SemIm(pm);
+        im1.setDataSet(data);
+        new SemOptimizerRegression().optimize(im1);
+
+        SemIm im2 = new SemIm(pm);
+        im2.setDataSet(data);
+        new SemOptimizerBfgs().optimize(im2);
+
+        assertEquals(im1.getScore(), im2.getScore(), 1e-6);
+    }
+
+    @Test
+    public void testBfgsAgainstPowell() {
+        Graph graph = GraphConverter.convert("X1-->X2,X2-->X3,X3-->X4,X4-->X1");
+
+        SemPm pm = new SemPm(graph);
+        DataSet data = new SemIm(pm).simulateData(1000, false);
+
+        SemIm im1 = new SemIm(pm);
+        im1.setDataSet(data);
+        new SemOptimizerPowell().optimize(im1);
+
+        SemOptimizerBfgs bfgs = new SemOptimizerBfgs();
+        bfgs.setNumRestarts(3);
+        bfgs.setFisherInformationUsed(true);
+
+        SemIm im2 = new SemIm(pm);
+        im2.setDataSet(data);
+        bfgs.optimize(im2);
+
+        assertTrue(im2.getScore() <= im1.getScore() + 1e-6);
+    }
+
     private Graph constructGraph1() {
         Graph graph = new EdgeListGraph();
 
@@ -0,0 +1,119 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphConverter;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.sem.ParamType;
+import edu.cmu.tetrad.sem.Parameter;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.sem.SemSimulator;
+import edu.cmu.tetrad.util.ComputeExecutor;
+import edu.cmu.tetrad.util.Matrix;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the parallel SEM simulator.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestSemSimulator {
+
+    @Test
+    public void testSameDataForAnyParallelism() {
+        int[][] parents = {{}, {0}, {0, 1}, {2}};
+        double[][] coefs = {{}, {.8}, {-.5, 1.2}, {.7}};
+        double[] errorVars = {1, 2, 1.5, 1};
+        double[] intercepts = {0, 1, 0, -1};
+
+        SemSimulator simulator = new SemSimulator(parents, coefs, errorVars, intercepts);
+        simulator.setBlockSize(100);
+
+        ComputeExecutor executor = ComputeExecutor.getInstance();
+        int parallelism = executor.getParallelism();
+
+        try {
+            executor.setParallelism(1);
+            double[][] data1 = simulator.simulate(1050, 42L);
+
+            executor.setParallelism(4);
+            double[][] data2 = simulator.simulate(1050, 42L);
+
+            for (int i = 0; i < data1.length; i++) {
+                assertArrayEquals(data1[i], data2[i], 0.0);
+            }
+        } finally {
+            executor.setParallelism(parallelism);
+        }
+    }
+
+    @Test
+    public void testImpliedCovariance() {
+        RandomUtil.getInstance().setSeed(29384829L);
+
+        // Correlated errors, and a cycle.
+        checkCovariance(GraphConverter.convert("X1-->X2,X2-->X3,X1<->X3,X3-->X4"));
+        checkCovariance(GraphConverter.convert("X1-->X2,X2-->X3,X3-->X4,X4-->X2"));
+    }
+
+    private void checkCovariance(Graph graph) {
+        SemIm im = new SemIm(new SemPm(graph));
+
+        Node x2 = im.getSemPm().getGraph().getNode("X2");
+        im.setMean(x2, 3.0);
+
+        for (Parameter parameter : im.getSemPm().getParameters()) {
+            if (parameter.getType() == ParamType.COEF) {
+                im.setParamValue(parameter, 0.4);
+            }
+        }
+
+        DataSet data = im.simulateDataParallel(100000, 1234L, false);
+
+        Matrix expected = im.getImplCovar(true);
+        Matrix actual = new CovarianceMatrix(data).getMatrix();
+
+        for (int i = 0; i < expected.rows(); i++) {
+            for (int j = 0; j < expected.columns(); j++) {
+                double tolerance = 0.05 * Math.sqrt(expected.get(i, i) * expected.get(j, j));
+                assertEquals(expected.get(i, j), actual.get(i, j), tolerance);
+            }
+        }
+
+        double mean = 0.0;
+        int column = data.getColumn(data.getVariable("X2"));
+
+        for (int i = 0; i < data.getNumRows(); i++) {
+            mean += data.getDouble(i, column);
+        }
+
+        assertEquals(3.0, mean / data.getNumRows(), 0.05);
+    }
+}